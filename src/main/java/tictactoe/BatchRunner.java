@@ -0,0 +1,211 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+// Non-interactive play - replays scripted games and runs engine-vs-engine matches, one result line per game
+public class BatchRunner {
+    private final Map<BoardSpec, GameEngine> replayEngines = new HashMap<>();
+    private final StringBuilder line = new StringBuilder(64);
+    private final Random seeds;
+    private BoardSpec spec = BoardSpec.STANDARD;
+    
+    public BatchRunner() {
+        this(new Random());
+    }
+    
+    // seeds supplies the random source of each engine match, so a seeded runner repeats its games
+    BatchRunner(Random seeds) {
+        this.seeds = seeds;
+    }
+    
+    // Reads a script and writes "game<TAB>board<TAB>result<TAB>plies[<TAB>winning line]" per game. Script lines:
+    //   0,0 1,1 0,1 2,2 0,2     a game's moves in order, X first
+    //   board 15x15k5           board spec for the lines that follow (3x3 until set)
+    //   play HARD 7 100         100 engine games, X first - a difficulty or a strength level from 1 to 20
+    // '#' starts a comment. A replay that leaves the game unfinished reports PLAYING; a bad move reports ERROR.
+    public Summary run(BufferedReader in, Writer out) throws IOException {
+        Summary summary = new Summary();
+        long start = System.nanoTime();
+        String text;
+        while ((text = in.readLine()) != null) {
+            int comment = text.indexOf('#');
+            String record = (comment >= 0 ? text.substring(0, comment) : text).trim();
+            if (record.isEmpty()) {
+                continue;
+            }
+            if (record.startsWith("board")) {
+                spec = BoardSpec.parse(record.substring("board".length()).trim());
+            } else if (record.startsWith("play")) {
+                playMatch(record, out, summary);
+            } else {
+                replay(record, out, summary);
+            }
+        }
+        out.flush();
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+    
+    // Parses the moves in place rather than splitting, and reuses one engine per board spec
+    private void replay(String record, Writer out, Summary summary) throws IOException {
+        GameEngine engine = replayEngines.get(spec);
+        if (engine == null) {
+            engine = new GameEngine(new HumanPlayer(CellState.X, "X"), new HumanPlayer(CellState.O, "O"), spec);
+            replayEngines.put(spec, engine);
+        }
+        engine.reset();
+        
+        int plies = 0;
+        int length = record.length();
+        int pos = 0;
+        while (pos < length) {
+            while (pos < length && Character.isWhitespace(record.charAt(pos))) {
+                pos++;
+            }
+            if (pos == length) {
+                break;
+            }
+            int tokenStart = pos;
+            int row = 0;
+            int col = 0;
+            int digits = 0;
+            boolean comma = false;
+            boolean valid = true;
+            for (; pos < length && !Character.isWhitespace(record.charAt(pos)); pos++) {
+                char c = record.charAt(pos);
+                if (c == ',' && !comma && digits > 0) {
+                    comma = true;
+                    digits = 0;
+                } else if (c >= '0' && c <= '9' && digits < 3) {
+                    if (comma) {
+                        col = col * 10 + (c - '0');
+                    } else {
+                        row = row * 10 + (c - '0');
+                    }
+                    digits++;
+                } else {
+                    valid = false;
+                }
+            }
+            if (!valid || !comma || digits == 0 || !engine.processMove(new Move(row, col))) {
+                String reason = engine.getState() == GameState.PLAYING ? "illegal move '" : "move after game over '";
+                writeError(plies + 1, reason + record.substring(tokenStart, pos) + "'", out, summary);
+                return;
+            }
+            plies++;
+        }
+        writeResult(engine, plies, out, summary);
+    }
+    
+    // "play <X strength> <O strength> [games]"
+    private void playMatch(String record, Writer out, Summary summary) throws IOException {
+        String[] parts = record.split("\\s+");
+        if (parts.length < 3 || parts.length > 4) {
+            throw new IllegalArgumentException("Expected 'play <strength> <strength> [games]': " + record);
+        }
+        Strength xLevel = Strength.parse(parts[1]);
+        Strength oLevel = Strength.parse(parts[2]);
+        int games = parts.length == 4 ? Integer.parseInt(parts[3]) : 1;
+        
+        Random random = new Random(seeds.nextLong());
+        GameEngine engine = new GameEngine(
+            new ComputerPlayer(CellState.X, "X", xLevel, new HeapTranspositionTable(14), random),
+            new ComputerPlayer(CellState.O, "O", oLevel, new HeapTranspositionTable(14), random),
+            spec);
+        for (int game = 0; game < games; game++) {
+            engine.reset();
+            int plies = 0;
+            while (engine.getState() == GameState.PLAYING) {
+                engine.processMove(engine.getComputerMove());
+                plies++;
+            }
+            writeResult(engine, plies, out, summary);
+        }
+    }
+    
+    private void writeResult(GameEngine engine, int plies, Writer out, Summary summary) throws IOException {
+        GameState state = engine.getState();
+        summary.games++;
+        summary.count(state);
+        line.setLength(0);
+        line.append(summary.games).append('\t').append(spec).append('\t').append(state).append('\t').append(plies);
+        WinLine win = engine.getWinLine();
+        if (win != null) {
+            Move from = win.getStart();
+            Move to = win.getEnd();
+            line.append('\t').append(from.getRow()).append(',').append(from.getCol())
+                .append('-').append(to.getRow()).append(',').append(to.getCol());
+        }
+        line.append('\n');
+        out.append(line);
+    }
+    
+    private void writeError(int ply, String message, Writer out, Summary summary) throws IOException {
+        summary.games++;
+        summary.errors++;
+        line.setLength(0);
+        line.append(summary.games).append('\t').append(spec).append("\tERROR\t").append(ply)
+            .append('\t').append(message).append('\n');
+        out.append(line);
+    }
+    
+    // Totals for one batch run
+    public static class Summary {
+        private int games;
+        private int xWins;
+        private int oWins;
+        private int draws;
+        private int unfinished;
+        private int errors;
+        private long elapsedNanos;
+        
+        private void count(GameState state) {
+            switch (state) {
+                case X_WINS: xWins++; break;
+                case O_WINS: oWins++; break;
+                case DRAW: draws++; break;
+                default: unfinished++; break;
+            }
+        }
+        
+        public int getGames() {
+            return games;
+        }
+        
+        public int getXWins() {
+            return xWins;
+        }
+        
+        public int getOWins() {
+            return oWins;
+        }
+        
+        public int getDraws() {
+            return draws;
+        }
+        
+        public int getUnfinished() {
+            return unfinished;
+        }
+        
+        public int getErrors() {
+            return errors;
+        }
+        
+        public double getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : games * 1e9 / elapsedNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("games=%d x=%d o=%d draws=%d unfinished=%d errors=%d elapsed=%dms rate=%.0f games/sec",
+                games, xWins, oWins, draws, unfinished, errors, elapsedNanos / 1_000_000, getGamesPerSecond());
+        }
+    }
+}
+
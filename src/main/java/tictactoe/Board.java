@@ -1,40 +1,76 @@
 package tictactoe;
 
+import java.util.Arrays;
+
 // Represents the game board state - handles move validation, win/draw detection, UI-independent
 public class Board {
-    private static final int SIZE = 3;
-    private CellState[][] grid;
+    // SYMMETRIES[s][mask] is a 3x3 mask with its cells moved by rotation/reflection s
+    private static final int[][] SYMMETRIES = buildSymmetries();
+    
+    // The four line directions: horizontal, vertical, diagonal, anti-diagonal
+    private static final WinLine.Direction[] DIRECTIONS = WinLine.Direction.values();
+    
+    private final BoardSpec spec;
+    private final int rows;
+    private final int cols;
+    
+    // One bit per cell for each mark (bit index = row * cols + col) - a cell is empty when neither bit is set
+    private final long[] xWords;
+    private final long[] oWords;
+    private int filled;
+    private long hash;
     
     public Board() {
-        grid = new CellState[SIZE][SIZE];
-        clear();
+        this(BoardSpec.STANDARD);
+    }
+    
+    public Board(BoardSpec spec) {
+        this.spec = spec;
+        this.rows = spec.getRows();
+        this.cols = spec.getCols();
+        int words = (spec.getCells() + 63) >>> 6;
+        this.xWords = new long[words];
+        this.oWords = new long[words];
     }
     
     // Creates a copy of the board for minimax calculations
     public Board(Board other) {
-        this.grid = new CellState[SIZE][SIZE];
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                this.grid[i][j] = other.grid[i][j];
-            }
-        }
+        this.spec = other.spec;
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.xWords = other.xWords.clone();
+        this.oWords = other.oWords.clone();
+        this.filled = other.filled;
+        this.hash = other.hash;
     }
     
     public void clear() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                grid[i][j] = CellState.EMPTY;
-            }
-        }
+        Arrays.fill(xWords, 0);
+        Arrays.fill(oWords, 0);
+        filled = 0;
+        hash = 0;
+    }
+    
+    public BoardSpec getSpec() {
+        return spec;
     }
     
+    // Side length of a square board (the row count otherwise)
     public int getSize() {
-        return SIZE;
+        return rows;
+    }
+    
+    public int getRows() {
+        return rows;
+    }
+    
+    public int getCols() {
+        return cols;
     }
     
     public CellState getCell(int row, int col) {
         validateBounds(row, col);
-        return grid[row][col];
+        return cellAt(row * cols + col);
     }
     
     // Validates if a move is legal (within bounds and cell is empty)
@@ -48,92 +84,222 @@ public class Board {
         if (!isInBounds(row, col)) {
             return false;
         }
-        return grid[row][col] == CellState.EMPTY;
+        return isEmptyAt(row * cols + col);
     }
     
     // Places a mark on the board if move is valid (returns true if successful)
     public boolean makeMove(Move move, CellState mark) {
-        if (!isValidMove(move)) {
+        if (!isValidMove(move) || mark == null || mark == CellState.EMPTY) {
             return false;
         }
-        grid[move.getRow()][move.getCol()] = mark;
+        place(move.getRow() * cols + move.getCol(), mark);
         return true;
     }
     
     // Checks if the board is full (draw condition)
     public boolean isFull() {
-        for (int i = 0; i < SIZE; i++) {
-            for (int j = 0; j < SIZE; j++) {
-                if (grid[i][j] == CellState.EMPTY) {
-                    return false;
-                }
-            }
-        }
-        return true;
+        return filled == spec.getCells();
     }
     
-    // Checks if a player has won (checks rows, columns, and diagonals)
+    // Checks if a player has a full line of the spec's win length anywhere on the board
     public boolean hasWon(CellState mark) {
-        if (mark == CellState.EMPTY) {
+        if (mark == null || mark == CellState.EMPTY) {
             return false;
         }
-        
-        // Check rows
-        for (int i = 0; i < SIZE; i++) {
-            if (checkRow(i, mark)) {
-                return true;
-            }
+        if (isSmall()) {
+            return spec.isWinning(marks(mark));
         }
-        
-        // Check columns
-        for (int j = 0; j < SIZE; j++) {
-            if (checkColumn(j, mark)) {
-                return true;
+        long[] words = mark == CellState.X ? xWords : oWords;
+        for (int word = 0; word < words.length; word++) {
+            for (long bits = words[word]; bits != 0; bits &= bits - 1) {
+                if (completesLine((word << 6) + Long.numberOfTrailingZeros(bits), mark)) {
+                    return true;
+                }
             }
         }
-        
-        // Check diagonals
-        return checkMainDiagonal(mark) || checkAntiDiagonal(mark);
+        return false;
     }
     
-    private boolean checkRow(int row, CellState mark) {
-        for (int j = 0; j < SIZE; j++) {
-            if (grid[row][j] != mark) {
-                return false;
-            }
+    // Position key for transposition tables. 3x3 boards use the smallest encoding of both marks over the
+    // 8 rotations and reflections, so symmetric positions share a key. Other boards use an incremental Zobrist hash.
+    public long canonicalKey() {
+        if (rows != 3 || cols != 3) {
+            return hash;
         }
-        return true;
+        int x = (int) xWords[0];
+        int o = (int) oWords[0];
+        long best = Long.MAX_VALUE;
+        for (int[] symmetry : SYMMETRIES) {
+            best = Math.min(best, ((long) symmetry[x] << 9) | symmetry[o]);
+        }
+        return best;
+    }
+    
+    // canonicalKey() as it would be after place(index, mark) - without placing, except on 3x3 boards
+    long keyAfter(int index, CellState mark) {
+        if (rows != 3 || cols != 3) {
+            return hash ^ spec.zobrist(index, mark);
+        }
+        place(index, mark);
+        long key = canonicalKey();
+        remove(index);
+        return key;
+    }
+    
+    // Trusted engine access below: flat cell index (row * cols + col), no bounds checks, no Move objects.
+    // Callers must pass indexes in [0, cellCount()) and only place on empty cells.
+    
+    int cellCount() {
+        return spec.getCells();
+    }
+    
+    int emptyCount() {
+        return spec.getCells() - filled;
+    }
+    
+    // Whether each mark fits in one long, so emptyMask() and marks() cover the whole board
+    boolean isSmall() {
+        return xWords.length == 1;
+    }
+    
+    // Bitmask of empty cells on a small board - iterate with Long.numberOfTrailingZeros and mask &= mask - 1
+    long emptyMask() {
+        int cells = spec.getCells();
+        long full = cells == 64 ? -1L : (1L << cells) - 1;
+        return ~(xWords[0] | oWords[0]) & full;
+    }
+    
+    // Bitmask of the cells holding mark on a small board
+    long marks(CellState mark) {
+        return mark == CellState.X ? xWords[0] : oWords[0];
+    }
+    
+    // Whether bits (a mark set on a small board) covers a whole line
+    boolean isWinning(long bits) {
+        return spec.isWinning(bits);
+    }
+    
+    boolean isEmptyAt(int index) {
+        return (((xWords[index >>> 6] | oWords[index >>> 6]) >>> index) & 1) == 0;
+    }
+    
+    CellState cellAt(int index) {
+        if (((xWords[index >>> 6] >>> index) & 1) != 0) {
+            return CellState.X;
+        }
+        return ((oWords[index >>> 6] >>> index) & 1) != 0 ? CellState.O : CellState.EMPTY;
+    }
+    
+    // mark's cells in row as bits 0 to cols - 1, whatever the board size - rows can straddle two words
+    long rowMarks(int row, CellState mark) {
+        long[] words = mark == CellState.X ? xWords : oWords;
+        int start = row * cols;
+        int word = start >>> 6;
+        int offset = start & 63;
+        long bits = words[word] >>> offset;
+        if (offset + cols > 64) {
+            bits |= words[word + 1] << (64 - offset);
+        }
+        return cols == 64 ? bits : bits & ((1L << cols) - 1);
     }
     
-    private boolean checkColumn(int col, CellState mark) {
-        for (int i = 0; i < SIZE; i++) {
-            if (grid[i][col] != mark) {
-                return false;
+    // 1 for X, 2 for O, 0 for empty - without branching, for scans over many cells
+    int markCode(int index) {
+        long x = xWords[index >>> 6] >>> index;
+        long o = oWords[index >>> 6] >>> index;
+        return (int) (x & 1 | (o & 1) << 1);
+    }
+    
+    void place(int index, CellState mark) {
+        if (mark == CellState.X) {
+            xWords[index >>> 6] |= 1L << index;
+        } else if (mark == CellState.O) {
+            oWords[index >>> 6] |= 1L << index;
+        } else {
+            return;
+        }
+        filled++;
+        hash ^= spec.zobrist(index, mark);
+    }
+    
+    // Undoes place() - searches make and unmake moves on one board instead of copying it
+    void remove(int index) {
+        CellState mark = cellAt(index);
+        if (mark == CellState.EMPTY) {
+            return;
+        }
+        long keep = ~(1L << index);
+        xWords[index >>> 6] &= keep;
+        oWords[index >>> 6] &= keep;
+        filled--;
+        hash ^= spec.zobrist(index, mark);
+    }
+    
+    // Whether the mark at index is part of a run of at least the win length - only looks along the
+    // four lines through that cell, so checking the last move costs O(k) on any board size
+    boolean completesLine(int index, CellState mark) {
+        return winLineThrough(index, mark) != null;
+    }
+    
+    // The winning run through the mark at index, or null - the same last-move check as completesLine
+    WinLine winLineThrough(int index, CellState mark) {
+        int row = index / cols;
+        int col = index % cols;
+        int need = spec.getWinLength();
+        for (WinLine.Direction direction : DIRECTIONS) {
+            int back = countRun(row, col, -direction.getRowStep(), -direction.getColStep(), mark);
+            int run = 1 + back + countRun(row, col, direction.getRowStep(), direction.getColStep(), mark);
+            if (run >= need) {
+                return new WinLine(mark, row - back * direction.getRowStep(), col - back * direction.getColStep(), direction, run);
             }
         }
-        return true;
+        return null;
     }
     
-    private boolean checkMainDiagonal(CellState mark) {
-        for (int i = 0; i < SIZE; i++) {
-            if (grid[i][i] != mark) {
-                return false;
+    // Consecutive cells holding mark from (row, col) in one direction, not counting (row, col) itself
+    private int countRun(int row, int col, int dRow, int dCol, CellState mark) {
+        long[] words = mark == CellState.X ? xWords : oWords;
+        int run = 0;
+        int r = row + dRow;
+        int c = col + dCol;
+        while (r >= 0 && r < rows && c >= 0 && c < cols) {
+            int index = r * cols + c;
+            if (((words[index >>> 6] >>> index) & 1) == 0) {
+                break;
             }
+            run++;
+            r += dRow;
+            c += dCol;
         }
-        return true;
+        return run;
     }
     
-    private boolean checkAntiDiagonal(CellState mark) {
-        for (int i = 0; i < SIZE; i++) {
-            if (grid[i][SIZE - 1 - i] != mark) {
-                return false;
+    private static int[][] buildSymmetries() {
+        int size = 3;
+        int[][] tables = new int[8][1 << 9];
+        for (int symmetry = 0; symmetry < 8; symmetry++) {
+            for (int mask = 0; mask < 1 << 9; mask++) {
+                int moved = 0;
+                for (int i = 0; i < size; i++) {
+                    for (int j = 0; j < size; j++) {
+                        if ((mask & (1 << (i * size + j))) == 0) {
+                            continue;
+                        }
+                        int row = (symmetry & 4) != 0 ? j : i;
+                        int col = (symmetry & 4) != 0 ? i : j;
+                        if ((symmetry & 1) != 0) row = size - 1 - row;
+                        if ((symmetry & 2) != 0) col = size - 1 - col;
+                        moved |= 1 << (row * size + col);
+                    }
+                }
+                tables[symmetry][mask] = moved;
             }
         }
-        return true;
+        return tables;
     }
     
     private boolean isInBounds(int row, int col) {
-        return row >= 0 && row < SIZE && col >= 0 && col < SIZE;
+        return row >= 0 && row < rows && col >= 0 && col < cols;
     }
     
     private void validateBounds(int row, int col) {
@@ -0,0 +1,165 @@
+package tictactoe;
+
+// Immutable board position - safe to share between threads without locks or copies. Boards of up to 64 cells are
+// two longs; larger ones keep their bitsets in fixed-size chunks, and withMove copies only the chunk it changes.
+public final class BoardSnapshot {
+    private static final int CHUNK_WORDS = 4; // 256 cells per chunk
+    
+    private final BoardSpec spec;
+    private final int moveCount;
+    
+    // Small boards: one bit per cell for each mark (bit index = row * cols + col)
+    private final long xBits;
+    private final long oBits;
+    
+    // Larger boards: chunk[i] holds words i * CHUNK_WORDS and up - chunks are shared between snapshots, never written
+    private final long[][] xChunks;
+    private final long[][] oChunks;
+    
+    private BoardSnapshot(BoardSpec spec, int moveCount, long xBits, long oBits, long[][] xChunks, long[][] oChunks) {
+        this.spec = spec;
+        this.moveCount = moveCount;
+        this.xBits = xBits;
+        this.oBits = oBits;
+        this.xChunks = xChunks;
+        this.oChunks = oChunks;
+    }
+    
+    public static BoardSnapshot empty(BoardSpec spec) {
+        if (spec.getCells() <= BoardSpec.SMALL_CELLS) {
+            return new BoardSnapshot(spec, 0, 0, 0, null, null);
+        }
+        int words = (spec.getCells() + 63) >>> 6;
+        int chunks = (words + CHUNK_WORDS - 1) / CHUNK_WORDS;
+        // Every chunk starts as the same shared all-empty array
+        long[] blank = new long[CHUNK_WORDS];
+        long[][] xChunks = new long[chunks][];
+        long[][] oChunks = new long[chunks][];
+        for (int i = 0; i < chunks; i++) {
+            xChunks[i] = blank;
+            oChunks[i] = blank;
+        }
+        return new BoardSnapshot(spec, 0, 0, 0, xChunks, oChunks);
+    }
+    
+    // Full copy of a mutable board's current position
+    public static BoardSnapshot of(Board board) {
+        BoardSnapshot snapshot = empty(board.getSpec());
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (!board.isEmptyAt(cell)) {
+                snapshot = snapshot.withMove(cell, board.cellAt(cell));
+            }
+        }
+        return snapshot;
+    }
+    
+    public BoardSpec getSpec() {
+        return spec;
+    }
+    
+    public int getRows() {
+        return spec.getRows();
+    }
+    
+    public int getCols() {
+        return spec.getCols();
+    }
+    
+    public int getMoveCount() {
+        return moveCount;
+    }
+    
+    public boolean isFull() {
+        return moveCount == spec.getCells();
+    }
+    
+    public CellState getCell(int row, int col) {
+        if (row < 0 || row >= spec.getRows() || col < 0 || col >= spec.getCols()) {
+            throw new IllegalArgumentException("Position out of bounds: (" + row + ", " + col + ")");
+        }
+        return cellAt(row * spec.getCols() + col);
+    }
+    
+    // Mutable copy for searching or analysis - visits only the marked cells
+    public Board toBoard() {
+        Board board = new Board(spec);
+        int words = (spec.getCells() + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            for (long bits = word(CellState.X, word); bits != 0; bits &= bits - 1) {
+                board.place((word << 6) + Long.numberOfTrailingZeros(bits), CellState.X);
+            }
+            for (long bits = word(CellState.O, word); bits != 0; bits &= bits - 1) {
+                board.place((word << 6) + Long.numberOfTrailingZeros(bits), CellState.O);
+            }
+        }
+        return board;
+    }
+    
+    CellState cellAt(int index) {
+        if (((word(CellState.X, index >>> 6) >>> index) & 1) != 0) {
+            return CellState.X;
+        }
+        return ((word(CellState.O, index >>> 6) >>> index) & 1) != 0 ? CellState.O : CellState.EMPTY;
+    }
+    
+    // 64 cells of one mark's bitset, starting at cell word * 64
+    private long word(CellState mark, int word) {
+        if (xChunks == null) {
+            return mark == CellState.X ? xBits : oBits;
+        }
+        long[][] chunks = mark == CellState.X ? xChunks : oChunks;
+        return chunks[word / CHUNK_WORDS][word % CHUNK_WORDS];
+    }
+    
+    // This position plus mark on the empty cell at index
+    BoardSnapshot withMove(int index, CellState mark) {
+        if (mark != CellState.X && mark != CellState.O) {
+            throw new IllegalArgumentException("Not a mark: " + mark);
+        }
+        if (xChunks == null) {
+            long bit = 1L << index;
+            return mark == CellState.X
+                ? new BoardSnapshot(spec, moveCount + 1, xBits | bit, oBits, null, null)
+                : new BoardSnapshot(spec, moveCount + 1, xBits, oBits | bit, null, null);
+        }
+        return mark == CellState.X
+            ? new BoardSnapshot(spec, moveCount + 1, 0, 0, setBit(xChunks, index), oChunks)
+            : new BoardSnapshot(spec, moveCount + 1, 0, 0, xChunks, setBit(oChunks, index));
+    }
+    
+    // Path copy: a new top-level array sharing every chunk except the one holding index
+    private static long[][] setBit(long[][] chunks, int index) {
+        int word = index >>> 6;
+        long[][] copy = chunks.clone();
+        long[] chunk = chunks[word / CHUNK_WORDS].clone();
+        chunk[word % CHUNK_WORDS] |= 1L << index;
+        copy[word / CHUNK_WORDS] = chunk;
+        return copy;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        BoardSnapshot other = (BoardSnapshot) obj;
+        if (!spec.equals(other.spec) || moveCount != other.moveCount) return false;
+        int words = (spec.getCells() + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            if (word(CellState.X, word) != other.word(CellState.X, word) || word(CellState.O, word) != other.word(CellState.O, word)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    @Override
+    public int hashCode() {
+        int result = spec.hashCode();
+        int words = (spec.getCells() + 63) >>> 6;
+        for (int word = 0; word < words; word++) {
+            result = result * 31 + Long.hashCode(word(CellState.X, word) * 3 + word(CellState.O, word));
+        }
+        return result;
+    }
+}
+
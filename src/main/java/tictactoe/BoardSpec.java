@@ -0,0 +1,174 @@
+package tictactoe;
+
+import java.util.Random;
+
+// Board dimensions and win length for m,n,k games (immutable) - plain tic-tac-toe is 3x3 with 3 in a row
+public final class BoardSpec {
+    public static final BoardSpec STANDARD = new BoardSpec(3, 3, 3);
+    
+    // Largest board the engine accepts on either side
+    public static final int MAX_SIDE = 64;
+    
+    // Boards with at most this many cells keep each mark in a single long (see Board.isSmall)
+    static final int SMALL_CELLS = 64;
+    
+    private static final long ZOBRIST_SEED = 0x5DEECE66DL;
+    
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    
+    // Every length-k window as a cell bitmask - small boards only, null otherwise
+    private final long[] lines;
+    
+    // Random key per (cell, mark) for incremental position hashing: index * 2 for X, index * 2 + 1 for O
+    private final long[] zobrist;
+    
+    // Lookup tables for boards of at most MaskTables.MAX_CELLS cells, null otherwise
+    private final MaskTables tables;
+    
+    private BoardSpec(int rows, int cols, int winLength) {
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.lines = rows * cols <= SMALL_CELLS ? buildLines() : null;
+        this.zobrist = buildZobrist(rows * cols);
+        this.tables = rows * cols <= MaskTables.MAX_CELLS ? new MaskTables(rows * cols, lines) : null;
+    }
+    
+    public static BoardSpec of(int rows, int cols, int winLength) {
+        if (rows < 1 || cols < 1 || rows > MAX_SIDE || cols > MAX_SIDE) {
+            throw new IllegalArgumentException("Board size out of range: " + rows + "x" + cols);
+        }
+        if (winLength < 1 || winLength > Math.max(rows, cols)) {
+            throw new IllegalArgumentException("Win length " + winLength + " does not fit a " + rows + "x" + cols + " board");
+        }
+        if (rows == 3 && cols == 3 && winLength == 3) {
+            return STANDARD;
+        }
+        return new BoardSpec(rows, cols, winLength);
+    }
+    
+    // Reads the toString() form: "3x3" (win length = side) or "15x15k5"
+    public static BoardSpec parse(String text) {
+        try {
+            int x = text.indexOf('x');
+            int k = text.indexOf('k', x + 1);
+            int rows = Integer.parseInt(text.substring(0, x));
+            int cols = Integer.parseInt(text.substring(x + 1, k < 0 ? text.length() : k));
+            if (k < 0 && rows != cols) {
+                throw new IllegalArgumentException("Win length needed for a non-square board: " + text);
+            }
+            return of(rows, cols, k < 0 ? rows : Integer.parseInt(text.substring(k + 1)));
+        } catch (NumberFormatException | StringIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Not a board spec: " + text);
+        }
+    }
+    
+    public int getRows() {
+        return rows;
+    }
+    
+    public int getCols() {
+        return cols;
+    }
+    
+    public int getWinLength() {
+        return winLength;
+    }
+    
+    public int getCells() {
+        return rows * cols;
+    }
+    
+    int lineCount() {
+        return lines.length;
+    }
+    
+    long lineMask(int line) {
+        return lines[line];
+    }
+    
+    MaskTables tables() {
+        return tables;
+    }
+    
+    // Whether bits covers a whole window - small boards only, a table lookup on the tiny ones
+    boolean isWinning(long bits) {
+        return tables != null ? tables.isWin(bits) : scanWinning(bits);
+    }
+    
+    // isWinning by testing every window (MaskTables' benchmark compares the two)
+    boolean scanWinning(long bits) {
+        for (long line : lines) {
+            if ((bits & line) == line) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    long zobrist(int index, CellState mark) {
+        return zobrist[index * 2 + (mark == CellState.X ? 0 : 1)];
+    }
+    
+    // Rows, columns and both diagonal directions, every window of winLength cells
+    private long[] buildLines() {
+        int[][] directions = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+        // A single-cell window is the same in every direction, so count it once
+        int directionCount = winLength == 1 ? 1 : directions.length;
+        long[] found = new long[directionCount * rows * cols];
+        int count = 0;
+        for (int d = 0; d < directionCount; d++) {
+            int[] direction = directions[d];
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int endRow = row + direction[0] * (winLength - 1);
+                    int endCol = col + direction[1] * (winLength - 1);
+                    if (endRow >= rows || endCol < 0 || endCol >= cols) {
+                        continue;
+                    }
+                    long mask = 0;
+                    for (int step = 0; step < winLength; step++) {
+                        mask |= 1L << ((row + direction[0] * step) * cols + col + direction[1] * step);
+                    }
+                    found[count++] = mask;
+                }
+            }
+        }
+        long[] result = new long[count];
+        System.arraycopy(found, 0, result, 0, count);
+        return result;
+    }
+    
+    // Fixed seed so keys (and anything persisted with them) are stable across runs
+    private static long[] buildZobrist(int cells) {
+        Random random = new Random(ZOBRIST_SEED ^ cells);
+        long[] keys = new long[cells * 2];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = random.nextLong();
+        }
+        return keys;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        BoardSpec spec = (BoardSpec) obj;
+        return rows == spec.rows && cols == spec.cols && winLength == spec.winLength;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (rows * 31 + cols) * 31 + winLength;
+    }
+    
+    // "3x3" for plain tic-tac-toe, "15x15k5" when the win length differs from the side
+    @Override
+    public String toString() {
+        String size = rows + "x" + cols;
+        return rows == cols && winLength == rows ? size : size + "k" + winLength;
+    }
+}
+
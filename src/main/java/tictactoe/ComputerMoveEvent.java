@@ -0,0 +1,43 @@
+package tictactoe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event spanning one ComputerPlayer.search() call - duration is the AI latency the player sees
+@Name("tictactoe.ComputerMove")
+@Label("Computer Move")
+@Category({"Tic-Tac-Toe", "Search"})
+@Description("Move chosen by a computer player, with the search effort it took")
+@StackTrace(false)
+class ComputerMoveEvent extends Event {
+    @Label("Player")
+    String player;
+    
+    @Label("Difficulty")
+    @Description("Preset the level is reported under - Medium covers levels 2 to 19")
+    String difficulty;
+    
+    @Label("Level")
+    @Description("Strength level, 1-20")
+    int level;
+    
+    @Label("Board Spec")
+    String boardSpec;
+    
+    @Label("Move")
+    String move;
+    
+    @Label("Score")
+    int score;
+    
+    @Label("Depth")
+    int depth;
+    
+    @Label("Nodes")
+    long nodes;
+}
+
@@ -4,36 +4,248 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
 
-// Computer player with difficulty levels - Easy (random), Medium (depth-limited minimax), Hard (full minimax with alpha-beta)
+// Computer player of a given Strength - level 20 (Hard) is the full alpha-beta search; lower levels search within a
+// node budget with noisy evaluations and sometimes play a random move instead of searching
 public class ComputerPlayer extends Player {
+    // Score of a win on the move - a win n plies away scores n - 1 less (EndgameSolver uses the same scale)
+    static final int WIN_SCORE = 100;
+    static final int INFINITY = 1000;
+    private static final int TABLE_BITS = 14;
+    static final int MAX_EVAL = WIN_SCORE / 2 - 1;
+    
+    // Boards up to this size are searched to the end; larger ones to a fixed depth over moves near existing marks
+    private static final int FULL_SEARCH_CELLS = 9;
+    private static final int LARGE_HARD_DEPTH = 4;
+    private static final int[][] LINE_DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    
+    // Deepest iteration for searches bounded by nodes, time or stop rather than depth
+    private static final int OPEN_ENDED_DEPTH = 64;
+    
+    // Time and stop requests are polled once per this many nodes (a power of two)
+    static final long POLL_INTERVAL = 256;
+    
+    // Proof-number budget Hard spends on larger boards looking for a forced win before its depth-limited search,
+    // one solver per thread - its node store is about 1.3 MB, too much to allocate on every move
+    private static final int SOLVER_STORE_BITS = 16;
+    private static final long SOLVER_NODES = 5_000;
+    private static final ThreadLocal<Solver> SOLVER =
+        ThreadLocal.withInitial(() -> new Solver(SOLVER_STORE_BITS, SOLVER_NODES));
+    
+    // Exact endgame solving once EndgameSolver.threshold(spec) or fewer cells are empty, one solver per thread
+    private static final ThreadLocal<EndgameSolver> ENDGAME = ThreadLocal.withInitial(EndgameSolver::new);
+    
+    // Connect Four goes to its own bitboard solver, one per thread with its table kept between moves. Level 20 with
+    // no node or time limit stops at this many nodes - proving the opening takes far longer than a move should.
+    private static final ThreadLocal<ConnectFourSolver> CONNECT_FOUR = ThreadLocal.withInitial(ConnectFourSolver::new);
+    private static final long CONNECT_FOUR_NODES = 2_000_000;
+    
+    // Ultimate tic-tac-toe goes to Monte Carlo tree search, one tree per thread. Level 20 with no node or time limit
+    // plays this many plies of tree walks and playouts, about a second's worth.
+    private static final ThreadLocal<UltimateSearch> ULTIMATE = ThreadLocal.withInitial(UltimateSearch::new);
+    private static final long ULTIMATE_NODES = 10_000_000;
+    
     private final Difficulty difficulty;
+    private final Strength strength;
     private final Random random;
+    private final TranspositionTable table;
+    private boolean endgameSolving = true;
+    private PatternWeights weights;
+    
+    public ComputerPlayer(CellState mark, String name) {
+        this(mark, name, Difficulty.HARD);
+    }
     
     public ComputerPlayer(CellState mark, String name, Difficulty difficulty) {
+        this(mark, name, difficulty, new HeapTranspositionTable(TABLE_BITS));
+    }
+    
+    // Players sharing a table (e.g. analysis workers) search each repeated position only once
+    public ComputerPlayer(CellState mark, String name, Difficulty difficulty, TranspositionTable table) {
+        this(mark, name, difficulty, table, new Random());
+    }
+    
+    // Seeded randomness makes games below level 20 repeatable (batch runs, regression tests)
+    ComputerPlayer(CellState mark, String name, Difficulty difficulty, TranspositionTable table, Random random) {
+        this(mark, name, difficulty.getStrength(), table, random);
+    }
+    
+    public ComputerPlayer(CellState mark, String name, Strength strength, TranspositionTable table) {
+        this(mark, name, strength, table, new Random());
+    }
+    
+    ComputerPlayer(CellState mark, String name, Strength strength, TranspositionTable table, Random random) {
         super(mark, name);
-        this.difficulty = difficulty;
-        this.random = new Random();
+        this.difficulty = Difficulty.of(strength);
+        this.strength = strength;
+        this.random = random;
+        this.table = table;
+    }
+    
+    // The preset the player's strength falls under
+    public Difficulty getDifficulty() {
+        return difficulty;
+    }
+    
+    public Strength getStrength() {
+        return strength;
+    }
+    
+    // Switches the endgame shortcut - off, late moves go through the ordinary search (for benchmarks and tests)
+    void setEndgameSolving(boolean enabled) {
+        this.endgameSolving = enabled;
+    }
+    
+    // Evaluates with these weights instead of PatternWeights.forSpec (for tuning and comparing weights)
+    void setWeights(PatternWeights weights) {
+        this.weights = weights;
     }
     
     @Override
     public Move getMove(Board board) {
-        switch (difficulty) {
-            case EASY:
-                return getRandomMove(board);
-            case MEDIUM:
-                return getMediumMove(board);
-            case HARD:
-                return getBestMove(board);
-            default:
-                return getRandomMove(board);
+        return search(board).getMove();
+    }
+    
+    // Chooses a move and reports how the search went - every result is also recorded with SearchMonitor
+    public SearchResult search(Board board) {
+        return search(board, null);
+    }
+    
+    // As search(board), also streaming each completed depth to listener (may be null)
+    public SearchResult search(Board board, SearchListener listener) {
+        return search(board, listener, null);
+    }
+    
+    // As search(board, listener), bounded by limits (may be null for the difficulty's own depth). A stopped or
+    // timed-out search returns the best move of its last completed depth.
+    public SearchResult search(Board board, SearchListener listener, SearchLimits limits) {
+        ComputerMoveEvent event = new ComputerMoveEvent();
+        event.begin();
+        Search search = newSearch(board, maxDepth(board, limits));
+        search.listener = listener;
+        if (limits != null) {
+            search.limits = limits;
+            search.nodeLimit = limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+            limits.start();
+        }
+        if (strength.getNodeBudget() > 0) {
+            search.nodeLimit = Math.min(search.nodeLimit, strength.getNodeBudget());
+        }
+        search.evalNoise = strength.getEvalNoise();
+        
+        SearchResult result;
+        if (!strength.isPerfect() && random.nextDouble() < strength.getBlunderRate(board.getSpec())) {
+            // Decided before searching, so a blunder costs nothing - level 1 never searches at all
+            result = search.finish(getRandomMove(board), 0, 0);
+        } else if (endgameSolving && board.emptyCount() > 0 && board.emptyCount() <= EndgameSolver.threshold(board.getSpec())) {
+            result = solveEndgame(board, search);
+        } else if (strength.isPerfect()) {
+            result = getBestMove(board, search);
+        } else {
+            result = iterativeDeepening(board, search);
+        }
+        event.end();
+        
+        SearchStats stats = result.getStats();
+        SearchMonitor.getInstance().record(this, stats);
+        if (event.shouldCommit()) {
+            event.player = name;
+            event.difficulty = difficulty.name();
+            event.level = strength.getLevel();
+            event.boardSpec = board.getSpec().toString();
+            event.move = String.valueOf(result.getMove());
+            event.score = result.getScore();
+            event.depth = result.getDepth();
+            event.nodes = stats.getNodes();
+            event.commit();
         }
+        TableUsageEvent tableEvent = new TableUsageEvent();
+        if (tableEvent.shouldCommit()) {
+            tableEvent.probes = stats.getTableProbes();
+            tableEvent.hits = stats.getTableHits();
+            tableEvent.misses = stats.getTableProbes() - stats.getTableHits();
+            tableEvent.commit();
+        }
+        return result;
+    }
+    
+    // As search(board, listener, limits) for a game under any rules. The standard m,n,k game takes the specialised
+    // search above, Connect Four ConnectFourSolver and ultimate tic-tac-toe UltimateSearch; other rules go through
+    // RulesSearch. All take the same strength knobs - blunders, node budget and evaluation noise (except
+    // UltimateSearch, which has no evaluation to add noise to). The position is left as it was found.
+    public SearchResult search(GamePosition position, SearchListener listener, SearchLimits limits) {
+        GameRules rules = position.getRules();
+        if (MnkRules.isStandard(rules)) {
+            return search(position.getBoard(), listener, limits);
+        }
+        Board board = position.getBoard();
+        long nodeLimit = limits != null && limits.getNodes() > 0 ? limits.getNodes() : Long.MAX_VALUE;
+        if (limits != null) {
+            limits.start();
+        }
+        if (strength.getNodeBudget() > 0) {
+            nodeLimit = Math.min(nodeLimit, strength.getNodeBudget());
+        }
+        SearchResult result;
+        if (!strength.isPerfect() && random.nextDouble() < strength.getBlunderRate(board.getSpec())) {
+            int[] moves = new int[board.cellCount()];
+            int count = position.legalMoves(moves);
+            int cell = count == 0 ? -1 : moves[random.nextInt(count)];
+            Move move = cell < 0 ? null : new Move(cell / board.getCols(), cell % board.getCols());
+            result = new SearchResult(move, 0, 0, new SearchStats.Counters().finish(0, new ArrayList<>()));
+        } else if (rules instanceof ConnectFourRules) {
+            if (strength.isPerfect() && (limits == null || !limits.isOpenEnded())) {
+                nodeLimit = Math.min(nodeLimit, CONNECT_FOUR_NODES);
+            }
+            int maxDepth = limits != null && limits.getDepth() > 0 ? limits.getDepth() : board.emptyCount();
+            result = CONNECT_FOUR.get().search(position, maxDepth, nodeLimit, limits, strength.getEvalNoise(), random,
+                listener);
+        } else if (rules instanceof UltimateRules) {
+            if (strength.isPerfect() && (limits == null || !limits.isOpenEnded())) {
+                nodeLimit = Math.min(nodeLimit, ULTIMATE_NODES);
+            }
+            result = ULTIMATE.get().search(position, nodeLimit, limits, random, listener);
+        } else {
+            RulesSearch search = new RulesSearch(position, table, random, maxDepth(board, limits), nodeLimit, limits,
+                strength.getEvalNoise(), listener);
+            result = search.run(position);
+        }
+        SearchMonitor.getInstance().record(this, result.getStats());
+        return result;
+    }
+    
+    // Depth limit from limits when given, else the board's - except that level 20 searches as deep as limits
+    // bounding nodes or time allow (lower levels keep their budget whatever the clock says)
+    private int maxDepth(Board board, SearchLimits limits) {
+        if (limits != null && limits.getDepth() > 0) {
+            return Math.min(limits.getDepth(), board.emptyCount());
+        }
+        if (limits != null && limits.isOpenEnded() && strength.isPerfect()) {
+            return Math.min(OPEN_ENDED_DEPTH, board.emptyCount());
+        }
+        return searchDepth(board);
+    }
+    
+    // Plies to the end of a forced game for a search score, counting the searching side's move: positive when it
+    // wins, negative when it loses, 0 for a heuristic or drawn score
+    static int forcedPlies(int score) {
+        if (score > WIN_SCORE / 2) return WIN_SCORE - score + 1;
+        if (score < -WIN_SCORE / 2) return -(WIN_SCORE + score + 1);
+        return 0;
+    }
+    
+    // Deepest search on this board (a node budget usually stops lower levels sooner) - sizes the per-ply buffers
+    private int searchDepth(Board board) {
+        if (strength.getLevel() == Strength.MIN_LEVEL) {
+            return 0;
+        }
+        return board.cellCount() <= FULL_SEARCH_CELLS ? board.emptyCount() : LARGE_HARD_DEPTH;
     }
     
-    // Easy: Returns a random valid move
+    // Blunder: Returns a random valid move
     private Move getRandomMove(Board board) {
         List<Move> validMoves = new ArrayList<>();
-        for (int i = 0; i < board.getSize(); i++) {
-            for (int j = 0; j < board.getSize(); j++) {
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
                 Move move = new Move(i, j);
                 if (board.isValidMove(move)) {
                     validMoves.add(move);
@@ -46,208 +258,410 @@ public class ComputerPlayer extends Player {
         return validMoves.get(random.nextInt(validMoves.size()));
     }
     
-    // Medium: Uses depth-limited minimax (depth 5) 80% of the time, random 20% for occasional mistakes
-    private Move getMediumMove(Board board) {
-        if (random.nextDouble() < 0.80) {
-            return getBestMoveWithDepth(board, 5);
-        } else {
-            return getRandomMove(board);
+    // Hard: Searches to the end of the game with alpha-beta pruning for unbeatable play (to a fixed depth on larger boards)
+    private SearchResult getBestMove(Board board, Search search) {
+        Board work = new Board(board);
+        int count = search.rootMoves(work);
+        int[] moves = search.moves[0];
+        
+        for (CellState mover : new CellState[] {this.mark, opponentOf(this.mark)}) {
+            for (int i = 0; i < count; i++) {
+                int cell = moves[i];
+                work.place(cell, mover);
+                boolean wins = work.completesLine(cell, mover);
+                work.remove(cell);
+                if (wins) {
+                    return search.finishForced(cell, mover == this.mark ? WIN_SCORE : 0);
+                }
+            }
+        }
+        
+        // A fixed-depth search misses wins that take a longer sequence of threats - try to prove one first
+        if (board.cellCount() > FULL_SEARCH_CELLS && Solver.isForcingLikely(board, this.mark)) {
+            Solver.Result solved = SOLVER.get().solve(board, this.mark, search.limits, true);
+            search.counters.nodes += solved.getNodes();
+            if (solved.getOutcome() == Solver.Outcome.WIN && !solved.getLine().isEmpty()) {
+                // Without the full line the win is proven but its length unknown - score it as the longest
+                int plies = solved.getWinLine() != null ? solved.getLine().size() : WIN_SCORE / 2;
+                return search.finishSolved(solved.getLine(), WIN_SCORE + 1 - plies);
+            }
+        }
+        
+        return iterativeDeepening(board, search);
+    }
+    
+    // Late game: exact, so the same for every level that searches - no heuristic, noise or node budget applies.
+    // A solve cut short by the limits falls back to the ordinary search, which stops at once.
+    private SearchResult solveEndgame(Board board, Search search) {
+        EndgameSolver solver = ENDGAME.get();
+        int score = solver.solve(board, this.mark, search.limits);
+        search.counters.nodes += solver.getNodes();
+        if (score == EndgameSolver.ABORTED) {
+            return iterativeDeepening(board, search);
+        }
+        return search.finishSolved(solver.getLine(), score);
+    }
+    
+    private Search newSearch(Board board, int maxDepth) {
+        return new Search(board, maxDepth, weights != null ? weights : PatternWeights.forSpec(board.getSpec()));
+    }
+    
+    // Exact score of a move for this player: 100 minus plies for a forced win, 0 for a draw, plies minus 100 for a
+    // forced loss. Searches to the end of the game, so it is only practical on boards small enough to solve.
+    public int scoreMove(Board board, Move move) {
+        if (!board.isValidMove(move)) {
+            throw new IllegalArgumentException("Invalid move: " + move);
+        }
+        Board work = new Board(board);
+        Search search = newSearch(board, board.emptyCount());
+        search.rootMoves(work);
+        int cell = move.getRow() * board.getCols() + move.getCol();
+        search.play(work, cell, this.mark);
+        return -negamax(work, 0, work.emptyCount(), opponentOf(this.mark), cell, -INFINITY, INFINITY, search);
+    }
+    
+    // Iterative deepening over the root moves, making and unmaking them on a copy of board
+    private SearchResult iterativeDeepening(Board board, Search search) {
+        Board work = new Board(board);
+        CellState opponentMark = opponentOf(this.mark);
+        int count = search.rootMoves(work);
+        SearchResult result = search.deepen(count, Math.min(search.maxDepth, work.emptyCount()), (cell, depth, alpha) -> {
+            int delta = search.play(work, cell, this.mark);
+            int score = -negamax(work, 0, depth - 1, opponentMark, cell, -INFINITY, -alpha, search);
+            search.undo(work, cell, delta);
+            return score;
+        });
+        if (result == null) {
+            return search.finish(getRandomMove(board), 0, 0);
         }
+        return result;
     }
     
-    // Hard: Uses full minimax with alpha-beta pruning for unbeatable play
-    private Move getBestMove(Board board) {
-        CellState opponentMark = (this.mark == CellState.X) ? CellState.O : CellState.X;
-        List<Move> validMoves = getValidMoves(board);
+    // Depth-limited negamax with alpha-beta pruning - scores are from the side to move's point of view.
+    // Makes and unmakes moves on the one board it is given. lastCell is the move that led here, so the win
+    // check only has to look along the lines through it.
+    private int negamax(Board board, int depth, int remaining, CellState toMove, int lastCell, int alpha, int beta, Search search) {
+        SearchStats.Counters counters = search.counters;
+        int ply = depth + 1;
+        if (search.enterNode(ply)) {
+            return 0;
+        }
         
-        for (Move move : validMoves) {
-            Board testBoard = new Board(board);
-            testBoard.makeMove(move, this.mark);
-            if (testBoard.hasWon(this.mark)) {
-                return move;
-            }
+        CellState lastMover = opponentOf(toMove);
+        // On the tiny boards one table lookup is cheaper than walking the lines through lastCell
+        boolean lost = board.cellCount() <= FULL_SEARCH_CELLS
+            ? board.isWinning(board.marks(lastMover))
+            : board.completesLine(lastCell, lastMover);
+        if (lost) {
+            return depth - WIN_SCORE;
+        }
+        int empties = board.emptyCount();
+        if (empties == 0) {
+            return 0;
+        }
+        if (remaining <= 0) {
+            return evaluatePosition(board, toMove, search);
         }
         
-        for (Move move : validMoves) {
-            Board testBoard = new Board(board);
-            testBoard.makeMove(move, opponentMark);
-            if (testBoard.hasWon(opponentMark)) {
-                return move;
+        int draft = Math.min(remaining, empties);
+        long key = board.canonicalKey();
+        long entry = search.probe(table, key);
+        if (entry != TranspositionTable.MISS) {
+            if (TranspositionTable.draft(entry) >= draft) {
+                int stored = fromTable(TranspositionTable.value(entry), depth);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return stored;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, stored);
+                } else {
+                    beta = Math.min(beta, stored);
+                }
+                if (alpha >= beta) {
+                    return stored;
+                }
             }
         }
         
-        int bestScore = Integer.MIN_VALUE;
-        Move bestMove = null;
-        for (Move move : validMoves) {
-            Board testBoard = new Board(board);
-            testBoard.makeMove(move, this.mark);
-            int score = minimaxWithAlphaBeta(testBoard, 0, false, Integer.MIN_VALUE, Integer.MAX_VALUE);
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = move;
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int count = search.childMoves(board, ply, lastCell);
+        int[] moves = search.moves[ply];
+        for (int i = 0; i < count; i++) {
+            int cell = moves[i];
+            int delta = search.play(board, cell, toMove);
+            int score = -negamax(board, depth + 1, remaining - 1, lastMover, cell, -beta, -alpha, search);
+            search.undo(board, cell, delta);
+            if (search.aborted) {
+                return 0; // nothing from an unfinished subtree reaches the table
+            }
+            bestScore = Math.max(bestScore, score);
+            if (score > alpha) {
+                alpha = score;
+                search.updatePv(ply, cell);
+            }
+            if (beta <= alpha) {
+                counters.betaCutoffs++;
+                if (i == 0) {
+                    counters.firstMoveCutoffs++;
+                }
+                break;
             }
         }
         
-        return bestMove != null ? bestMove : getRandomMove(board);
+        search.store(table, key, bestScore, depth, draft, originalAlpha, beta);
+        return bestScore;
     }
     
-    // Medium: Uses depth-limited minimax for challenging but not perfect play
-    private Move getBestMoveWithDepth(Board board, int maxDepth) {
-        int bestScore = Integer.MIN_VALUE;
-        Move bestMove = null;
-        CellState opponentMark = (this.mark == CellState.X) ? CellState.O : CellState.X;
-        List<Move> validMoves = getValidMoves(board);
-        
-        for (Move move : validMoves) {
-            Board testBoard = new Board(board);
-            testBoard.makeMove(move, this.mark);
-            int score = minimaxWithDepth(testBoard, 0, false, maxDepth);
-            if (score > bestScore) {
-                bestScore = score;
-                bestMove = move;
-            }
+    // Win/loss scores count plies from the search root - the table stores them relative to the position instead
+    static int toTable(int score, int depth) {
+        if (score > WIN_SCORE / 2) return score + depth;
+        if (score < -WIN_SCORE / 2) return score - depth;
+        return score;
+    }
+    
+    static int fromTable(int score, int depth) {
+        if (score > WIN_SCORE / 2) return score - depth;
+        if (score < -WIN_SCORE / 2) return score + depth;
+        return score;
+    }
+    
+    private static CellState opponentOf(CellState mark) {
+        return mark == CellState.X ? CellState.O : CellState.X;
+    }
+    
+    // Evaluates board position for depth-limited search from one side's point of view (heuristic evaluation).
+    // Clamped below the win/loss range so a heuristic score is never mistaken for a forced result.
+    private int evaluatePosition(Board board, CellState perspective, Search search) {
+        int balance = search.scores != null
+            ? search.scores[search.tables.code(board.marks(CellState.X), board.marks(CellState.O))]
+            : board.isSmall() ? lineBalance(board, search.weights) : search.windowBalance;
+        int score = perspective == CellState.X ? balance : -balance;
+        if (search.evalNoise > 0) {
+            score += random.nextInt(2 * search.evalNoise + 1) - search.evalNoise;
         }
         
-        return bestMove != null ? bestMove : getRandomMove(board);
+        return Math.max(-MAX_EVAL, Math.min(MAX_EVAL, score));
     }
     
-    // Full minimax with alpha-beta pruning for Hard mode (unbeatable)
-    private int minimaxWithAlphaBeta(Board board, int depth, boolean isMaximizing, int alpha, int beta) {
-        CellState opponentMark = (this.mark == CellState.X) ? CellState.O : CellState.X;
+    // X's pattern score over the lines of a small board: each line only one side has marks in is worth that
+    // side's weight for its mark count (by default 3 for a line one mark short of the win length, else nothing)
+    private static int lineBalance(Board board, PatternWeights weights) {
+        int balance = 0;
+        long xs = board.marks(CellState.X);
+        long os = board.marks(CellState.O);
+        BoardSpec spec = board.getSpec();
         
-        if (board.hasWon(this.mark)) {
-            return 100 - depth;
+        for (int line = 0; line < spec.lineCount(); line++) {
+            long cells = spec.lineMask(line);
+            balance += weights.window(Long.bitCount(xs & cells), Long.bitCount(os & cells));
         }
-        if (board.hasWon(opponentMark)) {
-            return depth - 100;
+        
+        return balance;
+    }
+    
+    // lineBalance for boards past one word. Full scan - searches run it once at the root and then track the
+    // change with windowBalanceThrough.
+    private static int windowBalance(Board board, PatternWeights weights) {
+        return weights.score(LineCounts.of(board));
+    }
+    
+    // Contribution of the windows that contain cell - a move only changes these, k per direction
+    private static int windowBalanceThrough(Board board, int cell, PatternWeights weights) {
+        int k = board.getSpec().getWinLength();
+        int row = cell / board.getCols();
+        int col = cell % board.getCols();
+        int balance = 0;
+        for (int[] direction : LINE_DIRECTIONS) {
+            for (int back = 0; back < k; back++) {
+                balance += windowScore(board, row - back * direction[0], col - back * direction[1], direction, weights);
+            }
         }
-        if (board.isFull()) {
+        return balance;
+    }
+    
+    // X's worth of the window starting at (row, col) - 0 if it runs off the board
+    private static int windowScore(Board board, int row, int col, int[] direction, PatternWeights weights) {
+        int k = board.getSpec().getWinLength();
+        int endRow = row + direction[0] * (k - 1);
+        int endCol = col + direction[1] * (k - 1);
+        if (row < 0 || col < 0 || col >= board.getCols() || endRow >= board.getRows() || endCol < 0 || endCol >= board.getCols()) {
             return 0;
         }
+        int x = 0;
+        int o = 0;
+        for (int step = 0; step < k; step++) {
+            CellState cell = board.cellAt((row + step * direction[0]) * board.getCols() + col + step * direction[1]);
+            if (cell == CellState.X) {
+                x++;
+            } else if (cell == CellState.O) {
+                o++;
+            }
+        }
+        return weights.window(x, o);
+    }
+    
+    // Per-search state of the m,n,k search: incremental move lists and evaluation on top of IterativeSearch
+    private static final class Search extends IterativeSearch {
+        private final int rows;
         
-        List<Move> validMoves = getValidMoves(board);
+        // Move lists on boards past one word are built incrementally; stamp[cell] == generation marks a cell already listed
+        private final int[] stamp;
+        private int generation;
         
-        if (isMaximizing) {
-            int maxScore = Integer.MIN_VALUE;
-            for (Move move : validMoves) {
-                Board testBoard = new Board(board);
-                testBoard.makeMove(move, this.mark);
-                int score = minimaxWithAlphaBeta(testBoard, depth + 1, false, alpha, beta);
-                maxScore = Math.max(maxScore, score);
-                alpha = Math.max(alpha, score);
-                if (beta <= alpha) {
-                    break;
+        // Pattern weights for the board, and windowBalance of the current search position on boards past one
+        // word, kept up to date by play/undo
+        private final PatternWeights weights;
+        private int windowBalance;
+        
+        // Boards of up to MaskTables.MAX_CELLS cells: the spec's tables and their scores for weights, else null
+        private final MaskTables tables;
+        private final int[] scores;
+        
+        Search(Board board, int maxDepth, PatternWeights weights) {
+            super(maxDepth, Math.min(maxDepth, board.emptyCount()) + 2, board.getCols());
+            rows = board.getRows();
+            stamp = board.isSmall() ? null : new int[board.cellCount()];
+            this.weights = weights;
+            tables = board.getSpec().tables();
+            scores = tables == null ? null : tables.scores(weights);
+        }
+        
+        // Fills moves[0] for the root: every empty cell on small boards, otherwise the empty cells next to a mark
+        // (the centre on an empty board). Returns the count.
+        int rootMoves(Board board) {
+            int[] list = buffer(0, board);
+            int count = 0;
+            if (board.isSmall()) {
+                for (long empty = board.emptyMask(); empty != 0; empty &= empty - 1) {
+                    list[count++] = Long.numberOfTrailingZeros(empty);
                 }
+                return count;
             }
-            return maxScore;
-        } else {
-            int minScore = Integer.MAX_VALUE;
-            for (Move move : validMoves) {
-                Board testBoard = new Board(board);
-                testBoard.makeMove(move, opponentMark);
-                int score = minimaxWithAlphaBeta(testBoard, depth + 1, true, alpha, beta);
-                minScore = Math.min(minScore, score);
-                beta = Math.min(beta, score);
-                if (beta <= alpha) {
-                    break;
+            generation++;
+            windowBalance = windowBalance(board, weights);
+            for (int cell = 0; cell < board.cellCount(); cell++) {
+                if (!board.isEmptyAt(cell)) {
+                    count = addNeighbours(board, cell, list, count);
+                }
+            }
+            if (count == 0) {
+                list[count++] = (rows / 2) * cols + cols / 2;
+                if (count < list.length) {
+                    list[count] = -1;
                 }
             }
-            return minScore;
+            return count;
         }
-    }
-    
-    // Depth-limited minimax for Medium mode (challenging but not perfect)
-    private int minimaxWithDepth(Board board, int depth, boolean isMaximizing, int maxDepth) {
-        CellState opponentMark = (this.mark == CellState.X) ? CellState.O : CellState.X;
         
-        if (board.hasWon(this.mark)) {
-            return 100 - depth;
+        // Fills moves[ply] for the position after lastCell was played: all empty cells on small boards (with the
+        // tables, cells that win first and cells that block a win next), otherwise the parent's list without
+        // lastCell plus the empty cells around it
+        int childMoves(Board board, int ply, int lastCell) {
+            int[] list = buffer(ply, board);
+            int count = 0;
+            if (tables != null) {
+                long empty = board.emptyMask();
+                CellState lastMover = board.cellAt(lastCell);
+                long wins = tables.threats(board.marks(opponentOf(lastMover)), empty);
+                long blocks = tables.threats(board.marks(lastMover), empty) & ~wins;
+                count = addCells(list, count, wins);
+                count = addCells(list, count, blocks);
+                return addCells(list, count, empty & ~(wins | blocks));
+            }
+            if (board.isSmall()) {
+                for (long empty = board.emptyMask(); empty != 0; empty &= empty - 1) {
+                    list[count++] = Long.numberOfTrailingZeros(empty);
+                }
+                return count;
+            }
+            generation++;
+            int[] parent = moves[ply - 1];
+            for (int cell : parent) {
+                if (cell < 0) {
+                    break;
+                }
+                if (cell != lastCell && stamp[cell] != generation) {
+                    stamp[cell] = generation;
+                    list[count++] = cell;
+                }
+            }
+            count = addNeighbours(board, lastCell, list, count);
+            if (count < list.length) {
+                list[count] = -1;
+            }
+            return count;
         }
-        if (board.hasWon(opponentMark)) {
-            return depth - 100;
+        
+        // Places mark and returns the change in windowBalance, to be handed back to undo
+        int play(Board board, int cell, CellState mark) {
+            if (stamp == null) {
+                board.place(cell, mark);
+                return 0;
+            }
+            int before = windowBalanceThrough(board, cell, weights);
+            board.place(cell, mark);
+            int delta = windowBalanceThrough(board, cell, weights) - before;
+            windowBalance += delta;
+            return delta;
         }
-        if (board.isFull() || depth >= maxDepth) {
-            return evaluatePosition(board);
+        
+        void undo(Board board, int cell, int delta) {
+            board.remove(cell);
+            windowBalance -= delta;
         }
         
-        List<Move> validMoves = getValidMoves(board);
+        private static int addCells(int[] list, int count, long cells) {
+            for (; cells != 0; cells &= cells - 1) {
+                list[count++] = Long.numberOfTrailingZeros(cells);
+            }
+            return count;
+        }
         
-        if (isMaximizing) {
-            int maxScore = Integer.MIN_VALUE;
-            for (Move move : validMoves) {
-                Board testBoard = new Board(board);
-                testBoard.makeMove(move, this.mark);
-                int score = minimaxWithDepth(testBoard, depth + 1, false, maxDepth);
-                maxScore = Math.max(maxScore, score);
+        private int addNeighbours(Board board, int cell, int[] list, int count) {
+            int row = cell / cols;
+            int col = cell % cols;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                    int neighbour = r * cols + c;
+                    if (board.isEmptyAt(neighbour) && stamp[neighbour] != generation) {
+                        stamp[neighbour] = generation;
+                        list[count++] = neighbour;
+                    }
+                }
             }
-            return maxScore;
-        } else {
-            int minScore = Integer.MAX_VALUE;
-            for (Move move : validMoves) {
-                Board testBoard = new Board(board);
-                testBoard.makeMove(move, opponentMark);
-                int score = minimaxWithDepth(testBoard, depth + 1, true, maxDepth);
-                minScore = Math.min(minScore, score);
+            if (count < list.length) {
+                list[count] = -1;
             }
-            return minScore;
+            return count;
         }
-    }
-    
-    // Evaluates board position for depth-limited minimax (heuristic evaluation)
-    private int evaluatePosition(Board board) {
-        CellState opponentMark = (this.mark == CellState.X) ? CellState.O : CellState.X;
-        
-        int score = 0;
-        score += countLines(board, this.mark) * 3;
-        score -= countLines(board, opponentMark) * 3;
-        
-        return score;
-    }
-    
-    // Counts potential winning lines (2 in a row with empty third cell)
-    private int countLines(Board board, CellState mark) {
-        int count = 0;
-        int size = board.getSize();
-        CellState empty = CellState.EMPTY;
         
-        for (int i = 0; i < size; i++) {
-            int rowMark = 0, rowEmpty = 0;
-            int colMark = 0, colEmpty = 0;
-            for (int j = 0; j < size; j++) {
-                if (board.getCell(i, j) == mark) rowMark++;
-                else if (board.getCell(i, j) == empty) rowEmpty++;
-                if (board.getCell(j, i) == mark) colMark++;
-                else if (board.getCell(j, i) == empty) colEmpty++;
+        private int[] buffer(int ply, Board board) {
+            if (moves[ply] == null) {
+                moves[ply] = new int[board.cellCount()];
             }
-            if (rowMark == 2 && rowEmpty == 1) count++;
-            if (colMark == 2 && colEmpty == 1) count++;
+            return moves[ply];
         }
         
-        int diag1Mark = 0, diag1Empty = 0;
-        int diag2Mark = 0, diag2Empty = 0;
-        for (int i = 0; i < size; i++) {
-            if (board.getCell(i, i) == mark) diag1Mark++;
-            else if (board.getCell(i, i) == empty) diag1Empty++;
-            if (board.getCell(i, size - 1 - i) == mark) diag2Mark++;
-            else if (board.getCell(i, size - 1 - i) == empty) diag2Empty++;
+        // Result for a move chosen without searching (immediate win or block) - reported to the listener as depth 1
+        SearchResult finishForced(int cell, int score) {
+            pvTable[0][0] = cell;
+            pvLength[0] = 1;
+            SearchResult result = finish(toMove(cell), score, 1);
+            if (listener != null) {
+                listener.iterationCompleted(result);
+            }
+            return result;
         }
-        if (diag1Mark == 2 && diag1Empty == 1) count++;
-        if (diag2Mark == 2 && diag2Empty == 1) count++;
         
-        return count;
-    }
-    
-    // Helper to get all valid moves
-    private List<Move> getValidMoves(Board board) {
-        List<Move> validMoves = new ArrayList<>();
-        for (int i = 0; i < board.getSize(); i++) {
-            for (int j = 0; j < board.getSize(); j++) {
-                Move move = new Move(i, j);
-                if (board.isValidMove(move)) {
-                    validMoves.add(move);
-                }
+        // Result proven by the Solver - its forced line becomes the PV, reported to the listener as its length
+        SearchResult finishSolved(List<Move> line, int score) {
+            SearchResult result = new SearchResult(line.get(0), score, line.size(), counters.finish(System.nanoTime() - start, line));
+            if (listener != null) {
+                listener.iterationCompleted(result);
             }
+            return result;
         }
-        return validMoves;
     }
 }
+
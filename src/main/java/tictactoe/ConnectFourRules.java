@@ -0,0 +1,259 @@
+package tictactoe;
+
+// Connect Four (immutable): 7 columns of 6, discs drop to the lowest free cell of a column, and four in a row in
+// any direction wins. Positions keep the classic bitboard - each column is 7 bits, bottom row first, with a spare
+// bit on top so shifts never carry from one column into the next - next to the Board the engine displays.
+// ConnectFourSolver searches the bitboards directly; the static helpers here are shared with it.
+public final class ConnectFourRules implements GameRules {
+    public static final int COLUMNS = 7;
+    public static final int ROWS = 6;
+    public static final BoardSpec SPEC = BoardSpec.of(ROWS, COLUMNS, 4);
+    
+    // Bits per column on the bitboard: the rows plus the spare
+    static final int STRIDE = ROWS + 1;
+    
+    // Lowest cell of every column, and every playable cell
+    static final long BOTTOM = repeat(1L);
+    static final long FULL = repeat((1L << ROWS) - 1);
+    
+    // Bitboard shifts along a line: vertical (1), horizontal (STRIDE) and the two diagonals, then the same without
+    // vertical
+    private static final int[] DIRECTIONS = {1, STRIDE, STRIDE - 1, STRIDE + 1};
+    private static final int[] LINE_DIRECTIONS = {STRIDE, STRIDE - 1, STRIDE + 1};
+    
+    // Connect Four positions hash apart from other rules', so a shared table never mixes their scores
+    private static final long KEY_SALT = 0xC4C4C4C4C4C4C4C4L;
+    
+    public static final ConnectFourRules INSTANCE = new ConnectFourRules();
+    
+    private ConnectFourRules() {
+    }
+    
+    @Override
+    public String getName() {
+        return "connect4";
+    }
+    
+    @Override
+    public BoardSpec getSpec() {
+        return SPEC;
+    }
+    
+    @Override
+    public GamePosition start() {
+        return new Position();
+    }
+    
+    @Override
+    public String toString() {
+        return "ConnectFourRules";
+    }
+    
+    private static long repeat(long column) {
+        long bits = 0;
+        for (int col = 0; col < COLUMNS; col++) {
+            bits |= column << (col * STRIDE);
+        }
+        return bits;
+    }
+    
+    // All cells of column col
+    static long columnMask(int col) {
+        return ((1L << ROWS) - 1) << (col * STRIDE);
+    }
+    
+    // Whether stones hold four in a row - shift-and-AND in each of the DIRECTIONS
+    static boolean isWin(long stones) {
+        for (int shift : DIRECTIONS) {
+            long pairs = stones & (stones >>> shift);
+            if ((pairs & (pairs >>> 2 * shift)) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Empty cells, playable now or not, where one more of stones would make four in a row (occupied is every
+    // stone on the board)
+    static long winningCells(long stones, long occupied) {
+        // Vertical: three stacked stones and the cell above
+        long cells = (stones << 1) & (stones << 2) & (stones << 3);
+        for (int shift : LINE_DIRECTIONS) {
+            long pairs = (stones << shift) & (stones << 2 * shift);
+            cells |= pairs & (stones << 3 * shift);
+            cells |= pairs & (stones >>> shift);
+            pairs = (stones >>> shift) & (stones >>> 2 * shift);
+            cells |= pairs & (stones >>> 3 * shift);
+            cells |= pairs & (stones << shift);
+        }
+        return cells & (FULL ^ occupied);
+    }
+    
+    // Bitboard bit of a Board cell (row 0 is the top row on the Board, the bottom row on the bitboard)
+    static int bit(int cell) {
+        return (cell % COLUMNS) * STRIDE + (ROWS - 1 - cell / COLUMNS);
+    }
+    
+    // Table key for the side to move's stones and all stones - unique per position, and the same for a position
+    // and its mirror image
+    static long key(long current, long occupied) {
+        long key = current + occupied + BOTTOM;
+        long mirrored = 0;
+        for (int col = 0; col < COLUMNS; col++) {
+            long column = (key >>> (col * STRIDE)) & ((1L << STRIDE) - 1);
+            mirrored |= column << ((COLUMNS - 1 - col) * STRIDE);
+        }
+        return Math.min(key, mirrored);
+    }
+    
+    // Bitboards of X and O with column heights, mirrored onto a Board for display
+    static final class Position implements GamePosition {
+        private final Board board;
+        private final int[] heights = new int[COLUMNS];
+        private final int[] history = new int[ROWS * COLUMNS];
+        private long xBits;
+        private long oBits;
+        private int plies;
+        private GameState outcome = GameState.PLAYING;
+        private WinLine winLine;
+        
+        Position() {
+            board = new Board(SPEC);
+        }
+        
+        private Position(Position other) {
+            board = new Board(other.board);
+            System.arraycopy(other.heights, 0, heights, 0, COLUMNS);
+            System.arraycopy(other.history, 0, history, 0, other.plies);
+            xBits = other.xBits;
+            oBits = other.oBits;
+            plies = other.plies;
+            outcome = other.outcome;
+            winLine = other.winLine;
+        }
+        
+        @Override
+        public GameRules getRules() {
+            return INSTANCE;
+        }
+        
+        @Override
+        public Board getBoard() {
+            return board;
+        }
+        
+        @Override
+        public CellState getToMove() {
+            return plies % 2 == 0 ? CellState.X : CellState.O;
+        }
+        
+        // The side to move's stones and all stones, for ConnectFourSolver
+        long current() {
+            return plies % 2 == 0 ? xBits : oBits;
+        }
+        
+        long occupied() {
+            return xBits | oBits;
+        }
+        
+        int plies() {
+            return plies;
+        }
+        
+        // The Board cell a disc dropped in col lands on, or -1 if the column is full
+        int dropCell(int col) {
+            return heights[col] == ROWS ? -1 : (ROWS - 1 - heights[col]) * COLUMNS + col;
+        }
+        
+        @Override
+        public int legalMoves(int[] moves) {
+            if (outcome != GameState.PLAYING) {
+                return 0;
+            }
+            int count = 0;
+            for (int col = 0; col < COLUMNS; col++) {
+                int cell = dropCell(col);
+                if (cell >= 0) {
+                    moves[count++] = cell;
+                }
+            }
+            return count;
+        }
+        
+        @Override
+        public boolean isLegal(int cell) {
+            return outcome == GameState.PLAYING && cell >= 0 && cell < ROWS * COLUMNS
+                && cell == dropCell(cell % COLUMNS);
+        }
+        
+        // Any cell of a column plays the column
+        @Override
+        public int resolve(Move move) {
+            if (move == null || move.getCol() < 0 || move.getCol() >= COLUMNS || outcome != GameState.PLAYING) {
+                return -1;
+            }
+            return dropCell(move.getCol());
+        }
+        
+        @Override
+        public void play(int cell) {
+            CellState mover = getToMove();
+            int col = cell % COLUMNS;
+            long stone = 1L << bit(cell);
+            long stones;
+            if (mover == CellState.X) {
+                stones = xBits |= stone;
+            } else {
+                stones = oBits |= stone;
+            }
+            heights[col]++;
+            history[plies++] = col;
+            board.place(cell, mover);
+            if (isWin(stones)) {
+                winLine = board.winLineThrough(cell, mover);
+                outcome = mover == CellState.X ? GameState.X_WINS : GameState.O_WINS;
+            } else if (plies == ROWS * COLUMNS) {
+                outcome = GameState.DRAW;
+            }
+        }
+        
+        @Override
+        public void undo() {
+            int col = history[--plies];
+            int cell = (ROWS - heights[col]) * COLUMNS + col;
+            heights[col]--;
+            long keep = ~(1L << bit(cell));
+            xBits &= keep;
+            oBits &= keep;
+            board.remove(cell);
+            outcome = GameState.PLAYING;
+            winLine = null;
+        }
+        
+        @Override
+        public GameState getOutcome() {
+            return outcome;
+        }
+        
+        @Override
+        public WinLine getWinLine() {
+            return winLine;
+        }
+        
+        @Override
+        public int evaluate() {
+            return ConnectFourSolver.evaluate(current(), occupied());
+        }
+        
+        @Override
+        public long getKey() {
+            return key(current(), occupied()) ^ KEY_SALT;
+        }
+        
+        @Override
+        public GamePosition copy() {
+            return new Position(this);
+        }
+    }
+}
+
@@ -0,0 +1,349 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+// Alpha-beta search for Connect Four straight on the bitboards - what ComputerPlayer plays ConnectFourRules with.
+// Each node knows the side to move's stones and all stones; a move is one add (the column's lowest free bit).
+// Iterative deepening with a heuristic at the horizon, until the depth covers the rest of the game and the score
+// is exact. Solver-style pruning on top of the usual table:
+// - an immediate win settles a node, and so do two opponent wins that cannot both be blocked - a single one
+//   leaves blocking as the only move, and no move goes under a cell the opponent wins on;
+// - the window shrinks to the scores still possible (no win sooner than two plies, no loss sooner than three);
+// - centre columns first, and moves that make the most new winning cells before them.
+// Scores use ComputerPlayer's scale: a win n plies away is WIN_SCORE + 1 - n.
+public final class ConnectFourSolver {
+    private static final int TABLE_BITS = 21;
+    private static final int CELLS = ConnectFourRules.ROWS * ConnectFourRules.COLUMNS;
+    private static final int[] COLUMN_ORDER = {3, 2, 4, 1, 5, 0, 6};
+    private static final int INFINITY = ComputerPlayer.INFINITY;
+    private static final int WIN_SCORE = ComputerPlayer.WIN_SCORE;
+    
+    private final TranspositionTable table;
+    private final long[][] moveBits = new long[CELLS + 1][ConnectFourRules.COLUMNS];
+    private final int[][] moveScores = new int[CELLS + 1][ConnectFourRules.COLUMNS];
+    private final int[][] pvTable = new int[CELLS + 2][CELLS + 2];
+    private final int[] pvLength = new int[CELLS + 2];
+    
+    // Per search
+    private long nodeLimit;
+    private SearchLimits limits;
+    private boolean aborted;
+    private int evalNoise;
+    private Random random;
+    private SearchStats.Counters counters;
+    
+    public ConnectFourSolver() {
+        this(new HeapTranspositionTable(TABLE_BITS));
+    }
+    
+    ConnectFourSolver(TranspositionTable table) {
+        this.table = table;
+    }
+    
+    // Exact score of position for the side to move (0 for a draw), searching until it is proven
+    public int solve(GamePosition position) {
+        SearchResult result = search(position, CELLS, Long.MAX_VALUE, null, 0, null, null);
+        return result.getScore();
+    }
+    
+    // Best move for the side to move, searching at most maxDepth plies and nodeLimit nodes (limits may be null).
+    // evalNoise shifts horizon scores by up to that much either way, using random. A result deep enough to reach
+    // the end of the game is exact. Cut short before depth 1 completes, the first ordered move comes back.
+    SearchResult search(GamePosition start, int maxDepth, long nodeLimit, SearchLimits limits, int evalNoise,
+            Random random, SearchListener listener) {
+        ConnectFourRules.Position position = (ConnectFourRules.Position) start;
+        long begin = System.nanoTime();
+        this.nodeLimit = nodeLimit;
+        this.limits = limits;
+        this.aborted = false;
+        this.evalNoise = evalNoise;
+        this.random = random;
+        this.counters = new SearchStats.Counters();
+        
+        long current = position.current();
+        long occupied = position.occupied();
+        int plies = position.plies();
+        int remaining = CELLS - plies;
+        int count = orderMoves(current, occupied, 0, (occupied + ConnectFourRules.BOTTOM) & ConnectFourRules.FULL);
+        long[] roots = moveBits[0].clone();
+        int bestIndex = -1;
+        int bestScore = 0;
+        int completedDepth = 0;
+        int[] completedPv = new int[0];
+        
+        for (int depth = 1; depth <= Math.min(maxDepth, remaining) && count > 0 && !aborted; depth++) {
+            long iterationStart = System.nanoTime();
+            if (bestIndex > 0) {
+                // Previous iteration's best move first
+                long best = roots[bestIndex];
+                System.arraycopy(roots, 0, roots, 1, bestIndex);
+                roots[0] = best;
+            }
+            int alpha = -INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                long move = roots[i];
+                int score;
+                if (ConnectFourRules.isWin(current | move)) {
+                    score = WIN_SCORE;
+                    pvLength[1] = 0;
+                } else {
+                    score = -negamax(current ^ occupied, occupied | move, plies + 1, 1, depth - 1, -INFINITY, -alpha);
+                }
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = i;
+                    updatePv(0, move);
+                }
+            }
+            if (aborted) {
+                if (bestIndex < 0) {
+                    bestIndex = iterationBest >= 0 ? iterationBest : 0;
+                    completedPv = new int[] {cellOf(roots[bestIndex])};
+                }
+                break;
+            }
+            bestIndex = iterationBest;
+            bestScore = alpha;
+            completedDepth = depth;
+            completedPv = new int[pvLength[0]];
+            System.arraycopy(pvTable[0], 0, completedPv, 0, pvLength[0]);
+            counters.endIteration(System.nanoTime() - iterationStart);
+            if (listener != null) {
+                listener.iterationCompleted(finish(completedPv, bestScore, depth, begin));
+            }
+            if (Math.abs(bestScore) > WIN_SCORE / 2) {
+                break; // a forced result does not change with depth
+            }
+        }
+        if (count == 0) {
+            return new SearchResult(null, 0, 0, counters.finish(System.nanoTime() - begin, new ArrayList<>()));
+        }
+        if (completedDepth == 0 && completedPv.length == 0) {
+            completedPv = new int[] {cellOf(roots[0])};
+        }
+        return finish(completedPv, completedDepth == 0 ? 0 : bestScore, completedDepth, begin);
+    }
+    
+    private int negamax(long current, long occupied, int plies, int ply, int remaining, int alpha, int beta) {
+        counters.nodes++;
+        if (aborted || counters.nodes > nodeLimit
+                || ((counters.nodes & (ComputerPlayer.POLL_INTERVAL - 1)) == 0 && limits != null && limits.isTimeUp())) {
+            aborted = true;
+            return 0;
+        }
+        counters.maxDepth = Math.max(counters.maxDepth, ply);
+        pvLength[ply] = 0;
+        if (plies == CELLS) {
+            return 0;
+        }
+        
+        long possible = (occupied + ConnectFourRules.BOTTOM) & ConnectFourRules.FULL;
+        if ((ConnectFourRules.winningCells(current, occupied) & possible) != 0) {
+            return WIN_SCORE - ply; // won with the next move
+        }
+        long opponent = current ^ occupied;
+        long threats = ConnectFourRules.winningCells(opponent, occupied);
+        long forced = possible & threats;
+        if (forced != 0) {
+            if ((forced & (forced - 1)) != 0) {
+                return ply + 1 - WIN_SCORE; // two wins to block
+            }
+            possible = forced;
+        }
+        possible &= ~(threats >>> 1);
+        if (possible == 0) {
+            return ply + 1 - WIN_SCORE; // every move lets the opponent win
+        }
+        if (plies + 1 == CELLS) {
+            return 0; // the last cell, and it does not win
+        }
+        if (remaining <= 0) {
+            int score = evaluate(current, occupied);
+            if (evalNoise > 0) {
+                score += random.nextInt(2 * evalNoise + 1) - evalNoise;
+            }
+            return Math.max(-ComputerPlayer.MAX_EVAL, Math.min(ComputerPlayer.MAX_EVAL, score));
+        }
+        
+        // Nothing wins sooner than our move after next, nothing loses sooner than the opponent's move after next
+        beta = Math.min(beta, WIN_SCORE - ply - 2);
+        alpha = Math.max(alpha, ply + 3 - WIN_SCORE);
+        if (alpha >= beta) {
+            return beta;
+        }
+        
+        int draft = Math.min(remaining, CELLS - plies);
+        long key = ConnectFourRules.key(current, occupied);
+        // Noisy scores stay out of the table, which is kept between searches
+        boolean useTable = evalNoise == 0;
+        if (useTable) {
+            counters.tableProbes++;
+            long entry = table.probe(key);
+            if (entry != TranspositionTable.MISS) {
+                counters.tableHits++;
+                if (TranspositionTable.draft(entry) >= draft) {
+                    int stored = ComputerPlayer.fromTable(TranspositionTable.value(entry), ply);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) {
+                        return stored;
+                    } else if (bound == TranspositionTable.LOWER_BOUND) {
+                        alpha = Math.max(alpha, stored);
+                    } else {
+                        beta = Math.min(beta, stored);
+                    }
+                    if (alpha >= beta) {
+                        return stored;
+                    }
+                }
+            }
+        }
+        
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int count = orderMoves(current, occupied, ply, possible);
+        long[] moves = moveBits[ply];
+        for (int i = 0; i < count; i++) {
+            long move = moves[i];
+            int score = -negamax(opponent, occupied | move, plies + 1, ply + 1, remaining - 1, -beta, -alpha);
+            if (aborted) {
+                return 0;
+            }
+            bestScore = Math.max(bestScore, score);
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, move);
+            }
+            if (beta <= alpha) {
+                counters.betaCutoffs++;
+                if (i == 0) {
+                    counters.firstMoveCutoffs++;
+                }
+                break;
+            }
+        }
+        
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        if (useTable) {
+            table.store(key, ComputerPlayer.toTable(bestScore, ply), draft, bound);
+        }
+        return bestScore;
+    }
+    
+    // Fills moveBits[ply] with the playable bits among possible, best first: more winning cells made by the move,
+    // then closer to the centre (insertion sort over the centre-first order keeps ties centred). Returns the count.
+    private int orderMoves(long current, long occupied, int ply, long possible) {
+        long[] moves = moveBits[ply];
+        int[] scores = moveScores[ply];
+        int count = 0;
+        for (int col : COLUMN_ORDER) {
+            long move = possible & ConnectFourRules.columnMask(col);
+            if (move == 0) {
+                continue;
+            }
+            int score = Long.bitCount(ConnectFourRules.winningCells(current | move, occupied | move));
+            int i = count++;
+            while (i > 0 && scores[i - 1] < score) {
+                moves[i] = moves[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            moves[i] = move;
+            scores[i] = score;
+        }
+        return count;
+    }
+    
+    // Horizon score for the side to move: its winning cells against the opponent's, and discs in the centre column
+    static int evaluate(long current, long occupied) {
+        long opponent = current ^ occupied;
+        long centre = ConnectFourRules.columnMask(ConnectFourRules.COLUMNS / 2);
+        return 4 * (Long.bitCount(ConnectFourRules.winningCells(current, occupied))
+                - Long.bitCount(ConnectFourRules.winningCells(opponent, occupied)))
+            + Long.bitCount(current & centre) - Long.bitCount(opponent & centre);
+    }
+    
+    // Nodes visited by the last search
+    public long getNodes() {
+        return counters == null ? 0 : counters.nodes;
+    }
+    
+    private void updatePv(int ply, long move) {
+        pvTable[ply][0] = cellOf(move);
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+    
+    // Board cell of a single-bit move
+    private static int cellOf(long move) {
+        int bit = Long.numberOfTrailingZeros(move);
+        int col = bit / ConnectFourRules.STRIDE;
+        int row = ConnectFourRules.ROWS - 1 - bit % ConnectFourRules.STRIDE;
+        return row * ConnectFourRules.COLUMNS + col;
+    }
+    
+    private SearchResult finish(int[] pv, int score, int depth, long begin) {
+        List<Move> line = new ArrayList<>(pv.length);
+        for (int cell : pv) {
+            line.add(new Move(cell / ConnectFourRules.COLUMNS, cell % ConnectFourRules.COLUMNS));
+        }
+        return new SearchResult(line.get(0), score, depth, counters.finish(System.nanoTime() - begin, line));
+    }
+    
+    // Usage: ConnectFourSolver [--stones N] [--positions N] [--seed N]
+    // Solves random positions with N discs played (none already won or lost at once) and reports the time and
+    // nodes for each, with a fresh table per position
+    public static void main(String[] args) {
+        int stones = 16;
+        int positions = 10;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--stones".equals(args[i]) && i + 1 < args.length) {
+                stones = Integer.parseInt(args[++i]);
+            } else if ("--positions".equals(args[i]) && i + 1 < args.length) {
+                positions = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            }
+        }
+        Random random = new Random(seed);
+        long totalNanos = 0;
+        for (int i = 0; i < positions; i++) {
+            GamePosition position = randomPosition(stones, random);
+            ConnectFourSolver solver = new ConnectFourSolver();
+            long start = System.nanoTime();
+            int score = solver.solve(position);
+            long nanos = System.nanoTime() - start;
+            totalNanos += nanos;
+            System.out.printf("%2d  score %4d  %8.1f ms  %,12d nodes%n", i, score, nanos / 1e6, solver.getNodes());
+        }
+        System.out.printf("mean %.1f ms over %d positions with %d discs%n", totalNanos / 1e6 / positions, positions, stones);
+    }
+    
+    // stones random discs with the game still open and no immediate win for the side to move
+    static GamePosition randomPosition(int stones, Random random) {
+        while (true) {
+            GamePosition position = ConnectFourRules.INSTANCE.start();
+            int[] moves = new int[ConnectFourRules.COLUMNS];
+            while (position.getBoard().cellCount() - position.getBoard().emptyCount() < stones
+                    && position.getOutcome() == GameState.PLAYING) {
+                int count = position.legalMoves(moves);
+                position.play(moves[random.nextInt(count)]);
+            }
+            ConnectFourRules.Position bits = (ConnectFourRules.Position) position;
+            long possible = (bits.occupied() + ConnectFourRules.BOTTOM) & ConnectFourRules.FULL;
+            if (position.getOutcome() == GameState.PLAYING
+                    && (ConnectFourRules.winningCells(bits.current(), bits.occupied()) & possible) == 0) {
+                return position;
+            }
+        }
+    }
+}
+
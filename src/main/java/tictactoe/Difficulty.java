@@ -1,9 +1,29 @@
 package tictactoe;
 
-// Difficulty levels for computer opponent
+// Difficulty levels for computer opponent - named presets on the Strength scale
 public enum Difficulty {
-    EASY,
-    MEDIUM,
-    HARD
+    EASY(1),
+    // The level whose small-board blunder rate is closest to the 20% random moves Medium played before the Strength
+    // scale; on larger boards its node budget sets its strength
+    MEDIUM(14),
+    HARD(20);
+    
+    private final int level;
+    
+    Difficulty(int level) {
+        this.level = level;
+    }
+    
+    public Strength getStrength() {
+        return Strength.of(level);
+    }
+    
+    // Preset a strength is reported under: Easy and Hard for the ends of the scale, Medium between
+    public static Difficulty of(Strength strength) {
+        if (strength.getLevel() == EASY.level) {
+            return EASY;
+        }
+        return strength.isPerfect() ? HARD : MEDIUM;
+    }
 }
 
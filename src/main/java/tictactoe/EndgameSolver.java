@@ -0,0 +1,485 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+// Exact solver for the last few empty cells. The position is compiled into a bitboard over just those cells: for each
+// side, the set of cells it still needs for every line it can complete. A move wins when it fills the last cell of
+// one of its side's sets, and a position where neither side has a set left is a dead draw. The search is plain
+// alpha-beta with a small table of its own, allocates nothing once the instance has been sized, and scores wins and
+// losses in plies like ComputerPlayer's search. One solve at a time per instance.
+public final class EndgameSolver {
+    // Cells are bits of an int, and a position key is both sides' cells side by side in a long
+    public static final int MAX_CELLS = 16;
+    
+    // Result of an aborted solve
+    static final int ABORTED = Integer.MIN_VALUE;
+    
+    private static final int TABLE_BITS = 14;
+    private static final int GENERATION_BITS = 14;
+    private static final int EXACT = 1;
+    private static final int LOWER_BOUND = 2;
+    private static final int UPPER_BOUND = 3;
+    
+    // Limits are polled once per this many nodes (a power of two)
+    private static final long POLL_INTERVAL = 256;
+    
+    private static final int[][] DIRECTIONS = {{0, 1}, {1, 0}, {1, 1}, {1, -1}};
+    
+    // The compiled position: board cell of each local cell, in search order
+    private final int[] cells = new int[MAX_CELLS];
+    private int count;
+    
+    // Per side (0 = X), the cell sets still needed for a line - all of them in needs[side], and those through each
+    // local cell at byCell[side][cellStart[side][cell]] up to cellStart[side][cell + 1]
+    private final int[][] needs = new int[2][];
+    private final int[] needCount = new int[2];
+    private final int[][] byCell = new int[2][];
+    private final int[][] cellStart = new int[2][MAX_CELLS + 1];
+    
+    // Position table, entry = key << 32 | generation << 18 | bound << 16 | (score & 0xFFFF). Each solve has its own
+    // generation, so entries from earlier solves never match and the table is only wiped when generations wrap.
+    private final long[] table = new long[1 << TABLE_BITS];
+    private int generation;
+    
+    private final int[][] pvTable = new int[MAX_CELLS + 1][MAX_CELLS + 1];
+    private final int[] pvLength = new int[MAX_CELLS + 1];
+    
+    // Board cell to its local cell's bit while compiling, 0 elsewhere - grown to the largest board seen
+    private int[] localBit = new int[0];
+    
+    // Compile scratch, per local cell
+    private final int[] weight = new int[MAX_CELLS + 1];
+    private final int[] order = new int[MAX_CELLS];
+    private final int[] renumbered = new int[MAX_CELLS];
+    private final int[] reordered = new int[MAX_CELLS];
+    
+    private SearchLimits limits;
+    private long nodes;
+    private boolean aborted;
+    private int cols;
+    private int score;
+    
+    public EndgameSolver() {
+        for (int side = 0; side < 2; side++) {
+            needs[side] = new int[64];
+            byCell[side] = new int[64];
+        }
+    }
+    
+    // Most empty cells worth solving exactly on this board, from the latency benchmark in main(): solving beats the
+    // ordinary search up to here. The whole game on 3x3; on 4x4 every cell is on several open lines, so the solve
+    // doubles per cell and overtakes the depth-4 search after 10; longer lines on larger boards die out sooner.
+    public static int threshold(BoardSpec spec) {
+        if (spec.getCells() <= 9) {
+            return spec.getCells();
+        }
+        return spec.getCells() <= 16 ? 10 : 14;
+    }
+    
+    // Exact score for toMove (ComputerPlayer's scale: 100 minus plies to a forced win, 0 for a draw, plies minus 100
+    // for a forced loss) on a board that is not already won, with at most MAX_CELLS empty cells
+    public int solve(Board board, CellState toMove) {
+        return solve(board, toMove, null);
+    }
+    
+    // As solve(board, toMove), giving up with ABORTED once limits (may be null) say stop
+    int solve(Board board, CellState toMove, SearchLimits limits) {
+        if (board.emptyCount() > MAX_CELLS) {
+            throw new IllegalArgumentException("Too many empty cells to solve: " + board.emptyCount());
+        }
+        if (board.emptyCount() == 0) {
+            throw new IllegalArgumentException("No empty cells to solve");
+        }
+        compile(board);
+        this.limits = limits;
+        nodes = 0;
+        aborted = false;
+        generation = (generation + 1) & ((1 << GENERATION_BITS) - 1);
+        if (generation == 0) {
+            Arrays.fill(table, 0L);
+            generation = 1;
+        }
+        int side = toMove == CellState.X ? 0 : 1;
+        score = negamax(0, 0, 0, side, -ComputerPlayer.WIN_SCORE - 1, ComputerPlayer.WIN_SCORE + 1);
+        if (pvLength[0] == 0) {
+            // A dead draw from the start - any cell will do
+            pvTable[0][0] = 0;
+            pvLength[0] = 1;
+        }
+        this.limits = null;
+        return aborted ? ABORTED : score;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    // First move of the best line, or null if the last solve was aborted
+    public Move getBestMove() {
+        return aborted || pvLength[0] == 0 ? null : toMove(cells[pvTable[0][0]]);
+    }
+    
+    // The best line from the solved position - it stops early where the table already knew the rest
+    public List<Move> getLine() {
+        List<Move> line = new ArrayList<>();
+        for (int i = 0; i < (aborted ? 0 : pvLength[0]); i++) {
+            line.add(toMove(cells[pvTable[0][i]]));
+        }
+        return line;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    // mine and theirs are the local cells filled by the side to move and by its opponent; side is the mover (0 = X)
+    private int negamax(int ply, int mine, int theirs, int side, int alpha, int beta) {
+        nodes++;
+        if (aborted || ((nodes & (POLL_INTERVAL - 1)) == 0 && limits != null && limits.isTimeUp())) {
+            aborted = true;
+            return 0;
+        }
+        pvLength[ply] = 0;
+        int free = ((1 << count) - 1) & ~(mine | theirs);
+        if (free == 0) {
+            return 0;
+        }
+        for (int rest = free; rest != 0; rest &= rest - 1) {
+            int cell = Integer.numberOfTrailingZeros(rest);
+            if (completes(side, cell, mine)) {
+                pvTable[ply][0] = cell;
+                pvLength[ply] = 1;
+                return ComputerPlayer.WIN_SCORE - ply;
+            }
+        }
+        // The opponent's winning cell is the only move worth trying - with two of them every move loses the same
+        int candidates = free;
+        for (int rest = free; rest != 0; rest &= rest - 1) {
+            int cell = Integer.numberOfTrailingZeros(rest);
+            if (completes(1 - side, cell, theirs)) {
+                candidates = 1 << cell;
+                break;
+            }
+        }
+        if (candidates == free && !canStillWin(side, theirs) && !canStillWin(1 - side, mine)) {
+            return 0;
+        }
+        
+        long key = side == 0 ? mine | (long) theirs << MAX_CELLS : theirs | (long) mine << MAX_CELLS;
+        int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - TABLE_BITS));
+        long tag = key << GENERATION_BITS | generation;
+        long entry = table[slot];
+        if (entry >>> 18 == tag) {
+            int stored = fromTable((short) entry, ply);
+            int bound = (int) (entry >>> 16) & 3;
+            if (bound == EXACT) {
+                return stored;
+            } else if (bound == LOWER_BOUND) {
+                alpha = Math.max(alpha, stored);
+            } else {
+                beta = Math.min(beta, stored);
+            }
+            if (alpha >= beta) {
+                return stored;
+            }
+        }
+        
+        int originalAlpha = alpha;
+        int best = -ComputerPlayer.WIN_SCORE - 1;
+        // Local cells are numbered busiest first, so lowest bit first is the move ordering
+        for (int rest = candidates; rest != 0; rest &= rest - 1) {
+            int cell = Integer.numberOfTrailingZeros(rest);
+            int value = -negamax(ply + 1, theirs, mine | 1 << cell, 1 - side, -beta, -alpha);
+            if (aborted) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+            }
+            if (value > alpha) {
+                alpha = value;
+                pvTable[ply][0] = cell;
+                System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+                pvLength[ply] = pvLength[ply + 1] + 1;
+            }
+            if (alpha >= beta) {
+                break;
+            }
+        }
+        
+        int bound = best <= originalAlpha ? UPPER_BOUND : best >= beta ? LOWER_BOUND : EXACT;
+        table[slot] = tag << 18 | (long) bound << 16 | (toTable(best, ply) & 0xFFFF);
+        return best;
+    }
+    
+    // Whether side filling cell on top of filled completes one of its lines
+    private boolean completes(int side, int cell, int filled) {
+        int[] sets = byCell[side];
+        int have = filled | 1 << cell;
+        for (int i = cellStart[side][cell], end = cellStart[side][cell + 1]; i < end; i++) {
+            if ((sets[i] & ~have) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Whether side has a line left that the opponent's cells do not block
+    private boolean canStillWin(int side, int blocked) {
+        int[] sets = needs[side];
+        for (int i = 0, end = needCount[side]; i < end; i++) {
+            if ((sets[i] & blocked) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    // Numbers the empty cells, busiest first, and lists each side's open lines as sets of them
+    private void compile(Board board) {
+        cols = board.getCols();
+        if (localBit.length < board.cellCount()) {
+            localBit = new int[board.cellCount()];
+        }
+        count = 0;
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            if (board.isEmptyAt(cell)) {
+                localBit[cell] = 1 << count;
+                cells[count++] = cell;
+            }
+        }
+        collectLines(board);
+        
+        // Renumber so the cells on the most open lines come first
+        Arrays.fill(weight, 0);
+        for (int side = 0; side < 2; side++) {
+            for (int i = 0; i < needCount[side]; i++) {
+                for (int set = needs[side][i]; set != 0; set &= set - 1) {
+                    weight[Integer.numberOfTrailingZeros(set)]++;
+                }
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        for (int i = 1; i < count; i++) {
+            for (int j = i; j > 0 && weight[order[j]] > weight[order[j - 1]]; j--) {
+                int swap = order[j];
+                order[j] = order[j - 1];
+                order[j - 1] = swap;
+            }
+        }
+        for (int i = 0; i < count; i++) {
+            renumbered[order[i]] = i;
+        }
+        for (int i = 0; i < count; i++) {
+            reordered[i] = cells[order[i]];
+            localBit[cells[i]] = 0;
+        }
+        System.arraycopy(reordered, 0, cells, 0, count);
+        for (int side = 0; side < 2; side++) {
+            for (int i = 0; i < needCount[side]; i++) {
+                int moved = 0;
+                for (int set = needs[side][i]; set != 0; set &= set - 1) {
+                    moved |= 1 << renumbered[Integer.numberOfTrailingZeros(set)];
+                }
+                needs[side][i] = moved;
+            }
+            indexByCell(side);
+        }
+    }
+    
+    // Every line of the win length through an empty cell that one side has not blocked, recorded once - from its
+    // lowest local cell - as the set of empty cells it still needs
+    private void collectLines(Board board) {
+        int rows = board.getRows();
+        int length = board.getSpec().getWinLength();
+        needCount[0] = 0;
+        needCount[1] = 0;
+        for (int local = 0; local < count; local++) {
+            int row = cells[local] / cols;
+            int col = cells[local] % cols;
+            for (int[] direction : DIRECTIONS) {
+                for (int back = 0; back < length; back++) {
+                    int startRow = row - back * direction[0];
+                    int startCol = col - back * direction[1];
+                    int endRow = startRow + (length - 1) * direction[0];
+                    int endCol = startCol + (length - 1) * direction[1];
+                    if (startRow < 0 || startCol < 0 || startCol >= cols || endRow >= rows || endCol < 0 || endCol >= cols) {
+                        continue;
+                    }
+                    // Branch-free over the cells: which marks the line holds and which empty cells it needs
+                    int set = 0;
+                    int marks = 0;
+                    int start = startRow * cols + startCol;
+                    int step = direction[0] * cols + direction[1];
+                    for (int i = 0, cell = start; i < length; i++, cell += step) {
+                        set |= localBit[cell];
+                        marks |= board.markCode(cell);
+                    }
+                    if (Integer.numberOfTrailingZeros(set) != local || marks == 3) {
+                        continue;
+                    }
+                    if ((marks & 2) == 0) {
+                        addNeed(0, set);
+                    }
+                    if ((marks & 1) == 0) {
+                        addNeed(1, set);
+                    }
+                }
+            }
+        }
+    }
+    
+    private void addNeed(int side, int set) {
+        if (needCount[side] == needs[side].length) {
+            needs[side] = Arrays.copyOf(needs[side], needs[side].length * 2);
+        }
+        needs[side][needCount[side]++] = set;
+    }
+    
+    // Fills byCell[side] and cellStart[side] from needs[side]
+    private void indexByCell(int side) {
+        int[] start = cellStart[side];
+        Arrays.fill(start, 0);
+        int total = 0;
+        for (int i = 0; i < needCount[side]; i++) {
+            for (int set = needs[side][i]; set != 0; set &= set - 1) {
+                start[Integer.numberOfTrailingZeros(set) + 1]++;
+                total++;
+            }
+        }
+        for (int cell = 0; cell < count; cell++) {
+            start[cell + 1] += start[cell];
+        }
+        if (byCell[side].length < total) {
+            byCell[side] = new int[Math.max(total, byCell[side].length * 2)];
+        }
+        System.arraycopy(start, 0, weight, 0, count);
+        for (int i = 0; i < needCount[side]; i++) {
+            for (int set = needs[side][i]; set != 0; set &= set - 1) {
+                byCell[side][weight[Integer.numberOfTrailingZeros(set)]++] = needs[side][i];
+            }
+        }
+    }
+    
+    // Win/loss scores count plies from the solved position - the table stores them relative to the node instead
+    private static int toTable(int score, int ply) {
+        if (score > ComputerPlayer.WIN_SCORE / 2) return score + ply;
+        if (score < -ComputerPlayer.WIN_SCORE / 2) return score - ply;
+        return score;
+    }
+    
+    private static int fromTable(int score, int ply) {
+        if (score > ComputerPlayer.WIN_SCORE / 2) return score - ply;
+        if (score < -ComputerPlayer.WIN_SCORE / 2) return score + ply;
+        return score;
+    }
+    
+    private Move toMove(int cell) {
+        return new Move(cell / cols, cell % cols);
+    }
+    
+    // A late-game position with empties cells left and no line completed, or null if the tries run out. Marks
+    // alternate over the cells in random order; a cell that would complete a line goes to the other side, and one that
+    // would complete a line for either side stays empty.
+    static Board latePosition(BoardSpec spec, int empties, Random random) {
+        Board board = new Board(spec);
+        int[] order = new int[spec.getCells()];
+        for (int tries = 0; tries < 100; tries++) {
+            board.clear();
+            for (int i = 0; i < order.length; i++) {
+                int j = random.nextInt(i + 1);
+                order[i] = order[j];
+                order[j] = i;
+            }
+            CellState mark = CellState.X;
+            for (int i = 0; i < order.length && board.emptyCount() > empties; i++) {
+                CellState other = mark == CellState.X ? CellState.O : CellState.X;
+                for (CellState tried : new CellState[] {mark, other}) {
+                    board.place(order[i], tried);
+                    if (!board.completesLine(order[i], tried)) {
+                        mark = tried == CellState.X ? CellState.O : CellState.X;
+                        break;
+                    }
+                    board.remove(order[i]);
+                }
+            }
+            if (board.emptyCount() == empties) {
+                return board;
+            }
+        }
+        return null;
+    }
+    
+    // The side with fewer marks, X on a tie
+    private static CellState toMove(Board board) {
+        int x = 0;
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            x += board.markCode(cell) & 1;
+        }
+        int o = board.cellCount() - board.emptyCount() - x;
+        return x <= o ? CellState.X : CellState.O;
+    }
+    
+    // Usage: EndgameSolver [board spec] [--positions N] [--seed N]
+    // Mean latency of a Hard move by the ordinary search against an exact solve, per number of empty cells - the
+    // threshold is the last row where solving is no slower
+    public static void main(String[] args) {
+        BoardSpec spec = BoardSpec.STANDARD;
+        int positions = 200;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--positions".equals(args[i]) && i + 1 < args.length) {
+                positions = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else {
+                spec = BoardSpec.parse(args[i]);
+            }
+        }
+        int most = Math.min(MAX_CELLS, spec.getCells());
+        TranspositionTable table = new HeapTranspositionTable(16);
+        EndgameSolver solver = new EndgameSolver();
+        System.out.println(spec + ", threshold " + threshold(spec));
+        System.out.println("empty   search us   solver us   speedup   solver nodes");
+        // The first pass warms up both paths and is not reported
+        for (int pass = 0; pass < 2; pass++) {
+            Random random = new Random(seed);
+            for (int empties = 1; empties <= most; empties++) {
+                long searchNanos = 0;
+                long solverNanos = 0;
+                long solverNodes = 0;
+                int solved = 0;
+                for (int i = 0; i < positions; i++) {
+                    Board board = latePosition(spec, empties, random);
+                    if (board == null) {
+                        break;
+                    }
+                    CellState toMove = toMove(board);
+                    ComputerPlayer player = new ComputerPlayer(toMove, "Hard", Difficulty.HARD, table);
+                    player.setEndgameSolving(false);
+                    table.clear();
+                    long start = System.nanoTime();
+                    player.search(board);
+                    long searched = System.nanoTime();
+                    solver.solve(board, toMove);
+                    solverNanos += System.nanoTime() - searched;
+                    searchNanos += searched - start;
+                    solverNodes += solver.getNodes();
+                    solved++;
+                }
+                if (pass == 1 && solved > 0) {
+                    System.out.printf(Locale.ROOT, "%5d %11.1f %11.1f %8.1fx %14d%s%n", empties, searchNanos / 1e3 / solved,
+                        solverNanos / 1e3 / solved, (double) searchNanos / solverNanos, solverNodes / solved,
+                        empties == threshold(spec) ? "   <- threshold" : "");
+                }
+            }
+        }
+    }
+}
+
@@ -0,0 +1,411 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Text protocol front end for arenas and analysis tools, modelled on UCI with a GTP-style board command. Commands are
+// read on the calling thread and searches run on a worker thread, so stop, ponderhit and isready answer at once.
+//   uci | isready | setoption name Difficulty value HARD | setoption name Strength value 1..20
+//   setoption name Hash value 4096 | board 15x15k5 | ucinewgame
+//   position [startpos] [moves 1,1 0,2 ...]
+//   go [depth N] [nodes N] [movetime MS] [wtime MS btime MS winc MS binc MS] [infinite] [ponder]
+//   stop | ponderhit | quit
+// Moves are "row,col". A search reports "info depth .. score cp|mate .. nodes .. nps .. time .. pv .." per depth,
+// then "bestmove row,col [ponder row,col]" ("bestmove none" when the game is over).
+public class EngineProtocol {
+    private static final int TABLE_BITS = 20;
+    private static final int DEFAULT_HASH_MB = 16; // TABLE_BITS entries of 16 bytes
+    private static final int MIN_HASH_MB = 1;
+    private static final int MAX_HASH_MB = 16384;
+    
+    // Directory for persistent tables, one file per board spec, so a restarted engine keeps what it learned.
+    // Unset keeps tables in memory only.
+    private static final String TABLE_DIR = System.getProperty("tictactoe.tt.dir");
+    private static final long SNAPSHOT_SECONDS = 30;
+    
+    private final BufferedReader in;
+    private final PrintWriter out;
+    private final ExecutorService searcher;
+    
+    // Touched only by the command thread - a running search works on its own copies
+    private Strength strength = Difficulty.HARD.getStrength();
+    private int tableBits = TABLE_BITS;
+    private BoardSpec spec = BoardSpec.STANDARD;
+    private GameEngine position;
+    private TranspositionTable table;
+    private SearchLimits limits;
+    private Future<?> running;
+    
+    public EngineProtocol(BufferedReader in, Writer out) {
+        this.in = in;
+        this.out = new PrintWriter(out);
+        this.searcher = Executors.newSingleThreadExecutor(task -> {
+            Thread thread = new Thread(task, "engine-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.table = openTable();
+        this.position = newPosition();
+        SearchMonitor.getInstance(); // registers its MXBean now rather than inside the first timed search
+    }
+    
+    // Handles commands until quit or end of input; a search still running then is stopped and its bestmove sent
+    public void run() throws IOException, InterruptedException {
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                String[] words = line.trim().split("\\s+");
+                if ("quit".equals(words[0])) {
+                    break;
+                }
+                handle(words, line.trim());
+            }
+        } finally {
+            if (limits != null) {
+                limits.stop();
+            }
+            searcher.shutdown();
+            searcher.awaitTermination(10, TimeUnit.SECONDS);
+            closeTable();
+            out.flush();
+        }
+    }
+    
+    private void handle(String[] words, String line) {
+        switch (words[0]) {
+            case "":
+                break;
+            case "uci":
+                send("id name TicTacToe");
+                send("option name Difficulty type combo default HARD var EASY var MEDIUM var HARD");
+                send("option name Strength type spin default " + Strength.MAX_LEVEL + " min " + Strength.MIN_LEVEL + " max " + Strength.MAX_LEVEL);
+                send("option name Hash type spin default " + DEFAULT_HASH_MB + " min " + MIN_HASH_MB + " max " + MAX_HASH_MB);
+                send("uciok");
+                break;
+            case "isready":
+                send("readyok");
+                break;
+            case "stop":
+                if (limits != null) {
+                    limits.stop();
+                }
+                break;
+            case "ponderhit":
+                if (limits != null) {
+                    limits.ponderHit();
+                }
+                break;
+            case "setoption":
+                if (checkIdle()) {
+                    setOption(words);
+                }
+                break;
+            case "board":
+                if (checkIdle()) {
+                    setBoard(words);
+                }
+                break;
+            case "ucinewgame":
+                if (checkIdle()) {
+                    // Front-ends send this before every game - a persistent table keeps its warm data
+                    if (!table.isPersistent()) {
+                        table.clear();
+                    }
+                    position = newPosition();
+                }
+                break;
+            case "position":
+                if (checkIdle()) {
+                    setPosition(words);
+                }
+                break;
+            case "go":
+                if (checkIdle()) {
+                    go(words);
+                }
+                break;
+            default:
+                send("info string unknown command: " + line);
+                break;
+        }
+    }
+    
+    // A search bounded by depth, nodes or time finishes on its own, and so does one told to stop, so later commands
+    // wait for it. One that runs until stop or ponderhit would never finish - commands that need the engine idle are
+    // refused instead.
+    private boolean checkIdle() {
+        if (running == null || running.isDone()) {
+            return true;
+        }
+        if (!limits.isStopped() && (limits.isInfinite() || limits.isPondering())) {
+            send("info string busy - send stop first");
+            return false;
+        }
+        try {
+            running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            // the search reported its own failure
+        }
+        return true;
+    }
+    
+    private void setOption(String[] words) {
+        // setoption name Difficulty value HARD | setoption name Strength value 12 | setoption name Hash value MB
+        if (words.length == 5 && "name".equals(words[1]) && "value".equals(words[3])) {
+            try {
+                if ("Difficulty".equalsIgnoreCase(words[2])) {
+                    strength = Difficulty.valueOf(words[4].toUpperCase()).getStrength();
+                    return;
+                }
+                if ("Strength".equalsIgnoreCase(words[2])) {
+                    strength = Strength.of(Integer.parseInt(words[4]));
+                    return;
+                }
+                if ("Hash".equalsIgnoreCase(words[2])) {
+                    setHash(Integer.parseInt(words[4]));
+                    return;
+                }
+            } catch (IllegalArgumentException e) {
+                // fall through to the error below
+            }
+        }
+        send("info string unsupported option: " + String.join(" ", words));
+    }
+    
+    // Resizes the table to the largest power of two entries within megabytes; the old table is dropped
+    private void setHash(int megabytes) {
+        if (megabytes < MIN_HASH_MB || megabytes > MAX_HASH_MB) {
+            throw new IllegalArgumentException("Hash out of range: " + megabytes);
+        }
+        int bits = TABLE_BITS - 4 + 31 - Integer.numberOfLeadingZeros(megabytes); // 16-byte entries, 2^16 per MB
+        if (bits == tableBits) {
+            return;
+        }
+        closeTable();
+        table = null; // let a large old table go before allocating its replacement
+        tableBits = bits;
+        table = openTable();
+    }
+    
+    private void setBoard(String[] words) {
+        try {
+            BoardSpec parsed = BoardSpec.parse(words.length > 1 ? words[1] : "");
+            if (!parsed.equals(spec)) {
+                spec = parsed;
+                closeTable();
+                table = openTable();
+            }
+            position = newPosition();
+        } catch (IllegalArgumentException e) {
+            send("info string " + e.getMessage());
+        }
+    }
+    
+    // position [startpos] [moves ...] - stops at the first illegal move, keeping the moves before it
+    private void setPosition(String[] words) {
+        position = newPosition();
+        int i = 1;
+        if (i < words.length && "startpos".equals(words[i])) {
+            i++;
+        }
+        if (i < words.length && "moves".equals(words[i])) {
+            i++;
+        }
+        for (; i < words.length; i++) {
+            Move move = parseMove(words[i]);
+            if (move == null || !position.processMove(move)) {
+                send("info string illegal move: " + words[i]);
+                return;
+            }
+        }
+    }
+    
+    private void go(String[] words) {
+        int depth = 0;
+        long nodes = 0;
+        long moveTime = 0;
+        boolean infinite = false;
+        boolean ponder = false;
+        long[] clock = {-1, -1}; // X (white) and O (black) time left
+        long[] increment = {0, 0};
+        try {
+            for (int i = 1; i < words.length; i++) {
+                switch (words[i]) {
+                    case "depth": depth = Integer.parseInt(words[++i]); break;
+                    case "nodes": nodes = Long.parseLong(words[++i]); break;
+                    case "movetime": moveTime = Long.parseLong(words[++i]); break;
+                    case "infinite": infinite = true; break;
+                    case "ponder": ponder = true; break;
+                    case "wtime": clock[0] = Long.parseLong(words[++i]); break;
+                    case "btime": clock[1] = Long.parseLong(words[++i]); break;
+                    case "winc": increment[0] = Long.parseLong(words[++i]); break;
+                    case "binc": increment[1] = Long.parseLong(words[++i]); break;
+                    default: throw new IllegalArgumentException("unknown go parameter: " + words[i]);
+                }
+            }
+            limits = new SearchLimits(depth, nodes, moveTime, infinite, ponder);
+        } catch (IllegalArgumentException | ArrayIndexOutOfBoundsException e) {
+            send("info string bad go command: " + String.join(" ", words));
+            return;
+        }
+        
+        if (position.getState() != GameState.PLAYING) {
+            send("bestmove none");
+            return;
+        }
+        BoardSnapshot snapshot = position.getSnapshot();
+        CellState mark = position.getCurrentPlayer().getMark();
+        ComputerPlayer player = new ComputerPlayer(mark, "Engine", strength, table);
+        
+        // A clock with no fixed move time: the time manager budgets this move and may end it early. Any depth or
+        // node limit from the same go command still applies.
+        int side = mark == CellState.X ? 0 : 1;
+        TimeManager.MoveBudget budget = null;
+        if (clock[side] >= 0 && moveTime == 0 && !infinite && !ponder) {
+            budget = TimeManager.MoveBudget.plan(clock[side], increment[side], position.getBoard().emptyCount(), limits);
+            limits = budget.getLimits();
+        }
+        SearchLimits searchLimits = limits;
+        TimeManager.MoveBudget searchBudget = budget;
+        running = searcher.submit(() -> search(player, snapshot, searchLimits, searchBudget));
+    }
+    
+    // Runs on the search thread
+    private void search(ComputerPlayer player, BoardSnapshot snapshot, SearchLimits searchLimits, TimeManager.MoveBudget budget) {
+        try {
+            SearchListener progress = result -> {
+                send(infoLine(result));
+                if (budget != null) {
+                    budget.iterationCompleted(result);
+                }
+            };
+            SearchResult result = player.search(snapshot.toBoard(), progress, searchLimits);
+            searchLimits.awaitRelease();
+            StringBuilder line = new StringBuilder("bestmove ").append(formatMove(result.getMove()));
+            List<Move> pv = result.getStats().getPrincipalVariation();
+            if (pv.size() > 1) {
+                line.append(" ponder ").append(formatMove(pv.get(1)));
+            }
+            send(line.toString());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            send("info string search failed: " + e);
+            send("bestmove none");
+        }
+    }
+    
+    private static String infoLine(SearchResult progress) {
+        SearchStats stats = progress.getStats();
+        StringBuilder line = new StringBuilder(96);
+        line.append("info depth ").append(progress.getDepth());
+        int plies = ComputerPlayer.forcedPlies(progress.getScore());
+        if (plies > 0) {
+            line.append(" score mate ").append((plies + 1) / 2);
+        } else if (plies < 0) {
+            line.append(" score mate -").append(-plies / 2);
+        } else {
+            line.append(" score cp ").append(progress.getScore());
+        }
+        line.append(" nodes ").append(stats.getNodes())
+            .append(" nps ").append(stats.getNodesPerSecond())
+            .append(" time ").append(stats.getElapsedNanos() / 1_000_000)
+            .append(" pv");
+        for (Move move : stats.getPrincipalVariation()) {
+            line.append(' ').append(formatMove(move));
+        }
+        return line.toString();
+    }
+    
+    // Both threads write - one line at a time, flushed so tools see it immediately
+    private synchronized void send(String line) {
+        out.println(line);
+        out.flush();
+    }
+    
+    // Table for the current spec - memory-mapped under TABLE_DIR when set, falling back to memory if that fails
+    private TranspositionTable openTable() {
+        if (TABLE_DIR == null) {
+            return memoryTable();
+        }
+        try {
+            MappedTranspositionTable mapped = MappedTranspositionTable.open(Paths.get(TABLE_DIR, "tt-" + spec + ".bin"), spec, tableBits);
+            mapped.snapshotEvery(SNAPSHOT_SECONDS, TimeUnit.SECONDS);
+            send("info string " + (mapped.isWarm() ? "warm" : "new") + " table for " + spec);
+            return mapped;
+        } catch (IOException | RuntimeException e) {
+            send("info string persistent table unavailable: " + e.getMessage());
+            return memoryTable();
+        }
+    }
+    
+    // Tables above the default size go off-heap, out of the collector's way; without enough direct memory
+    // the engine keeps going on the default heap table
+    private TranspositionTable memoryTable() {
+        if (tableBits <= TABLE_BITS) {
+            return new HeapTranspositionTable(tableBits);
+        }
+        try {
+            return new OffHeapTranspositionTable(tableBits);
+        } catch (OutOfMemoryError e) {
+            send("info string hash too large for direct memory, using " + DEFAULT_HASH_MB + " MB: " + e.getMessage());
+            tableBits = TABLE_BITS;
+            return new HeapTranspositionTable(tableBits);
+        }
+    }
+    
+    private void closeTable() {
+        if (table instanceof Closeable) {
+            try {
+                ((Closeable) table).close();
+            } catch (IOException e) {
+                send("info string table not saved: " + e.getMessage());
+            }
+        }
+    }
+    
+    private GameEngine newPosition() {
+        return new GameEngine(new HumanPlayer(CellState.X, "X"), new HumanPlayer(CellState.O, "O"), spec);
+    }
+    
+    // Parses "row,col" (returns null if malformed)
+    private static Move parseMove(String token) {
+        int comma = token.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            return new Move(Integer.parseInt(token.substring(0, comma)), Integer.parseInt(token.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String formatMove(Move move) {
+        return move == null ? "none" : move.getRow() + "," + move.getCol();
+    }
+    
+    public static void main(String[] args) throws IOException, InterruptedException {
+        BufferedReader in = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+        Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+        new EngineProtocol(in, out).run();
+    }
+}
+
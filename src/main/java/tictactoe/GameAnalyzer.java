@@ -0,0 +1,220 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Batch analysis of archived games - annotates every move with its exact score and the best alternative, flags blunders
+public class GameAnalyzer {
+    private static final int TABLE_BITS = 20;
+    static final int POSITIONS_PER_WORKER = 64;
+    
+    private final ComputerPlayer analystX;
+    private final ComputerPlayer analystO;
+    private final int threads;
+    
+    // Both analysts share one fixed-size table, so symmetric and repeated positions across the archive are searched once
+    public GameAnalyzer(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Need at least one worker thread");
+        }
+        TranspositionTable table = new HeapTranspositionTable(TABLE_BITS);
+        this.analystX = new ComputerPlayer(CellState.X, "Analyst X", Difficulty.HARD, table);
+        this.analystO = new ComputerPlayer(CellState.O, "Analyst O", Difficulty.HARD, table);
+        this.threads = threads;
+    }
+    
+    // Reads one game per line ("row,col" moves separated by spaces, '#' starts a comment) and writes one
+    // tab-separated annotation per move in input order. Only a bounded window of positions is ever in flight.
+    public Report analyse(BufferedReader in, Writer out) throws IOException, InterruptedException {
+        ExecutorService workers = Executors.newFixedThreadPool(threads);
+        ArrayDeque<Future<String>> pending = new ArrayDeque<>();
+        int window = threads * POSITIONS_PER_WORKER;
+        Report report = new Report();
+        long start = System.nanoTime();
+        
+        try {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int comment = line.indexOf('#');
+                String record = (comment >= 0 ? line.substring(0, comment) : line).trim();
+                if (record.isEmpty()) {
+                    continue;
+                }
+                report.games++;
+                int gameNumber = report.games;
+                
+                Board board = new Board();
+                CellState mover = CellState.X;
+                String[] tokens = record.split("\\s+");
+                for (int ply = 0; ply < tokens.length; ply++) {
+                    Move move = parseMove(tokens[ply]);
+                    if (move == null || !board.isValidMove(move) || board.hasWon(CellState.X) || board.hasWon(CellState.O)) {
+                        report.errors++;
+                        pending.add(CompletableFuture.completedFuture(
+                            gameNumber + "\t" + (ply + 1) + "\terror\tillegal move '" + tokens[ply] + "'"));
+                        break;
+                    }
+                    
+                    Board position = new Board(board);
+                    CellState positionMover = mover;
+                    int plyNumber = ply + 1;
+                    pending.add(workers.submit(() -> annotate(gameNumber, plyNumber, position, positionMover, move, report)));
+                    report.positions++;
+                    
+                    board.makeMove(move, mover);
+                    mover = (mover == CellState.X) ? CellState.O : CellState.X;
+                    
+                    while (pending.size() >= window) {
+                        writeLine(out, pending.poll());
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                writeLine(out, pending.poll());
+            }
+            out.flush();
+        } finally {
+            workers.shutdownNow();
+        }
+        
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+    
+    // Scores every legal move from this position - the played move is a blunder if it drops the game-theoretic result
+    private String annotate(int game, int ply, Board board, CellState mover, Move played, Report report) {
+        ComputerPlayer analyst = (mover == CellState.X) ? analystX : analystO;
+        int bestScore = Integer.MIN_VALUE;
+        int playedScore = 0;
+        Move bestMove = null;
+        
+        for (int i = 0; i < board.getRows(); i++) {
+            for (int j = 0; j < board.getCols(); j++) {
+                Move move = new Move(i, j);
+                if (!board.isValidMove(move)) {
+                    continue;
+                }
+                int score = analyst.scoreMove(board, move);
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMove = move;
+                }
+                if (move.equals(played)) {
+                    playedScore = score;
+                }
+            }
+        }
+        
+        boolean blunder = Integer.signum(playedScore) < Integer.signum(bestScore);
+        if (blunder) {
+            report.countBlunder();
+        }
+        return game + "\t" + ply + "\t" + mover + "\t" + formatMove(played) + "\t" + playedScore
+            + "\t" + formatMove(bestMove) + "\t" + bestScore + (blunder ? "\tBLUNDER" : "");
+    }
+    
+    private static void writeLine(Writer out, Future<String> annotation) throws IOException, InterruptedException {
+        try {
+            out.write(annotation.get());
+            out.write('\n');
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Position analysis failed", e.getCause());
+        }
+    }
+    
+    // Parses "row,col" (returns null if malformed)
+    private static Move parseMove(String token) {
+        int comma = token.indexOf(',');
+        if (comma < 0) {
+            return null;
+        }
+        try {
+            return new Move(Integer.parseInt(token.substring(0, comma)), Integer.parseInt(token.substring(comma + 1)));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+    
+    private static String formatMove(Move move) {
+        return move.getRow() + "," + move.getCol();
+    }
+    
+    // Totals for one analysis run
+    public static class Report {
+        private int games;
+        private long positions;
+        private int errors;
+        private long blunders;
+        private long elapsedNanos;
+        
+        private synchronized void countBlunder() {
+            blunders++;
+        }
+        
+        public int getGames() {
+            return games;
+        }
+        
+        public long getPositions() {
+            return positions;
+        }
+        
+        public int getErrors() {
+            return errors;
+        }
+        
+        public synchronized long getBlunders() {
+            return blunders;
+        }
+        
+        public double getPositionsPerSecond() {
+            return elapsedNanos == 0 ? 0 : positions * 1e9 / elapsedNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("games=%d positions=%d blunders=%d errors=%d elapsed=%dms rate=%.0f positions/sec",
+                games, positions, getBlunders(), errors, elapsedNanos / 1_000_000, getPositionsPerSecond());
+        }
+    }
+    
+    // Usage: GameAnalyzer <games file or -> [annotated output file] [--threads N]
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String inputPath = "-";
+        String outputPath = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        
+        int positional = 0;
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if (positional++ == 0) {
+                inputPath = args[i];
+            } else {
+                outputPath = args[i];
+            }
+        }
+        
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                 "-".equals(inputPath) ? System.in : new FileInputStream(inputPath), StandardCharsets.UTF_8));
+             Writer out = new BufferedWriter(new OutputStreamWriter(
+                 outputPath == null ? System.out : new FileOutputStream(outputPath), StandardCharsets.UTF_8))) {
+            Report report = new GameAnalyzer(threads).analyse(in, out);
+            System.err.println(report);
+        }
+    }
+}
+
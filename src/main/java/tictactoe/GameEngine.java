@@ -1,14 +1,35 @@
 package tictactoe;
 
-// Manages game flow, turn logic, and state transitions - UI-independent, works with Board/Player only
+import java.util.function.Supplier;
+
+// Manages game flow, turn logic, and state transitions - UI-independent, works with Board/Player only. The
+// GameRules decide which moves are legal and when the game ends; the standard m,n,k game unless given others.
 public class GameEngine {
+    private final GameRules rules;
+    private GamePosition position;
     private Board board;
     private Player playerX;
     private Player playerO;
     private Player currentPlayer;
     private GameState state;
+    private WinLine winLine;
+    private TimeManager clock;
+    private boolean timeForfeit;
+    private volatile SearchStats lastSearchStats;
+    
+    // Immutable copy of the position, replaced after every move - readers on other threads take it without locking
+    private volatile BoardSnapshot snapshot;
     
     public GameEngine(Player playerX, Player playerO) {
+        this(playerX, playerO, BoardSpec.STANDARD);
+    }
+    
+    // Game on an m,n,k board - rows x cols, first to get winLength in a row wins
+    public GameEngine(Player playerX, Player playerO, BoardSpec spec) {
+        this(playerX, playerO, MnkRules.standard(spec));
+    }
+    
+    public GameEngine(Player playerX, Player playerO, GameRules rules) {
         if (playerX == null || playerO == null) {
             throw new IllegalArgumentException("Players cannot be null");
         }
@@ -18,54 +39,170 @@ public class GameEngine {
         
         this.playerX = playerX;
         this.playerO = playerO;
-        this.board = new Board();
+        this.rules = rules;
+        this.position = rules.start();
+        this.board = position.getBoard();
+        this.snapshot = BoardSnapshot.empty(rules.getSpec());
         this.currentPlayer = playerX; // X always starts
         this.state = GameState.PLAYING;
     }
     
+    public GameRules getRules() {
+        return rules;
+    }
+    
     public GameState getState() {
         return state;
     }
     
+    // The run that ended the game (the loser's under misere rules), null while playing, after a draw and after reset
+    public WinLine getWinLine() {
+        return winLine;
+    }
+    
+    // Plays under clock from now on (null for an untimed game) - both clocks are reset and the player to move's starts
+    public void setClock(TimeManager clock) {
+        this.clock = clock;
+        if (clock != null) {
+            clock.reset();
+            clock.startTurn(currentPlayer.getMark());
+        }
+    }
+    
+    public TimeManager getClock() {
+        return clock;
+    }
+    
+    // Whether the game was lost on time rather than decided on the board
+    public boolean isTimeForfeit() {
+        return timeForfeit;
+    }
+    
+    // Ends the game if the player to move has run out of time - for drivers that do not wait for every move.
+    // Returns whether it did.
+    public boolean checkClock() {
+        if (clock == null || state != GameState.PLAYING || !clock.isFlagged(currentPlayer.getMark())) {
+            return false;
+        }
+        forfeitOnTime();
+        return true;
+    }
+    
+    // The live board - only for the thread driving this engine; other threads should read getSnapshot()
     public Board getBoard() {
         return board;
     }
     
+    // Current position as an immutable value, safe to read from any thread and cheap to keep
+    public BoardSnapshot getSnapshot() {
+        return snapshot;
+    }
+    
     public Player getCurrentPlayer() {
         return currentPlayer;
     }
     
     // Processes a move from current player (returns true if successful, false if invalid)
     public boolean processMove(Move move) {
+        ProcessMoveEvent event = new ProcessMoveEvent();
+        event.begin();
+        CellState mover = currentPlayer.getMark();
+        boolean accepted = applyMove(move);
+        event.end();
+        if (event.shouldCommit()) {
+            event.mark = mover.name();
+            event.row = move == null ? -1 : move.getRow();
+            event.col = move == null ? -1 : move.getCol();
+            event.accepted = accepted;
+            event.state = state.name();
+            event.commit();
+        }
+        return accepted;
+    }
+    
+    private boolean applyMove(Move move) {
         if (state != GameState.PLAYING) {
             return false; // Game already over
         }
         
-        if (!board.isValidMove(move)) {
+        int index = position.resolve(move);
+        if (index < 0) {
             return false; // Invalid move
         }
         
-        board.makeMove(move, currentPlayer.getMark());
-        updateGameState();
+        if (clock != null && !clock.endTurn(currentPlayer.getMark())) {
+            forfeitOnTime(); // the move came after the flag fell
+            return false;
+        }
+        
+        position.play(index);
+        snapshot = snapshot.withMove(index, currentPlayer.getMark());
+        state = position.getOutcome();
+        winLine = position.getWinLine();
         
         if (state == GameState.PLAYING) {
             switchCurrentPlayer();
+            if (clock != null) {
+                clock.startTurn(currentPlayer.getMark());
+            }
         }
         
         return true;
     }
     
+    // Whether processMove would accept move now (clock aside) - for interfaces that mark the playable cells
+    public boolean isLegalMove(Move move) {
+        return state == GameState.PLAYING && position.resolve(move) >= 0;
+    }
+    
     // Gets next move from current player (for computer players only)
     public Move getComputerMove() {
-        if (state != GameState.PLAYING) {
+        Supplier<SearchResult> task = prepareComputerMove(null);
+        return task == null ? null : task.get().getMove();
+    }
+    
+    // Captures the current computer player and the position snapshot, returning a search that can run on
+    // another thread while this engine keeps being read (null if it is not a computer's turn). The caller applies
+    // the resulting move with processMove on its own thread. listener, if given, receives per-depth progress.
+    // Under a clock the search gets a time budget for this move from the clock's TimeManager.
+    public Supplier<SearchResult> prepareComputerMove(SearchListener listener) {
+        return prepareComputerMove(listener, null);
+    }
+    
+    // As prepareComputerMove(listener), bounded by limits (may be null) - stopping them abandons the search, which
+    // then returns at once and records no latency. A clock's budget applies on top of them.
+    public Supplier<SearchResult> prepareComputerMove(SearchListener listener, SearchLimits limits) {
+        if (state != GameState.PLAYING || !(currentPlayer instanceof ComputerPlayer)) {
             return null;
         }
-        
-        if (currentPlayer instanceof ComputerPlayer) {
-            return currentPlayer.getMove(board);
-        }
-        
-        return null; // Current player is human
+        ComputerPlayer computer = (ComputerPlayer) currentPlayer;
+        BoardSnapshot current = snapshot;
+        // Rules past the standard game track more than the marks - their searches get a copy of the whole position
+        GamePosition searched = MnkRules.isStandard(rules) ? null : position.copy();
+        TimeManager.MoveBudget budget = clock == null ? null : clock.budget(board, computer.getMark(), limits);
+        SearchLimits searchLimits = budget == null ? limits : budget.getLimits();
+        SearchListener progress = budget == null ? listener
+            : listener == null ? budget
+            : result -> {
+                budget.iterationCompleted(result);
+                listener.iterationCompleted(result);
+            };
+        return () -> {
+            long start = System.nanoTime();
+            SearchResult result = searched == null ? computer.search(current.toBoard(), progress, searchLimits)
+                : computer.search(searched, progress, searchLimits);
+            if (limits != null && limits.isStopped()) {
+                return result;
+            }
+            MoveLatencyMonitor.getInstance().record(computer.getStrength(), rules.getName(), System.nanoTime() - start);
+            lastSearchStats = result.getStats();
+            return result;
+        };
+    }
+    
+    // Instrumentation from the most recent computer move (null before the first one)
+    public SearchStats getLastSearchStats() {
+        return lastSearchStats;
     }
     
     // Checks if the current player is a computer player
@@ -73,17 +210,10 @@ public class GameEngine {
         return currentPlayer instanceof ComputerPlayer;
     }
     
-    // Updates game state based on board condition (win/draw/playing)
-    private void updateGameState() {
-        if (board.hasWon(CellState.X)) {
-            state = GameState.X_WINS;
-        } else if (board.hasWon(CellState.O)) {
-            state = GameState.O_WINS;
-        } else if (board.isFull()) {
-            state = GameState.DRAW;
-        } else {
-            state = GameState.PLAYING;
-        }
+    private void forfeitOnTime() {
+        state = currentPlayer.getMark() == CellState.X ? GameState.O_WINS : GameState.X_WINS;
+        timeForfeit = true;
+        winLine = null;
     }
     
     // Switches turn to the other player
@@ -93,9 +223,17 @@ public class GameEngine {
     
     // Resets the game to initial state
     public void reset() {
-        board.clear();
+        position = rules.start();
+        board = position.getBoard();
+        snapshot = BoardSnapshot.empty(board.getSpec());
+        winLine = null;
+        timeForfeit = false;
         currentPlayer = playerX;
         state = GameState.PLAYING;
+        if (clock != null) {
+            clock.reset();
+            clock.startTurn(currentPlayer.getMark());
+        }
     }
 }
 
@@ -3,7 +3,13 @@ package tictactoe;
 import java.awt.*;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
 
@@ -11,6 +17,7 @@ import javax.swing.border.EmptyBorder;
 public class GameGUI extends JFrame {
     private static final int WINDOW_WIDTH = 600;
     private static final int WINDOW_HEIGHT = 700;
+    private static final Logger LOG = Logger.getLogger("tictactoe.gui");
     
     // Professional pink/purple color palette
     private static final Color BG_DARK = new Color(25, 20, 35);
@@ -24,11 +31,25 @@ public class GameGUI extends JFrame {
     private static final Color ACCENT_PINK = new Color(255, 120, 200);
     private static final Color TEXT_LIGHT = new Color(255, 255, 255);
     private static final Color TEXT_DARK = new Color(200, 180, 220);
-    private static final Color WIN_HIGHLIGHT = new Color(255, 105, 180, 180);
+    private static final Color WIN_HIGHLIGHT = new Color(255, 105, 180);
     private static final Color FLOWER_PINK = new Color(255, 182, 193);
     private static final Color FLOWER_PURPLE = new Color(221, 160, 221);
     private static final Color STAR_YELLOW = new Color(255, 215, 0);
     
+    private static final Color X_TINT = new Color(105, 50, 95);
+    private static final Color O_TINT = new Color(40, 90, 100);
+    
+    // Games offered in the menu
+    private static final GameRules[] BOARD_RULES = {
+        MnkRules.standard(BoardSpec.STANDARD), MnkRules.standard(BoardSpec.of(7, 7, 4)),
+        MnkRules.standard(BoardSpec.of(15, 15, 5)), MnkRules.standard(BoardSpec.of(19, 19, 5)),
+        MnkRules.standard(BoardSpec.of(50, 50, 5)), UltimateRules.INSTANCE
+    };
+    private static final String[] BOARD_LABELS = {
+        "3 x 3, 3 in a row", "7 x 7, 4 in a row", "15 x 15, 5 in a row", "19 x 19, 5 in a row", "50 x 50, 5 in a row",
+        "Ultimate, 3 x 3 of 3 x 3"
+    };
+    
     // Font helper - tries pixel-style fonts, falls back to Monospaced
     private static Font getPixelFont(int style, int size) {
         String[] fontNames = {"Monospaced", "Courier New", "Dialog"};
@@ -71,13 +92,13 @@ public class GameGUI extends JFrame {
         cardLayout.show(mainPanel, "MENU");
     }
     
-    public void startGame(String playerXName, String playerOName, boolean vsComputer, Difficulty difficulty) {
+    public void startGame(String playerXName, String playerOName, boolean vsComputer, Difficulty difficulty, GameRules rules) {
         Player playerX = new HumanPlayer(CellState.X, playerXName);
         Player playerO = vsComputer 
             ? new ComputerPlayer(CellState.O, "Computer", difficulty)
             : new HumanPlayer(CellState.O, playerOName);
         
-        GameEngine engine = new GameEngine(playerX, playerO);
+        GameEngine engine = new GameEngine(playerX, playerO, rules);
         gamePanel.startNewGame(engine, playerXName, vsComputer ? "Computer" : playerOName, difficulty);
         cardLayout.show(mainPanel, "GAME");
     }
@@ -90,6 +111,7 @@ public class GameGUI extends JFrame {
         }
         
         SwingUtilities.invokeLater(() -> {
+            RenderTimings.install();
             GameGUI gui = new GameGUI();
             gui.setVisible(true);
         });
@@ -302,6 +324,333 @@ public class GameGUI extends JFrame {
         }
     }
     
+    // Paints a panel's pixel-art decorations
+    interface DecorationPainter {
+        void paint(Graphics2D g2, Random rand, int width, int height);
+    }
+    
+    // Background and static decorations rendered once into an opaque compatible image per panel size.
+    // Repaints copy just the dirty clip out of it instead of redrawing every pixel shape.
+    static class DecorationLayer {
+        private final long seed;
+        private final DecorationPainter painter;
+        private BufferedImage image;
+        private Color background;
+        
+        DecorationLayer(long seed, DecorationPainter painter) {
+            this.seed = seed;
+            this.painter = painter;
+        }
+        
+        void paint(JComponent owner, Graphics g) {
+            int width = owner.getWidth();
+            int height = owner.getHeight();
+            if (width <= 0 || height <= 0) {
+                return;
+            }
+            if (image == null || image.getWidth() != width || image.getHeight() != height
+                    || !owner.getBackground().equals(background)) {
+                background = owner.getBackground();
+                image = createImage(owner, width, height, Transparency.OPAQUE);
+                Graphics2D g2 = image.createGraphics();
+                g2.setColor(background);
+                g2.fillRect(0, 0, width, height);
+                g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+                // Same seed on every render, so a resize re-lays out the decorations without reshuffling them
+                painter.paint(g2, new Random(seed), width, height);
+                g2.dispose();
+            }
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, width, height);
+            }
+            g.drawImage(image, clip.x, clip.y, clip.x + clip.width, clip.y + clip.height,
+                clip.x, clip.y, clip.x + clip.width, clip.y + clip.height, null);
+        }
+    }
+    
+    // X and O marks rendered once per size in their colours, drawn as images on every board repaint
+    static class MarkSprites {
+        private static int fontSize;
+        private static BufferedImage xSprite;
+        private static BufferedImage oSprite;
+        
+        // Sprite for a cell of the given size (null for an empty cell) - re-rendered only when the size changes
+        static BufferedImage forCell(CellState cell, int cellSize) {
+            if (cell == CellState.EMPTY) {
+                return null;
+            }
+            int size = Math.max(6, Math.min(60, cellSize * 2 / 3));
+            if (size != fontSize) {
+                xSprite = render("X", PINK_X, size);
+                oSprite = render("O", CYAN_O, size);
+                fontSize = size;
+            }
+            return cell == CellState.X ? xSprite : oSprite;
+        }
+        
+        private static BufferedImage render(String mark, Color color, int size) {
+            Font font = getPixelFont(Font.BOLD, size);
+            BufferedImage probe = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D measure = probe.createGraphics();
+            FontMetrics metrics = measure.getFontMetrics(font);
+            measure.dispose();
+            
+            BufferedImage sprite = createImage(null, metrics.stringWidth(mark), metrics.getAscent() + metrics.getDescent(),
+                Transparency.TRANSLUCENT);
+            Graphics2D g2 = sprite.createGraphics();
+            g2.setFont(font);
+            g2.setColor(color);
+            g2.drawString(mark, 0, metrics.getAscent());
+            g2.dispose();
+            return sprite;
+        }
+    }
+    
+    // Image in the screen's native pixel format, so drawing it is a straight blit
+    private static BufferedImage createImage(Component owner, int width, int height, int transparency) {
+        GraphicsConfiguration config = owner != null ? owner.getGraphicsConfiguration() : null;
+        if (config == null && !GraphicsEnvironment.isHeadless()) {
+            config = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        if (config != null) {
+            return config.createCompatibleImage(width, height, transparency);
+        }
+        return new BufferedImage(width, height,
+            transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB);
+    }
+    
+    // Receives clicks on board cells
+    private interface CellListener {
+        void cellClicked(int row, int col);
+    }
+    
+    // Whole board painted by one component, so any m,n,k size costs no more Swing components than 3x3.
+    // Cells are hit-tested arithmetically and only changed cells are repainted (board updates, hover, overlays).
+    private static class BoardCanvas extends JComponent {
+        private final CellListener listener;
+        private int rows;
+        private int cols;
+        private CellState[] shown = new CellState[0];
+        private boolean[] highlighted = new boolean[0];
+        private int lastMove = -1;
+        private int hover = -1;
+        private boolean interactive;
+        
+        // Sub-boards of block x block cells (0 for none): drawn apart, tinted once won, and dimmed outside the
+        // playable cells (null when every empty cell is)
+        private int block;
+        private boolean[] playable;
+        private CellState[] owners;
+        
+        // Square cells of cellSize px, pitch px apart, starting at (originX, originY) - recomputed from the current size
+        private int pitch;
+        private int cellSize;
+        private int originX;
+        private int originY;
+        
+        BoardCanvas(CellListener listener) {
+            this.listener = listener;
+            setOpaque(true);
+            setBackground(BG_DARK);
+            
+            MouseAdapter mouse = new MouseAdapter() {
+                @Override
+                public void mouseMoved(MouseEvent e) {
+                    setHover(cellAt(e.getX(), e.getY()));
+                }
+                
+                @Override
+                public void mouseExited(MouseEvent e) {
+                    setHover(-1);
+                }
+                
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int cell = cellAt(e.getX(), e.getY());
+                    if (interactive && cell >= 0 && isPlayable(cell)) {
+                        listener.cellClicked(cell / cols, cell % cols);
+                    }
+                }
+            };
+            addMouseListener(mouse);
+            addMouseMotionListener(mouse);
+        }
+        
+        // Picks up the position's marks, repainting only the cells that changed since the last call
+        void refresh(BoardSnapshot board) {
+            if (board.getRows() != rows || board.getCols() != cols) {
+                rows = board.getRows();
+                cols = board.getCols();
+                shown = new CellState[rows * cols];
+                highlighted = new boolean[rows * cols];
+                for (int i = 0; i < shown.length; i++) {
+                    shown[i] = board.getCell(i / cols, i % cols);
+                }
+                repaint();
+                return;
+            }
+            for (int i = 0; i < shown.length; i++) {
+                CellState cell = board.getCell(i / cols, i % cols);
+                if (cell != shown[i]) {
+                    shown[i] = cell;
+                    repaintCell(i);
+                }
+            }
+        }
+        
+        // Sub-board layout for games played on them: owners holds each cell's sub-board winner (EMPTY while open)
+        void setRegions(int block, boolean[] playable, CellState[] owners) {
+            this.block = block;
+            this.playable = playable;
+            this.owners = owners;
+            repaint();
+        }
+        
+        private boolean isPlayable(int cell) {
+            return shown[cell] == CellState.EMPTY && (playable == null || playable[cell]);
+        }
+        
+        void setInteractive(boolean interactive) {
+            this.interactive = interactive;
+            repaintCell(hover);
+        }
+        
+        void setLastMove(Move move) {
+            repaintCell(lastMove);
+            lastMove = move == null ? -1 : move.getRow() * cols + move.getCol();
+            repaintCell(lastMove);
+        }
+        
+        // Cells to draw in the win colour (flat indexes), or null to clear
+        void setHighlight(int[] cells) {
+            for (int i = 0; i < highlighted.length; i++) {
+                if (highlighted[i]) {
+                    highlighted[i] = false;
+                    repaintCell(i);
+                }
+            }
+            if (cells != null) {
+                for (int cell : cells) {
+                    highlighted[cell] = true;
+                    repaintCell(cell);
+                }
+            }
+        }
+        
+        private void setHover(int cell) {
+            if (cell != hover) {
+                repaintCell(hover);
+                hover = cell;
+                repaintCell(hover);
+            }
+        }
+        
+        private void layoutGrid() {
+            Insets insets = getInsets();
+            int width = getWidth() - insets.left - insets.right;
+            int height = getHeight() - insets.top - insets.bottom;
+            pitch = Math.max(1, Math.min(width / Math.max(1, cols), height / Math.max(1, rows)));
+            int gap = rows * cols <= 9 ? Math.min(12, pitch / 8) : Math.max(1, pitch / 10);
+            cellSize = Math.max(1, pitch - gap);
+            originX = insets.left + (width - pitch * cols + gap) / 2;
+            originY = insets.top + (height - pitch * rows + gap) / 2;
+        }
+        
+        // Flat index of the cell under (x, y), or -1 for the gaps and the margin
+        private int cellAt(int x, int y) {
+            layoutGrid();
+            int dx = x - originX;
+            int dy = y - originY;
+            if (dx < 0 || dy < 0 || dx % pitch >= cellSize || dy % pitch >= cellSize) {
+                return -1;
+            }
+            int col = dx / pitch;
+            int row = dy / pitch;
+            return row < rows && col < cols ? row * cols + col : -1;
+        }
+        
+        private void repaintCell(int cell) {
+            if (cell >= 0 && cell < shown.length) {
+                layoutGrid();
+                repaint(originX + (cell % cols) * pitch, originY + (cell / cols) * pitch, cellSize, cellSize);
+            }
+        }
+        
+        @Override
+        protected void paintComponent(Graphics g) {
+            long start = RenderTimings.start();
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) {
+                clip = new Rectangle(0, 0, getWidth(), getHeight());
+            }
+            g.setColor(getBackground());
+            g.fillRect(clip.x, clip.y, clip.width, clip.height);
+            if (shown.length == 0) {
+                return;
+            }
+            
+            layoutGrid();
+            Graphics2D g2 = (Graphics2D) g.create();
+            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
+            int arc = Math.min(20, cellSize / 3);
+            // Only the cells the clip touches
+            int firstCol = Math.max(0, (clip.x - originX) / pitch);
+            int lastCol = Math.min(cols - 1, (clip.x + clip.width - originX) / pitch);
+            int firstRow = Math.max(0, (clip.y - originY) / pitch);
+            int lastRow = Math.min(rows - 1, (clip.y + clip.height - originY) / pitch);
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int col = firstCol; col <= lastCol; col++) {
+                    int cell = row * cols + col;
+                    int x = originX + col * pitch;
+                    int y = originY + row * pitch;
+                    
+                    if (highlighted[cell]) {
+                        g2.setColor(WIN_HIGHLIGHT);
+                    } else if (cell == hover && interactive && isPlayable(cell)) {
+                        g2.setColor(BUTTON_HOVER);
+                    } else if (owners != null && owners[cell] == CellState.X) {
+                        g2.setColor(X_TINT);
+                    } else if (owners != null && owners[cell] == CellState.O) {
+                        g2.setColor(O_TINT);
+                    } else if (interactive && playable != null && !playable[cell]) {
+                        g2.setColor(BG_MEDIUM);
+                    } else {
+                        g2.setColor(BG_LIGHT);
+                    }
+                    g2.fillRoundRect(x, y, cellSize, cellSize, arc, arc);
+                    
+                    if (cell == lastMove) {
+                        int width = cellSize >= 24 ? 3 : 1;
+                        g2.setColor(ACCENT_PINK);
+                        g2.setStroke(new BasicStroke(width));
+                        g2.drawRoundRect(x + width / 2, y + width / 2, cellSize - width, cellSize - width, arc, arc);
+                    }
+                    
+                    BufferedImage sprite = MarkSprites.forCell(shown[cell], cellSize);
+                    if (sprite != null) {
+                        g2.drawImage(sprite, x + (cellSize - sprite.getWidth()) / 2, y + (cellSize - sprite.getHeight()) / 2, null);
+                    }
+                }
+            }
+            if (block > 0) {
+                // Sub-board borders fill the gaps between blocks
+                int gap = pitch - cellSize;
+                g2.setColor(ACCENT_PURPLE);
+                for (int i = block; i < Math.max(rows, cols); i += block) {
+                    if (i < cols) {
+                        g2.fillRect(originX + i * pitch - gap, originY, gap, rows * pitch - gap);
+                    }
+                    if (i < rows) {
+                        g2.fillRect(originX, originY + i * pitch - gap, cols * pitch - gap, gap);
+                    }
+                }
+            }
+            g2.dispose();
+            RenderTimings.painted("board", start);
+        }
+    }
+    
     // Menu panel for game mode selection
     private static class MenuPanel extends JPanel {
         private final GameGUI parent;
@@ -311,8 +660,9 @@ public class GameGUI extends JFrame {
         private PlaceholderTextField playerOField;
         private JButton easyButton, mediumButton, hardButton;
         private Difficulty selectedDifficulty = Difficulty.MEDIUM;
+        private JComboBox<String> boardBox;
         private JButton startButton;
-        private final Random decorationRandom = new Random(42);
+        private final DecorationLayer decorations = new DecorationLayer(42, MenuPanel::paintDecorations);
         
         public MenuPanel(GameGUI parent) {
             this.parent = parent;
@@ -372,6 +722,16 @@ public class GameGUI extends JFrame {
             add(difficultyPanel);
             updateDifficultyButtons();
             
+            JPanel boardPanel = new JPanel(new FlowLayout());
+            boardPanel.setBackground(BG_DARK);
+            boardPanel.add(createLabel("Board:"));
+            boardBox = new JComboBox<>(BOARD_LABELS);
+            boardBox.setFont(getPixelFont(Font.PLAIN, 14));
+            boardBox.setBackground(BG_LIGHT);
+            boardBox.setForeground(TEXT_LIGHT);
+            boardPanel.add(boardBox);
+            add(boardPanel);
+            
             pvcButton.addActionListener(e -> updateModeSelection());
             pvpButton.addActionListener(e -> updateModeSelection());
             
@@ -385,27 +745,26 @@ public class GameGUI extends JFrame {
         
         @Override
         protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            
-            Random rand = decorationRandom;
+            long start = RenderTimings.start();
+            decorations.paint(this, g); // includes the background, so no super.paintComponent fill
+            RenderTimings.painted("menu", start);
+        }
+        
+        private static void paintDecorations(Graphics2D g2, Random rand, int width, int height) {
             int pixelSize = 3 + rand.nextInt(2);
             
             drawPixelRose(g2, 30 + rand.nextInt(40), 40 + rand.nextInt(30), pixelSize);
-            drawPixelSunflower(g2, getWidth() - 80 + rand.nextInt(30), 50 + rand.nextInt(40), pixelSize);
-            drawPixelLily(g2, 60 + rand.nextInt(50), getHeight() - 120 + rand.nextInt(40), pixelSize);
-            drawPixelFlower(g2, getWidth() - 70 + rand.nextInt(40), getHeight() - 100 + rand.nextInt(30), pixelSize);
+            drawPixelSunflower(g2, width - 80 + rand.nextInt(30), 50 + rand.nextInt(40), pixelSize);
+            drawPixelLily(g2, 60 + rand.nextInt(50), height - 120 + rand.nextInt(40), pixelSize);
+            drawPixelFlower(g2, width - 70 + rand.nextInt(40), height - 100 + rand.nextInt(30), pixelSize);
             drawPixelStar(g2, 100 + rand.nextInt(60), 80 + rand.nextInt(50), 2 + rand.nextInt(2));
-            drawPixelStar(g2, getWidth() - 120 + rand.nextInt(50), 100 + rand.nextInt(60), 2 + rand.nextInt(2));
-            drawPixelSparkle(g2, 150 + rand.nextInt(80), getHeight() - 150 + rand.nextInt(50), 2, new Color(255, 255, 200));
-            drawPixelSparkle(g2, getWidth() - 100 + rand.nextInt(60), getHeight() - 80 + rand.nextInt(40), 2, CYAN_O);
-            drawPixelGrass(g2, 40 + rand.nextInt(50), getHeight() - 60 + rand.nextInt(30), 2);
-            drawPixelGrass(g2, getWidth() - 60 + rand.nextInt(40), getHeight() - 50 + rand.nextInt(30), 2);
-            drawPixelPlant(g2, 20 + rand.nextInt(30), getHeight() - 140 + rand.nextInt(50), pixelSize);
-            drawPixelStar(g2, getWidth() - 50 + rand.nextInt(40), 200 + rand.nextInt(100), 2 + rand.nextInt(2));
-            
-            g2.dispose();
+            drawPixelStar(g2, width - 120 + rand.nextInt(50), 100 + rand.nextInt(60), 2 + rand.nextInt(2));
+            drawPixelSparkle(g2, 150 + rand.nextInt(80), height - 150 + rand.nextInt(50), 2, new Color(255, 255, 200));
+            drawPixelSparkle(g2, width - 100 + rand.nextInt(60), height - 80 + rand.nextInt(40), 2, CYAN_O);
+            drawPixelGrass(g2, 40 + rand.nextInt(50), height - 60 + rand.nextInt(30), 2);
+            drawPixelGrass(g2, width - 60 + rand.nextInt(40), height - 50 + rand.nextInt(30), 2);
+            drawPixelPlant(g2, 20 + rand.nextInt(30), height - 140 + rand.nextInt(50), pixelSize);
+            drawPixelStar(g2, width - 50 + rand.nextInt(40), 200 + rand.nextInt(100), 2 + rand.nextInt(2));
         }
         
         private JLabel createLabel(String text) {
@@ -510,22 +869,25 @@ public class GameGUI extends JFrame {
             if (playerXName.isEmpty()) playerXName = "Player 1";
             if (!vsComputer && playerOName.isEmpty()) playerOName = "Player 2";
             
-            parent.startGame(playerXName, playerOName, vsComputer, selectedDifficulty);
+            parent.startGame(playerXName, playerOName, vsComputer, selectedDifficulty, BOARD_RULES[boardBox.getSelectedIndex()]);
         }
     }
     
     // Game panel with board and controls
     private static class GamePanel extends JPanel {
+        private static final int MIN_THINKING_MILLIS = 350;
+        
         private final GameGUI parent;
         private GameEngine engine;
         private String playerXName, playerOName;
         private Difficulty difficulty;
-        private JButton[][] boardButtons;
+        private BoardCanvas boardCanvas;
         private JLabel statusLabel, scoreLabel, difficultyLabel;
         private JButton newGameButton, menuButton;
         private int xWins = 0, oWins = 0, draws = 0;
-        private SwingWorker<Move, Void> aiWorker;
-        private final Random decorationRandom = new Random(123);
+        private SwingWorker<SearchResult, SearchResult> aiWorker;
+        private SearchLimits aiLimits; // stops aiWorker's search when it is cancelled
+        private final DecorationLayer decorations = new DecorationLayer(123, GamePanel::paintDecorations);
         
         public GamePanel(GameGUI parent) {
             this.parent = parent;
@@ -535,6 +897,7 @@ public class GameGUI extends JFrame {
         }
         
         public void startNewGame(GameEngine engine, String playerXName, String playerOName, Difficulty difficulty) {
+            cancelComputerMove();
             this.engine = engine;
             this.playerXName = playerXName;
             this.playerOName = playerOName;
@@ -576,18 +939,8 @@ public class GameGUI extends JFrame {
             topPanel.add(Box.createVerticalStrut(5));
             topPanel.add(difficultyLabel);
             
-            JPanel boardPanel = new JPanel();
-            boardPanel.setBackground(BG_DARK);
-            boardPanel.setLayout(new GridLayout(3, 3, 12, 12));
-            boardPanel.setBorder(new EmptyBorder(20, 40, 20, 40));
-            
-            boardButtons = new JButton[3][3];
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    boardButtons[i][j] = createBoardButton(i, j);
-                    boardPanel.add(boardButtons[i][j]);
-                }
-            }
+            boardCanvas = new BoardCanvas(this::handleCellClick);
+            boardCanvas.setBorder(new EmptyBorder(20, 40, 20, 40));
             
             JPanel bottomPanel = new JPanel(new FlowLayout());
             bottomPanel.setBackground(BG_DARK);
@@ -600,51 +953,10 @@ public class GameGUI extends JFrame {
             menuButton.addActionListener(e -> parent.showMenu());
             
             add(topPanel, BorderLayout.NORTH);
-            add(boardPanel, BorderLayout.CENTER);
+            add(boardCanvas, BorderLayout.CENTER);
             add(bottomPanel, BorderLayout.SOUTH);
         }
         
-        private JButton createBoardButton(int row, int col) {
-            JButton button = new JButton("") {
-                @Override
-                protected void paintComponent(Graphics g) {
-                    Graphics2D g2 = (Graphics2D) g.create();
-                    g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-                    g2.setColor(getBackground());
-                    g2.fillRoundRect(0, 0, getWidth(), getHeight(), 20, 20);
-                    super.paintComponent(g2);
-                    g2.dispose();
-                }
-            };
-            button.setFont(getPixelFont(Font.BOLD, 60));
-            button.setBackground(BG_LIGHT);
-            button.setForeground(TEXT_LIGHT);
-            button.setOpaque(false);
-            button.setBorder(new EmptyBorder(10, 10, 10, 10));
-            button.setFocusPainted(false);
-            
-            button.addMouseListener(new MouseAdapter() {
-                @Override
-                public void mouseEntered(MouseEvent e) {
-                    if (button.isEnabled() && button.getText().isEmpty()) {
-                        button.setBackground(BUTTON_HOVER);
-                        button.repaint();
-                    }
-                }
-                
-                @Override
-                public void mouseExited(MouseEvent e) {
-                    if (button.getText().isEmpty()) {
-                        button.setBackground(BG_LIGHT);
-                        button.repaint();
-                    }
-                }
-            });
-            
-            button.addActionListener(e -> handleCellClick(row, col));
-            return button;
-        }
-        
         private JButton createRoundedButton(String text, Color bg) {
             JButton button = new JButton(text) {
                 @Override
@@ -669,28 +981,27 @@ public class GameGUI extends JFrame {
         
         @Override
         protected void paintComponent(Graphics g) {
-            super.paintComponent(g);
-            Graphics2D g2 = (Graphics2D) g.create();
-            g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_OFF);
-            
-            Random rand = decorationRandom;
+            long start = RenderTimings.start();
+            decorations.paint(this, g); // includes the background, so no super.paintComponent fill
+            RenderTimings.painted("game", start);
+        }
+        
+        private static void paintDecorations(Graphics2D g2, Random rand, int width, int height) {
             int pixelSize = 3 + rand.nextInt(2);
             
             drawPixelRose(g2, 20 + rand.nextInt(50), 30 + rand.nextInt(40), pixelSize);
-            drawPixelSunflower(g2, getWidth() - 90 + rand.nextInt(40), 50 + rand.nextInt(50), pixelSize);
-            drawPixelLily(g2, 40 + rand.nextInt(60), getHeight() - 130 + rand.nextInt(50), pixelSize);
-            drawPixelFlower(g2, getWidth() - 70 + rand.nextInt(50), getHeight() - 110 + rand.nextInt(40), pixelSize);
+            drawPixelSunflower(g2, width - 90 + rand.nextInt(40), 50 + rand.nextInt(50), pixelSize);
+            drawPixelLily(g2, 40 + rand.nextInt(60), height - 130 + rand.nextInt(50), pixelSize);
+            drawPixelFlower(g2, width - 70 + rand.nextInt(50), height - 110 + rand.nextInt(40), pixelSize);
             drawPixelStar(g2, 80 + rand.nextInt(70), 60 + rand.nextInt(60), 2 + rand.nextInt(2));
-            drawPixelStar(g2, getWidth() - 100 + rand.nextInt(60), 80 + rand.nextInt(70), 2 + rand.nextInt(2));
-            drawPixelSparkle(g2, 120 + rand.nextInt(90), getHeight() - 160 + rand.nextInt(60), 2, PINK_X);
-            drawPixelSparkle(g2, getWidth() - 80 + rand.nextInt(70), getHeight() - 90 + rand.nextInt(50), 2, CYAN_O);
-            drawPixelGrass(g2, 30 + rand.nextInt(60), getHeight() - 70 + rand.nextInt(40), 2);
-            drawPixelGrass(g2, getWidth() - 70 + rand.nextInt(50), getHeight() - 60 + rand.nextInt(40), 2);
-            drawPixelPlant(g2, 25 + rand.nextInt(40), getHeight() - 160 + rand.nextInt(60), pixelSize);
-            drawPixelStar(g2, getWidth() - 60 + rand.nextInt(50), 180 + rand.nextInt(120), 2 + rand.nextInt(2));
+            drawPixelStar(g2, width - 100 + rand.nextInt(60), 80 + rand.nextInt(70), 2 + rand.nextInt(2));
+            drawPixelSparkle(g2, 120 + rand.nextInt(90), height - 160 + rand.nextInt(60), 2, PINK_X);
+            drawPixelSparkle(g2, width - 80 + rand.nextInt(70), height - 90 + rand.nextInt(50), 2, CYAN_O);
+            drawPixelGrass(g2, 30 + rand.nextInt(60), height - 70 + rand.nextInt(40), 2);
+            drawPixelGrass(g2, width - 70 + rand.nextInt(50), height - 60 + rand.nextInt(40), 2);
+            drawPixelPlant(g2, 25 + rand.nextInt(40), height - 160 + rand.nextInt(60), pixelSize);
+            drawPixelStar(g2, width - 60 + rand.nextInt(50), 180 + rand.nextInt(120), 2 + rand.nextInt(2));
             drawPixelSparkle(g2, 200 + rand.nextInt(100), 150 + rand.nextInt(80), 2, TEXT_LIGHT);
-            
-            g2.dispose();
         }
         
         private void handleCellClick(int row, int col) {
@@ -700,6 +1011,7 @@ public class GameGUI extends JFrame {
             
             Move move = new Move(row, col);
             if (engine.processMove(move)) {
+                boardCanvas.setLastMove(move);
                 updateDisplay();
                 if (engine.getState() == GameState.PLAYING && engine.isCurrentPlayerComputer()) {
                     scheduleComputerMove();
@@ -707,37 +1019,89 @@ public class GameGUI extends JFrame {
             }
         }
         
+        // Searches on a worker thread against a board snapshot taken here on the EDT; per-depth progress comes back
+        // through publish/process, and the move is applied on the EDT no sooner than MIN_THINKING_MILLIS after the
+        // request, so instant replies do not flicker past the indicator
         private void scheduleComputerMove() {
             statusLabel.setText("Computer is thinking...");
             statusLabel.repaint();
             
-            if (aiWorker != null && !aiWorker.isDone()) {
-                aiWorker.cancel(true);
-            }
+            cancelComputerMove();
             
-            aiWorker = new SwingWorker<Move, Void>() {
+            long requested = System.nanoTime();
+            SearchLimits limits = SearchLimits.none();
+            aiLimits = limits;
+            aiWorker = new SwingWorker<SearchResult, SearchResult>() {
+                private final Supplier<SearchResult> task = engine.prepareComputerMove(this::publish, limits);
+                
                 @Override
-                protected Move doInBackground() throws Exception {
-                    int delay = difficulty == Difficulty.EASY ? 300 : difficulty == Difficulty.MEDIUM ? 600 : 1000;
-                    Thread.sleep(delay);
-                    return engine.getComputerMove();
+                protected SearchResult doInBackground() {
+                    return task == null ? null : task.get();
+                }
+                
+                @Override
+                protected void process(List<SearchResult> chunks) {
+                    if (isCancelled() || aiWorker != this) {
+                        return;
+                    }
+                    SearchResult latest = chunks.get(chunks.size() - 1);
+                    Move best = latest.getMove();
+                    statusLabel.setText(String.format("Computer is thinking... depth %d, best %d,%d (%+d)",
+                        latest.getDepth(), best.getRow(), best.getCol(), latest.getScore()));
                 }
                 
                 @Override
                 protected void done() {
+                    if (isCancelled() || aiWorker != this) {
+                        return;
+                    }
+                    SearchResult result;
                     try {
-                        Move move = get();
-                        if (move != null && engine.processMove(move)) {
-                            updateDisplay();
-                        }
-                    } catch (Exception e) {
-                        // Handle exception
+                        result = get();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    } catch (ExecutionException e) {
+                        LOG.log(Level.WARNING, "Computer move failed", e.getCause());
+                        statusLabel.setText("Computer move failed: " + e.getCause().getMessage());
+                        return;
+                    }
+                    
+                    long remaining = MIN_THINKING_MILLIS - (System.nanoTime() - requested) / 1_000_000;
+                    if (remaining <= 0) {
+                        applyComputerMove(this, result);
+                    } else {
+                        SwingWorker<SearchResult, SearchResult> worker = this;
+                        Timer delay = new Timer((int) remaining, e -> applyComputerMove(worker, result));
+                        delay.setRepeats(false);
+                        delay.start();
                     }
                 }
             };
             aiWorker.execute();
         }
         
+        // Stops the current worker's search, which would otherwise keep a worker thread busy to the end (it does
+        // not check for interruption), and makes sure its result is dropped
+        private void cancelComputerMove() {
+            if (aiWorker != null) {
+                aiLimits.stop();
+                aiWorker.cancel(true);
+            }
+        }
+        
+        // Ignores results from a worker that was cancelled or replaced (new game, reset) while it ran or waited
+        private void applyComputerMove(SwingWorker<SearchResult, SearchResult> worker, SearchResult result) {
+            if (worker != aiWorker || worker.isCancelled() || result == null) {
+                return;
+            }
+            Move move = result.getMove();
+            if (move != null && engine.processMove(move)) {
+                boardCanvas.setLastMove(move);
+                updateDisplay();
+            }
+        }
+        
         private void updateDisplay() {
             updateBoard();
             updateStatus();
@@ -751,28 +1115,23 @@ public class GameGUI extends JFrame {
         }
         
         private void updateBoard() {
-            Board board = engine.getBoard();
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    CellState cell = board.getCell(i, j);
-                    JButton button = boardButtons[i][j];
-                    
-                    if (cell == CellState.X) {
-                        button.setText("X");
-                        button.setForeground(PINK_X);
-                        button.setBackground(BG_LIGHT);
-                        button.repaint();
-                    } else if (cell == CellState.O) {
-                        button.setText("O");
-                        button.setForeground(CYAN_O);
-                        button.setBackground(BG_LIGHT);
-                        button.repaint();
-                    } else {
-                        button.setText("");
-                        button.setBackground(BG_LIGHT);
-                        button.repaint();
-                    }
+            boardCanvas.refresh(engine.getSnapshot());
+            if (engine.getRules() instanceof UltimateRules) {
+                Board board = engine.getBoard();
+                int cells = board.cellCount();
+                boolean[] playable = new boolean[cells];
+                CellState[] owners = new CellState[cells];
+                CellState[] winners = new CellState[9];
+                for (int sub = 0; sub < winners.length; sub++) {
+                    winners[sub] = UltimateRules.subBoardWinner(board, sub);
                 }
+                for (int cell = 0; cell < cells; cell++) {
+                    playable[cell] = engine.isLegalMove(new Move(cell / board.getCols(), cell % board.getCols()));
+                    owners[cell] = winners[UltimateRules.subBoardOf(cell)];
+                }
+                boardCanvas.setRegions(3, playable, owners);
+            } else {
+                boardCanvas.setRegions(0, null, null);
             }
         }
         
@@ -809,6 +1168,12 @@ public class GameGUI extends JFrame {
         private void updateDifficultyLabel() {
             if (playerOName.equals("Computer")) {
                 String diffText = "Difficulty: " + difficulty.toString();
+                LatencyHistogram.Snapshot latency = MoveLatencyMonitor.getInstance()
+                    .histogram(difficulty.getStrength(), engine.getRules().getName()).snapshot();
+                if (latency.getTotalCount() > 0) {
+                    diffText += String.format("  |  AI move p50 %.1f ms, p99 %.1f ms",
+                        latency.getValueAtPercentile(50.0) / 1e6, latency.getValueAtPercentile(99.0) / 1e6);
+                }
                 difficultyLabel.setText(diffText);
             } else {
                 difficultyLabel.setText("");
@@ -816,94 +1181,30 @@ public class GameGUI extends JFrame {
         }
         
         private void updateButtonStates() {
-            boolean enabled = engine.getState() == GameState.PLAYING && !engine.isCurrentPlayerComputer();
-            for (int i = 0; i < 3; i++) {
-                for (int j = 0; j < 3; j++) {
-                    Board board = engine.getBoard();
-                    boolean isEmpty = board.getCell(i, j) == CellState.EMPTY;
-                    boardButtons[i][j].setEnabled(enabled && isEmpty);
-                }
-            }
+            boardCanvas.setInteractive(engine.getState() == GameState.PLAYING && !engine.isCurrentPlayerComputer());
         }
         
+        // Highlights the run the engine recorded when the winning move was made
         private void highlightWinningLine() {
-            GameState state = engine.getState();
-            if (state != GameState.X_WINS && state != GameState.O_WINS) {
+            WinLine line = engine.getWinLine();
+            if (line == null) {
                 return;
             }
             
-            CellState winningMark = (state == GameState.X_WINS) ? CellState.X : CellState.O;
-            Board board = engine.getBoard();
-            
-            for (int i = 0; i < 3; i++) {
-                boolean isWinningRow = true;
-                for (int j = 0; j < 3; j++) {
-                    if (board.getCell(i, j) != winningMark) {
-                        isWinningRow = false;
-                        break;
-                    }
-                }
-                if (isWinningRow) {
-                    for (int j = 0; j < 3; j++) {
-                        boardButtons[i][j].setBackground(new Color(WIN_HIGHLIGHT.getRed(), WIN_HIGHLIGHT.getGreen(), WIN_HIGHLIGHT.getBlue()));
-                        boardButtons[i][j].repaint();
-                    }
-                    return;
-                }
-            }
-            
-            for (int j = 0; j < 3; j++) {
-                boolean isWinningCol = true;
-                for (int i = 0; i < 3; i++) {
-                    if (board.getCell(i, j) != winningMark) {
-                        isWinningCol = false;
-                        break;
-                    }
-                }
-                if (isWinningCol) {
-                    for (int i = 0; i < 3; i++) {
-                        boardButtons[i][j].setBackground(new Color(WIN_HIGHLIGHT.getRed(), WIN_HIGHLIGHT.getGreen(), WIN_HIGHLIGHT.getBlue()));
-                        boardButtons[i][j].repaint();
-                    }
-                    return;
-                }
-            }
-            
-            boolean isMainDiagonal = true;
-            for (int i = 0; i < 3; i++) {
-                if (board.getCell(i, i) != winningMark) {
-                    isMainDiagonal = false;
-                    break;
-                }
-            }
-            if (isMainDiagonal) {
-                for (int i = 0; i < 3; i++) {
-                    boardButtons[i][i].setBackground(new Color(WIN_HIGHLIGHT.getRed(), WIN_HIGHLIGHT.getGreen(), WIN_HIGHLIGHT.getBlue()));
-                    boardButtons[i][i].repaint();
-                }
-                return;
-            }
-            
-            boolean isAntiDiagonal = true;
-            for (int i = 0; i < 3; i++) {
-                if (board.getCell(i, 2 - i) != winningMark) {
-                    isAntiDiagonal = false;
-                    break;
-                }
-            }
-            if (isAntiDiagonal) {
-                for (int i = 0; i < 3; i++) {
-                    boardButtons[i][2 - i].setBackground(new Color(WIN_HIGHLIGHT.getRed(), WIN_HIGHLIGHT.getGreen(), WIN_HIGHLIGHT.getBlue()));
-                    boardButtons[i][2 - i].repaint();
-                }
+            List<Move> moves = line.getCells();
+            int[] cells = new int[moves.size()];
+            int cols = engine.getSnapshot().getCols();
+            for (int i = 0; i < cells.length; i++) {
+                cells[i] = moves.get(i).getRow() * cols + moves.get(i).getCol();
             }
+            boardCanvas.setHighlight(cells);
         }
         
         private void resetGame() {
-            if (aiWorker != null && !aiWorker.isDone()) {
-                aiWorker.cancel(true);
-            }
+            cancelComputerMove();
             engine.reset();
+            boardCanvas.setLastMove(null);
+            boardCanvas.setHighlight(null);
             updateDisplay();
             if (engine.isCurrentPlayerComputer()) {
                 scheduleComputerMove();
@@ -0,0 +1,53 @@
+package tictactoe;
+
+// A game in progress under some GameRules - the marks on the grid plus whatever else the rules track. Mutable and
+// confined to one thread; copy() hands a position to another. Moves are cells, row * cols + col as on Board, and
+// X always moves first.
+public interface GamePosition {
+    GameRules getRules();
+    
+    // The marks played so far - read only, play and undo are the only way to change it
+    Board getBoard();
+    
+    CellState getToMove();
+    
+    // Fills moves (at least as long as the board has cells) with the cells the side to move may play and returns
+    // the count - 0 once the game is over
+    int legalMoves(int[] moves);
+    
+    boolean isLegal(int cell);
+    
+    // Plays a legal cell for the side to move
+    void play(int cell);
+    
+    // Takes back the last play
+    void undo();
+    
+    // PLAYING until the rules end the game
+    GameState getOutcome();
+    
+    // The run of marks that decided the game, null while playing, after a draw or when no line decided it
+    WinLine getWinLine();
+    
+    // Heuristic score of an unfinished position for the side to move - search clamps it below the win scores
+    int evaluate();
+    
+    // Hash of everything the rules track, for transposition tables - positions of different rules should not share
+    // keys, as one table may serve both
+    long getKey();
+    
+    GamePosition copy();
+    
+    // The cell a request to play (row, col) plays, or -1 if it is not a legal move. The requested cell itself
+    // unless the rules move it (a Connect Four disc drops down its column).
+    default int resolve(Move move) {
+        Board board = getBoard();
+        if (move == null || move.getRow() < 0 || move.getRow() >= board.getRows()
+                || move.getCol() < 0 || move.getCol() >= board.getCols()) {
+            return -1;
+        }
+        int cell = move.getRow() * board.getCols() + move.getCol();
+        return isLegal(cell) ? cell : -1;
+    }
+}
+
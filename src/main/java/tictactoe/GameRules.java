@@ -0,0 +1,33 @@
+package tictactoe;
+
+// Rules of a game the engine can host: two players alternate putting X and O on a rows x cols grid, and the rules
+// decide which cells may be played, when the game is over and who won. GameEngine drives any rules through the
+// GamePosition they start; ComputerPlayer searches them generically, keeping its specialised search for the rules
+// it has a fast path for (the standard m,n,k game, Connect Four, ultimate tic-tac-toe).
+public interface GameRules {
+    // Short name for menus and logs, e.g. "misere 3x3"
+    String getName();
+    
+    // Shape of the grid the game is played on
+    BoardSpec getSpec();
+    
+    // A new game at its first move
+    GamePosition start();
+    
+    // Reads getName()'s form: an m,n,k spec such as "15x15k5" for the standard game, "misere 3x3" for misere,
+    // "connect4" for Connect Four, "ultimate" for ultimate tic-tac-toe
+    static GameRules parse(String text) {
+        String trimmed = text.trim();
+        if (trimmed.equals(ConnectFourRules.INSTANCE.getName())) {
+            return ConnectFourRules.INSTANCE;
+        }
+        if (trimmed.equals(UltimateRules.INSTANCE.getName())) {
+            return UltimateRules.INSTANCE;
+        }
+        if (trimmed.startsWith(MnkRules.MISERE)) {
+            return MnkRules.misere(BoardSpec.parse(trimmed.substring(MnkRules.MISERE.length()).trim()));
+        }
+        return MnkRules.standard(BoardSpec.parse(trimmed));
+    }
+}
+
@@ -0,0 +1,53 @@
+package tictactoe;
+
+import java.util.Arrays;
+
+// On-heap transposition table: one long[] of entries, two longs each - constant memory, lock-free, safe to share
+public class HeapTranspositionTable implements TranspositionTable {
+    private final int indexBits;
+    private final long[] entries;
+    
+    // Table holds 2^indexBits entries (two longs each)
+    public HeapTranspositionTable(int indexBits) {
+        if (indexBits < 1 || indexBits > 28) {
+            throw new IllegalArgumentException("Table size out of range: 2^" + indexBits);
+        }
+        this.indexBits = indexBits;
+        this.entries = new long[2 << indexBits];
+    }
+    
+    @Override
+    public int capacity() {
+        return 1 << indexBits;
+    }
+    
+    @Override
+    public long probe(long key) {
+        int slot = slot(key);
+        long data = entries[slot + 1];
+        if (data == MISS || (entries[slot] ^ data) != key) {
+            return MISS;
+        }
+        return data;
+    }
+    
+    // Always replaces whatever shared the slot
+    @Override
+    public void store(long key, int value, int draft, int bound) {
+        long data = TranspositionTable.pack(value, draft, bound);
+        int slot = slot(key);
+        entries[slot] = key ^ data;
+        entries[slot + 1] = data;
+    }
+    
+    @Override
+    public void clear() {
+        Arrays.fill(entries, 0L);
+    }
+    
+    // Fibonacci hashing spreads small structured keys across the whole table
+    private int slot(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - indexBits)) << 1;
+    }
+}
+
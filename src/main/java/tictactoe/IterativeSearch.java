@@ -0,0 +1,193 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-search state and the iterative deepening loop shared by ComputerPlayer's m,n,k search and RulesSearch:
+// instrumentation counters, the caller's limits, per-ply move lists and the triangular principal variation table.
+// Subclasses fill the move lists and search below the root their own way. One instance per search.
+abstract class IterativeSearch {
+    final long start = System.nanoTime();
+    final SearchStats.Counters counters = new SearchStats.Counters();
+    final int maxDepth;
+    final int cols;
+    final int[][] moves;
+    final int[][] pvTable;
+    final int[] pvLength;
+    private final int[] completedPv;
+    private int completedPvLength;
+    SearchListener listener;
+    
+    // Limits set by the caller, if any - aborted is raised once they are hit and unwinds the search
+    SearchLimits limits;
+    long nodeLimit = Long.MAX_VALUE;
+    boolean aborted;
+    
+    // Strength's evaluation noise - 0 for an exact search
+    int evalNoise;
+    
+    // Score of one root move for the side to move at the root: plays cell, searches depth - 1 plies below it with
+    // the window (alpha, INFINITY) and takes the move back
+    interface RootMove {
+        int score(int cell, int depth, int alpha);
+    }
+    
+    IterativeSearch(int maxDepth, int plies, int cols) {
+        this.maxDepth = maxDepth;
+        this.cols = cols;
+        moves = new int[plies][];
+        pvTable = new int[plies][plies];
+        pvLength = new int[plies];
+        completedPv = new int[plies];
+    }
+    
+    // Searches the count moves in moves[0] one ply deeper per iteration up to depthLimit, trying the previous
+    // iteration's best move first. An iteration cut short by the limits is thrown away. Returns null when there
+    // was no move to search.
+    SearchResult deepen(int count, int depthLimit, RootMove root) {
+        int[] rootMoves = moves[0];
+        int bestCell = -1;
+        int bestScore = 0;
+        int completedDepth = 0;
+        
+        for (int depth = 1; depth <= depthLimit && count > 0 && !aborted; depth++) {
+            long iterationStart = System.nanoTime();
+            SearchIterationEvent event = new SearchIterationEvent();
+            event.begin();
+            moveToFront(rootMoves, count, bestCell);
+            
+            int alpha = -ComputerPlayer.INFINITY;
+            int iterationBest = -1;
+            for (int i = 0; i < count; i++) {
+                int cell = rootMoves[i];
+                int score = root.score(cell, depth, alpha);
+                if (aborted) {
+                    break;
+                }
+                if (score > alpha) {
+                    alpha = score;
+                    iterationBest = cell;
+                    updatePv(0, cell);
+                }
+            }
+            if (aborted) {
+                if (bestCell >= 0) {
+                    restorePv();
+                } else {
+                    // Not even depth 1 finished - take the best of the moves it got through, or the first one
+                    bestCell = iterationBest >= 0 ? iterationBest : rootMoves[0];
+                    pvTable[0][0] = bestCell;
+                    pvLength[0] = 1;
+                }
+                break;
+            }
+            
+            bestCell = iterationBest;
+            bestScore = alpha;
+            savePv();
+            completedDepth = depth;
+            counters.endIteration(System.nanoTime() - iterationStart);
+            event.end();
+            if (event.shouldCommit()) {
+                event.depth = depth;
+                event.bestMove = String.valueOf(toMove(bestCell));
+                event.score = bestScore;
+                event.nodes = counters.nodes;
+                event.commit();
+            }
+            if (listener != null) {
+                listener.iterationCompleted(finish(toMove(bestCell), bestScore, depth));
+            }
+            // A forced result does not change with depth
+            if (Math.abs(bestScore) > ComputerPlayer.WIN_SCORE / 2) {
+                break;
+            }
+        }
+        
+        if (bestCell < 0) {
+            return null;
+        }
+        return finish(toMove(bestCell), bestScore, completedDepth);
+    }
+    
+    // Counts a node at ply and checks the limits, polling the clock every POLL_INTERVAL nodes. Returns true once
+    // the search has to unwind.
+    boolean enterNode(int ply) {
+        counters.nodes++;
+        if (aborted || counters.nodes > nodeLimit
+                || ((counters.nodes & (ComputerPlayer.POLL_INTERVAL - 1)) == 0 && limits != null && limits.isTimeUp())) {
+            aborted = true;
+            return true;
+        }
+        counters.maxDepth = Math.max(counters.maxDepth, ply);
+        pvLength[ply] = 0;
+        return false;
+    }
+    
+    // Entry for key in table, or MISS. Noisy scores stay out of the table, which may be shared with stronger
+    // players, so a noisy search never probes it.
+    long probe(TranspositionTable table, long key) {
+        if (evalNoise > 0) {
+            return TranspositionTable.MISS;
+        }
+        counters.tableProbes++;
+        long entry = table.probe(key);
+        if (entry != TranspositionTable.MISS) {
+            counters.tableHits++;
+        }
+        return entry;
+    }
+    
+    // Stores the result of a node searched with the window (originalAlpha, beta) at depth plies from the root
+    void store(TranspositionTable table, long key, int bestScore, int depth, int draft, int originalAlpha, int beta) {
+        if (evalNoise > 0) {
+            return;
+        }
+        int bound = bestScore <= originalAlpha ? TranspositionTable.UPPER_BOUND
+                : bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : TranspositionTable.EXACT;
+        table.store(key, ComputerPlayer.toTable(bestScore, depth), draft, bound);
+    }
+    
+    static void moveToFront(int[] moves, int count, int cell) {
+        for (int i = 0; i < count; i++) {
+            if (moves[i] == cell) {
+                System.arraycopy(moves, 0, moves, 1, i);
+                moves[0] = cell;
+                return;
+            }
+        }
+    }
+    
+    // Cell becomes the best line at this ply, followed by the best line found below it
+    void updatePv(int ply, int cell) {
+        pvTable[ply][0] = cell;
+        System.arraycopy(pvTable[ply + 1], 0, pvTable[ply], 1, pvLength[ply + 1]);
+        pvLength[ply] = pvLength[ply + 1] + 1;
+    }
+    
+    // Keeps the root line of the last completed iteration, for when the next one is cut short
+    private void savePv() {
+        completedPvLength = pvLength[0];
+        System.arraycopy(pvTable[0], 0, completedPv, 0, completedPvLength);
+    }
+    
+    private void restorePv() {
+        pvLength[0] = completedPvLength;
+        System.arraycopy(completedPv, 0, pvTable[0], 0, completedPvLength);
+    }
+    
+    Move toMove(int cell) {
+        return cell < 0 ? null : new Move(cell / cols, cell % cols);
+    }
+    
+    // Also used for progress reports mid-search - it only reads the counters and the PV table
+    SearchResult finish(Move move, int score, int depth) {
+        List<Move> pv = new ArrayList<>();
+        for (int i = 0; i < pvLength[0]; i++) {
+            pv.add(toMove(pvTable[0][i]));
+        }
+        return new SearchResult(move, score, depth, counters.finish(System.nanoTime() - start, pv));
+    }
+}
+
@@ -0,0 +1,127 @@
+package tictactoe;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// HDR-style log-linear latency histogram - 32 linear sub-buckets per power of two (~3% error), lock-free recording
+public class LatencyHistogram implements LatencyHistogramMXBean {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalCount = new AtomicLong();
+    private final AtomicLong maxValue = new AtomicLong();
+    
+    // Records one latency in nanoseconds (negative values are clamped to zero)
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        counts.incrementAndGet(bucketOf(value));
+        totalCount.incrementAndGet();
+        long max;
+        while (value > (max = maxValue.get()) && !maxValue.compareAndSet(max, value)) {
+            // Retry until this value is no longer the largest or the update lands
+        }
+    }
+    
+    // Point-in-time copy of the counts - percentiles are computed from the copy, recording is never blocked
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            total += copy[i];
+        }
+        return new Snapshot(copy, total, maxValue.get());
+    }
+    
+    @Override
+    public long getCount() {
+        return totalCount.get();
+    }
+    
+    @Override
+    public long getP50Micros() {
+        return snapshot().getValueAtPercentile(50.0) / 1000;
+    }
+    
+    @Override
+    public long getP99Micros() {
+        return snapshot().getValueAtPercentile(99.0) / 1000;
+    }
+    
+    @Override
+    public long getP999Micros() {
+        return snapshot().getValueAtPercentile(99.9) / 1000;
+    }
+    
+    @Override
+    public long getMaxMicros() {
+        return maxValue.get() / 1000;
+    }
+    
+    // Values below 32 get exact buckets, larger values keep their top 5 bits below the leading one
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int msb = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (msb - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return ((msb - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + mantissa;
+    }
+    
+    // Largest value that falls into the bucket
+    static long highestValueIn(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long lowest = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+    
+    // Immutable view of the histogram at one moment
+    public static class Snapshot {
+        private final long[] counts;
+        private final long totalCount;
+        private final long maxValue;
+        
+        private Snapshot(long[] counts, long totalCount, long maxValue) {
+            this.counts = counts;
+            this.totalCount = totalCount;
+            this.maxValue = maxValue;
+        }
+        
+        public long getTotalCount() {
+            return totalCount;
+        }
+        
+        public long getMaxValue() {
+            return maxValue;
+        }
+        
+        // Upper bound of the bucket holding the given percentile, never above the recorded maximum (0 when empty)
+        public long getValueAtPercentile(double percentile) {
+            if (totalCount == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * totalCount));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(highestValueIn(i), maxValue);
+                }
+            }
+            return maxValue;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format("count=%d p50=%.3fms p99=%.3fms p999=%.3fms max=%.3fms", totalCount,
+                getValueAtPercentile(50.0) / 1e6, getValueAtPercentile(99.0) / 1e6,
+                getValueAtPercentile(99.9) / 1e6, maxValue / 1e6);
+        }
+    }
+}
+
@@ -0,0 +1,15 @@
+package tictactoe;
+
+// JMX view of one latency histogram - percentiles are bucket upper bounds in microseconds
+public interface LatencyHistogramMXBean {
+    long getCount();
+    
+    long getP50Micros();
+    
+    long getP99Micros();
+    
+    long getP999Micros();
+    
+    long getMaxMicros();
+}
+
@@ -0,0 +1,246 @@
+package tictactoe;
+
+import java.util.Arrays;
+import java.util.Random;
+
+// Pattern counts over every window of the win length on a board (immutable): for each side, how many windows hold
+// exactly n of its marks and none of the opponent's. ComputerPlayer's evaluation is X's windows one mark short minus
+// O's (countLines on small boards), and Solver's threat check reads the windows two marks short.
+//
+// The packed path counts a whole row of windows at once: each board row is a long, the k rows or shifted copies a
+// window spans are summed into bit-sliced counters (bit plane p of every lane holds bit p of that window's count),
+// and each pattern is an AND of planes plus a popcount - 64 windows per operation. The scalar path walks each window
+// cell by cell; it is the reference the packed path must match, and runs instead when -Dtictactoe.lines.scalar=true.
+public final class LineCounts {
+    private static final boolean SCALAR = Boolean.getBoolean("tictactoe.lines.scalar");
+    
+    private static final WinLine.Direction[] DIRECTIONS = WinLine.Direction.values();
+    
+    private final int winLength;
+    private final int[] x;
+    private final int[] o;
+    
+    private LineCounts(int winLength) {
+        this.winLength = winLength;
+        this.x = new int[winLength + 1];
+        this.o = new int[winLength + 1];
+    }
+    
+    public static LineCounts of(Board board) {
+        return SCALAR ? scalar(board) : packed(board);
+    }
+    
+    // One window at a time, one cell at a time
+    static LineCounts scalar(Board board) {
+        int k = board.getSpec().getWinLength();
+        int rows = board.getRows();
+        int cols = board.getCols();
+        LineCounts counts = new LineCounts(k);
+        for (WinLine.Direction direction : DIRECTIONS) {
+            int dRow = direction.getRowStep();
+            int dCol = direction.getColStep();
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    int endRow = row + dRow * (k - 1);
+                    int endCol = col + dCol * (k - 1);
+                    if (endRow >= rows || endCol < 0 || endCol >= cols) {
+                        continue;
+                    }
+                    int xs = 0;
+                    int os = 0;
+                    for (int step = 0; step < k; step++) {
+                        CellState cell = board.cellAt((row + step * dRow) * cols + col + step * dCol);
+                        if (cell == CellState.X) {
+                            xs++;
+                        } else if (cell == CellState.O) {
+                            os++;
+                        }
+                    }
+                    if (os == 0) {
+                        counts.x[xs]++;
+                    }
+                    if (xs == 0) {
+                        counts.o[os]++;
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+    
+    // A row of windows at a time: lane c of a row's longs is the window starting in column c
+    static LineCounts packed(Board board) {
+        int k = board.getSpec().getWinLength();
+        int rows = board.getRows();
+        int cols = board.getCols();
+        LineCounts counts = new LineCounts(k);
+        long[] xRows = new long[rows];
+        long[] oRows = new long[rows];
+        for (int row = 0; row < rows; row++) {
+            xRows[row] = board.rowMarks(row, CellState.X);
+            oRows[row] = board.rowMarks(row, CellState.O);
+        }
+        int planes = 32 - Integer.numberOfLeadingZeros(k);
+        long[] xPlanes = new long[planes];
+        long[] oPlanes = new long[planes];
+        for (WinLine.Direction direction : DIRECTIONS) {
+            int dRow = direction.getRowStep();
+            int dCol = direction.getColStep();
+            // Columns a window may start in: it must end on the board
+            long starts = dCol == 0 ? lowBits(cols)
+                : dCol > 0 ? lowBits(cols - k + 1)
+                : lowBits(cols) & ~lowBits(k - 1);
+            if (starts == 0) {
+                continue;
+            }
+            for (int row = 0; row + dRow * (k - 1) < rows; row++) {
+                Arrays.fill(xPlanes, 0L);
+                Arrays.fill(oPlanes, 0L);
+                long anyX = 0;
+                long anyO = 0;
+                for (int step = 0; step < k; step++) {
+                    // Step's cell of every window lines up with the window's start column
+                    long xs = xRows[row + step * dRow];
+                    long os = oRows[row + step * dRow];
+                    int shift = step * dCol;
+                    if (shift > 0) {
+                        xs >>>= shift;
+                        os >>>= shift;
+                    } else if (shift < 0) {
+                        xs <<= -shift;
+                        os <<= -shift;
+                    }
+                    anyX |= xs;
+                    anyO |= os;
+                    increment(xPlanes, xs);
+                    increment(oPlanes, os);
+                }
+                long xOnly = starts & ~anyO;
+                long oOnly = starts & ~anyX;
+                for (int n = 0; n <= k; n++) {
+                    counts.x[n] += Long.bitCount(xOnly & equalTo(xPlanes, n));
+                    counts.o[n] += Long.bitCount(oOnly & equalTo(oPlanes, n));
+                }
+            }
+        }
+        return counts;
+    }
+    
+    // Adds one to the bit-sliced counter in every lane set in bits (ripple carry across the planes)
+    private static void increment(long[] planes, long bits) {
+        for (int p = 0; p < planes.length && bits != 0; p++) {
+            long carry = planes[p] & bits;
+            planes[p] ^= bits;
+            bits = carry;
+        }
+    }
+    
+    // Lanes whose bit-sliced count equals n
+    private static long equalTo(long[] planes, int n) {
+        long lanes = -1L;
+        for (int p = 0; p < planes.length; p++) {
+            lanes &= ((n >>> p) & 1) != 0 ? planes[p] : ~planes[p];
+        }
+        return lanes;
+    }
+    
+    private static long lowBits(int n) {
+        return n <= 0 ? 0 : n >= 64 ? -1L : (1L << n) - 1;
+    }
+    
+    public int getWinLength() {
+        return winLength;
+    }
+    
+    // Windows holding exactly marks of mark's cells and none of the opponent's - empty windows count for both sides
+    public int get(CellState mark, int marks) {
+        if (marks < 0 || marks > winLength) {
+            throw new IllegalArgumentException("Mark count out of range: " + marks);
+        }
+        return mark == CellState.X ? x[marks] : o[marks];
+    }
+    
+    // X's windows one mark short of a line minus O's - ComputerPlayer's evaluation before scaling
+    public int balance() {
+        return x[winLength - 1] - o[winLength - 1];
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof LineCounts)) {
+            return false;
+        }
+        LineCounts that = (LineCounts) other;
+        return Arrays.equals(x, that.x) && Arrays.equals(o, that.o);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(x) * 31 + Arrays.hashCode(o);
+    }
+    
+    @Override
+    public String toString() {
+        return "LineCounts(x=" + Arrays.toString(x) + ", o=" + Arrays.toString(o) + ")";
+    }
+    
+    // Usage: LineCounts [board spec] [--fill F] [--boards N] [--repeat N]
+    // Times both paths over random boards with a fraction F of the cells filled, checking that they agree
+    public static void main(String[] args) {
+        BoardSpec spec = BoardSpec.of(15, 15, 5);
+        double fill = 0.3;
+        int boardCount = 1000;
+        int repeat = 5;
+        for (int i = 0; i < args.length; i++) {
+            if ("--fill".equals(args[i]) && i + 1 < args.length) {
+                fill = Double.parseDouble(args[++i]);
+            } else if ("--boards".equals(args[i]) && i + 1 < args.length) {
+                boardCount = Integer.parseInt(args[++i]);
+            } else if ("--repeat".equals(args[i]) && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else {
+                spec = BoardSpec.parse(args[i]);
+            }
+        }
+        Random random = new Random(1);
+        Board[] boards = new Board[boardCount];
+        for (int i = 0; i < boards.length; i++) {
+            boards[i] = randomBoard(spec, fill, random);
+            if (!scalar(boards[i]).equals(packed(boards[i]))) {
+                throw new IllegalStateException("Paths disagree on board " + i);
+            }
+        }
+        // Later runs show the warmed-up times
+        for (int run = 0; run < repeat; run++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (Board board : boards) {
+                sink += scalar(board).balance();
+            }
+            long scalarNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (Board board : boards) {
+                sink -= packed(board).balance();
+            }
+            long packedNanos = System.nanoTime() - start;
+            System.out.printf("%s scalar=%.0f ns/board packed=%.0f ns/board speedup=%.1fx%s%n", spec,
+                (double) scalarNanos / boards.length, (double) packedNanos / boards.length,
+                (double) scalarNanos / packedNanos, sink == 0 ? "" : " MISMATCH");
+        }
+    }
+    
+    // Each cell X or O with probability fill / 2, empty otherwise - lines may be complete, the counts do not care
+    static Board randomBoard(BoardSpec spec, double fill, Random random) {
+        Board board = new Board(spec);
+        for (int cell = 0; cell < spec.getCells(); cell++) {
+            double roll = random.nextDouble();
+            if (roll < fill / 2) {
+                board.place(cell, CellState.X);
+            } else if (roll < fill) {
+                board.place(cell, CellState.O);
+            }
+        }
+        return board;
+    }
+}
+
@@ -0,0 +1,303 @@
+package tictactoe;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+// Transposition table in a memory-mapped file, so search results survive restarts. Same entry layout as
+// HeapTranspositionTable. Opening only checks the header - the OS pages entries in as they are probed, and each
+// 64 KB segment is checked against its stored CRC the first time it is touched (a bad segment is wiped, not used).
+// snapshot() writes fresh checksums and forces the file to disk; snapshotEvery() does it periodically.
+public class MappedTranspositionTable implements TranspositionTable, Closeable {
+    private static final Logger LOG = Logger.getLogger("tictactoe.tt");
+    
+    private static final long MAGIC = 0x5454_5441_424C_4531L; // "TTTABLE1"
+    private static final int VERSION = 1;
+    private static final int MAX_INDEX_BITS = 26; // 1 GB of entries, within one mapping
+    private static final int SEGMENT_BITS = 12; // 4096 entries, 64 KB per checksummed segment
+    private static final int ENTRY_BYTES = 16;
+    private static final int SEGMENT_BYTES = ENTRY_BYTES << SEGMENT_BITS;
+    private static final int PAGE = 4096;
+    
+    // Header: magic, version, rows, cols, win length, index bits, segment count, header CRC, then one CRC per segment
+    private static final int HEADER_CRC_OFFSET = 32;
+    private static final int SEGMENT_CRC_OFFSET = 40;
+    
+    // Segment states - a segment is read and written only once READY
+    private static final int UNVERIFIED = 0;
+    private static final int VERIFYING = 1;
+    private static final int READY = 2;
+    
+    private final Path file;
+    private final FileChannel channel;
+    private final MappedByteBuffer map;
+    private final int indexBits;
+    private final int segments;
+    private final int dataOffset;
+    private final AtomicIntegerArray states;
+    private final boolean warm;
+    private ScheduledExecutorService snapshots;
+    
+    private MappedTranspositionTable(Path file, FileChannel channel, MappedByteBuffer map, int indexBits, boolean warm) {
+        this.file = file;
+        this.channel = channel;
+        this.map = map;
+        this.indexBits = indexBits;
+        this.segments = 1 << (indexBits - SEGMENT_BITS);
+        this.dataOffset = dataOffset(segments);
+        this.states = new AtomicIntegerArray(segments);
+        this.warm = warm;
+        if (!warm) {
+            for (int i = 0; i < segments; i++) {
+                states.set(i, READY); // a fresh table has nothing to check
+            }
+        }
+    }
+    
+    // Opens file as a table of 2^indexBits entries for spec. An existing file is reused only if its header is intact
+    // and matches spec and size; otherwise it is logged and replaced by an empty table.
+    public static MappedTranspositionTable open(Path file, BoardSpec spec, int indexBits) throws IOException {
+        if (indexBits < SEGMENT_BITS || indexBits > MAX_INDEX_BITS) {
+            throw new IllegalArgumentException("Table size out of range: 2^" + indexBits);
+        }
+        int segments = 1 << (indexBits - SEGMENT_BITS);
+        long length = dataOffset(segments) + ((long) ENTRY_BYTES << indexBits);
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean existing = channel.size() > 0;
+            String problem = existing ? checkHeader(channel, spec, indexBits, length) : null;
+            if (existing && problem != null) {
+                LOG.warning("Ignoring transposition table " + file + ": " + problem);
+            }
+            boolean warm = existing && problem == null;
+            if (!warm) {
+                channel.truncate(0); // drop every stale byte before the new header goes in
+            }
+            MappedByteBuffer map = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+            map.order(ByteOrder.LITTLE_ENDIAN);
+            MappedTranspositionTable table = new MappedTranspositionTable(file, channel, map, indexBits, warm);
+            if (!warm) {
+                table.writeHeader(spec);
+            }
+            return table;
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    // Whether the table started with data from an earlier run
+    public boolean isWarm() {
+        return warm;
+    }
+    
+    @Override
+    public int capacity() {
+        return 1 << indexBits;
+    }
+    
+    @Override
+    public long probe(long key) {
+        int entry = entry(key);
+        if (!ready(entry >>> SEGMENT_BITS)) {
+            return MISS;
+        }
+        int offset = dataOffset + entry * ENTRY_BYTES;
+        long data = map.getLong(offset + 8);
+        if (data == MISS || (map.getLong(offset) ^ data) != key) {
+            return MISS;
+        }
+        return data;
+    }
+    
+    @Override
+    public void store(long key, int value, int draft, int bound) {
+        int entry = entry(key);
+        if (!ready(entry >>> SEGMENT_BITS)) {
+            return;
+        }
+        long data = TranspositionTable.pack(value, draft, bound);
+        int offset = dataOffset + entry * ENTRY_BYTES;
+        map.putLong(offset, key ^ data);
+        map.putLong(offset + 8, data);
+    }
+    
+    @Override
+    public boolean isPersistent() {
+        return true;
+    }
+    
+    @Override
+    public void clear() {
+        for (int segment = 0; segment < segments; segment++) {
+            wipe(segment);
+            states.set(segment, READY);
+        }
+    }
+    
+    // Records a checksum for every segment and the header, then forces the file to disk. Stores racing with a
+    // snapshot can leave a segment whose checksum no longer matches - it is dropped on the next start, nothing worse.
+    public synchronized void snapshot() {
+        for (int segment = 0; segment < segments; segment++) {
+            if (states.get(segment) == READY) {
+                map.putInt(SEGMENT_CRC_OFFSET + segment * 4, segmentCrc(segment));
+            }
+        }
+        map.putInt(HEADER_CRC_OFFSET, headerCrc(map, segments));
+        map.force();
+    }
+    
+    // Snapshots every period on a daemon thread until close() - failures are logged and retried next period
+    public synchronized void snapshotEvery(long period, TimeUnit unit) {
+        if (snapshots != null) {
+            snapshots.shutdown();
+        }
+        snapshots = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "tt-snapshot " + file.getFileName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        snapshots.scheduleAtFixedRate(() -> {
+            try {
+                snapshot();
+            } catch (RuntimeException e) {
+                LOG.log(Level.WARNING, "Transposition table snapshot failed: " + file, e);
+            }
+        }, period, period, unit);
+    }
+    
+    // Final snapshot, then releases the file - the table must not be used afterwards
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (snapshots != null) {
+                snapshots.shutdown();
+                snapshots = null;
+            }
+        }
+        try {
+            snapshot();
+        } finally {
+            channel.close();
+        }
+    }
+    
+    // Checks a segment of a warm table against its stored CRC the first time it is used. Threads that find another
+    // thread checking treat the segment as empty for now rather than wait.
+    private boolean ready(int segment) {
+        int state = states.get(segment);
+        if (state == READY) {
+            return true;
+        }
+        if (state == VERIFYING || !states.compareAndSet(segment, UNVERIFIED, VERIFYING)) {
+            return states.get(segment) == READY;
+        }
+        if (segmentCrc(segment) != map.getInt(SEGMENT_CRC_OFFSET + segment * 4)) {
+            LOG.warning("Checksum mismatch in " + file + " segment " + segment + " - discarding it");
+            wipe(segment);
+        }
+        states.set(segment, READY);
+        return true;
+    }
+    
+    private int segmentCrc(int segment) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(map, dataOffset + segment * SEGMENT_BYTES, SEGMENT_BYTES));
+        return (int) crc.getValue();
+    }
+    
+    private void wipe(int segment) {
+        int start = dataOffset + segment * SEGMENT_BYTES;
+        for (int offset = start; offset < start + SEGMENT_BYTES; offset += 8) {
+            map.putLong(offset, 0L);
+        }
+    }
+    
+    private void writeHeader(BoardSpec spec) {
+        map.putLong(0, MAGIC);
+        map.putInt(8, VERSION);
+        map.putInt(12, spec.getRows());
+        map.putInt(16, spec.getCols());
+        map.putInt(20, spec.getWinLength());
+        map.putInt(24, indexBits);
+        map.putInt(28, segments);
+        // Every segment of a new file is zeros, so one checksum serves them all without touching the pages
+        CRC32 zeros = new CRC32();
+        zeros.update(new byte[SEGMENT_BYTES]);
+        for (int segment = 0; segment < segments; segment++) {
+            map.putInt(SEGMENT_CRC_OFFSET + segment * 4, (int) zeros.getValue());
+        }
+        map.putInt(HEADER_CRC_OFFSET, headerCrc(map, segments));
+        map.force();
+    }
+    
+    // Reason the existing file cannot be used, or null if its header is sound and matches
+    private static String checkHeader(FileChannel channel, BoardSpec spec, int indexBits, long length) throws IOException {
+        if (channel.size() != length) {
+            return "size " + channel.size() + " bytes, expected " + length;
+        }
+        int segments = 1 << (indexBits - SEGMENT_BITS);
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, dataOffset(segments));
+        header.order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getLong(0) != MAGIC) {
+            return "not a transposition table file";
+        }
+        if (header.getInt(8) != VERSION) {
+            return "format version " + header.getInt(8) + ", expected " + VERSION;
+        }
+        if (header.getInt(HEADER_CRC_OFFSET) != headerCrc(header, segments)) {
+            return "header checksum mismatch";
+        }
+        BoardSpec stored;
+        try {
+            stored = BoardSpec.of(header.getInt(12), header.getInt(16), header.getInt(20));
+        } catch (IllegalArgumentException e) {
+            return "invalid board spec";
+        }
+        if (!stored.equals(spec)) {
+            return "built for " + stored + ", not " + spec;
+        }
+        if (header.getInt(24) != indexBits || header.getInt(28) != segments) {
+            return "2^" + header.getInt(24) + " entries, expected 2^" + indexBits;
+        }
+        return null;
+    }
+    
+    // CRC of the fixed header fields and the segment checksum table
+    private static int headerCrc(ByteBuffer map, int segments) {
+        CRC32 crc = new CRC32();
+        crc.update(slice(map, 0, HEADER_CRC_OFFSET));
+        crc.update(slice(map, SEGMENT_CRC_OFFSET, segments * 4));
+        return (int) crc.getValue();
+    }
+    
+    // Independent view of length bytes from offset, leaving the shared buffer's position alone
+    private static ByteBuffer slice(ByteBuffer buffer, int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length).position(offset);
+        return view;
+    }
+    
+    // Entries start on the first page after the header
+    private static int dataOffset(int segments) {
+        return (SEGMENT_CRC_OFFSET + segments * 4 + PAGE - 1) / PAGE * PAGE;
+    }
+    
+    // Fibonacci hashing, as in HeapTranspositionTable
+    private int entry(long key) {
+        return (int) ((key * 0x9E3779B97F4A7C15L) >>> (64 - indexBits));
+    }
+}
+
@@ -0,0 +1,171 @@
+package tictactoe;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Precomputed answers for boards of up to MAX_CELLS cells (immutable once built; BoardSpec keeps one per spec). On
+// such a board one side's marks fit in a mask of at most 9 bits, so every question about a mark set is a lookup
+// in a 2^cells table instead of a scan over the lines:
+// - whether the marks hold a line;
+// - the cells that would complete a line (mask with the empty cells for the real threats);
+// - the base-3 digit pattern of the marks, so a whole position (X's and O's) is one index into a 3^cells table of
+//   static scores, built per PatternWeights on first use.
+// For 3x3 the tables are 512 entries each, and 19,683 per set of weights.
+final class MaskTables {
+    static final int MAX_CELLS = 9;
+    
+    private final long[] lines;
+    private final boolean[] wins;
+    private final short[] threats;
+    private final short[] ternary;
+    private final Map<PatternWeights, int[]> scores = new ConcurrentHashMap<>();
+    
+    MaskTables(int cells, long[] lines) {
+        this.lines = lines;
+        int size = 1 << cells;
+        wins = new boolean[size];
+        threats = new short[size];
+        ternary = new short[size];
+        for (int mask = 0; mask < size; mask++) {
+            int completing = 0;
+            for (long line : lines) {
+                long missing = line & ~mask;
+                if (missing == 0) {
+                    wins[mask] = true;
+                } else if (Long.bitCount(missing) == 1) {
+                    completing |= (int) missing;
+                }
+            }
+            threats[mask] = (short) completing;
+            int code = 0;
+            for (int cell = cells - 1; cell >= 0; cell--) {
+                code = code * 3 + ((mask >>> cell) & 1);
+            }
+            ternary[mask] = (short) code;
+        }
+    }
+    
+    // Whether marks covers a whole line
+    boolean isWin(long marks) {
+        return wins[(int) marks];
+    }
+    
+    // Empty cells where one more of mine would complete a line
+    long threats(long mine, long empty) {
+        return threats[(int) mine] & empty;
+    }
+    
+    // Index of the position (xs, os) into a scores table
+    int code(long xs, long os) {
+        return ternary[(int) xs] + 2 * ternary[(int) os];
+    }
+    
+    // X's pattern score of every position by code - each line only one side has marks in is worth that side's
+    // weight for its mark count, the same sum ComputerPlayer takes line by line
+    int[] scores(PatternWeights weights) {
+        return scores.computeIfAbsent(weights, this::buildScores);
+    }
+    
+    private int[] buildScores(PatternWeights weights) {
+        int cells = Integer.numberOfTrailingZeros(wins.length);
+        int size = 1;
+        for (int cell = 0; cell < cells; cell++) {
+            size *= 3;
+        }
+        int[] table = new int[size];
+        for (int code = 0; code < size; code++) {
+            long xs = 0;
+            long os = 0;
+            int rest = code;
+            for (int cell = 0; cell < cells; cell++) {
+                int digit = rest % 3;
+                rest /= 3;
+                if (digit == 1) {
+                    xs |= 1L << cell;
+                } else if (digit == 2) {
+                    os |= 1L << cell;
+                }
+            }
+            int score = 0;
+            for (long line : lines) {
+                score += weights.window(Long.bitCount(xs & line), Long.bitCount(os & line));
+            }
+            table[code] = score;
+        }
+        return table;
+    }
+    
+    // Usage: MaskTables [spec] [--positions N] [--repeat N]
+    // Times win tests and static scores on random positions, by line scan and by table lookup
+    public static void main(String[] args) {
+        BoardSpec spec = BoardSpec.STANDARD;
+        int positionCount = 1 << 20;
+        int repeat = 8;
+        for (int i = 0; i < args.length; i++) {
+            if ("--positions".equals(args[i]) && i + 1 < args.length) {
+                positionCount = Integer.parseInt(args[++i]);
+            } else if ("--repeat".equals(args[i]) && i + 1 < args.length) {
+                repeat = Integer.parseInt(args[++i]);
+            } else {
+                spec = BoardSpec.parse(args[i]);
+            }
+        }
+        MaskTables tables = spec.tables();
+        if (tables == null) {
+            System.err.println(spec + " has more than " + MAX_CELLS + " cells - no tables");
+            return;
+        }
+        PatternWeights weights = PatternWeights.defaults(spec.getWinLength());
+        int[] scores = tables.scores(weights);
+        Random random = new Random(1);
+        long[] xs = new long[positionCount];
+        long[] os = new long[positionCount];
+        for (int i = 0; i < positionCount; i++) {
+            Board board = LineCounts.randomBoard(spec, random.nextDouble(), random);
+            xs[i] = board.marks(CellState.X);
+            os[i] = board.marks(CellState.O);
+            if (tables.isWin(xs[i]) != spec.scanWinning(xs[i])
+                    || scores[tables.code(xs[i], os[i])] != scanScore(tables.lines, weights, xs[i], os[i])) {
+                throw new IllegalStateException("Tables disagree with the scan on position " + i);
+            }
+        }
+        // Later runs show the warmed-up times
+        for (int run = 0; run < repeat; run++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i = 0; i < positionCount; i++) {
+                sink += spec.scanWinning(xs[i]) ? 1 : 0;
+            }
+            long scanWin = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < positionCount; i++) {
+                sink -= tables.isWin(xs[i]) ? 1 : 0;
+            }
+            long tableWin = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < positionCount; i++) {
+                sink += scanScore(tables.lines, weights, xs[i], os[i]);
+            }
+            long scanScore = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < positionCount; i++) {
+                sink -= scores[tables.code(xs[i], os[i])];
+            }
+            long tableScore = System.nanoTime() - start;
+            System.out.printf("%s win: scan=%.1f ns table=%.1f ns (%.1fx)  score: scan=%.1f ns table=%.1f ns (%.1fx)%s%n",
+                spec, (double) scanWin / positionCount, (double) tableWin / positionCount, (double) scanWin / tableWin,
+                (double) scanScore / positionCount, (double) tableScore / positionCount,
+                (double) scanScore / tableScore, sink == 0 ? "" : " MISMATCH");
+        }
+    }
+    
+    private static int scanScore(long[] lines, PatternWeights weights, long xs, long os) {
+        int score = 0;
+        for (long line : lines) {
+            score += weights.window(Long.bitCount(xs & line), Long.bitCount(os & line));
+        }
+        return score;
+    }
+}
+
@@ -0,0 +1,182 @@
+package tictactoe;
+
+// The m,n,k game and its misere variant (immutable): any empty cell may be played, and a run of the win length
+// ends the game - won by the player who made it, or in misere lost by them. The standard game is what
+// ComputerPlayer's own search is specialised for; misere goes through the generic RulesSearch.
+public final class MnkRules implements GameRules {
+    static final String MISERE = "misere";
+    
+    // Misere positions hash apart from standard ones, so a shared table never mixes their scores
+    private static final long MISERE_KEY = 0x9E3779B97F4A7C15L;
+    
+    private final BoardSpec spec;
+    private final boolean misere;
+    
+    private MnkRules(BoardSpec spec, boolean misere) {
+        this.spec = spec;
+        this.misere = misere;
+    }
+    
+    public static MnkRules standard(BoardSpec spec) {
+        return new MnkRules(spec, false);
+    }
+    
+    // Whoever completes a line loses
+    public static MnkRules misere(BoardSpec spec) {
+        return new MnkRules(spec, true);
+    }
+    
+    public boolean isMisere() {
+        return misere;
+    }
+    
+    // Whether rules are the standard m,n,k game - the one ComputerPlayer and GameEngine have fast paths for
+    static boolean isStandard(GameRules rules) {
+        return rules instanceof MnkRules && !((MnkRules) rules).misere;
+    }
+    
+    @Override
+    public String getName() {
+        return misere ? MISERE + " " + spec : spec.toString();
+    }
+    
+    @Override
+    public BoardSpec getSpec() {
+        return spec;
+    }
+    
+    @Override
+    public GamePosition start() {
+        return new Position(this, new Board(spec));
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof MnkRules)) {
+            return false;
+        }
+        MnkRules that = (MnkRules) other;
+        return spec.equals(that.spec) && misere == that.misere;
+    }
+    
+    @Override
+    public int hashCode() {
+        return spec.hashCode() * 2 + (misere ? 1 : 0);
+    }
+    
+    @Override
+    public String toString() {
+        return "MnkRules(" + getName() + ")";
+    }
+    
+    // The board plus the cells played, in order, for undo
+    private static final class Position implements GamePosition {
+        private final MnkRules rules;
+        private final Board board;
+        private final int[] history;
+        private final PatternWeights weights;
+        private int plies;
+        private GameState outcome = GameState.PLAYING;
+        private WinLine winLine;
+        
+        Position(MnkRules rules, Board board) {
+            this.rules = rules;
+            this.board = board;
+            this.history = new int[board.cellCount()];
+            this.weights = PatternWeights.forSpec(board.getSpec());
+        }
+        
+        @Override
+        public GameRules getRules() {
+            return rules;
+        }
+        
+        @Override
+        public Board getBoard() {
+            return board;
+        }
+        
+        @Override
+        public CellState getToMove() {
+            return plies % 2 == 0 ? CellState.X : CellState.O;
+        }
+        
+        @Override
+        public int legalMoves(int[] moves) {
+            if (outcome != GameState.PLAYING) {
+                return 0;
+            }
+            int count = 0;
+            for (int cell = 0; cell < board.cellCount(); cell++) {
+                if (board.isEmptyAt(cell)) {
+                    moves[count++] = cell;
+                }
+            }
+            return count;
+        }
+        
+        @Override
+        public boolean isLegal(int cell) {
+            return outcome == GameState.PLAYING && cell >= 0 && cell < board.cellCount() && board.isEmptyAt(cell);
+        }
+        
+        @Override
+        public void play(int cell) {
+            CellState mover = getToMove();
+            board.place(cell, mover);
+            history[plies++] = cell;
+            // Only a line through the new mark can have ended the game
+            winLine = board.winLineThrough(cell, mover);
+            if (winLine != null) {
+                boolean moverWins = !rules.misere;
+                outcome = (mover == CellState.X) == moverWins ? GameState.X_WINS : GameState.O_WINS;
+            } else if (board.isFull()) {
+                outcome = GameState.DRAW;
+            }
+        }
+        
+        @Override
+        public void undo() {
+            board.remove(history[--plies]);
+            outcome = GameState.PLAYING;
+            winLine = null;
+        }
+        
+        @Override
+        public GameState getOutcome() {
+            return outcome;
+        }
+        
+        @Override
+        public WinLine getWinLine() {
+            return winLine;
+        }
+        
+        // The pattern weights' window score - in misere, windows close to a line are a liability instead
+        @Override
+        public int evaluate() {
+            int score = weights.score(LineCounts.of(board));
+            if (rules.misere) {
+                score = -score;
+            }
+            return getToMove() == CellState.X ? score : -score;
+        }
+        
+        @Override
+        public long getKey() {
+            long key = board.canonicalKey();
+            return rules.misere ? key ^ MISERE_KEY : key;
+        }
+        
+        @Override
+        public GamePosition copy() {
+            Position copy = new Position(rules, new Board(board));
+            System.arraycopy(history, 0, copy.history, 0, plies);
+            copy.plies = plies;
+            copy.outcome = outcome;
+            copy.winLine = winLine;
+            return copy;
+        }
+    }
+}
+
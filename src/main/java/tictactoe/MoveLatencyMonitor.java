@@ -0,0 +1,90 @@
+package tictactoe;
+
+import java.lang.management.ManagementFactory;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Computer move latency histograms per strength level and game (GameRules.getName(): "3x3", "misere 3x3", "connect4"),
+// published over JMX and optionally dumped to the log
+public class MoveLatencyMonitor {
+    private static final Logger LOG = Logger.getLogger("tictactoe.latency");
+    private static final MoveLatencyMonitor INSTANCE = new MoveLatencyMonitor();
+    
+    private final ConcurrentHashMap<String, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private ScheduledExecutorService dumper;
+    
+    private MoveLatencyMonitor() {
+        int dumpSeconds = Integer.getInteger("tictactoe.latency.dumpSeconds", 0);
+        if (dumpSeconds > 0) {
+            startPeriodicDump(dumpSeconds, TimeUnit.SECONDS);
+        }
+    }
+    
+    public static MoveLatencyMonitor getInstance() {
+        return INSTANCE;
+    }
+    
+    // Keyed by level rather than Difficulty - Medium covers levels 2-19, whose node budgets run from 32 to 4M
+    public void record(Strength strength, String game, long nanos) {
+        histogram(strength, game).record(nanos);
+    }
+    
+    // Histogram for one series, created and registered as tictactoe:type=MoveLatency,... on first use
+    public LatencyHistogram histogram(Strength strength, String game) {
+        int level = strength.getLevel();
+        String series = String.format(Locale.ROOT, "level %02d %s", level, game);
+        LatencyHistogram histogram = histograms.get(series);
+        if (histogram == null) {
+            histogram = histograms.computeIfAbsent(series, key -> register(new LatencyHistogram(), level, game));
+        }
+        return histogram;
+    }
+    
+    // One line per series, sorted by name
+    public String dump() {
+        StringBuilder report = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : new TreeMap<>(histograms).entrySet()) {
+            report.append(entry.getKey()).append(": ").append(entry.getValue().snapshot()).append('\n');
+        }
+        return report.toString();
+    }
+    
+    // Logs dump() at INFO on a daemon thread (also enabled by -Dtictactoe.latency.dumpSeconds=N)
+    public synchronized void startPeriodicDump(long period, TimeUnit unit) {
+        if (dumper != null) {
+            dumper.shutdownNow();
+        }
+        dumper = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "move-latency-dump");
+            thread.setDaemon(true);
+            return thread;
+        });
+        dumper.scheduleAtFixedRate(() -> {
+            if (!histograms.isEmpty()) {
+                LOG.info("computer move latency\n" + dump());
+            }
+        }, period, period, unit);
+    }
+    
+    // Registration is best effort - a missing or locked-down MBean server must never break play
+    private static LatencyHistogram register(LatencyHistogram histogram, int level, String game) {
+        try {
+            ObjectName name = new ObjectName("tictactoe:type=MoveLatency,level=" + level
+                + ",game=" + ObjectName.quote(game));
+            ManagementFactory.getPlatformMBeanServer().registerMBean(histogram, name);
+        } catch (JMException | SecurityException e) {
+            LOG.log(Level.FINE, "MoveLatency MBean not registered", e);
+        }
+        return histogram;
+    }
+}
+
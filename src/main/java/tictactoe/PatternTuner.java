@@ -0,0 +1,431 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+// Offline Texel-style tuning of PatternWeights. Self-play games are written to a games file, one per line; tuning
+// streams that file back, scores every quiet position by the game's result, and fits the weights by logistic
+// regression - the chance X wins is taken as sigmoid(scale * evaluation), and the weights minimising the squared
+// error against the results are written to a weights file for -Dtictactoe.weights.
+//
+// The evaluation is linear in each position's pattern balance (X's windows minus O's per mark count), so positions
+// with the same balance are merged while streaming. The fit then runs over the distinct balances, however many
+// millions of positions the file holds.
+public final class PatternTuner {
+    // Games handed to one worker at a time while streaming, and batches allowed to queue per worker
+    private static final int BATCH_GAMES = 256;
+    private static final int QUEUED_BATCHES = 4;
+    
+    // Random plies at the start of each self-play game, so games from the same seed differ
+    private static final int OPENING_PLIES = 2;
+    
+    private final BoardSpec spec;
+    private final int winLength;
+    
+    // Pattern balance -> {positions, X's points from them, sum of the squared points}
+    private final Map<Balance, double[]> samples = new ConcurrentHashMap<>();
+    
+    public PatternTuner(BoardSpec spec) {
+        if (spec.getWinLength() < 2) {
+            throw new IllegalArgumentException("Nothing to tune with a win length of " + spec.getWinLength());
+        }
+        this.spec = spec;
+        this.winLength = spec.getWinLength();
+    }
+    
+    // Plays games engine-vs-engine at level, with a blunder-free search so only the opening is random, and writes
+    // "spec<TAB>result<TAB>moves" per game - moves as "row,col" in order, X first. Games are spread over threads.
+    public static void generate(BoardSpec spec, int games, Strength level, int threads, long seed, Writer out)
+        throws IOException {
+        ExecutorService workers = newWorkers(threads);
+        List<Future<?>> pending = new ArrayList<>();
+        for (int thread = 0; thread < threads; thread++) {
+            int first = thread;
+            pending.add(workers.submit(() -> {
+                Random random = new Random(seed + first);
+                GameEngine engine = new GameEngine(
+                    new ComputerPlayer(CellState.X, "X", level, new HeapTranspositionTable(14), random),
+                    new ComputerPlayer(CellState.O, "O", level, new HeapTranspositionTable(14), random),
+                    spec);
+                StringBuilder line = new StringBuilder();
+                for (int game = first; game < games; game += threads) {
+                    line.setLength(0);
+                    engine.reset();
+                    while (engine.getState() == GameState.PLAYING) {
+                        Move move = engine.getBoard().cellCount() - engine.getBoard().emptyCount() < OPENING_PLIES
+                            ? randomMove(engine.getBoard(), random) : engine.getComputerMove();
+                        engine.processMove(move);
+                        line.append(line.length() == 0 ? "" : " ").append(move.getRow()).append(',').append(move.getCol());
+                    }
+                    String record = spec + "\t" + engine.getState() + "\t" + line + "\n";
+                    synchronized (out) {
+                        out.write(record);
+                    }
+                }
+                return null;
+            }));
+        }
+        await(workers, pending);
+        out.flush();
+    }
+    
+    private static Move randomMove(Board board, Random random) {
+        while (true) {
+            Move move = new Move(random.nextInt(board.getRows()), random.nextInt(board.getCols()));
+            if (board.isValidMove(move)) {
+                return move;
+            }
+        }
+    }
+    
+    // Streams a games file: every position from ply skip on, in games on this tuner's board, is merged into the
+    // samples unless the side to move could win at once (not quiet - its score is the result, not the patterns).
+    // Games are replayed and counted on threads workers. Returns the positions read.
+    public long read(BufferedReader in, int skip, int threads) throws IOException {
+        ExecutorService workers = newWorkers(threads);
+        List<Future<Long>> pending = new ArrayList<>();
+        List<String> batch = new ArrayList<>(BATCH_GAMES);
+        String text;
+        while ((text = in.readLine()) != null) {
+            batch.add(text);
+            if (batch.size() == BATCH_GAMES) {
+                List<String> games = batch;
+                pending.add(workers.submit(() -> readBatch(games, skip)));
+                batch = new ArrayList<>(BATCH_GAMES);
+            }
+        }
+        List<String> games = batch;
+        pending.add(workers.submit(() -> readBatch(games, skip)));
+        long positions = 0;
+        for (Future<Long> result : pending) {
+            positions += get(result);
+        }
+        workers.shutdown();
+        return positions;
+    }
+    
+    private long readBatch(List<String> games, int skip) {
+        Map<Balance, double[]> local = new HashMap<>();
+        long positions = 0;
+        Board board = new Board(spec);
+        for (String game : games) {
+            String[] fields = game.split("\t");
+            if (fields.length < 2 || !spec.equals(BoardSpec.parse(fields[0]))) {
+                continue;
+            }
+            double points = fields[1].equals("X_WINS") ? 1 : fields[1].equals("O_WINS") ? 0 : 0.5;
+            board.clear();
+            CellState toMove = CellState.X;
+            String[] moves = fields.length > 2 && !fields[2].isEmpty() ? fields[2].split(" ") : new String[0];
+            for (int ply = 0; ply < moves.length; ply++) {
+                if (ply >= skip) {
+                    LineCounts counts = LineCounts.of(board);
+                    if (counts.get(toMove, winLength - 1) == 0) {
+                        double[] sample = local.computeIfAbsent(new Balance(counts), key -> new double[3]);
+                        sample[0]++;
+                        sample[1] += points;
+                        sample[2] += points * points;
+                        positions++;
+                    }
+                }
+                int comma = moves[ply].indexOf(',');
+                board.makeMove(new Move(Integer.parseInt(moves[ply].substring(0, comma)),
+                    Integer.parseInt(moves[ply].substring(comma + 1))), toMove);
+                toMove = toMove == CellState.X ? CellState.O : CellState.X;
+            }
+        }
+        for (Map.Entry<Balance, double[]> entry : local.entrySet()) {
+            samples.merge(entry.getKey(), entry.getValue(), (a, b) -> new double[] {a[0] + b[0], a[1] + b[1], a[2] + b[2]});
+        }
+        return positions;
+    }
+    
+    // Distinct pattern balances read so far
+    public int distinct() {
+        return samples.size();
+    }
+    
+    // Mean squared error of sigmoid(scale * evaluation) against the results, with weights[n] for n marks
+    public double error(double[] weights, double scale) {
+        double squares = 0;
+        double positions = 0;
+        for (Map.Entry<Balance, double[]> entry : samples.entrySet()) {
+            double[] sample = entry.getValue();
+            double predicted = sigmoid(scale * entry.getKey().dot(weights));
+            // Sum over the merged positions of (points - predicted)^2, expanded so it needs only the sums
+            squares += sample[0] * predicted * predicted - 2 * predicted * sample[1] + sample[2];
+            positions += sample[0];
+        }
+        return positions == 0 ? 0 : squares / positions;
+    }
+    
+    // The scale under which weights fit the results best - found once for the starting weights, then held fixed
+    // so the tuned weights stay in the engine's score units. Golden-section search over a log scale.
+    public double fitScale(double[] weights) {
+        double low = Math.log(1e-4);
+        double high = Math.log(10);
+        double ratio = (Math.sqrt(5) - 1) / 2;
+        for (int step = 0; step < 60; step++) {
+            double a = high - ratio * (high - low);
+            double b = low + ratio * (high - low);
+            if (error(weights, Math.exp(a)) < error(weights, Math.exp(b))) {
+                high = b;
+            } else {
+                low = a;
+            }
+        }
+        return Math.exp((low + high) / 2);
+    }
+    
+    // Gradient descent on the weights for 1 to k - 1 marks, halving the step whenever it overshoots
+    public double[] fit(double[] start, double scale, int iterations) {
+        double[] weights = start.clone();
+        double current = error(weights, scale);
+        double step = 1;
+        for (int iteration = 0; iteration < iterations && step > 1e-9; iteration++) {
+            double[] gradient = gradient(weights, scale);
+            double[] trial = weights.clone();
+            for (int marks = 1; marks < winLength; marks++) {
+                trial[marks] -= step * gradient[marks];
+            }
+            double next = error(trial, scale);
+            if (next < current) {
+                weights = trial;
+                current = next;
+                step *= 1.5;
+            } else {
+                step /= 2;
+            }
+        }
+        return weights;
+    }
+    
+    private double[] gradient(double[] weights, double scale) {
+        double[] gradient = new double[winLength + 1];
+        double positions = 0;
+        for (Map.Entry<Balance, double[]> entry : samples.entrySet()) {
+            double[] sample = entry.getValue();
+            Balance balance = entry.getKey();
+            double predicted = sigmoid(scale * balance.dot(weights));
+            // d/dw of sum (result - predicted)^2 = 2 (n * predicted - points) * predicted' * scale * balance
+            double factor = 2 * (sample[0] * predicted - sample[1]) * predicted * (1 - predicted) * scale;
+            for (int marks = 1; marks < winLength; marks++) {
+                gradient[marks] += factor * balance.counts[marks];
+            }
+            positions += sample[0];
+        }
+        for (int marks = 1; marks < winLength; marks++) {
+            gradient[marks] /= positions;
+        }
+        return gradient;
+    }
+    
+    private static double sigmoid(double x) {
+        return 1 / (1 + Math.exp(-x));
+    }
+    
+    // Rounds fitted weights to the engine's integer scores
+    public PatternWeights toWeights(double[] weights) {
+        int[] rounded = new int[winLength + 1];
+        for (int marks = 1; marks < winLength; marks++) {
+            rounded[marks] = (int) Math.round(weights[marks]);
+        }
+        return new PatternWeights(winLength, rounded);
+    }
+    
+    private static double[] toDoubles(PatternWeights weights) {
+        double[] values = new double[weights.getWinLength() + 1];
+        for (int marks = 1; marks < values.length - 1; marks++) {
+            values[marks] = weights.get(marks);
+        }
+        return values;
+    }
+    
+    // A bounded queue with the caller running overflow, so a fast reader never holds more than a few batches
+    private static ExecutorService newWorkers(int threads) {
+        return new ThreadPoolExecutor(threads, threads, 0, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * QUEUED_BATCHES), new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+    
+    private static void await(ExecutorService workers, List<Future<?>> pending) {
+        for (Future<?> result : pending) {
+            get(result);
+        }
+        workers.shutdown();
+    }
+    
+    private static <T> T get(Future<T> result) {
+        try {
+            return result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while tuning", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw new UncheckedIOException((IOException) e.getCause());
+            }
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+    
+    // One position's X windows minus O windows per mark count - the features the weights multiply
+    private static final class Balance {
+        private final int[] counts;
+        private final int hash;
+        
+        Balance(LineCounts lines) {
+            counts = new int[lines.getWinLength()];
+            for (int marks = 1; marks < counts.length; marks++) {
+                counts[marks] = lines.get(CellState.X, marks) - lines.get(CellState.O, marks);
+            }
+            hash = Arrays.hashCode(counts);
+        }
+        
+        double dot(double[] weights) {
+            double sum = 0;
+            for (int marks = 1; marks < counts.length; marks++) {
+                sum += weights[marks] * counts[marks];
+            }
+            return sum;
+        }
+        
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof Balance && Arrays.equals(counts, ((Balance) other).counts);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+    
+    // Usage:
+    //   PatternTuner generate <board spec> <games file> [--games N] [--level L] [--threads N] [--seed N]
+    //   PatternTuner tune <board spec> <games file> <weights file> [--skip N] [--iterations N] [--threads N]
+    //   PatternTuner compare <board spec> <weights file> [--games N] [--level L] [--against L] [--seed N]
+    // tune adds or replaces the board's line in the weights file; compare plays the file's weights at level
+    // against the built-in ones at the --against level (the same level unless given), and reports the score of
+    // the file's weights
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: PatternTuner generate|tune|compare <board spec> <file> ...");
+            System.exit(2);
+        }
+        BoardSpec spec = BoardSpec.parse(args[1]);
+        Path file = Paths.get(args[2]);
+        Path weightsFile = "tune".equals(args[0]) && args.length > 3 ? Paths.get(args[3]) : file;
+        int games = 1000;
+        int level = Difficulty.MEDIUM.getStrength().getLevel();
+        int threads = Runtime.getRuntime().availableProcessors();
+        long seed = 1;
+        int skip = 4;
+        int iterations = 1000;
+        int against = 0;
+        for (int i = 3; i < args.length; i++) {
+            if ("--games".equals(args[i]) && i + 1 < args.length) {
+                games = Integer.parseInt(args[++i]);
+            } else if ("--level".equals(args[i]) && i + 1 < args.length) {
+                level = Integer.parseInt(args[++i]);
+            } else if ("--against".equals(args[i]) && i + 1 < args.length) {
+                against = Integer.parseInt(args[++i]);
+            } else if ("--threads".equals(args[i]) && i + 1 < args.length) {
+                threads = Integer.parseInt(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if ("--skip".equals(args[i]) && i + 1 < args.length) {
+                skip = Integer.parseInt(args[++i]);
+            } else if ("--iterations".equals(args[i]) && i + 1 < args.length) {
+                iterations = Integer.parseInt(args[++i]);
+            }
+        }
+        long start = System.nanoTime();
+        if ("generate".equals(args[0])) {
+            try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                generate(spec, games, Strength.withBlunderRate(level, 0), threads, seed, out);
+            }
+            System.out.printf(Locale.ROOT, "%d games of %s at level %d in %.1f s%n", games, spec, level,
+                (System.nanoTime() - start) / 1e9);
+        } else if ("tune".equals(args[0])) {
+            PatternTuner tuner = new PatternTuner(spec);
+            long positions;
+            try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+                positions = tuner.read(in, skip, threads);
+            }
+            double[] initial = toDoubles(PatternWeights.defaults(spec.getWinLength()));
+            double scale = tuner.fitScale(initial);
+            double[] fitted = tuner.fit(initial, scale, iterations);
+            PatternWeights tuned = tuner.toWeights(fitted);
+            System.out.printf(Locale.ROOT, "%d positions (%d distinct) in %.1f s, scale %.4f%n", positions,
+                tuner.distinct(), (System.nanoTime() - start) / 1e9, scale);
+            System.out.printf(Locale.ROOT, "built-in %s error %.6f%n", PatternWeights.defaults(spec.getWinLength()),
+                tuner.error(initial, scale));
+            System.out.printf(Locale.ROOT, "fitted   %s error %.6f%n", Arrays.toString(fitted), tuner.error(fitted, scale));
+            System.out.printf(Locale.ROOT, "tuned    %s error %.6f%n", tuned, tuner.error(toDoubles(tuned), scale));
+            Map<BoardSpec, PatternWeights> all = Files.exists(weightsFile)
+                ? PatternWeights.load(weightsFile) : new LinkedHashMap<>();
+            all.put(spec, tuned);
+            PatternWeights.save(weightsFile, all);
+        } else if ("compare".equals(args[0])) {
+            PatternWeights tuned = PatternWeights.load(file).get(spec);
+            if (tuned == null) {
+                throw new IllegalArgumentException("No weights for " + spec + " in " + file);
+            }
+            Strength opponent = Strength.of(against > 0 ? against : level);
+            double points = compare(spec, tuned, Strength.of(level), opponent, games, seed);
+            System.out.printf(Locale.ROOT, "%s at level %d: %.1f / %d against the built-in weights at level %d (%.0f%%)%n",
+                tuned, level, points, games / 2 * 2, opponent.getLevel(), 100 * points / (games / 2 * 2));
+        }
+    }
+    
+    // Points for weights at level over games against the built-in weights at opponent, half with each colour
+    static double compare(BoardSpec spec, PatternWeights weights, Strength level, Strength opponent, int games, long seed) {
+        Random random = new Random(seed);
+        double points = 0;
+        for (int game = 0; game < games / 2 * 2; game++) {
+            CellState tuned = game % 2 == 0 ? CellState.X : CellState.O;
+            ComputerPlayer x = new ComputerPlayer(CellState.X, "X", tuned == CellState.X ? level : opponent,
+                new HeapTranspositionTable(14), random);
+            ComputerPlayer o = new ComputerPlayer(CellState.O, "O", tuned == CellState.O ? level : opponent,
+                new HeapTranspositionTable(14), random);
+            (tuned == CellState.X ? x : o).setWeights(weights);
+            (tuned == CellState.X ? o : x).setWeights(PatternWeights.defaults(spec.getWinLength()));
+            GameEngine engine = new GameEngine(x, o, spec);
+            while (engine.getState() == GameState.PLAYING) {
+                engine.processMove(engine.getComputerMove());
+            }
+            GameState state = engine.getState();
+            if (state == GameState.DRAW) {
+                points += 0.5;
+            } else if ((state == GameState.X_WINS) == (tuned == CellState.X)) {
+                points += 1;
+            }
+        }
+        return points;
+    }
+}
+
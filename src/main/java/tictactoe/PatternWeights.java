@@ -0,0 +1,178 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+
+// Evaluation weights for one win length (immutable): what a window holding n marks of one side and none of the
+// other's is worth to that side. The built-in weights only score windows one mark short, at 3 each. PatternTuner
+// fits weights from self-play. At startup the weights file packaged as tictactoe/patterns.txt is loaded from the
+// classpath, or the file named by -Dtictactoe.weights instead.
+public final class PatternWeights {
+    private static final Logger LOG = Logger.getLogger("tictactoe.weights");
+    
+    // Weight of a window one mark short of a line when no weights file covers the board
+    static final int DEFAULT_WEIGHT = 3;
+    
+    static final String RESOURCE = "patterns.txt";
+    
+    private static final Map<BoardSpec, PatternWeights> LOADED = loadAtStartup(System.getProperty("tictactoe.weights"));
+    
+    private final int winLength;
+    private final int[] weights;
+    
+    // weights[n] for n = 0..k - the empty and complete windows must weigh nothing
+    PatternWeights(int winLength, int[] weights) {
+        if (weights.length != winLength + 1) {
+            throw new IllegalArgumentException("Need " + (winLength + 1) + " weights for win length " + winLength);
+        }
+        if (weights[0] != 0 || weights[winLength] != 0) {
+            throw new IllegalArgumentException("Empty and complete windows must weigh 0: " + Arrays.toString(weights));
+        }
+        this.winLength = winLength;
+        this.weights = weights.clone();
+    }
+    
+    public static PatternWeights defaults(int winLength) {
+        int[] weights = new int[winLength + 1];
+        if (winLength > 1) {
+            weights[winLength - 1] = DEFAULT_WEIGHT;
+        }
+        return new PatternWeights(winLength, weights);
+    }
+    
+    // The weights the engine evaluates spec with - from the startup weights file if it has a line for spec
+    public static PatternWeights forSpec(BoardSpec spec) {
+        PatternWeights loaded = LOADED.get(spec);
+        return loaded != null ? loaded : defaults(spec.getWinLength());
+    }
+    
+    public int getWinLength() {
+        return winLength;
+    }
+    
+    // Worth of a window holding marks of one side and none of the other's
+    public int get(int marks) {
+        return weights[marks];
+    }
+    
+    // X's worth of one window holding xs X marks and os O marks - blocked windows are worth nothing to either side
+    int window(int xs, int os) {
+        if (os == 0) {
+            return weights[xs];
+        }
+        return xs == 0 ? -weights[os] : 0;
+    }
+    
+    // X's worth of a whole board's windows
+    int score(LineCounts counts) {
+        int score = 0;
+        for (int marks = 1; marks < winLength; marks++) {
+            score += weights[marks] * (counts.get(CellState.X, marks) - counts.get(CellState.O, marks));
+        }
+        return score;
+    }
+    
+    // Reads a weights file: one line per board spec, "15x15k5 0 1 4 9" with the weights for 1 to k - 1 marks.
+    // '#' starts a comment.
+    public static Map<BoardSpec, PatternWeights> load(Path file) throws IOException {
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            return load(in);
+        }
+    }
+    
+    // The same from an open reader, e.g. over the packaged resource
+    static Map<BoardSpec, PatternWeights> load(BufferedReader in) throws IOException {
+        Map<BoardSpec, PatternWeights> loaded = new LinkedHashMap<>();
+        String text;
+        while ((text = in.readLine()) != null) {
+            int comment = text.indexOf('#');
+            String record = (comment >= 0 ? text.substring(0, comment) : text).trim();
+            if (record.isEmpty()) {
+                continue;
+            }
+            String[] fields = record.split("\\s+");
+            BoardSpec spec = BoardSpec.parse(fields[0]);
+            int k = spec.getWinLength();
+            if (fields.length != k) {
+                throw new IllegalArgumentException("Need " + (k - 1) + " weights for " + spec + ": " + record);
+            }
+            int[] weights = new int[k + 1];
+            for (int marks = 1; marks < k; marks++) {
+                weights[marks] = Integer.parseInt(fields[marks]);
+            }
+            loaded.put(spec, new PatternWeights(k, weights));
+        }
+        return loaded;
+    }
+    
+    // Writes weights in the form load reads, replacing the file
+    public static void save(Path file, Map<BoardSpec, PatternWeights> weights) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            out.write("# board spec, then the weight of a window holding 1 to k - 1 marks of one side\n");
+            for (Map.Entry<BoardSpec, PatternWeights> entry : weights.entrySet()) {
+                out.write(entry.getKey() + entry.getValue().toLine() + "\n");
+            }
+        }
+    }
+    
+    private String toLine() {
+        StringBuilder line = new StringBuilder();
+        for (int marks = 1; marks < winLength; marks++) {
+            line.append(' ').append(weights[marks]);
+        }
+        return line.toString();
+    }
+    
+    // The file if one is named, else the packaged resource. Weights that cannot be read leave the built-in weights
+    // in place rather than stopping the game.
+    private static Map<BoardSpec, PatternWeights> loadAtStartup(String file) {
+        String source = file != null ? file : RESOURCE;
+        try {
+            if (file != null) {
+                return load(Paths.get(file));
+            }
+            InputStream resource = PatternWeights.class.getResourceAsStream(RESOURCE);
+            if (resource == null) {
+                LOG.warning("No packaged weights " + RESOURCE + " on the classpath - using the built-in weights");
+                return Collections.emptyMap();
+            }
+            try (BufferedReader in = new BufferedReader(new InputStreamReader(resource, StandardCharsets.UTF_8))) {
+                return load(in);
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            LOG.warning("Ignoring weights file " + source + ": " + e.getMessage());
+            return Collections.emptyMap();
+        }
+    }
+    
+    @Override
+    public boolean equals(Object other) {
+        if (!(other instanceof PatternWeights)) {
+            return false;
+        }
+        return Arrays.equals(weights, ((PatternWeights) other).weights);
+    }
+    
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(weights);
+    }
+    
+    @Override
+    public String toString() {
+        return "PatternWeights(k=" + winLength + "," + toLine() + ")";
+    }
+}
+
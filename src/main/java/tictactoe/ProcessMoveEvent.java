@@ -0,0 +1,32 @@
+package tictactoe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event spanning GameEngine.processMove()
+@Name("tictactoe.ProcessMove")
+@Label("Process Move")
+@Category({"Tic-Tac-Toe", "Engine"})
+@Description("Move submitted to the game engine and the state it led to")
+@StackTrace(false)
+class ProcessMoveEvent extends Event {
+    @Label("Mark")
+    String mark;
+    
+    @Label("Row")
+    int row;
+    
+    @Label("Column")
+    int col;
+    
+    @Label("Accepted")
+    boolean accepted;
+    
+    @Label("Resulting State")
+    String state;
+}
+
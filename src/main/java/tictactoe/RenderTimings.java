@@ -0,0 +1,74 @@
+package tictactoe;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import javax.swing.Timer;
+
+// Opt-in GUI timing (-Dtictactoe.gui.timing=true) - panel paint times and EDT busy share, logged every 5 seconds
+final class RenderTimings {
+    private static final boolean ENABLED = Boolean.getBoolean("tictactoe.gui.timing");
+    private static final Logger LOG = Logger.getLogger("tictactoe.gui");
+    private static final int REPORT_MILLIS = 5000;
+    
+    // Only touched on the EDT, so plain fields are enough
+    private static final Map<String, long[]> paints = new LinkedHashMap<>();
+    private static long dispatchNanos;
+    private static long windowStart;
+    
+    private RenderTimings() {
+    }
+    
+    // Wraps the event queue to time every dispatched event - call once, on the EDT
+    static void install() {
+        if (!ENABLED) {
+            return;
+        }
+        Toolkit.getDefaultToolkit().getSystemEventQueue().push(new EventQueue() {
+            @Override
+            protected void dispatchEvent(AWTEvent event) {
+                long start = System.nanoTime();
+                super.dispatchEvent(event);
+                dispatchNanos += System.nanoTime() - start;
+            }
+        });
+        windowStart = System.nanoTime();
+        new Timer(REPORT_MILLIS, e -> report()).start();
+    }
+    
+    static long start() {
+        return ENABLED ? System.nanoTime() : 0;
+    }
+    
+    // Records one paintComponent call as {count, total nanos, max nanos}
+    static void painted(String panel, long start) {
+        if (!ENABLED) {
+            return;
+        }
+        long nanos = System.nanoTime() - start;
+        long[] stats = paints.computeIfAbsent(panel, key -> new long[3]);
+        stats[0]++;
+        stats[1] += nanos;
+        stats[2] = Math.max(stats[2], nanos);
+    }
+    
+    private static void report() {
+        long now = System.nanoTime();
+        StringBuilder line = new StringBuilder(String.format("edtBusy=%.1f%%", 100.0 * dispatchNanos / (now - windowStart)));
+        for (Map.Entry<String, long[]> entry : paints.entrySet()) {
+            long[] stats = entry.getValue();
+            if (stats[0] > 0) {
+                line.append(String.format(" %s.paints=%d %s.avgUs=%d %s.maxUs=%d", entry.getKey(), stats[0],
+                    entry.getKey(), stats[1] / stats[0] / 1000, entry.getKey(), stats[2] / 1000));
+            }
+        }
+        LOG.info(line.toString());
+        paints.clear();
+        dispatchNanos = 0;
+        windowStart = now;
+    }
+}
+
@@ -0,0 +1,118 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+// Alpha-beta search over any GameRules through the GamePosition interface - negamax with iterative deepening, a
+// transposition table and a principal variation, on the same score scale as ComputerPlayer's own search. It has
+// none of that search's m,n,k specialisations (symmetry keys, neighbour move lists, incremental evaluation), so
+// ComputerPlayer only runs it for rules without a fast path. One instance per search.
+final class RulesSearch extends IterativeSearch {
+    private final TranspositionTable table;
+    private final Random random;
+    
+    RulesSearch(GamePosition root, TranspositionTable table, Random random, int maxDepth, long nodeLimit,
+            SearchLimits limits, int evalNoise, SearchListener listener) {
+        super(maxDepth, maxDepth + 2, root.getBoard().getCols());
+        this.table = table;
+        this.random = random;
+        this.nodeLimit = nodeLimit;
+        this.limits = limits;
+        this.evalNoise = evalNoise;
+        this.listener = listener;
+    }
+    
+    // Best move for the side to move in position. The position is left as it was found.
+    SearchResult run(GamePosition position) {
+        int count = position.legalMoves(buffer(0, position));
+        SearchResult result = deepen(count, maxDepth, (cell, depth, alpha) -> {
+            position.play(cell);
+            int score = -negamax(position, 0, depth - 1, -ComputerPlayer.INFINITY, -alpha);
+            position.undo();
+            return score;
+        });
+        if (result == null) {
+            return new SearchResult(null, 0, 0, counters.finish(System.nanoTime() - start, new ArrayList<>()));
+        }
+        return result;
+    }
+    
+    private int negamax(GamePosition position, int depth, int remaining, int alpha, int beta) {
+        int ply = depth + 1;
+        if (enterNode(ply)) {
+            return 0;
+        }
+        
+        GameState outcome = position.getOutcome();
+        if (outcome == GameState.DRAW) {
+            return 0;
+        }
+        if (outcome != GameState.PLAYING) {
+            boolean won = (outcome == GameState.X_WINS) == (position.getToMove() == CellState.X);
+            return won ? ComputerPlayer.WIN_SCORE - depth : depth - ComputerPlayer.WIN_SCORE;
+        }
+        if (remaining <= 0) {
+            int score = position.evaluate();
+            if (evalNoise > 0) {
+                score += random.nextInt(2 * evalNoise + 1) - evalNoise;
+            }
+            return Math.max(-ComputerPlayer.MAX_EVAL, Math.min(ComputerPlayer.MAX_EVAL, score));
+        }
+        
+        long key = position.getKey();
+        long entry = probe(table, key);
+        if (entry != TranspositionTable.MISS) {
+            if (TranspositionTable.draft(entry) >= remaining) {
+                int stored = ComputerPlayer.fromTable(TranspositionTable.value(entry), depth);
+                int bound = TranspositionTable.bound(entry);
+                if (bound == TranspositionTable.EXACT) {
+                    return stored;
+                } else if (bound == TranspositionTable.LOWER_BOUND) {
+                    alpha = Math.max(alpha, stored);
+                } else {
+                    beta = Math.min(beta, stored);
+                }
+                if (alpha >= beta) {
+                    return stored;
+                }
+            }
+        }
+        
+        int originalAlpha = alpha;
+        int bestScore = -ComputerPlayer.INFINITY;
+        int count = position.legalMoves(buffer(ply, position));
+        int[] list = moves[ply];
+        for (int i = 0; i < count; i++) {
+            int cell = list[i];
+            position.play(cell);
+            int score = -negamax(position, depth + 1, remaining - 1, -beta, -alpha);
+            position.undo();
+            if (aborted) {
+                return 0; // nothing from an unfinished subtree reaches the table
+            }
+            bestScore = Math.max(bestScore, score);
+            if (score > alpha) {
+                alpha = score;
+                updatePv(ply, cell);
+            }
+            if (beta <= alpha) {
+                counters.betaCutoffs++;
+                if (i == 0) {
+                    counters.firstMoveCutoffs++;
+                }
+                break;
+            }
+        }
+        
+        store(table, key, bestScore, depth, remaining, originalAlpha, beta);
+        return bestScore;
+    }
+    
+    private int[] buffer(int ply, GamePosition position) {
+        if (moves[ply] == null) {
+            moves[ply] = new int[position.getBoard().cellCount()];
+        }
+        return moves[ply];
+    }
+}
+
@@ -0,0 +1,30 @@
+package tictactoe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event spanning one iterative-deepening iteration
+@Name("tictactoe.SearchIteration")
+@Label("Search Iteration")
+@Category({"Tic-Tac-Toe", "Search"})
+@Description("One iterative-deepening pass of the computer player's search")
+@StackTrace(false)
+class SearchIterationEvent extends Event {
+    @Label("Depth")
+    int depth;
+    
+    @Label("Best Move")
+    String bestMove;
+    
+    @Label("Score")
+    int score;
+    
+    @Label("Nodes")
+    @Description("Nodes visited by the whole search so far")
+    long nodes;
+}
+
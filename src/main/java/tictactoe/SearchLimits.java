@@ -0,0 +1,118 @@
+package tictactoe;
+
+// Bounds for one computer search - depth, nodes, move time, open-ended (infinite/ponder) - plus its stop control.
+// The bounds are fixed at construction; stop() and ponderHit() may be called from any thread while the search runs.
+public final class SearchLimits {
+    private final int depth;
+    private final long nodes;
+    private final long moveTimeMillis;
+    private final boolean infinite;
+    
+    // Limits this search was derived from, if any - stopping them stops this one too
+    private final SearchLimits base;
+    
+    private volatile boolean pondering;
+    private volatile boolean stopped;
+    private volatile long deadline;
+    
+    // 0 for depth, nodes or moveTimeMillis means no limit of that kind; infinite searches until stop()
+    public SearchLimits(int depth, long nodes, long moveTimeMillis, boolean infinite, boolean ponder) {
+        this(depth, nodes, moveTimeMillis, infinite, ponder, null);
+    }
+    
+    private SearchLimits(int depth, long nodes, long moveTimeMillis, boolean infinite, boolean ponder, SearchLimits base) {
+        if (depth < 0 || nodes < 0 || moveTimeMillis < 0) {
+            throw new IllegalArgumentException("Search limits cannot be negative");
+        }
+        this.depth = depth;
+        this.nodes = nodes;
+        this.moveTimeMillis = moveTimeMillis;
+        this.infinite = infinite;
+        this.pondering = ponder;
+        this.base = base;
+    }
+    
+    // No limits beyond the player's difficulty, but still stoppable
+    public static SearchLimits none() {
+        return new SearchLimits(0, 0, 0, false, false);
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    // These limits with a move time of moveTimeMillis as well (the shorter one if both have one) - a clock's budget
+    // on top of the caller's bounds. Stopping these limits also stops the returned ones, but not the other way round.
+    public SearchLimits withMoveTime(long moveTimeMillis) {
+        long time = this.moveTimeMillis == 0 ? moveTimeMillis
+            : moveTimeMillis == 0 ? this.moveTimeMillis
+            : Math.min(this.moveTimeMillis, moveTimeMillis);
+        return new SearchLimits(depth, nodes, time, infinite, pondering, this);
+    }
+    
+    public long getMoveTimeMillis() {
+        return moveTimeMillis;
+    }
+    
+    // Whether the search deepens until a node, time or stop limit rather than to the difficulty's depth
+    boolean isOpenEnded() {
+        return nodes > 0 || moveTimeMillis > 0 || infinite || pondering;
+    }
+    
+    // Ends the search as soon as the searching thread next checks - the best move from the last completed depth is kept
+    public void stop() {
+        stopped = true;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+    
+    public boolean isStopped() {
+        return stopped || (base != null && base.isStopped());
+    }
+    
+    public boolean isInfinite() {
+        return infinite;
+    }
+    
+    public boolean isPondering() {
+        return pondering;
+    }
+    
+    // The opponent played the move being pondered on: the search carries on, now under its move time
+    public void ponderHit() {
+        if (moveTimeMillis > 0) {
+            deadline = System.nanoTime() + moveTimeMillis * 1_000_000;
+        }
+        pondering = false;
+        synchronized (this) {
+            notifyAll();
+        }
+    }
+    
+    // Called by the searching thread as it starts - the move time runs from here unless pondering
+    void start() {
+        if (moveTimeMillis > 0 && !pondering) {
+            deadline = System.nanoTime() + moveTimeMillis * 1_000_000;
+        }
+    }
+    
+    boolean isTimeUp() {
+        return isStopped() || (!pondering && moveTimeMillis > 0 && System.nanoTime() - deadline >= 0);
+    }
+    
+    // Blocks a finished infinite or pondering search until it is stopped or the ponder move is played, so its
+    // result is only reported when asked for
+    void awaitRelease() throws InterruptedException {
+        synchronized (this) {
+            while (!isStopped() && (infinite || pondering)) {
+                wait();
+            }
+        }
+    }
+}
+
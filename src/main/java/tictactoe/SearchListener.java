@@ -0,0 +1,8 @@
+package tictactoe;
+
+// Receives intermediate results while a computer player searches - called on the searching thread
+public interface SearchListener {
+    // Best move, score and stats so far, after each completed iterative-deepening depth
+    void iterationCompleted(SearchResult progress);
+}
+
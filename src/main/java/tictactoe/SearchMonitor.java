@@ -0,0 +1,113 @@
+package tictactoe;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+// Aggregates SearchStats from every computer move and publishes them over JMX (tictactoe:type=SearchMonitor)
+public class SearchMonitor implements SearchMonitorMXBean {
+    private static final Logger LOG = Logger.getLogger("tictactoe.search");
+    private static final SearchMonitor INSTANCE = register(new SearchMonitor());
+    
+    private final LongAdder searches = new LongAdder();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder elapsedNanos = new LongAdder();
+    private final LongAdder betaCutoffs = new LongAdder();
+    private final LongAdder firstMoveCutoffs = new LongAdder();
+    private final LongAdder tableProbes = new LongAdder();
+    private final LongAdder tableHits = new LongAdder();
+    private volatile SearchStats last;
+    
+    public static SearchMonitor getInstance() {
+        return INSTANCE;
+    }
+    
+    // Folds one finished search into the totals and emits the structured log line (at FINE, off by default)
+    public void record(Player player, SearchStats stats) {
+        searches.increment();
+        nodes.add(stats.getNodes());
+        elapsedNanos.add(stats.getElapsedNanos());
+        betaCutoffs.add(stats.getBetaCutoffs());
+        firstMoveCutoffs.add(stats.getFirstMoveCutoffs());
+        tableProbes.add(stats.getTableProbes());
+        tableHits.add(stats.getTableHits());
+        last = stats;
+        
+        if (LOG.isLoggable(Level.FINE)) {
+            LOG.fine("search player=" + player.getName().replace(' ', '_') + " mark=" + player.getMark()
+                + " " + stats.toLogLine());
+        }
+    }
+    
+    @Override
+    public long getSearches() {
+        return searches.sum();
+    }
+    
+    @Override
+    public long getTotalNodes() {
+        return nodes.sum();
+    }
+    
+    @Override
+    public long getAverageNodesPerSecond() {
+        long nanos = elapsedNanos.sum();
+        return nanos == 0 ? 0 : nodes.sum() * 1_000_000_000L / nanos;
+    }
+    
+    @Override
+    public double getTableHitRate() {
+        long probes = tableProbes.sum();
+        return probes == 0 ? 0 : (double) tableHits.sum() / probes;
+    }
+    
+    @Override
+    public double getFirstMoveCutoffRate() {
+        long cutoffs = betaCutoffs.sum();
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs.sum() / cutoffs;
+    }
+    
+    @Override
+    public long getLastNodes() {
+        SearchStats stats = last;
+        return stats == null ? 0 : stats.getNodes();
+    }
+    
+    @Override
+    public long getLastNodesPerSecond() {
+        SearchStats stats = last;
+        return stats == null ? 0 : stats.getNodesPerSecond();
+    }
+    
+    @Override
+    public long getLastElapsedMicros() {
+        SearchStats stats = last;
+        return stats == null ? 0 : stats.getElapsedNanos() / 1000;
+    }
+    
+    @Override
+    public int getLastMaxDepth() {
+        SearchStats stats = last;
+        return stats == null ? 0 : stats.getMaxDepth();
+    }
+    
+    @Override
+    public String getLastSummary() {
+        SearchStats stats = last;
+        return stats == null ? "" : stats.toLogLine();
+    }
+    
+    // Registration is best effort - a missing or locked-down MBean server must never break play
+    private static SearchMonitor register(SearchMonitor monitor) {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(monitor, new ObjectName("tictactoe:type=SearchMonitor"));
+        } catch (JMException | SecurityException e) {
+            LOG.log(Level.FINE, "SearchMonitor MBean not registered", e);
+        }
+        return monitor;
+    }
+}
+
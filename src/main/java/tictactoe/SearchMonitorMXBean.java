@@ -0,0 +1,25 @@
+package tictactoe;
+
+// JMX view of computer search instrumentation - totals since startup plus the most recent move
+public interface SearchMonitorMXBean {
+    long getSearches();
+    
+    long getTotalNodes();
+    
+    long getAverageNodesPerSecond();
+    
+    double getTableHitRate();
+    
+    double getFirstMoveCutoffRate();
+    
+    long getLastNodes();
+    
+    long getLastNodesPerSecond();
+    
+    long getLastElapsedMicros();
+    
+    int getLastMaxDepth();
+    
+    String getLastSummary();
+}
+
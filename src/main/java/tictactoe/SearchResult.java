@@ -0,0 +1,38 @@
+package tictactoe;
+
+// Outcome of one computer search - the chosen move, its score, the completed depth and instrumentation (immutable)
+public class SearchResult {
+    private final Move move;
+    private final int score;
+    private final int depth;
+    private final SearchStats stats;
+    
+    public SearchResult(Move move, int score, int depth, SearchStats stats) {
+        this.move = move;
+        this.score = score;
+        this.depth = depth;
+        this.stats = stats;
+    }
+    
+    public Move getMove() {
+        return move;
+    }
+    
+    public int getScore() {
+        return score;
+    }
+    
+    public int getDepth() {
+        return depth;
+    }
+    
+    public SearchStats getStats() {
+        return stats;
+    }
+    
+    @Override
+    public String toString() {
+        return "SearchResult(" + move + ", score=" + score + ", depth=" + depth + ")";
+    }
+}
+
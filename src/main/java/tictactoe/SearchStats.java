@@ -0,0 +1,134 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// Immutable instrumentation for one computer move - nodes, speed, depth, pruning and table efficiency, principal variation
+public class SearchStats {
+    private final long nodes;
+    private final long elapsedNanos;
+    private final int maxDepth;
+    private final long betaCutoffs;
+    private final long firstMoveCutoffs;
+    private final long tableProbes;
+    private final long tableHits;
+    private final long[] iterationNanos;
+    private final List<Move> principalVariation;
+    
+    private SearchStats(Counters counters, long elapsedNanos, List<Move> principalVariation) {
+        this.nodes = counters.nodes;
+        this.elapsedNanos = elapsedNanos;
+        this.maxDepth = counters.maxDepth;
+        this.betaCutoffs = counters.betaCutoffs;
+        this.firstMoveCutoffs = counters.firstMoveCutoffs;
+        this.tableProbes = counters.tableProbes;
+        this.tableHits = counters.tableHits;
+        this.iterationNanos = new long[counters.iterations];
+        System.arraycopy(counters.iterationNanos, 0, iterationNanos, 0, counters.iterations);
+        this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+    }
+    
+    public long getNodes() {
+        return nodes;
+    }
+    
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+    
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+    
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+    
+    public long getBetaCutoffs() {
+        return betaCutoffs;
+    }
+    
+    public long getFirstMoveCutoffs() {
+        return firstMoveCutoffs;
+    }
+    
+    // Share of cutoffs produced by the first move searched - close to 1.0 means move ordering is working
+    public double getFirstMoveCutoffRate() {
+        return betaCutoffs == 0 ? 0 : (double) firstMoveCutoffs / betaCutoffs;
+    }
+    
+    public long getTableProbes() {
+        return tableProbes;
+    }
+    
+    public long getTableHits() {
+        return tableHits;
+    }
+    
+    public int getIterations() {
+        return iterationNanos.length;
+    }
+    
+    public long getIterationNanos(int iteration) {
+        return iterationNanos[iteration];
+    }
+    
+    public List<Move> getPrincipalVariation() {
+        return principalVariation;
+    }
+    
+    // Single key=value line for log aggregation
+    public String toLogLine() {
+        StringBuilder line = new StringBuilder(160);
+        line.append("nodes=").append(nodes)
+            .append(" nps=").append(getNodesPerSecond())
+            .append(" timeUs=").append(elapsedNanos / 1000)
+            .append(" depth=").append(maxDepth)
+            .append(" cutoffs=").append(betaCutoffs)
+            .append(String.format(" firstCutoffRate=%.2f", getFirstMoveCutoffRate()))
+            .append(" ttProbes=").append(tableProbes)
+            .append(" ttHits=").append(tableHits)
+            .append(" iterationsUs=");
+        for (int i = 0; i < iterationNanos.length; i++) {
+            line.append(i == 0 ? "" : ",").append(iterationNanos[i] / 1000);
+        }
+        line.append(" pv=");
+        for (int i = 0; i < principalVariation.size(); i++) {
+            Move move = principalVariation.get(i);
+            line.append(i == 0 ? "" : ",").append(move.getRow()).append(':').append(move.getCol());
+        }
+        return line.toString();
+    }
+    
+    @Override
+    public String toString() {
+        return "SearchStats(" + toLogLine() + ")";
+    }
+    
+    // Plain per-search counters - confined to the searching thread, frozen into a SearchStats when the search ends
+    static final class Counters {
+        long nodes;
+        int maxDepth;
+        long betaCutoffs;
+        long firstMoveCutoffs;
+        long tableProbes;
+        long tableHits;
+        int iterations;
+        long[] iterationNanos = new long[16];
+        
+        void endIteration(long nanos) {
+            if (iterations == iterationNanos.length) {
+                long[] grown = new long[iterations * 2];
+                System.arraycopy(iterationNanos, 0, grown, 0, iterations);
+                iterationNanos = grown;
+            }
+            iterationNanos[iterations++] = nanos;
+        }
+        
+        SearchStats finish(long elapsedNanos, List<Move> principalVariation) {
+            return new SearchStats(this, elapsedNanos, principalVariation);
+        }
+    }
+}
+
@@ -0,0 +1,521 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+// Proof-number solver (depth-first proof-number search, df-pn) - proves a position won, lost or drawn for the side
+// to move on boards too big for a full minimax search. Proof and disproof numbers live in a fixed-size node store;
+// when it fills up the cheapest half is collected, solved subtrees first. One solve at a time per instance.
+public class Solver {
+    // Proof or disproof number of a settled question; sums saturate here
+    private static final int INFINITE = 1 << 30;
+    
+    private static final int DEFAULT_STORE_BITS = 20;
+    private static final long DEFAULT_NODE_BUDGET = 1_000_000;
+    
+    // Limits are polled once per this many nodes (a power of two)
+    private static final long POLL_INTERVAL = 256;
+    
+    // expand() results for a node decided without looking at its children
+    private static final int MOVER_WINS = -1;
+    private static final int MOVER_LOSES = -2;
+    private static final int NO_MOVES = -3;
+    
+    public enum Outcome {
+        WIN, LOSS, DRAW, UNKNOWN
+    }
+    
+    private final NodeStore store;
+    private final long nodeBudget;
+    
+    // Per-solve state
+    private CellState attacker;
+    private SearchLimits limits;
+    private long nodes;
+    private boolean aborted;
+    private int[][] moves;
+    private long[][] values;
+    private long[] nearX;
+    private long[] nearO;
+    
+    public Solver() {
+        this(DEFAULT_STORE_BITS, DEFAULT_NODE_BUDGET);
+    }
+    
+    // Keeps at most 3/4 of 2^storeBits nodes (20 bytes per slot) and gives up after nodeBudget expansions
+    public Solver(int storeBits, long nodeBudget) {
+        if (nodeBudget < 1) {
+            throw new IllegalArgumentException("Node budget must be positive");
+        }
+        this.store = new NodeStore(storeBits);
+        this.nodeBudget = nodeBudget;
+    }
+    
+    // Game-theoretic value of board for toMove: WIN or LOSS come with the line that forces them, UNKNOWN means the
+    // node budget ran out first
+    public Result solve(Board board, CellState toMove) {
+        return solve(board, toMove, null, false);
+    }
+    
+    // As solve(board, toMove), also stopping at limits (may be null). winOnly skips proving a non-win a loss or a
+    // draw - that comes back as UNKNOWN.
+    Result solve(Board board, CellState toMove, SearchLimits limits, boolean winOnly) {
+        if (board.hasWon(CellState.X) || board.hasWon(CellState.O)) {
+            throw new IllegalArgumentException("Game is already over");
+        }
+        long start = System.nanoTime();
+        Board work = new Board(board);
+        this.limits = limits;
+        nodes = 0;
+        aborted = false;
+        moves = new int[work.emptyCount() + 1][];
+        values = new long[work.emptyCount() + 1][];
+        nearX = new long[(work.cellCount() + 63) >>> 6];
+        nearO = new long[nearX.length];
+        
+        // Two yes/no questions: can the side to move force a win, and if not, can the opponent?
+        Outcome outcome = Outcome.UNKNOWN;
+        if (prove(work, toMove, toMove)) {
+            outcome = Outcome.WIN;
+        } else if (!aborted && !winOnly) {
+            outcome = prove(work, toMove, opponentOf(toMove)) ? Outcome.LOSS : aborted ? Outcome.UNKNOWN : Outcome.DRAW;
+        }
+        
+        List<Move> line = Collections.emptyList();
+        WinLine winLine = null;
+        if (outcome == Outcome.WIN || outcome == Outcome.LOSS) {
+            line = new ArrayList<>();
+            winLine = provenLine(work, toMove, line);
+        }
+        return new Result(outcome, line, winLine, nodes, store.collections, System.nanoTime() - start);
+    }
+    
+    // Runs df-pn from the root until attacker's win is proven or disproven (or the budget ends it)
+    private boolean prove(Board board, CellState toMove, CellState attacker) {
+        this.attacker = attacker;
+        store.clear();
+        mid(board, toMove, INFINITE, INFINITE, 0);
+        if (aborted) {
+            return false;
+        }
+        int slot = store.find(board.canonicalKey());
+        return slot >= 0 && store.proof(slot) == 0;
+    }
+    
+    // Multiple iterative deepening: searches below the node until its proof number reaches thPn or its disproof
+    // number thDn, always descending into the most-proving child
+    private void mid(Board board, CellState toMove, int thPn, int thDn, int ply) {
+        nodes++;
+        if (nodes > nodeBudget || ((nodes & (POLL_INTERVAL - 1)) == 0 && limits != null && limits.isTimeUp())) {
+            aborted = true;
+            return;
+        }
+        long key = board.canonicalKey();
+        boolean or = toMove == attacker;
+        int count = expand(board, toMove, ply);
+        if (count < 0) {
+            boolean proven = count == MOVER_WINS ? or : count == MOVER_LOSES && !or;
+            store.put(key, proven ? 0 : INFINITE, proven ? INFINITE : 0, 1);
+            return;
+        }
+        
+        int[] children = moves[ply];
+        if (values[ply] == null) {
+            values[ply] = new long[board.cellCount()];
+        }
+        // Child numbers are looked up once; after that only the child just searched can have changed
+        long[] childValues = values[ply];
+        for (int i = 0; i < count; i++) {
+            childValues[i] = childValue(board, children[i], toMove);
+        }
+        long startNodes = nodes;
+        CellState next = opponentOf(toMove);
+        int pn;
+        int dn;
+        while (true) {
+            // OR node: proof is the smallest child proof, disproof the sum of child disproofs; AND node the reverse
+            int best = -1;
+            int bestPn = 0;
+            int bestDn = 0;
+            int second = INFINITE;
+            int min = INFINITE;
+            int sum = 0;
+            for (int i = 0; i < count; i++) {
+                long value = childValues[i];
+                int childPn = (int) (value >>> 32);
+                int childDn = (int) value;
+                int minor = or ? childPn : childDn;
+                int major = or ? childDn : childPn;
+                sum = (int) Math.min(INFINITE, (long) sum + major);
+                if (minor < min) {
+                    second = min;
+                    min = minor;
+                    best = i;
+                    bestPn = childPn;
+                    bestDn = childDn;
+                } else if (minor < second) {
+                    second = minor;
+                }
+            }
+            pn = or ? min : sum;
+            dn = or ? sum : min;
+            if (pn >= thPn || dn >= thDn) {
+                break;
+            }
+            
+            int childThPn;
+            int childThDn;
+            if (or) {
+                childThPn = Math.min(thPn, second + 1);
+                childThDn = Math.min(INFINITE, thDn - dn + bestDn);
+            } else {
+                childThPn = Math.min(INFINITE, thPn - pn + bestPn);
+                childThDn = Math.min(thDn, second + 1);
+            }
+            int cell = children[best];
+            board.place(cell, toMove);
+            mid(board, next, childThPn, childThDn, ply + 1);
+            board.remove(cell);
+            if (aborted) {
+                return; // nothing from an unfinished subtree reaches the store
+            }
+            childValues[best] = childValue(board, cell, toMove);
+        }
+        store.put(key, pn, dn, (int) Math.min(Integer.MAX_VALUE, nodes - startNodes + 1));
+    }
+    
+    // Proof and disproof number of the position after toMove plays cell, packed pn << 32 | dn: from the store,
+    // 0/INFINITE for a full board (a draw is a disproof), else 1/1 for a node never searched. expand() never lists
+    // a move that completes a line, so children are not won positions.
+    private long childValue(Board board, int cell, CellState toMove) {
+        if (board.emptyCount() == 1) {
+            return (long) INFINITE << 32;
+        }
+        int slot = store.find(board.keyAfter(cell, toMove));
+        if (slot < 0) {
+            return 1L << 32 | 1;
+        }
+        return (long) store.proof(slot) << 32 | store.disproof(slot);
+    }
+    
+    // Fills moves[ply] with toMove's moves worth trying and returns the count - or decides the node outright:
+    // MOVER_WINS with a line to complete, MOVER_LOSES when the opponent has two it cannot both block, NO_MOVES when
+    // the board is full. One opponent win to block is the only move.
+    private int expand(Board board, CellState toMove, int ply) {
+        if (board.emptyCount() == 0) {
+            return NO_MOVES;
+        }
+        markNeighbours(board);
+        if (findWin(board, toMove, -1) >= 0) {
+            return MOVER_WINS;
+        }
+        if (moves[ply] == null) {
+            moves[ply] = new int[board.cellCount()];
+        }
+        int[] list = moves[ply];
+        int block = findWin(board, opponentOf(toMove), -1);
+        if (block >= 0) {
+            if (findWin(board, opponentOf(toMove), block) >= 0) {
+                return MOVER_LOSES;
+            }
+            list[0] = block;
+            return 1;
+        }
+        
+        // Every empty cell is legal, but those next to a mark are tried first
+        int count = 0;
+        int centre = board.emptyCount() == board.cellCount() ? (board.getRows() / 2) * board.getCols() + board.getCols() / 2 : -1;
+        if (centre >= 0) {
+            list[count++] = centre; // nothing is near anything on an empty board
+        }
+        for (int pass = 0; pass < 2; pass++) {
+            for (int cell = 0; cell < board.cellCount(); cell++) {
+                boolean near = (((nearX[cell >>> 6] | nearO[cell >>> 6]) >>> cell) & 1) != 0;
+                if (cell != centre && board.isEmptyAt(cell) && near == (pass == 0)) {
+                    list[count++] = cell;
+                }
+            }
+        }
+        return count;
+    }
+    
+    // Sets nearX and nearO to the cells next to (or holding) an X or an O
+    private void markNeighbours(Board board) {
+        Arrays.fill(nearX, 0L);
+        Arrays.fill(nearO, 0L);
+        int cols = board.getCols();
+        int rows = board.getRows();
+        for (int cell = 0; cell < board.cellCount(); cell++) {
+            CellState mark = board.cellAt(cell);
+            if (mark == CellState.EMPTY) {
+                continue;
+            }
+            long[] near = mark == CellState.X ? nearX : nearO;
+            int row = cell / cols;
+            int col = cell % cols;
+            for (int r = Math.max(0, row - 1); r <= Math.min(rows - 1, row + 1); r++) {
+                for (int c = Math.max(0, col - 1); c <= Math.min(cols - 1, col + 1); c++) {
+                    near[(r * cols + c) >>> 6] |= 1L << (r * cols + c);
+                }
+            }
+        }
+    }
+    
+    // First empty cell other than skip where mark would complete a line, or -1. A completing cell always touches a
+    // mark of its own along the line, so only the cells markNeighbours() found next to one are tried.
+    private int findWin(Board board, CellState mark, int skip) {
+        boolean single = board.getSpec().getWinLength() == 1;
+        long[] near = mark == CellState.X ? nearX : nearO;
+        for (int word = 0; word < near.length; word++) {
+            for (long bits = single ? -1L : near[word]; bits != 0; bits &= bits - 1) {
+                int cell = (word << 6) + Long.numberOfTrailingZeros(bits);
+                if (cell >= board.cellCount()) {
+                    break;
+                }
+                if (cell == skip || !board.isEmptyAt(cell)) {
+                    continue;
+                }
+                board.place(cell, mark);
+                boolean wins = board.completesLine(cell, mark);
+                board.remove(cell);
+                if (wins) {
+                    return cell;
+                }
+            }
+        }
+        return -1;
+    }
+    
+    // Follows the proof from the root into line: the winner plays a proven move (the cheapest proof), the loser the
+    // reply that took longest to refute. Stops early where the store no longer holds the proof. Returns the
+    // completed line of marks, or null if the walk did not reach the end of the game.
+    private WinLine provenLine(Board board, CellState toMove, List<Move> line) {
+        int cols = board.getCols();
+        CellState mover = toMove;
+        for (int ply = 0; ; ply++) {
+            int count = expand(board, mover, ply);
+            int choice = -1;
+            if (count == MOVER_WINS) {
+                choice = findWin(board, mover, -1);
+            } else if (count == MOVER_LOSES) {
+                choice = findWin(board, opponentOf(mover), -1); // blocks one of the two, loses to the other
+            } else if (count > 0) {
+                int bestWork = -1;
+                boolean winner = mover == attacker;
+                for (int i = 0; i < count; i++) {
+                    int cell = moves[ply][i];
+                    int slot = board.emptyCount() == 1 ? -1 : store.find(board.keyAfter(cell, mover));
+                    if (slot < 0 || store.proof(slot) != 0) {
+                        continue;
+                    }
+                    int work = winner ? Integer.MAX_VALUE - store.work(slot) : store.work(slot);
+                    if (work > bestWork) {
+                        bestWork = work;
+                        choice = cell;
+                    }
+                }
+            }
+            if (choice < 0) {
+                return null;
+            }
+            board.place(choice, mover);
+            line.add(new Move(choice / cols, choice % cols));
+            WinLine win = board.winLineThrough(choice, mover);
+            if (win != null) {
+                return win;
+            }
+            mover = opponentOf(mover);
+        }
+    }
+    
+    private static CellState opponentOf(CellState mark) {
+        return mark == CellState.X ? CellState.O : CellState.X;
+    }
+    
+    // Whether toMove looks close to a forced win: at least two windows of the win length holding all but two of
+    // its marks and none of the opponent's - the material for a double threat
+    static boolean isForcingLikely(Board board, CellState toMove) {
+        LineCounts counts = LineCounts.of(board);
+        int k = counts.getWinLength();
+        int found = 0;
+        for (int marks = Math.max(1, k - 2); marks <= k; marks++) {
+            found += counts.get(toMove, marks);
+        }
+        return found >= 2;
+    }
+    
+    // Outcome of one solve (immutable)
+    public static final class Result {
+        private final Outcome outcome;
+        private final List<Move> line;
+        private final WinLine winLine;
+        private final long nodes;
+        private final int collections;
+        private final long elapsedNanos;
+        
+        private Result(Outcome outcome, List<Move> line, WinLine winLine, long nodes, int collections, long elapsedNanos) {
+            this.outcome = outcome;
+            this.line = Collections.unmodifiableList(line);
+            this.winLine = winLine;
+            this.nodes = nodes;
+            this.collections = collections;
+            this.elapsedNanos = elapsedNanos;
+        }
+        
+        public Outcome getOutcome() {
+            return outcome;
+        }
+        
+        // Moves of the forced line from the solved position, alternating from the side to move - empty unless
+        // WIN or LOSS
+        public List<Move> getLine() {
+            return line;
+        }
+        
+        // The row of marks that ends the forced line, or null if the line could not be followed to the end
+        public WinLine getWinLine() {
+            return winLine;
+        }
+        
+        public long getNodes() {
+            return nodes;
+        }
+        
+        // Times the node store was full and had to be collected
+        public int getCollections() {
+            return collections;
+        }
+        
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+        
+        @Override
+        public String toString() {
+            return "Solver.Result(" + outcome + ", line=" + line + ", nodes=" + nodes + ")";
+        }
+    }
+    
+    // Open-addressing table of proof numbers: a position key, pn and dn packed in one long, and the nodes spent
+    // below the position (0 marks a free slot). Filling past 3/4 triggers collect().
+    private static final class NodeStore {
+        private final int mask;
+        private final int limit;
+        private final long[] keys;
+        private final long[] numbers;
+        private final int[] work;
+        private int size;
+        private int collections;
+        
+        NodeStore(int bits) {
+            if (bits < 4 || bits > 28) {
+                throw new IllegalArgumentException("Store size out of range: 2^" + bits);
+            }
+            int slots = 1 << bits;
+            mask = slots - 1;
+            limit = slots / 4 * 3;
+            keys = new long[slots];
+            numbers = new long[slots];
+            work = new int[slots];
+        }
+        
+        void clear() {
+            Arrays.fill(work, 0);
+            size = 0;
+        }
+        
+        int find(long key) {
+            for (int slot = home(key); work[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return slot;
+                }
+            }
+            return -1;
+        }
+        
+        int proof(int slot) {
+            return (int) (numbers[slot] >>> 32);
+        }
+        
+        int disproof(int slot) {
+            return (int) numbers[slot];
+        }
+        
+        int work(int slot) {
+            return work[slot];
+        }
+        
+        void put(long key, int pn, int dn, int nodes) {
+            int slot = home(key);
+            while (work[slot] != 0 && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (work[slot] == 0) {
+                if (size >= limit) {
+                    collect();
+                    put(key, pn, dn, nodes);
+                    return;
+                }
+                size++;
+            }
+            keys[slot] = key;
+            numbers[slot] = (long) pn << 32 | dn;
+            work[slot] = Math.max(1, nodes);
+        }
+        
+        // Frees about half the store: the entries that cost least to rebuild, with a solved entry counted at a
+        // quarter of its work - once solved, its subtree matters only to a parent that already knows the answer
+        private void collect() {
+            collections++;
+            int[] weights = new int[size];
+            int n = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                if (work[slot] != 0) {
+                    weights[n++] = weight(slot);
+                }
+            }
+            Arrays.sort(weights);
+            int threshold = weights[n / 2];
+            boolean inclusive = weights[n / 4] == threshold; // many ties: drop them too rather than free too little
+            
+            long[] keptKeys = new long[n];
+            long[] keptNumbers = new long[n];
+            int[] keptWork = new int[n];
+            int kept = 0;
+            for (int slot = 0; slot <= mask; slot++) {
+                if (work[slot] != 0) {
+                    int weight = weight(slot);
+                    if (weight > threshold || (weight == threshold && !inclusive)) {
+                        keptKeys[kept] = keys[slot];
+                        keptNumbers[kept] = numbers[slot];
+                        keptWork[kept] = work[slot];
+                        kept++;
+                    }
+                }
+            }
+            clear();
+            for (int i = 0; i < kept; i++) {
+                int slot = home(keptKeys[i]);
+                while (work[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                keys[slot] = keptKeys[i];
+                numbers[slot] = keptNumbers[i];
+                work[slot] = keptWork[i];
+                size++;
+            }
+        }
+        
+        private int weight(int slot) {
+            boolean solved = proof(slot) == 0 || disproof(slot) == 0;
+            return solved ? work[slot] / 4 : work[slot];
+        }
+        
+        private int home(long key) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
+
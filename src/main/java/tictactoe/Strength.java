@@ -0,0 +1,131 @@
+package tictactoe;
+
+// Playing strength on a 1-20 scale (immutable). Each level is three knobs: a node budget for the search, noise added
+// to heuristic evaluations, and the chance of a blunder - a random move played without searching at all. Level 1
+// only blunders and level 20 is the full Hard search; the levels between cost CPU in proportion to their budget.
+// The blunder rates are calibrated by StrengthCalibrator so that neighbouring levels are a similar Elo gap apart,
+// with one table for small boards and one for large ones.
+public final class Strength {
+    public static final int MIN_LEVEL = 1;
+    public static final int MAX_LEVEL = 20;
+    
+    // Per level, index 0 = level 1, for boards every searching level solves from the first move (see isSmallBoard),
+    // where the blunders are all that separates the levels. Fitted by StrengthCalibrator on 3x3 (1000 games a
+    // measurement) for a 20 Elo gap between neighbours; level 1 only blunders, so it ends up about 105 Elo under
+    // level 2.
+    private static final double[] SMALL_BOARD_RATES = {
+        1.000, 0.727, 0.705, 0.640, 0.598, 0.538, 0.522, 0.505, 0.484, 0.435,
+        0.388, 0.317, 0.285, 0.213, 0.159, 0.123, 0.093, 0.065, 0.029, 0.000
+    };
+    
+    // Per level for every other board. Fitted on 15x15k5 (100 games a measurement) for the same 20 Elo gap: the node
+    // budgets and noise already space levels 4-19 further apart than that, so the fit leaves them at the lowest rate
+    // it can return.
+    private static final double[] LARGE_BOARD_RATES = {
+        1.000, 0.110, 0.101, 0.031, 0.029, 0.027, 0.025, 0.023, 0.021, 0.019,
+        0.017, 0.016, 0.014, 0.012, 0.010, 0.008, 0.006, 0.004, 0.002, 0.000
+    };
+    
+    private final int level;
+    private final long nodeBudget;
+    private final int evalNoise;
+    private final double smallBoardRate;
+    private final double largeBoardRate;
+    
+    private Strength(int level, long nodeBudget, int evalNoise, double smallBoardRate, double largeBoardRate) {
+        this.level = level;
+        this.nodeBudget = nodeBudget;
+        this.evalNoise = evalNoise;
+        this.smallBoardRate = smallBoardRate;
+        this.largeBoardRate = largeBoardRate;
+    }
+    
+    public static Strength of(int level) {
+        checkLevel(level);
+        return new Strength(level, nodeBudget(level), evalNoise(level), SMALL_BOARD_RATES[level - 1],
+            LARGE_BOARD_RATES[level - 1]);
+    }
+    
+    // Level with a trial blunder rate on every board - for calibration
+    static Strength withBlunderRate(int level, double blunderRate) {
+        checkLevel(level);
+        if (blunderRate < 0 || blunderRate > 1) {
+            throw new IllegalArgumentException("Blunder rate out of range: " + blunderRate);
+        }
+        return new Strength(level, nodeBudget(level), evalNoise(level), blunderRate, blunderRate);
+    }
+    
+    // A level number or a Difficulty name: "7", "hard"
+    public static Strength parse(String text) {
+        try {
+            return of(Integer.parseInt(text.trim()));
+        } catch (NumberFormatException e) {
+            return Difficulty.valueOf(text.trim().toUpperCase()).getStrength();
+        }
+    }
+    
+    public int getLevel() {
+        return level;
+    }
+    
+    // Most nodes one search may visit - 0 means no limit (level 20) or no search (level 1)
+    public long getNodeBudget() {
+        return nodeBudget;
+    }
+    
+    // Heuristic evaluations are shifted by a uniform random amount up to this, either way
+    public int getEvalNoise() {
+        return evalNoise;
+    }
+    
+    // Chance of a blunder on a board of spec
+    public double getBlunderRate(BoardSpec spec) {
+        return isSmallBoard(spec) ? smallBoardRate : largeBoardRate;
+    }
+    
+    // Boards where every level that searches plays the whole game exactly (EndgameSolver takes over from the first
+    // move), so node budgets and noise make no difference and the small-board rates apply
+    static boolean isSmallBoard(BoardSpec spec) {
+        return EndgameSolver.threshold(spec) >= spec.getCells();
+    }
+    
+    // The unrestricted Hard search
+    public boolean isPerfect() {
+        return level == MAX_LEVEL;
+    }
+    
+    // Budget doubles per level, from 32 nodes at level 2 to 2^22 at level 19
+    private static long nodeBudget(int level) {
+        return level == MIN_LEVEL || level == MAX_LEVEL ? 0 : 8L << level;
+    }
+    
+    private static int evalNoise(int level) {
+        return 2 * (MAX_LEVEL - level);
+    }
+    
+    private static void checkLevel(int level) {
+        if (level < MIN_LEVEL || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("Strength level out of range: " + level);
+        }
+    }
+    
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Strength)) {
+            return false;
+        }
+        Strength other = (Strength) o;
+        return level == other.level && smallBoardRate == other.smallBoardRate && largeBoardRate == other.largeBoardRate;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (level * 31 + Double.hashCode(smallBoardRate)) * 31 + Double.hashCode(largeBoardRate);
+    }
+    
+    @Override
+    public String toString() {
+        return "Strength(" + level + ", nodes=" + nodeBudget + ", noise=" + evalNoise + ", blunders=" + smallBoardRate + "/" + largeBoardRate + ")";
+    }
+}
+
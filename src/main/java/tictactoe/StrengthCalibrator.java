@@ -0,0 +1,157 @@
+package tictactoe;
+
+import java.util.Locale;
+import java.util.Random;
+import java.util.logging.ConsoleHandler;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+// Self-play calibration of the Strength scale. Measures the Elo gap between neighbouring levels, and fits the blunder
+// rates from the top down - level 20 never blunders, and each level below blunders just often enough to sit the
+// target gap under the level above. Prints the fitted table for the spec's Strength table: SMALL_BOARD_RATES for a
+// board every searching level solves whole (3x3), where only the blunder rates tell the levels apart, and
+// LARGE_BOARD_RATES for the rest. The defaults (15x15k5, 100 games, gap 20, seed 1) are the large-board fit's.
+public final class StrengthCalibrator {
+    // fit() logs each level's rate at FINE as it goes - main shows them, as a full fit takes hours
+    private static final Logger LOG = Logger.getLogger("tictactoe.calibration");
+    
+    // Bisection steps per level - the rate ends within 1/256 of the fit
+    private static final int FIT_STEPS = 8;
+    
+    static final BoardSpec DEFAULT_SPEC = BoardSpec.of(15, 15, 5);
+    
+    private final BoardSpec spec;
+    private final int games;
+    private final long seed;
+    
+    // games per measurement, half with each colour; every measurement replays the same seed, so trial blunder
+    // rates are compared over the same random choices
+    public StrengthCalibrator(BoardSpec spec, int games, long seed) {
+        if (games < 2) {
+            throw new IllegalArgumentException("Need at least two games per measurement");
+        }
+        this.spec = spec;
+        this.games = games;
+        this.seed = seed;
+    }
+    
+    // a's score against b as a fraction: 1 per win, 1/2 per draw
+    public double score(Strength a, Strength b) {
+        Random random = new Random(seed);
+        double points = play(a, b, CellState.X, random) + play(b, a, CellState.O, random);
+        return points / (games / 2 * 2);
+    }
+    
+    // Points for the tested side over half the games, tested playing X against other or O against it
+    private double play(Strength x, Strength o, CellState tested, Random random) {
+        GameEngine engine = new GameEngine(
+            new ComputerPlayer(CellState.X, "X", x, new HeapTranspositionTable(14), random),
+            new ComputerPlayer(CellState.O, "O", o, new HeapTranspositionTable(14), random),
+            spec);
+        double points = 0;
+        for (int game = 0; game < games / 2; game++) {
+            engine.reset();
+            while (engine.getState() == GameState.PLAYING) {
+                engine.processMove(engine.getComputerMove());
+            }
+            GameState state = engine.getState();
+            if (state == GameState.DRAW) {
+                points += 0.5;
+            } else if ((state == GameState.X_WINS) == (tested == CellState.X)) {
+                points += 1;
+            }
+        }
+        return points;
+    }
+    
+    // Elo difference implied by a score, clamped half a game from 0 and 1 so a clean sweep stays finite
+    public double elo(double score) {
+        double margin = 0.5 / games;
+        double clamped = Math.max(margin, Math.min(1 - margin, score));
+        return -400 * Math.log10(1 / clamped - 1);
+    }
+    
+    // Gap in Elo from each level to the next one up, index 0 = level 1 to 2
+    public double[] measure(double[] blunderRates) {
+        double[] gaps = new double[Strength.MAX_LEVEL - 1];
+        for (int level = Strength.MIN_LEVEL; level < Strength.MAX_LEVEL; level++) {
+            Strength lower = Strength.withBlunderRate(level, blunderRates[level - 1]);
+            Strength upper = Strength.withBlunderRate(level + 1, blunderRates[level]);
+            gaps[level - 1] = elo(score(upper, lower));
+        }
+        return gaps;
+    }
+    
+    // Blunder rates per level (index 0 = level 1) with targetGap Elo between neighbours. Level 1 stays at 1 - it
+    // only plays random moves - so its gap to level 2 is whatever is left.
+    public double[] fit(double targetGap) {
+        double[] rates = new double[Strength.MAX_LEVEL];
+        rates[0] = 1;
+        for (int level = Strength.MAX_LEVEL - 1; level > Strength.MIN_LEVEL; level--) {
+            Strength upper = Strength.withBlunderRate(level + 1, rates[level]);
+            double low = rates[level];
+            double high = 1;
+            for (int step = 0; step < FIT_STEPS; step++) {
+                double rate = (low + high) / 2;
+                if (elo(score(upper, Strength.withBlunderRate(level, rate))) < targetGap) {
+                    low = rate;
+                } else {
+                    high = rate;
+                }
+            }
+            rates[level - 1] = (low + high) / 2;
+            LOG.fine(String.format(Locale.ROOT, "level %d: blunder rate %.3f", level, rates[level - 1]));
+        }
+        return rates;
+    }
+    
+    // Usage: StrengthCalibrator [board spec] [--games N] [--gap ELO] [--seed N] [--measure]
+    // --measure reports the gaps of the current table instead of fitting a new one
+    public static void main(String[] args) {
+        BoardSpec spec = DEFAULT_SPEC;
+        int games = 100;
+        double gap = 20;
+        long seed = 1;
+        boolean measureOnly = false;
+        for (int i = 0; i < args.length; i++) {
+            if ("--games".equals(args[i]) && i + 1 < args.length) {
+                games = Integer.parseInt(args[++i]);
+            } else if ("--gap".equals(args[i]) && i + 1 < args.length) {
+                gap = Double.parseDouble(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            } else if ("--measure".equals(args[i])) {
+                measureOnly = true;
+            } else {
+                spec = BoardSpec.parse(args[i]);
+            }
+        }
+        ConsoleHandler progress = new ConsoleHandler();
+        progress.setLevel(Level.FINE);
+        LOG.addHandler(progress);
+        LOG.setLevel(Level.FINE);
+        LOG.setUseParentHandlers(false);
+        StrengthCalibrator calibrator = new StrengthCalibrator(spec, games, seed);
+        double[] rates = new double[Strength.MAX_LEVEL];
+        for (int level = Strength.MIN_LEVEL; level <= Strength.MAX_LEVEL; level++) {
+            rates[level - 1] = Strength.of(level).getBlunderRate(spec);
+        }
+        if (!measureOnly) {
+            rates = calibrator.fit(gap);
+            StringBuilder table = new StringBuilder(Strength.isSmallBoard(spec) ? "SMALL_BOARD_RATES" : "LARGE_BOARD_RATES")
+                .append(" = {");
+            for (int i = 0; i < rates.length; i++) {
+                table.append(i % 10 == 0 ? "\n    " : " ").append(String.format(Locale.ROOT, "%.3f", rates[i]))
+                    .append(i < rates.length - 1 ? "," : "\n};");
+            }
+            System.out.println(table);
+        }
+        double[] gaps = calibrator.measure(rates);
+        double total = 0;
+        for (int i = 0; i < gaps.length; i++) {
+            total += gaps[i];
+            System.out.printf(Locale.ROOT, "level %2d -> %2d: %+6.0f Elo (level %d at %+.0f over level 1)%n", i + 1, i + 2, gaps[i], i + 2, total);
+        }
+    }
+}
+
@@ -0,0 +1,26 @@
+package tictactoe;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+// JFR event with transposition table hits and misses for one search - one event per search, not per probe
+@Name("tictactoe.TableUsage")
+@Label("Transposition Table Usage")
+@Category({"Tic-Tac-Toe", "Search"})
+@Description("Transposition table hits and misses during one computer move")
+@StackTrace(false)
+class TableUsageEvent extends Event {
+    @Label("Probes")
+    long probes;
+    
+    @Label("Hits")
+    long hits;
+    
+    @Label("Misses")
+    long misses;
+}
+
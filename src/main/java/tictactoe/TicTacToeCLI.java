@@ -1,5 +1,13 @@
 package tictactoe;
 
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Scanner;
 
 // Command-line interface - thin I/O layer that delegates game logic to GameEngine (reusable with GUI)
@@ -60,7 +68,7 @@ public class TicTacToeCLI {
             
             Move move = parseMove(input);
             if (move == null) {
-                System.out.println("Invalid input. Please enter two numbers (row and column, 0-2).");
+                System.out.println("Invalid input. Please enter two numbers (" + describeRange() + ").");
                 continue;
             }
             
@@ -83,8 +91,9 @@ public class TicTacToeCLI {
             int row = Integer.parseInt(parts[0]);
             int col = Integer.parseInt(parts[1]);
             
-            // Validate range (0-2 for 3x3 board)
-            if (row < 0 || row > 2 || col < 0 || col > 2) {
+            // Validate range against the board's dimensions
+            Board board = engine.getBoard();
+            if (row < 0 || row >= board.getRows() || col < 0 || col >= board.getCols()) {
                 return null;
             }
             
@@ -96,21 +105,27 @@ public class TicTacToeCLI {
     
     // Prints the current board state
     private void printBoard() {
-        Board board = engine.getBoard();
-        System.out.println("\n  0   1   2");
-        for (int i = 0; i < board.getSize(); i++) {
+        BoardSnapshot board = engine.getSnapshot();
+        StringBuilder header = new StringBuilder("\n ");
+        StringBuilder divider = new StringBuilder("  ");
+        for (int j = 0; j < board.getCols(); j++) {
+            header.append(String.format(" %-3d", j));
+            divider.append(j < board.getCols() - 1 ? "----" : "-");
+        }
+        System.out.println(header.toString().replaceAll("\\s+$", ""));
+        for (int i = 0; i < board.getRows(); i++) {
             System.out.print(i + " ");
-            for (int j = 0; j < board.getSize(); j++) {
+            for (int j = 0; j < board.getCols(); j++) {
                 CellState cell = board.getCell(i, j);
                 char symbol = cellToChar(cell);
                 System.out.print(symbol);
-                if (j < board.getSize() - 1) {
+                if (j < board.getCols() - 1) {
                     System.out.print(" | ");
                 }
             }
             System.out.println();
-            if (i < board.getSize() - 1) {
-                System.out.println("  ---------");
+            if (i < board.getRows() - 1) {
+                System.out.println(divider);
             }
         }
         System.out.println();
@@ -137,10 +152,10 @@ public class TicTacToeCLI {
     private void printGameResult(GameState state) {
         switch (state) {
             case X_WINS:
-                System.out.println("X wins!");
+                System.out.println("X wins! " + describeEnding(engine.getWinLine()));
                 break;
             case O_WINS:
-                System.out.println("O wins!");
+                System.out.println("O wins! " + describeEnding(engine.getWinLine()));
                 break;
             case DRAW:
                 System.out.println("It's a draw!");
@@ -150,6 +165,33 @@ public class TicTacToeCLI {
         }
     }
     
+    // How the game was decided - no line means the loser's clock ran out, and under misere rules the line is the
+    // loser's run
+    private String describeEnding(WinLine line) {
+        if (line == null) {
+            return "(wins on time)";
+        }
+        GameRules rules = engine.getRules();
+        if (rules instanceof MnkRules && ((MnkRules) rules).isMisere()) {
+            return "(" + line.getMark() + " completed " + describeLine(line) + ")";
+        }
+        return "(" + describeLine(line) + ")";
+    }
+    
+    // "row 0, columns 0-2" style description of a run
+    private String describeLine(WinLine line) {
+        Move start = line.getStart();
+        Move end = line.getEnd();
+        switch (line.getDirection()) {
+            case HORIZONTAL:
+                return "row " + start.getRow() + ", columns " + start.getCol() + "-" + end.getCol();
+            case VERTICAL:
+                return "column " + start.getCol() + ", rows " + start.getRow() + "-" + end.getRow();
+            default:
+                return "diagonal from " + start.getRow() + " " + start.getCol() + " to " + end.getRow() + " " + end.getCol();
+        }
+    }
+    
     // Asks player if they want to play again
     private boolean askPlayAgain() {
         System.out.print("Play again? (yes/no): ");
@@ -160,15 +202,29 @@ public class TicTacToeCLI {
     private void printWelcomeMessage() {
         System.out.println("Welcome to Tic-Tac-Toe!");
         System.out.println("Enter moves as 'row col' (e.g., '0 0' for top-left, '1 1' for center)");
-        System.out.println("First number is the row (0-2), second number is the column (0-2)\n");
+        Board board = engine.getBoard();
+        System.out.println("First number is the row (0-" + (board.getRows() - 1) + "), second number is the column (0-"
+            + (board.getCols() - 1) + ")\n");
+    }
+    
+    // "row 0-2, column 0-2" for the current board's dimensions
+    private String describeRange() {
+        Board board = engine.getBoard();
+        return "row 0-" + (board.getRows() - 1) + ", column 0-" + (board.getCols() - 1);
     }
     
     private void printGoodbyeMessage() {
         System.out.println("Thanks for playing!");
     }
     
-    // Main entry point - creates game setup and starts CLI
-    public static void main(String[] args) {
+    // Main entry point - creates game setup and starts CLI, or with "--batch [file]" plays a script (stdin if no
+    // file) through BatchRunner and prints one line per game plus a summary on stderr
+    public static void main(String[] args) throws IOException {
+        if (args.length > 0 && "--batch".equals(args[0])) {
+            runBatch(args.length > 1 ? args[1] : "-");
+            return;
+        }
+        
         Scanner setupScanner = new Scanner(System.in);
         
         System.out.println("Select game mode:");
@@ -194,5 +250,14 @@ public class TicTacToeCLI {
         TicTacToeCLI cli = new TicTacToeCLI(engine);
         cli.run();
     }
+    
+    private static void runBatch(String inputPath) throws IOException {
+        try (BufferedReader in = new BufferedReader(new InputStreamReader(
+                 "-".equals(inputPath) ? System.in : new FileInputStream(inputPath), StandardCharsets.UTF_8), 1 << 16);
+             Writer out = new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8), 1 << 16)) {
+            BatchRunner.Summary summary = new BatchRunner().run(in, out);
+            System.err.println(summary);
+        }
+    }
 }
 
@@ -0,0 +1,190 @@
+package tictactoe;
+
+import java.util.function.LongSupplier;
+
+// Game clocks for both players with a Fischer increment, and the per-move time budget for computer moves.
+// The clocks belong to the thread driving the game; a MoveBudget may be read and stopped from its search thread.
+public class TimeManager {
+    // Own moves assumed to be left when planning - big boards are not played to the last cell
+    private static final int MAX_MOVES_HORIZON = 30;
+    
+    // Held back from every budget for move transfer and scheduling overhead
+    private static final long SAFETY_MILLIS = 10;
+    
+    // Longest a single move may take, as a multiple of its planned time
+    private static final int HARD_MULTIPLIER = 4;
+    
+    private final long initialNanos;
+    private final long incrementNanos;
+    private final LongSupplier nanoTime;
+    private final long[] remainingNanos = new long[2];
+    private CellState running;
+    private long turnStart;
+    
+    public TimeManager(long initialMillis, long incrementMillis) {
+        this(initialMillis, incrementMillis, System::nanoTime);
+    }
+    
+    // nanoTime is the time source - tests pass a fake one
+    TimeManager(long initialMillis, long incrementMillis, LongSupplier nanoTime) {
+        if (initialMillis <= 0 || incrementMillis < 0) {
+            throw new IllegalArgumentException("Clock needs positive time and a non-negative increment");
+        }
+        this.initialNanos = initialMillis * 1_000_000;
+        this.incrementNanos = incrementMillis * 1_000_000;
+        this.nanoTime = nanoTime;
+        reset();
+    }
+    
+    // Both clocks back to the initial time, neither running
+    public void reset() {
+        remainingNanos[0] = initialNanos;
+        remainingNanos[1] = initialNanos;
+        running = null;
+    }
+    
+    public long getIncrementMillis() {
+        return incrementNanos / 1_000_000;
+    }
+    
+    // Time left on mark's clock, including the turn in progress if it is running
+    public long getRemainingMillis(CellState mark) {
+        long remaining = remainingNanos[slot(mark)];
+        if (mark == running) {
+            remaining -= nanoTime.getAsLong() - turnStart;
+        }
+        return remaining / 1_000_000;
+    }
+    
+    // Whether mark has run out of time (its clock may still be running)
+    public boolean isFlagged(CellState mark) {
+        return getRemainingMillis(mark) <= 0;
+    }
+    
+    // Starts mark's clock for its turn
+    void startTurn(CellState mark) {
+        running = mark;
+        turnStart = nanoTime.getAsLong();
+    }
+    
+    // Stops mark's clock as it moves: charges the turn and adds the increment. Returns false, adding nothing,
+    // if the flag fell before the move arrived.
+    boolean endTurn(CellState mark) {
+        int slot = slot(mark);
+        if (mark == running) {
+            remainingNanos[slot] -= nanoTime.getAsLong() - turnStart;
+            running = null;
+        }
+        if (remainingNanos[slot] <= 0) {
+            return false;
+        }
+        remainingNanos[slot] += incrementNanos;
+        return true;
+    }
+    
+    // Time budget for mark's move on board, out of what is left on its clock
+    public MoveBudget budget(Board board, CellState mark) {
+        return budget(board, mark, null);
+    }
+    
+    // As budget(board, mark), keeping the bounds of the caller's limits (may be null) and stopped along with them
+    public MoveBudget budget(Board board, CellState mark, SearchLimits limits) {
+        return MoveBudget.plan(getRemainingMillis(mark), getIncrementMillis(), board.emptyCount(), limits, nanoTime);
+    }
+    
+    private static int slot(CellState mark) {
+        return mark == CellState.X ? 0 : 1;
+    }
+    
+    // Time plan for one search. The hard limit bounds it through its SearchLimits; as a SearchListener it also
+    // ends the search between iterations - at once on a proven result, sooner when the best move stays put
+    // (an easy move), later while it keeps changing (instability), never past the hard limit.
+    public static final class MoveBudget implements SearchListener {
+        // Iterations with the same best move after which the move counts as easy
+        private static final int EASY_ITERATIONS = 4;
+        
+        private final long softNanos;
+        private final long hardNanos;
+        private final SearchLimits limits;
+        private final LongSupplier nanoTime;
+        private final long start;
+        private Move lastBest;
+        private int stableIterations;
+        private double instability;
+        private boolean stoppedEarly;
+        
+        private MoveBudget(long softMillis, long hardMillis, SearchLimits base, LongSupplier nanoTime) {
+            this.softNanos = softMillis * 1_000_000;
+            this.hardNanos = hardMillis * 1_000_000;
+            this.limits = base == null ? new SearchLimits(0, 0, hardMillis, false, false) : base.withMoveTime(hardMillis);
+            this.nanoTime = nanoTime;
+            this.start = nanoTime.getAsLong();
+        }
+        
+        // Plans remaining / own moves left (from the empty cells, capped) plus most of the increment,
+        // allowing up to HARD_MULTIPLIER times that but never more than half the usable clock
+        public static MoveBudget plan(long remainingMillis, long incrementMillis, int emptyCells) {
+            return plan(remainingMillis, incrementMillis, emptyCells, null, System::nanoTime);
+        }
+        
+        // As plan(remainingMillis, incrementMillis, emptyCells), keeping the depth and node bounds of limits and
+        // stopped along with them
+        public static MoveBudget plan(long remainingMillis, long incrementMillis, int emptyCells, SearchLimits limits) {
+            return plan(remainingMillis, incrementMillis, emptyCells, limits, System::nanoTime);
+        }
+        
+        static MoveBudget plan(long remainingMillis, long incrementMillis, int emptyCells, LongSupplier nanoTime) {
+            return plan(remainingMillis, incrementMillis, emptyCells, null, nanoTime);
+        }
+        
+        static MoveBudget plan(long remainingMillis, long incrementMillis, int emptyCells, SearchLimits limits,
+                LongSupplier nanoTime) {
+            long usable = Math.max(1, remainingMillis - SAFETY_MILLIS);
+            int movesLeft = Math.max(1, Math.min(MAX_MOVES_HORIZON, (emptyCells + 1) / 2));
+            long soft = Math.max(1, Math.min(usable, usable / movesLeft + incrementMillis * 3 / 4));
+            long hard = Math.min(usable, Math.max(soft, Math.min(soft * HARD_MULTIPLIER, usable / 2)));
+            return new MoveBudget(soft, hard, limits, nanoTime);
+        }
+        
+        public SearchLimits getLimits() {
+            return limits;
+        }
+        
+        public long getSoftMillis() {
+            return softNanos / 1_000_000;
+        }
+        
+        public long getHardMillis() {
+            return hardNanos / 1_000_000;
+        }
+        
+        // Whether the budget ended the search before its hard limit
+        public boolean isStoppedEarly() {
+            return stoppedEarly;
+        }
+        
+        @Override
+        public void iterationCompleted(SearchResult progress) {
+            Move best = progress.getMove();
+            if (lastBest != null && !lastBest.equals(best)) {
+                instability += 1.0;
+                stableIterations = 0;
+            } else {
+                stableIterations++;
+            }
+            instability /= 2; // older changes count for less
+            lastBest = best;
+            
+            long elapsed = nanoTime.getAsLong() - start;
+            long target = (long) Math.min(hardNanos, softNanos * (1 + instability));
+            boolean proven = ComputerPlayer.forcedPlies(progress.getScore()) != 0;
+            boolean easy = stableIterations >= EASY_ITERATIONS && elapsed >= target / 4;
+            // The next iteration usually costs more than all before it, so don't start one past 60% of the target
+            if (proven || easy || elapsed >= target * 6 / 10) {
+                stoppedEarly = true;
+                limits.stop();
+            }
+        }
+    }
+}
+
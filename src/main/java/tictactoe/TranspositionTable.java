@@ -0,0 +1,50 @@
+package tictactoe;
+
+// Fixed-size table of search results keyed by position - implementations keep constant memory, are lock-free and
+// safe to share between threads. Entries are packed longs: decode with value(), draft() and bound(). Each slot
+// holds the key xor'd with its entry next to the entry, so a torn concurrent write reads as a miss.
+public interface TranspositionTable {
+    int EXACT = 0;
+    int LOWER_BOUND = 1;
+    int UPPER_BOUND = 2;
+    
+    // Returned by probe() when the position is not stored
+    long MISS = 0L;
+    
+    // Number of entries the table can hold
+    int capacity();
+    
+    // Returns the packed entry for key, or MISS
+    long probe(long key);
+    
+    // Stores a search result; the table decides what it replaces
+    void store(long key, int value, int draft, int bound);
+    
+    void clear();
+    
+    // Whether entries outlive the process - callers keep such a table across games instead of clearing it
+    default boolean isPersistent() {
+        return false;
+    }
+    
+    // 16-bit value, 8-bit draft, 2-bit bound and a used bit, so a stored entry is never MISS
+    static long pack(int value, int draft, int bound) {
+        return (value & 0xFFFFL)
+                | ((long) Math.min(draft, 255) << 16)
+                | ((long) bound << 24)
+                | 1L << 26;
+    }
+    
+    static int value(long data) {
+        return (short) data;
+    }
+    
+    static int draft(long data) {
+        return (int) (data >>> 16) & 0xFF;
+    }
+    
+    static int bound(long data) {
+        return (int) (data >>> 24) & 0x3;
+    }
+}
+
@@ -0,0 +1,405 @@
+package tictactoe;
+
+// Ultimate tic-tac-toe (immutable): a 3x3 grid of 3x3 sub-boards on a 9x9 Board. The cell played within its
+// sub-board picks the sub-board the opponent must play in next; if that one is already won or full, they may play
+// in any open sub-board. Three in a row wins a sub-board, and three won sub-boards in a row win the game - when
+// every sub-board is closed without that, it is a draw.
+// Positions keep one 9-bit mask per sub-board and player, the macro board of won sub-boards per player, and the
+// sub-board to play in; every sub-board and macro test is a lookup in 512-entry tables indexed by a mask.
+// UltimateSearch plays it with Monte Carlo tree search over the same State.
+public final class UltimateRules implements GameRules {
+    public static final int SIZE = 9;
+    public static final BoardSpec SPEC = BoardSpec.of(SIZE, SIZE, 3);
+    
+    // Every cell of a sub-board, or every sub-board of the macro board
+    static final int FULL = 0x1FF;
+    
+    // State.active when any open sub-board may be played
+    static final int ANY = -1;
+    
+    // State.result codes
+    static final int PLAYING = 0;
+    static final int X_WON = 1;
+    static final int O_WON = 2;
+    static final int DRAWN = 3;
+    
+    // The eight lines of a 3x3 grid as masks, bit = row * 3 + col, with where they start and run on the grid
+    private static final int[] LINES = {0x007, 0x038, 0x1C0, 0x049, 0x092, 0x124, 0x111, 0x054};
+    private static final int[] LINE_START = {0, 3, 6, 0, 1, 2, 0, 2};
+    private static final WinLine.Direction[] LINE_DIRECTIONS = {
+        WinLine.Direction.HORIZONTAL, WinLine.Direction.HORIZONTAL, WinLine.Direction.HORIZONTAL,
+        WinLine.Direction.VERTICAL, WinLine.Direction.VERTICAL, WinLine.Direction.VERTICAL,
+        WinLine.Direction.DIAGONAL, WinLine.Direction.ANTI_DIAGONAL
+    };
+    
+    // Per 9-bit mask: whether it holds a line, and the first such line (-1 for none)
+    static final boolean[] WON = new boolean[FULL + 1];
+    private static final byte[] LINE_OF = new byte[FULL + 1];
+    
+    // SELECT[mask * 9 + n] is the n-th set bit of mask - picks a random empty cell without a loop
+    static final byte[] SELECT = new byte[(FULL + 1) * 9];
+    
+    // Board cell of a state cell (sub-board * 9 + cell within it) and back
+    private static final int[] TO_BOARD = new int[SIZE * SIZE];
+    private static final int[] TO_STATE = new int[SIZE * SIZE];
+    
+    // Ultimate positions hash apart from other rules', so a shared table never mixes their scores
+    private static final long KEY_SALT = 0xB7E151628AED2A6BL;
+    
+    static {
+        for (int mask = 0; mask <= FULL; mask++) {
+            LINE_OF[mask] = -1;
+            for (int line = LINES.length - 1; line >= 0; line--) {
+                if ((mask & LINES[line]) == LINES[line]) {
+                    LINE_OF[mask] = (byte) line;
+                }
+            }
+            WON[mask] = LINE_OF[mask] >= 0;
+            int n = 0;
+            for (int bit = 0; bit < 9; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    SELECT[mask * 9 + n++] = (byte) bit;
+                }
+            }
+        }
+        for (int cell = 0; cell < SIZE * SIZE; cell++) {
+            int row = cell / SIZE;
+            int col = cell % SIZE;
+            int state = ((row / 3) * 3 + col / 3) * 9 + (row % 3) * 3 + col % 3;
+            TO_STATE[cell] = state;
+            TO_BOARD[state] = cell;
+        }
+    }
+    
+    public static final UltimateRules INSTANCE = new UltimateRules();
+    
+    private UltimateRules() {
+    }
+    
+    @Override
+    public String getName() {
+        return "ultimate";
+    }
+    
+    @Override
+    public BoardSpec getSpec() {
+        return SPEC;
+    }
+    
+    @Override
+    public GamePosition start() {
+        return new Position();
+    }
+    
+    @Override
+    public String toString() {
+        return "UltimateRules";
+    }
+    
+    static int toBoard(int stateCell) {
+        return TO_BOARD[stateCell];
+    }
+    
+    static int toState(int boardCell) {
+        return TO_STATE[boardCell];
+    }
+    
+    // Sub-board (0-8, row-major over the macro board) a Board cell lies in
+    static int subBoardOf(int boardCell) {
+        return TO_STATE[boardCell] / 9;
+    }
+    
+    // Who has won sub-board sub on board - EMPTY while nobody has (for display)
+    static CellState subBoardWinner(Board board, int sub) {
+        int x = 0;
+        int o = 0;
+        for (int bit = 0; bit < 9; bit++) {
+            CellState mark = board.cellAt(TO_BOARD[sub * 9 + bit]);
+            if (mark == CellState.X) {
+                x |= 1 << bit;
+            } else if (mark == CellState.O) {
+                o |= 1 << bit;
+            }
+        }
+        return WON[x] ? CellState.X : WON[o] ? CellState.O : CellState.EMPTY;
+    }
+    
+    // The bit state on its own - masks, macro boards, the sub-board to play in and the result. Cells are state
+    // cells. Mutable; copyFrom and play allocate nothing, so rollouts can run on a reused instance.
+    static final class State {
+        final int[] x = new int[9];
+        final int[] o = new int[9];
+        int macroX;
+        int macroO;
+        // Sub-boards won or full
+        int closed;
+        int active = ANY;
+        int plies;
+        int result = PLAYING;
+        
+        void copyFrom(State other) {
+            System.arraycopy(other.x, 0, x, 0, 9);
+            System.arraycopy(other.o, 0, o, 0, 9);
+            macroX = other.macroX;
+            macroO = other.macroO;
+            closed = other.closed;
+            active = other.active;
+            plies = other.plies;
+            result = other.result;
+        }
+        
+        boolean xToMove() {
+            return (plies & 1) == 0;
+        }
+        
+        boolean isLegal(int cell) {
+            int sub = cell / 9;
+            return result == PLAYING && (active == ANY ? (closed & (1 << sub)) == 0 : sub == active)
+                && ((x[sub] | o[sub]) & (1 << (cell % 9))) == 0;
+        }
+        
+        void play(int cell) {
+            int sub = cell / 9;
+            int bit = 1 << (cell % 9);
+            if ((plies & 1) == 0) {
+                x[sub] |= bit;
+                if (WON[x[sub]]) {
+                    macroX |= 1 << sub;
+                    closed |= 1 << sub;
+                    if (WON[macroX]) {
+                        result = X_WON;
+                    }
+                }
+            } else {
+                o[sub] |= bit;
+                if (WON[o[sub]]) {
+                    macroO |= 1 << sub;
+                    closed |= 1 << sub;
+                    if (WON[macroO]) {
+                        result = O_WON;
+                    }
+                }
+            }
+            if ((x[sub] | o[sub]) == FULL) {
+                closed |= 1 << sub;
+            }
+            if (result == PLAYING && closed == FULL) {
+                result = DRAWN;
+            }
+            int next = cell % 9;
+            active = (closed & (1 << next)) != 0 ? ANY : next;
+            plies++;
+        }
+        
+        // Takes back cell, the last play, with active as it was before it
+        void undo(int cell, int previousActive) {
+            int sub = cell / 9;
+            int keep = ~(1 << (cell % 9));
+            x[sub] &= keep;
+            o[sub] &= keep;
+            int bit = 1 << sub;
+            macroX &= ~bit;
+            macroO &= ~bit;
+            closed &= ~bit;
+            // Nothing else changes, and the sub-board was open before the move
+            active = previousActive;
+            result = PLAYING;
+            plies--;
+        }
+        
+        // Fills cells with the legal state cells and returns the count
+        int legalMoves(int[] cells) {
+            if (result != PLAYING) {
+                return 0;
+            }
+            int count = 0;
+            for (int sub = active == ANY ? 0 : active; sub < 9; sub++) {
+                if ((closed & (1 << sub)) == 0) {
+                    for (int empty = FULL & ~(x[sub] | o[sub]); empty != 0; empty &= empty - 1) {
+                        cells[count++] = sub * 9 + Integer.numberOfTrailingZeros(empty);
+                    }
+                }
+                if (active != ANY) {
+                    break;
+                }
+            }
+            return count;
+        }
+        
+        // A uniformly random legal cell, picked with random (any 32 bits) - the game must still be on
+        int randomMove(int random) {
+            if (active != ANY) {
+                int empty = FULL & ~(x[active] | o[active]);
+                return active * 9 + SELECT[empty * 9 + pick(random, Integer.bitCount(empty))];
+            }
+            int total = 0;
+            for (int sub = 0; sub < 9; sub++) {
+                if ((closed & (1 << sub)) == 0) {
+                    total += Integer.bitCount(~(x[sub] | o[sub]) & FULL);
+                }
+            }
+            int n = pick(random, total);
+            for (int sub = 0; ; sub++) {
+                if ((closed & (1 << sub)) == 0) {
+                    int empty = FULL & ~(x[sub] | o[sub]);
+                    int count = Integer.bitCount(empty);
+                    if (n < count) {
+                        return sub * 9 + SELECT[empty * 9 + n];
+                    }
+                    n -= count;
+                }
+            }
+        }
+        
+        // random scaled onto 0..bound-1
+        private static int pick(int random, int bound) {
+            return (int) (((random & 0xFFFFFFFFL) * bound) >>> 32);
+        }
+        
+        long key() {
+            long h = active + 2;
+            for (int sub = 0; sub < 9; sub++) {
+                h = (h ^ (x[sub] | (long) o[sub] << 9)) * 0x9E3779B97F4A7C15L;
+                h ^= h >>> 31;
+            }
+            return h;
+        }
+    }
+    
+    // A State plus the Board the engine displays and the moves played, for undo
+    static final class Position implements GamePosition {
+        private final State state = new State();
+        private final Board board;
+        // State cell in the low byte, active before the move + 1 above it
+        private final int[] history = new int[SIZE * SIZE];
+        private WinLine winLine;
+        
+        Position() {
+            board = new Board(SPEC);
+        }
+        
+        private Position(Position other) {
+            state.copyFrom(other.state);
+            board = new Board(other.board);
+            System.arraycopy(other.history, 0, history, 0, other.state.plies);
+            winLine = other.winLine;
+        }
+        
+        // The bits, for UltimateSearch - read only
+        State state() {
+            return state;
+        }
+        
+        @Override
+        public GameRules getRules() {
+            return INSTANCE;
+        }
+        
+        @Override
+        public Board getBoard() {
+            return board;
+        }
+        
+        @Override
+        public CellState getToMove() {
+            return state.xToMove() ? CellState.X : CellState.O;
+        }
+        
+        @Override
+        public int legalMoves(int[] moves) {
+            int count = state.legalMoves(moves);
+            for (int i = 0; i < count; i++) {
+                moves[i] = TO_BOARD[moves[i]];
+            }
+            return count;
+        }
+        
+        @Override
+        public boolean isLegal(int cell) {
+            return cell >= 0 && cell < SIZE * SIZE && state.isLegal(TO_STATE[cell]);
+        }
+        
+        @Override
+        public void play(int cell) {
+            CellState mover = getToMove();
+            int stateCell = TO_STATE[cell];
+            history[state.plies] = stateCell | (state.active + 1) << 8;
+            state.play(stateCell);
+            board.place(cell, mover);
+            if (state.result == X_WON || state.result == O_WON) {
+                // The sub-board line that completed the macro line
+                int sub = stateCell / 9;
+                int line = LINE_OF[mover == CellState.X ? state.x[sub] : state.o[sub]];
+                int start = TO_BOARD[sub * 9 + LINE_START[line]];
+                winLine = new WinLine(mover, start / SIZE, start % SIZE, LINE_DIRECTIONS[line], 3);
+            }
+        }
+        
+        @Override
+        public void undo() {
+            int entry = history[state.plies - 1];
+            int stateCell = entry & 0xFF;
+            state.undo(stateCell, (entry >>> 8) - 1);
+            board.remove(TO_BOARD[stateCell]);
+            winLine = null;
+        }
+        
+        @Override
+        public GameState getOutcome() {
+            switch (state.result) {
+                case X_WON:
+                    return GameState.X_WINS;
+                case O_WON:
+                    return GameState.O_WINS;
+                case DRAWN:
+                    return GameState.DRAW;
+                default:
+                    return GameState.PLAYING;
+            }
+        }
+        
+        @Override
+        public WinLine getWinLine() {
+            return winLine;
+        }
+        
+        // Sub-boards won, the centre one counting double, and sub-boards one move from being won
+        @Override
+        public int evaluate() {
+            int score = 0;
+            for (int sub = 0; sub < 9; sub++) {
+                int weight = sub == 4 ? 2 : 1;
+                if ((state.macroX & (1 << sub)) != 0) {
+                    score += 6 * weight;
+                } else if ((state.macroO & (1 << sub)) != 0) {
+                    score -= 6 * weight;
+                } else if ((state.closed & (1 << sub)) == 0) {
+                    score += weight * (threats(state.x[sub], state.o[sub]) - threats(state.o[sub], state.x[sub]));
+                }
+            }
+            return state.xToMove() ? score : -score;
+        }
+        
+        // Empty cells of a sub-board that would complete a line of mine
+        private static int threats(int mine, int theirs) {
+            int count = 0;
+            for (int empty = FULL & ~(mine | theirs); empty != 0; empty &= empty - 1) {
+                if (WON[mine | (empty & -empty)]) {
+                    count++;
+                }
+            }
+            return count;
+        }
+        
+        @Override
+        public long getKey() {
+            return state.key() ^ KEY_SALT;
+        }
+        
+        @Override
+        public GamePosition copy() {
+            return new Position(this);
+        }
+    }
+}
+
@@ -0,0 +1,233 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+// Monte Carlo tree search for ultimate tic-tac-toe - what ComputerPlayer plays UltimateRules with. Alpha-beta
+// suffers from the branching factor (up to 81, rarely under 9) and a weak static evaluation, while random playouts
+// judge a position well given enough of them. Each iteration walks down the tree by UCT, expands the leaf into all
+// its moves, plays out the rest of the game at random and credits the result back up the path.
+// The tree is parallel arrays, reused from search to search, and playouts run on a reused UltimateRules.State with
+// an xorshift generator, so iterations allocate nothing. Node counts are plies played, in the tree and in playouts,
+// which makes strength node budgets comparable with the other searches.
+public final class UltimateSearch {
+    // UCT exploration constant - sqrt(2) is the textbook value for results in 0..1
+    private static final double EXPLORATION = 1.41;
+    
+    // Leaves are not expanded past this many tree nodes - iterations still play out from them
+    private static final int MAX_TREE = 1 << 21;
+    private static final int INITIAL_TREE = 1 << 14;
+    
+    // Progress goes to the listener after this many iterations, then after every doubling
+    private static final int FIRST_REPORT = 1 << 12;
+    
+    private int[] parent = new int[INITIAL_TREE];
+    private int[] firstChild = new int[INITIAL_TREE];
+    private byte[] childCount = new byte[INITIAL_TREE];
+    private byte[] move = new byte[INITIAL_TREE];
+    private int[] visits = new int[INITIAL_TREE];
+    // Twice the wins of the player who moved into the node, plus its draws
+    private int[] points = new int[INITIAL_TREE];
+    private int size;
+    
+    private final UltimateRules.State root = new UltimateRules.State();
+    private final UltimateRules.State scratch = new UltimateRules.State();
+    private final int[] moves = new int[UltimateRules.SIZE * UltimateRules.SIZE];
+    private long seed = 1;
+    
+    // Best move for the side to move in position after at most nodeLimit plies of tree walks and playouts, or until
+    // limits (may be null) run out. The score is the best move's win rate mapped onto -MAX_EVAL..MAX_EVAL and the
+    // depth is the deepest tree node reached.
+    SearchResult search(GamePosition position, long nodeLimit, SearchLimits limits, Random random,
+            SearchListener listener) {
+        long start = System.nanoTime();
+        SearchStats.Counters counters = new SearchStats.Counters();
+        root.copyFrom(((UltimateRules.Position) position).state());
+        seed = random.nextLong() | 1;
+        size = 0;
+        newNode(-1, 0);
+        if (root.result != UltimateRules.PLAYING) {
+            return new SearchResult(null, 0, 0, counters.finish(System.nanoTime() - start, new ArrayList<>()));
+        }
+        expand(0, root);
+        
+        long nextReport = FIRST_REPORT;
+        for (long iteration = 1; ; iteration++) {
+            scratch.copyFrom(root);
+            int node = 0;
+            int depth = 0;
+            while (childCount[node] != 0) {
+                node = select(node);
+                scratch.play(move[node]);
+                depth++;
+            }
+            if (scratch.result == UltimateRules.PLAYING && visits[node] > 0 && size + moves.length <= MAX_TREE) {
+                expand(node, scratch);
+                node = firstChild[node] + pick(childCount[node]);
+                scratch.play(move[node]);
+                depth++;
+            }
+            counters.nodes += depth;
+            counters.maxDepth = Math.max(counters.maxDepth, depth);
+            int plies = scratch.plies;
+            int xPoints = playout(scratch);
+            counters.nodes += scratch.plies - plies;
+            
+            // The player who moved into a node at depth d moved on ply root.plies + d - 1
+            boolean xMoved = ((root.plies + depth - 1) & 1) == 0;
+            for (int n = node; n > 0; n = parent[n]) {
+                visits[n]++;
+                points[n] += xMoved ? xPoints : 2 - xPoints;
+                xMoved = !xMoved;
+            }
+            visits[0]++;
+            
+            if (counters.nodes >= nodeLimit
+                    || ((iteration & 63) == 0 && limits != null && limits.isTimeUp())) {
+                break;
+            }
+            if (listener != null && iteration == nextReport) {
+                listener.iterationCompleted(finish(counters, start));
+                nextReport *= 2;
+            }
+        }
+        return finish(counters, start);
+    }
+    
+    // Child of node with the best UCT value - an unvisited child first
+    private int select(int node) {
+        int first = firstChild[node];
+        int end = first + childCount[node];
+        double logVisits = Math.log(visits[node]);
+        int best = first;
+        double bestValue = -1;
+        for (int child = first; child < end; child++) {
+            int n = visits[child];
+            if (n == 0) {
+                return child;
+            }
+            double value = points[child] / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+    
+    // Adds a child of node for every legal move in state
+    private void expand(int node, UltimateRules.State state) {
+        int count = state.legalMoves(moves);
+        firstChild[node] = size;
+        childCount[node] = (byte) count;
+        for (int i = 0; i < count; i++) {
+            newNode(node, moves[i]);
+        }
+    }
+    
+    private void newNode(int parentNode, int cell) {
+        if (size == parent.length) {
+            int capacity = Math.min(MAX_TREE, size * 2);
+            parent = Arrays.copyOf(parent, capacity);
+            firstChild = Arrays.copyOf(firstChild, capacity);
+            childCount = Arrays.copyOf(childCount, capacity);
+            move = Arrays.copyOf(move, capacity);
+            visits = Arrays.copyOf(visits, capacity);
+            points = Arrays.copyOf(points, capacity);
+        }
+        parent[size] = parentNode;
+        firstChild[size] = -1;
+        childCount[size] = 0;
+        move[size] = (byte) cell;
+        visits[size] = 0;
+        points[size] = 0;
+        size++;
+    }
+    
+    // Random moves to the end of the game - 2 for an X win, 1 for a draw, 0 for an O win
+    private int playout(UltimateRules.State state) {
+        while (state.result == UltimateRules.PLAYING) {
+            state.play(state.randomMove(nextRandom()));
+        }
+        return state.result == UltimateRules.X_WON ? 2 : state.result == UltimateRules.DRAWN ? 1 : 0;
+    }
+    
+    // xorshift64 - fast enough not to show in playouts, and no Random instance to contend on
+    private int nextRandom() {
+        seed ^= seed << 13;
+        seed ^= seed >>> 7;
+        seed ^= seed << 17;
+        return (int) (seed >>> 32);
+    }
+    
+    private int pick(int bound) {
+        return (int) (((nextRandom() & 0xFFFFFFFFL) * bound) >>> 32);
+    }
+    
+    // Most visited child of node, or -1 before any visit
+    private int mostVisited(int node) {
+        int best = -1;
+        for (int child = firstChild[node]; child >= 0 && child < firstChild[node] + childCount[node]; child++) {
+            if (visits[child] > 0 && (best < 0 || visits[child] > visits[best])) {
+                best = child;
+            }
+        }
+        return best;
+    }
+    
+    // Principal variation down the most visited children
+    private SearchResult finish(SearchStats.Counters counters, long start) {
+        List<Move> line = new ArrayList<>();
+        int best = mostVisited(0);
+        if (best < 0) {
+            best = firstChild[0];
+        }
+        for (int node = best; node >= 0; node = childCount[node] == 0 ? -1 : mostVisited(node)) {
+            int cell = UltimateRules.toBoard(move[node]);
+            line.add(new Move(cell / UltimateRules.SIZE, cell % UltimateRules.SIZE));
+        }
+        double rate = visits[best] == 0 ? 0.5 : points[best] / (2.0 * visits[best]);
+        int score = (int) Math.round((2 * rate - 1) * ComputerPlayer.MAX_EVAL);
+        return new SearchResult(line.get(0), score, counters.maxDepth,
+            counters.finish(System.nanoTime() - start, line));
+    }
+    
+    // Usage: UltimateSearch [--playouts N] [--nodes N] [--seed N]
+    // Times random playouts from the empty board, then one search of --nodes plies from it
+    public static void main(String[] args) {
+        long playouts = 2_000_000;
+        long nodes = 20_000_000;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            if ("--playouts".equals(args[i]) && i + 1 < args.length) {
+                playouts = Long.parseLong(args[++i]);
+            } else if ("--nodes".equals(args[i]) && i + 1 < args.length) {
+                nodes = Long.parseLong(args[++i]);
+            } else if ("--seed".equals(args[i]) && i + 1 < args.length) {
+                seed = Long.parseLong(args[++i]);
+            }
+        }
+        UltimateSearch search = new UltimateSearch();
+        search.seed = seed | 1;
+        UltimateRules.State empty = new UltimateRules.State();
+        UltimateRules.State state = new UltimateRules.State();
+        long plies = 0;
+        int[] results = new int[3];
+        long begin = System.nanoTime();
+        for (long i = 0; i < playouts; i++) {
+            state.copyFrom(empty);
+            results[search.playout(state)]++;
+            plies += state.plies;
+        }
+        double seconds = (System.nanoTime() - begin) / 1e9;
+        System.out.printf("%,d playouts in %.2f s: %,.0f playouts/s, %.1f plies each, X %d%% draw %d%% O %d%%%n",
+            playouts, seconds, playouts / seconds, (double) plies / playouts, results[2] * 100 / playouts,
+            results[1] * 100 / playouts, results[0] * 100 / playouts);
+        
+        SearchResult result = search.search(UltimateRules.INSTANCE.start(), nodes, null, new Random(seed), null);
+        System.out.println(result.getMove() + " score " + result.getScore() + " " + result.getStats().toLogLine());
+    }
+}
+
@@ -0,0 +1,106 @@
+package tictactoe;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+// The run of marks that won a game (immutable) - a start cell, a direction and a length of at least the win length
+public final class WinLine {
+    // Line directions as row and column steps, in the order Board checks them
+    public enum Direction {
+        HORIZONTAL(0, 1),
+        VERTICAL(1, 0),
+        DIAGONAL(1, 1),
+        ANTI_DIAGONAL(1, -1);
+        
+        private final int rowStep;
+        private final int colStep;
+        
+        Direction(int rowStep, int colStep) {
+            this.rowStep = rowStep;
+            this.colStep = colStep;
+        }
+        
+        public int getRowStep() {
+            return rowStep;
+        }
+        
+        public int getColStep() {
+            return colStep;
+        }
+    }
+    
+    private final CellState mark;
+    private final int startRow;
+    private final int startCol;
+    private final Direction direction;
+    private final int length;
+    
+    WinLine(CellState mark, int startRow, int startCol, Direction direction, int length) {
+        this.mark = mark;
+        this.startRow = startRow;
+        this.startCol = startCol;
+        this.direction = direction;
+        this.length = length;
+    }
+    
+    public CellState getMark() {
+        return mark;
+    }
+    
+    public Direction getDirection() {
+        return direction;
+    }
+    
+    // Number of cells in the run - more than the win length when a move joins two shorter runs
+    public int getLength() {
+        return length;
+    }
+    
+    public Move getStart() {
+        return new Move(startRow, startCol);
+    }
+    
+    public Move getEnd() {
+        return new Move(startRow + direction.rowStep * (length - 1), startCol + direction.colStep * (length - 1));
+    }
+    
+    // The cells of the run from start to end
+    public List<Move> getCells() {
+        List<Move> cells = new ArrayList<>(length);
+        for (int i = 0; i < length; i++) {
+            cells.add(new Move(startRow + direction.rowStep * i, startCol + direction.colStep * i));
+        }
+        return Collections.unmodifiableList(cells);
+    }
+    
+    public boolean contains(int row, int col) {
+        for (int i = 0; i < length; i++) {
+            if (row == startRow + direction.rowStep * i && col == startCol + direction.colStep * i) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) return true;
+        if (obj == null || getClass() != obj.getClass()) return false;
+        WinLine line = (WinLine) obj;
+        return mark == line.mark && startRow == line.startRow && startCol == line.startCol
+            && direction == line.direction && length == line.length;
+    }
+    
+    @Override
+    public int hashCode() {
+        return (((mark.hashCode() * 31 + startRow) * 31 + startCol) * 31 + direction.hashCode()) * 31 + length;
+    }
+    
+    @Override
+    public String toString() {
+        return mark + " " + direction.name().toLowerCase().replace('_', '-') + " from (" + startRow + ", " + startCol
+            + ") to (" + getEnd().getRow() + ", " + getEnd().getCol() + ")";
+    }
+}
+
@@ -0,0 +1,99 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for BatchRunner - scripted games of every outcome, bad scripts, board changes and engine matches
+public class BatchRunnerTest {
+    private String output;
+    
+    private BatchRunner.Summary run(String script) throws IOException {
+        StringWriter out = new StringWriter();
+        BatchRunner.Summary summary = new BatchRunner(new Random(1)).run(new BufferedReader(new StringReader(script)), out);
+        output = out.toString();
+        return summary;
+    }
+    
+    @Test
+    public void testScriptedResults() throws IOException {
+        BatchRunner.Summary summary = run(
+            "# one of each result\n"
+            + "0,0 1,0 0,1 1,1 0,2\n"
+            + "1,1 0,0 2,2 0,1 2,1 0,2\n"
+            + "0,0 1,1 2,2 0,1 2,1 2,0 0,2 1,2 1,0\n"
+            + "\n"
+            + "0,0 1,1   # short script\n");
+        
+        assertEquals(4, summary.getGames());
+        assertEquals(1, summary.getXWins());
+        assertEquals(1, summary.getOWins());
+        assertEquals(1, summary.getDraws());
+        assertEquals(1, summary.getUnfinished());
+        assertEquals(0, summary.getErrors());
+        assertEquals("1\t3x3\tX_WINS\t5\t0,0-0,2\n"
+            + "2\t3x3\tO_WINS\t6\t0,0-0,2\n"
+            + "3\t3x3\tDRAW\t9\n"
+            + "4\t3x3\tPLAYING\t2\n", output);
+    }
+    
+    @Test
+    public void testBadMovesReportErrors() throws IOException {
+        BatchRunner.Summary summary = run(
+            "0,0 0,0\n"
+            + "0,0 1,x\n"
+            + "0,0 3,3\n"
+            + "0,0 1,0 0,1 1,1 0,2 2,2\n"
+            + "0,0 1,1\n");
+        
+        assertEquals(5, summary.getGames());
+        assertEquals(4, summary.getErrors());
+        assertEquals(1, summary.getUnfinished());
+        assertEquals(0, summary.getXWins());
+        String[] lines = output.split("\n");
+        assertEquals("1\t3x3\tERROR\t2\tillegal move '0,0'", lines[0]);
+        assertEquals("2\t3x3\tERROR\t2\tillegal move '1,x'", lines[1]);
+        assertEquals("3\t3x3\tERROR\t2\tillegal move '3,3'", lines[2]);
+        assertEquals("4\t3x3\tERROR\t6\tmove after game over '2,2'", lines[3]);
+        // An error does not leave the engine in a bad state for the next game
+        assertEquals("5\t3x3\tPLAYING\t2", lines[4]);
+    }
+    
+    @Test
+    public void testBoardLineSwitchesSpec() throws IOException {
+        BatchRunner.Summary summary = run(
+            "board 4x4k3\n"
+            + "0,0 3,3 0,1 3,2 0,2\n"
+            + "board 3x3\n"
+            + "0,3\n");
+        
+        assertEquals(2, summary.getGames());
+        assertEquals(1, summary.getXWins());
+        assertEquals(1, summary.getErrors());
+        assertEquals("1\t4x4k3\tX_WINS\t5\t0,0-0,2\n"
+            + "2\t3x3\tERROR\t1\tillegal move '0,3'\n", output);
+    }
+    
+    @Test
+    public void testEngineMatch() throws IOException {
+        BatchRunner.Summary summary = run("play HARD HARD 3\nplay 1 hard 2\n");
+        
+        assertEquals(5, summary.getGames());
+        // Hard against itself always draws, and Hard never loses to random moves
+        assertTrue(summary.getDraws() >= 3);
+        assertEquals(0, summary.getXWins());
+        assertEquals(0, summary.getErrors());
+        assertTrue(summary.getGamesPerSecond() > 0);
+        assertEquals(5, output.split("\n").length);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedPlayLine() throws IOException {
+        run("play HARD\n");
+    }
+}
+
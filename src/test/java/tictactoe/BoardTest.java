@@ -158,5 +158,114 @@ public class BoardTest {
         assertEquals(CellState.EMPTY, original.getCell(2, 2));
         assertEquals(CellState.X, copy.getCell(2, 2));
     }
+    
+    @Test
+    public void testEmptyMaskTracksPlaceAndRemove() {
+        Board board = new Board();
+        assertEquals(0x1FF, board.emptyMask());
+        
+        board.place(4, CellState.X);
+        board.place(0, CellState.O);
+        assertEquals(0x1FF & ~0x11, board.emptyMask());
+        assertEquals(CellState.X, board.getCell(1, 1));
+        assertEquals(CellState.O, board.cellAt(0));
+        
+        board.remove(4);
+        assertTrue(board.isEmptyAt(4));
+        assertEquals(CellState.EMPTY, board.getCell(1, 1));
+    }
+    
+    @Test
+    public void testCanonicalKeyIgnoresSymmetry() {
+        Board corner = new Board();
+        corner.makeMove(new Move(0, 0), CellState.X);
+        corner.makeMove(new Move(0, 1), CellState.O);
+        
+        Board rotated = new Board();
+        rotated.makeMove(new Move(0, 2), CellState.X);
+        rotated.makeMove(new Move(1, 2), CellState.O);
+        
+        Board different = new Board();
+        different.makeMove(new Move(0, 0), CellState.X);
+        different.makeMove(new Move(1, 1), CellState.O);
+        
+        assertEquals(corner.canonicalKey(), rotated.canonicalKey());
+        assertNotEquals(corner.canonicalKey(), different.canonicalKey());
+    }
+    
+    @Test
+    public void testLargeBoardNeedsFullWinLength() {
+        Board board = new Board(BoardSpec.of(15, 15, 5));
+        for (int i = 0; i < 4; i++) {
+            board.makeMove(new Move(7, 3 + i), CellState.X);
+        }
+        assertFalse(board.hasWon(CellState.X));
+        
+        board.makeMove(new Move(7, 7), CellState.X);
+        assertTrue(board.hasWon(CellState.X));
+        assertFalse(board.hasWon(CellState.O));
+    }
+    
+    @Test
+    public void testLargeBoardDiagonalWin() {
+        Board board = new Board(BoardSpec.of(19, 19, 5));
+        for (int i = 0; i < 5; i++) {
+            board.makeMove(new Move(14 - i, 4 + i), CellState.O);
+        }
+        assertTrue(board.hasWon(CellState.O));
+        assertTrue(board.completesLine(14 * 19 + 4, CellState.O));
+    }
+    
+    @Test
+    public void testBoardPastOneWord() {
+        Board board = new Board(BoardSpec.of(10, 10, 4));
+        assertFalse(board.isSmall());
+        assertTrue(board.makeMove(new Move(9, 9), CellState.X));
+        assertEquals(CellState.X, board.getCell(9, 9));
+        assertFalse(board.isValidMove(new Move(9, 9)));
+        assertFalse(board.isValidMove(new Move(10, 0)));
+        
+        long key = board.canonicalKey();
+        board.remove(99);
+        assertTrue(board.isEmptyAt(99));
+        assertEquals(99, board.emptyCount() - 1);
+        assertNotEquals(key, board.canonicalKey());
+    }
+    
+    @Test
+    public void testSpecNames() {
+        assertEquals("3x3", BoardSpec.STANDARD.toString());
+        assertEquals("15x15k5", BoardSpec.of(15, 15, 5).toString());
+        assertSame(BoardSpec.STANDARD, BoardSpec.of(3, 3, 3));
+        assertSame(BoardSpec.STANDARD, BoardSpec.parse("3x3"));
+        assertEquals(BoardSpec.of(6, 7, 4), BoardSpec.parse("6x7k4"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testWinLengthMustFit() {
+        BoardSpec.of(3, 3, 4);
+    }
+    
+    @Test
+    public void testSnapshotsArePersistent() {
+        BoardSnapshot empty = BoardSnapshot.empty(BoardSpec.of(50, 50, 5));
+        BoardSnapshot first = empty.withMove(0, CellState.X);
+        BoardSnapshot second = first.withMove(2499, CellState.O);
+        
+        assertEquals(CellState.EMPTY, empty.getCell(0, 0));
+        assertEquals(CellState.X, first.getCell(0, 0));
+        assertEquals(CellState.EMPTY, first.getCell(49, 49));
+        assertEquals(CellState.O, second.getCell(49, 49));
+        assertEquals(2, second.getMoveCount());
+        
+        Board board = second.toBoard();
+        assertEquals(CellState.X, board.getCell(0, 0));
+        assertEquals(CellState.O, board.getCell(49, 49));
+        assertEquals(second, BoardSnapshot.of(board));
+        
+        BoardSnapshot small = BoardSnapshot.of(new Board()).withMove(4, CellState.O);
+        assertEquals(CellState.O, small.getCell(1, 1));
+        assertEquals(1, small.toBoard().cellCount() - small.toBoard().emptyCount());
+    }
 }
 
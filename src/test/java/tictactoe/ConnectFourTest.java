@@ -0,0 +1,118 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for Connect Four - gravity and win detection on the bitboards, and ConnectFourSolver against the
+// generic RulesSearch
+public class ConnectFourTest {
+    
+    // Plays the columns in order from the start
+    private static GamePosition play(int... columns) {
+        GamePosition position = ConnectFourRules.INSTANCE.start();
+        for (int col : columns) {
+            position.play(position.resolve(new Move(0, col)));
+        }
+        return position;
+    }
+    
+    @Test
+    public void testDiscsDropThroughEngine() {
+        GameEngine engine = new GameEngine(new HumanPlayer(CellState.X, "X"), new HumanPlayer(CellState.O, "O"),
+            GameRules.parse("connect4"));
+        assertTrue(engine.processMove(new Move(0, 3)));
+        assertTrue(engine.processMove(new Move(2, 3)));
+        assertEquals(CellState.X, engine.getBoard().getCell(5, 3));
+        assertEquals(CellState.O, engine.getBoard().getCell(4, 3));
+        assertEquals(CellState.EMPTY, engine.getBoard().getCell(0, 3));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(engine.processMove(new Move(5, 3)));
+        }
+        // The column is full
+        assertFalse(engine.processMove(new Move(0, 3)));
+    }
+    
+    @Test
+    public void testWins() {
+        GamePosition vertical = play(0, 1, 0, 1, 0, 1, 0);
+        assertEquals(GameState.X_WINS, vertical.getOutcome());
+        GamePosition horizontal = play(0, 1, 0, 2, 6, 3, 6, 4);
+        assertEquals(GameState.O_WINS, horizontal.getOutcome());
+        assertEquals(CellState.O, horizontal.getWinLine().getMark());
+        GamePosition diagonal = play(0, 1, 1, 2, 2, 3, 2, 3, 3, 6, 3);
+        assertEquals(GameState.X_WINS, diagonal.getOutcome());
+        assertEquals(0, diagonal.legalMoves(new int[ConnectFourRules.COLUMNS]));
+    }
+    
+    @Test
+    public void testBitboardAgreesWithBoard() {
+        Random random = new Random(3);
+        int[] moves = new int[ConnectFourRules.COLUMNS];
+        for (int game = 0; game < 200; game++) {
+            GamePosition position = ConnectFourRules.INSTANCE.start();
+            while (position.getOutcome() == GameState.PLAYING) {
+                int cell = moves[random.nextInt(position.legalMoves(moves))];
+                CellState mover = position.getToMove();
+                position.play(cell);
+                boolean won = position.getBoard().winLineThrough(cell, mover) != null;
+                assertEquals(won, position.getOutcome() != GameState.PLAYING && position.getOutcome() != GameState.DRAW);
+            }
+        }
+    }
+    
+    @Test
+    public void testUndoAndMirrorKeys() {
+        GamePosition position = play(3, 2, 4);
+        long key = position.getKey();
+        position.play(position.resolve(new Move(0, 0)));
+        position.undo();
+        assertEquals(key, position.getKey());
+        // The mirror image, column c played as 6 - c
+        assertEquals(key, play(3, 4, 2).getKey());
+        assertEquals(play(0, 1, 2).getKey(), play(6, 5, 4).getKey());
+        assertNotEquals(play(0, 1, 2).getKey(), play(0, 2, 1).getKey());
+    }
+    
+    @Test
+    public void testSolverWinsAndBlocks() {
+        ConnectFourSolver solver = new ConnectFourSolver();
+        // X threatens to complete column 0: O must block, X wins on the spot
+        GamePosition threat = play(0, 6, 0, 6, 0);
+        SearchResult block = solver.search(threat, 8, Long.MAX_VALUE, null, 0, null, null);
+        assertEquals(0, block.getMove().getCol());
+        GamePosition win = play(0, 6, 0, 6, 0, 5);
+        SearchResult result = solver.search(win, 42, Long.MAX_VALUE, null, 0, null, null);
+        assertEquals(0, result.getMove().getCol());
+        assertEquals(ComputerPlayer.WIN_SCORE, result.getScore());
+    }
+    
+    @Test
+    public void testSolverAgreesWithRulesSearch() {
+        Random random = new Random(11);
+        ConnectFourSolver solver = new ConnectFourSolver();
+        for (int i = 0; i < 20; i++) {
+            GamePosition position = ConnectFourSolver.randomPosition(28, random);
+            int empty = position.getBoard().emptyCount();
+            RulesSearch search = new RulesSearch(position, new HeapTranspositionTable(16), random, empty,
+                Long.MAX_VALUE, null, 0, null);
+            int expected = search.run(position).getScore();
+            assertEquals(expected, solver.solve(position));
+            assertEquals(28, position.getBoard().cellCount() - position.getBoard().emptyCount());
+        }
+    }
+    
+    @Test
+    public void testComputerPlaysOutGame() {
+        Random random = new Random(5);
+        GameEngine engine = new GameEngine(
+            new ComputerPlayer(CellState.X, "X", Strength.of(14), new HeapTranspositionTable(10), random),
+            new ComputerPlayer(CellState.O, "O", Strength.of(1), new HeapTranspositionTable(10), random),
+            ConnectFourRules.INSTANCE);
+        while (engine.getState() == GameState.PLAYING) {
+            assertTrue(engine.processMove(engine.getComputerMove()));
+        }
+        assertEquals(GameState.X_WINS, engine.getState());
+    }
+}
+
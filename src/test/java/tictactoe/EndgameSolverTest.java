@@ -0,0 +1,84 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for EndgameSolver - exact scores against the full search, and the shortcut in ComputerPlayer
+public class EndgameSolverTest {
+    
+    @Test
+    public void testForkWinsInThreePlies() {
+        // X: (0,0) (1,1), O: (0,1) (2,2) - X forks with (1,0) or (2,0) and wins on its next move
+        Board board = new Board();
+        board.makeMove(new Move(0, 0), CellState.X);
+        board.makeMove(new Move(1, 1), CellState.X);
+        board.makeMove(new Move(0, 1), CellState.O);
+        board.makeMove(new Move(2, 2), CellState.O);
+        EndgameSolver solver = new EndgameSolver();
+        
+        assertEquals(98, solver.solve(board, CellState.X));
+        assertEquals(3, ComputerPlayer.forcedPlies(solver.getScore()));
+        assertTrue(solver.getBestMove().equals(new Move(1, 0)) || solver.getBestMove().equals(new Move(2, 0)));
+        assertEquals(3, solver.getLine().size());
+    }
+    
+    @Test
+    public void testMatchesFullSearch() {
+        // Every move scored by ComputerPlayer's exhaustive search - the solver must find the best of them
+        Random random = new Random(7);
+        EndgameSolver solver = new EndgameSolver();
+        BoardSpec[] specs = {BoardSpec.STANDARD, BoardSpec.of(4, 4, 3), BoardSpec.of(4, 4, 4), BoardSpec.of(7, 7, 4), BoardSpec.of(15, 15, 5)};
+        for (BoardSpec spec : specs) {
+            for (int empties = 1; empties <= 7; empties++) {
+                for (int i = 0; i < 10; i++) {
+                    Board board = EndgameSolver.latePosition(spec, empties, random);
+                    CellState toMove = i % 2 == 0 ? CellState.X : CellState.O;
+                    ComputerPlayer player = new ComputerPlayer(toMove, "Exact", Difficulty.HARD);
+                    int best = Integer.MIN_VALUE;
+                    for (int cell = 0; cell < board.cellCount(); cell++) {
+                        Move move = new Move(cell / board.getCols(), cell % board.getCols());
+                        if (board.isValidMove(move)) {
+                            best = Math.max(best, player.scoreMove(board, move));
+                        }
+                    }
+                    int score = solver.solve(board, toMove);
+                    assertEquals(spec + " " + empties + " empty", best, score);
+                    assertEquals(score, player.scoreMove(board, solver.getBestMove()));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testShortcutPlaysLikeTheSearch() {
+        // Late 3x3 positions, up to the empty board: Hard's moves with and without the shortcut must be worth the same
+        Random random = new Random(11);
+        for (int empties = 2; empties <= 9; empties++) {
+            Board board = EndgameSolver.latePosition(BoardSpec.STANDARD, empties, random);
+            ComputerPlayer solving = new ComputerPlayer(CellState.X, "Solving", Difficulty.HARD);
+            ComputerPlayer searching = new ComputerPlayer(CellState.X, "Searching", Difficulty.HARD);
+            searching.setEndgameSolving(false);
+            assertEquals(solving.scoreMove(board, searching.getMove(board)), solving.scoreMove(board, solving.getMove(board)));
+        }
+    }
+    
+    @Test
+    public void testMediumSolvesTheEndgame() {
+        // On 4x4 Medium's search is depth-limited with noisy evaluations - with eight cells left it must be exact
+        Random random = new Random(5);
+        EndgameSolver solver = new EndgameSolver();
+        for (int i = 0; i < 20; i++) {
+            Board board = EndgameSolver.latePosition(BoardSpec.of(4, 4, 4), 8, random);
+            Strength strength = Strength.withBlunderRate(Difficulty.MEDIUM.getStrength().getLevel(), 0);
+            ComputerPlayer medium = new ComputerPlayer(CellState.O, "Medium", strength, new HeapTranspositionTable(10), random);
+            assertEquals(solver.solve(board, CellState.O), medium.search(board).getScore());
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testTooManyEmptyCells() {
+        new EndgameSolver().solve(new Board(BoardSpec.of(5, 5, 4)), CellState.X);
+    }
+}
+
@@ -0,0 +1,69 @@
+package tictactoe;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+// Unit tests for the JFR events - a recording around a human move and a computer reply holds a ComputerMove event and
+// a ProcessMove event per move, with their fields filled in
+public class EngineEventsTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private static List<RecordedEvent> named(List<RecordedEvent> events, String name) {
+        return events.stream().filter(e -> e.getEventType().getName().equals(name)).collect(Collectors.toList());
+    }
+    
+    @Test
+    public void testMoveEventsRecorded() throws Exception {
+        GameEngine engine = new GameEngine(new HumanPlayer(CellState.X, "Human"),
+            new ComputerPlayer(CellState.O, "Computer", Difficulty.HARD));
+        Path file = folder.getRoot().toPath().resolve("moves.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("tictactoe.ComputerMove");
+            recording.enable("tictactoe.ProcessMove");
+            recording.start();
+            assertTrue(engine.processMove(new Move(0, 0)));
+            assertFalse(engine.processMove(new Move(0, 0)));
+            assertTrue(engine.processMove(engine.getComputerMove()));
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        
+        List<RecordedEvent> searches = named(events, "tictactoe.ComputerMove");
+        assertEquals(1, searches.size());
+        RecordedEvent search = searches.get(0);
+        assertEquals("Computer", search.getString("player"));
+        assertEquals("HARD", search.getString("difficulty"));
+        assertEquals(20, search.getInt("level"));
+        assertEquals("3x3", search.getString("boardSpec"));
+        // Hard answers a corner in the centre
+        assertEquals(String.valueOf(new Move(1, 1)), search.getString("move"));
+        assertEquals(0, search.getInt("score"));
+        assertTrue(search.getLong("nodes") > 0);
+        assertFalse(search.getDuration().isNegative());
+        
+        List<RecordedEvent> moves = named(events, "tictactoe.ProcessMove");
+        assertEquals(3, moves.size());
+        assertEquals("X", moves.get(0).getString("mark"));
+        assertEquals(0, moves.get(0).getInt("row"));
+        assertEquals(0, moves.get(0).getInt("col"));
+        assertTrue(moves.get(0).getBoolean("accepted"));
+        assertEquals("PLAYING", moves.get(0).getString("state"));
+        assertFalse(moves.get(1).getBoolean("accepted"));
+        assertEquals("O", moves.get(2).getString("mark"));
+        assertEquals(1, moves.get(2).getInt("row"));
+        assertEquals(1, moves.get(2).getInt("col"));
+        assertTrue(moves.get(2).getBoolean("accepted"));
+    }
+}
+
@@ -0,0 +1,95 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for EngineProtocol - scripted sessions, checking the reported moves and that stop ends a search
+public class EngineProtocolTest {
+    
+    private static String session(String script) throws Exception {
+        StringWriter out = new StringWriter();
+        new EngineProtocol(new BufferedReader(new StringReader(script)), out).run();
+        return out.toString();
+    }
+    
+    @Test
+    public void testHandshake() throws Exception {
+        String output = session("uci\nisready\nbogus\n");
+        assertTrue(output.contains("uciok\n"));
+        assertTrue(output.contains("readyok\n"));
+        assertTrue(output.contains("info string unknown command: bogus\n"));
+    }
+    
+    @Test
+    public void testBlocksThreeInARow() throws Exception {
+        String output = session("position startpos moves 0,0 1,1 0,1\ngo\n");
+        // Solved outright by the endgame solver: one report, for the whole drawn line
+        assertTrue(output.contains("info depth 5 score cp 0 "));
+        assertTrue(output.contains("bestmove 0,2"));
+    }
+    
+    @Test
+    public void testReportsForcedWin() throws Exception {
+        String output = session("position startpos moves 0,0 1,1 0,1 2,2\ngo depth 3\n");
+        assertTrue(output.contains("score mate 1 "));
+        assertTrue(output.contains("bestmove 0,2"));
+    }
+    
+    @Test
+    public void testFinishedGame() throws Exception {
+        String output = session("position startpos moves 0,0 1,0 0,1 1,1 0,2\ngo\nposition moves 9,9\n");
+        assertTrue(output.contains("bestmove none\n"));
+        assertTrue(output.contains("info string illegal move: 9,9\n"));
+    }
+    
+    @Test
+    public void testStopEndsInfiniteSearch() throws Exception {
+        long start = System.nanoTime();
+        // The position command comes straight after stop, likely while the search is still winding down
+        String output = session("board 15x15k5\nposition moves 7,7\ngo infinite\ngo depth 1\nstop\n"
+            + "position moves 7,7 7,8\ngo depth 1\n");
+        
+        assertTrue(output.contains("info string busy - send stop first\n"));
+        assertEquals(output, output.indexOf("busy"), output.lastIndexOf("busy"));
+        assertEquals(output, 2, output.split("bestmove ", -1).length - 1);
+        assertTrue(System.nanoTime() - start < 5_000_000_000L);
+    }
+    
+    @Test
+    public void testNodeLimit() throws Exception {
+        String output = session("board 15x15k5\nposition moves 7,7 7,8\ngo nodes 500\n");
+        String[] lines = output.split("\n");
+        String last = lines[lines.length - 1];
+        assertTrue(last.startsWith("bestmove "));
+        for (String line : lines) {
+            if (line.startsWith("info depth")) {
+                long nodes = Long.parseLong(line.replaceAll(".* nodes (\\d+) .*", "$1"));
+                assertTrue(nodes <= 500);
+            }
+        }
+    }
+    
+    @Test
+    public void testClockKeepsDepthAndNodeLimits() throws Exception {
+        String clock = "board 15x15k5\nposition moves 7,7 7,8\ngo wtime 60000 btime 60000 ";
+        String output = session(clock + "depth 2\n");
+        assertTrue(output.contains("bestmove "));
+        for (String line : output.split("\n")) {
+            if (line.startsWith("info depth")) {
+                assertTrue(line, Integer.parseInt(line.split(" ")[2]) <= 2);
+            }
+        }
+        
+        output = session(clock + "nodes 500\n");
+        assertTrue(output.contains("bestmove "));
+        for (String line : output.split("\n")) {
+            if (line.startsWith("info depth")) {
+                assertTrue(line, Long.parseLong(line.replaceAll(".* nodes (\\d+) .*", "$1")) <= 500);
+            }
+        }
+    }
+}
+
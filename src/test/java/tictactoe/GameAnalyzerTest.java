@@ -0,0 +1,98 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for GameAnalyzer - annotations of a small in-memory archive, error lines, blunders, the report totals
+// and the bounded window of positions in flight
+public class GameAnalyzerTest {
+    
+    // Counts the games read, so the writer below can tell how far ahead of the output the reader is
+    private static class CountingReader extends BufferedReader {
+        int lines;
+        
+        CountingReader(String text) {
+            super(new StringReader(text));
+        }
+        
+        @Override
+        public String readLine() throws IOException {
+            String line = super.readLine();
+            if (line != null) {
+                lines++;
+            }
+            return line;
+        }
+    }
+    
+    @Test
+    public void testAnnotatesInOrder() throws Exception {
+        StringWriter out = new StringWriter();
+        GameAnalyzer.Report report = new GameAnalyzer(2).analyse(new BufferedReader(new StringReader(
+            "# O answers a corner on the edge and loses\n"
+            + "0,0 0,1 1,1 2,2\n"
+            + "\n"
+            + "1,1 0,0 x\n"
+            + "0,0 1,1 0,0   # the corner again\n")), out);
+        
+        assertEquals("1\t1\tX\t0,0\t0\t0,0\t0\n"
+            + "1\t2\tO\t0,1\t-95\t1,1\t0\tBLUNDER\n"
+            + "1\t3\tX\t1,1\t96\t1,0\t96\n"
+            + "1\t4\tO\t2,2\t-97\t2,2\t-97\n"
+            + "2\t1\tX\t1,1\t0\t0,0\t0\n"
+            + "2\t2\tO\t0,0\t0\t0,0\t0\n"
+            + "2\t3\terror\tillegal move 'x'\n"
+            + "3\t1\tX\t0,0\t0\t0,0\t0\n"
+            + "3\t2\tO\t1,1\t0\t1,1\t0\n"
+            + "3\t3\terror\tillegal move '0,0'\n", out.toString());
+        assertEquals(3, report.getGames());
+        assertEquals(8, report.getPositions());
+        assertEquals(1, report.getBlunders());
+        assertEquals(2, report.getErrors());
+    }
+    
+    @Test
+    public void testMoveAfterGameOverIsAnError() throws Exception {
+        StringWriter out = new StringWriter();
+        GameAnalyzer.Report report = new GameAnalyzer(1).analyse(new BufferedReader(new StringReader(
+            "0,0 1,0 0,1 1,1 0,2 2,2\n")), out);
+        
+        assertTrue(out.toString().endsWith("1\t6\terror\tillegal move '2,2'\n"));
+        assertEquals(5, report.getPositions());
+        assertEquals(1, report.getErrors());
+    }
+    
+    @Test
+    public void testWindowBoundsPositionsInFlight() throws Exception {
+        int games = 60;
+        StringBuilder archive = new StringBuilder();
+        for (int i = 0; i < games; i++) {
+            archive.append("0,0 1,1 2,2 0,2 2,0\n");
+        }
+        CountingReader in = new CountingReader(archive.toString());
+        int[] written = new int[1];
+        int[] mostAhead = new int[1];
+        StringWriter out = new StringWriter() {
+            @Override
+            public void write(int c) {
+                super.write(c);
+                if (c == '\n') {
+                    written[0]++;
+                    mostAhead[0] = Math.max(mostAhead[0], in.lines * 5 - written[0]);
+                }
+            }
+        };
+        GameAnalyzer.Report report = new GameAnalyzer(1).analyse(in, out);
+        
+        assertEquals(games * 5, report.getPositions());
+        assertEquals(games * 5, written[0]);
+        // Output starts long before the archive is read, and the reader never gets more than a window (plus the
+        // rest of the game being read) ahead of it
+        assertTrue("ahead by " + mostAhead[0], mostAhead[0] <= GameAnalyzer.POSITIONS_PER_WORKER + 5);
+    }
+}
+
@@ -1,5 +1,10 @@
 package tictactoe;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Supplier;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
@@ -60,6 +65,8 @@ public class GameEngineTest {
         engine.processMove(new Move(0, 2)); // X wins
         
         assertEquals(GameState.X_WINS, engine.getState());
+        assertEquals(Arrays.asList(new Move(0, 0), new Move(0, 1), new Move(0, 2)), engine.getWinLine().getCells());
+        assertEquals(WinLine.Direction.HORIZONTAL, engine.getWinLine().getDirection());
     }
     
     @Test
@@ -77,6 +84,11 @@ public class GameEngineTest {
         engine.processMove(new Move(2, 1)); // O wins
         
         assertEquals(GameState.O_WINS, engine.getState());
+        assertEquals(new Move(0, 1), engine.getWinLine().getStart());
+        assertEquals(new Move(2, 1), engine.getWinLine().getEnd());
+        
+        engine.reset();
+        assertNull(engine.getWinLine());
     }
     
     @Test
@@ -97,6 +109,7 @@ public class GameEngineTest {
         engine.processMove(new Move(2, 1)); // X
         
         assertEquals(GameState.DRAW, engine.getState());
+        assertNull(engine.getWinLine());
     }
     
     @Test
@@ -113,6 +126,8 @@ public class GameEngineTest {
         engine.processMove(new Move(0, 2)); // X wins
         
         assertEquals(GameState.X_WINS, engine.getState());
+        assertEquals(Arrays.asList(new Move(0, 0), new Move(0, 1), new Move(0, 2)), engine.getWinLine().getCells());
+        assertEquals(WinLine.Direction.HORIZONTAL, engine.getWinLine().getDirection());
         
         // Try to make another move
         boolean result = engine.processMove(new Move(2, 2));
@@ -173,5 +188,127 @@ public class GameEngineTest {
         Player playerX = new HumanPlayer(CellState.X, "Player 1");
         new GameEngine(playerX, null);
     }
+    
+    @Test
+    public void testComputerBlocksOnLargeBoard() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new ComputerPlayer(CellState.O, "Computer", Difficulty.HARD);
+        GameEngine engine = new GameEngine(playerX, playerO, BoardSpec.of(15, 15, 5));
+        
+        // X builds four in a row with one end already blocked, so (7, 8) is the only defence
+        int[][] moves = {{7, 4}, {7, 3}, {7, 5}, {0, 0}, {7, 6}, {0, 1}, {7, 7}};
+        for (int[] move : moves) {
+            assertTrue(engine.processMove(new Move(move[0], move[1])));
+        }
+        
+        assertEquals(new Move(7, 8), engine.getComputerMove());
+    }
+    
+    @Test
+    public void testPreparedComputerMoveSearchesSnapshot() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new ComputerPlayer(CellState.O, "Computer", Difficulty.HARD);
+        GameEngine engine = new GameEngine(playerX, playerO);
+        engine.processMove(new Move(1, 1));
+        
+        List<Integer> depths = new ArrayList<>();
+        Supplier<SearchResult> task = engine.prepareComputerMove(progress -> depths.add(progress.getDepth()));
+        engine.getBoard().clear(); // the prepared search must not see later changes to the live board
+        SearchResult result = task.get();
+        
+        assertEquals(1, depths.size()); // solved outright, the drawn line reported once
+        assertTrue(result.getMove().getRow() != 1 || result.getMove().getCol() != 1);
+        assertNull(new GameEngine(playerX, playerO).prepareComputerMove(null)); // X (human) to move
+    }
+    
+    @Test
+    public void testStoppedComputerMoveRecordsNoLatency() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new ComputerPlayer(CellState.O, "Computer", Difficulty.HARD);
+        GameEngine engine = new GameEngine(playerX, playerO, BoardSpec.of(15, 15, 5));
+        engine.processMove(new Move(7, 7));
+        LatencyHistogram histogram = MoveLatencyMonitor.getInstance().histogram(Difficulty.HARD.getStrength(), "15x15k5");
+        long recorded = histogram.getCount();
+        
+        // A GUI cancelling its worker stops the search's limits - it still returns a move, but nothing is recorded
+        SearchLimits limits = SearchLimits.none();
+        Supplier<SearchResult> task = engine.prepareComputerMove(null, limits);
+        limits.stop();
+        assertNotNull(task.get().getMove());
+        assertEquals(recorded, histogram.getCount());
+        
+        engine.prepareComputerMove(null, SearchLimits.none()).get();
+        assertEquals(recorded + 1, histogram.getCount());
+    }
+    
+    @Test
+    public void testLatencyKeyedByRules() {
+        MoveLatencyMonitor monitor = MoveLatencyMonitor.getInstance();
+        long standard = monitor.histogram(Difficulty.HARD.getStrength(), "3x3").getCount();
+        long misere = monitor.histogram(Difficulty.HARD.getStrength(), "misere 3x3").getCount();
+        
+        Player playerX = new ComputerPlayer(CellState.X, "Computer", Difficulty.HARD);
+        Player playerO = new HumanPlayer(CellState.O, "Player 2");
+        new GameEngine(playerX, playerO, MnkRules.misere(BoardSpec.STANDARD)).getComputerMove();
+        // Misere on the same grid is a series of its own
+        assertEquals(misere + 1, monitor.histogram(Difficulty.HARD.getStrength(), "misere 3x3").getCount());
+        assertEquals(standard, monitor.histogram(Difficulty.HARD.getStrength(), "3x3").getCount());
+    }
+    
+    @Test
+    public void testLatencyKeyedByLevel() {
+        // Levels 5 and 14 both report as Medium, but their searches differ by orders of magnitude
+        MoveLatencyMonitor monitor = MoveLatencyMonitor.getInstance();
+        long level5 = monitor.histogram(Strength.of(5), "3x3").getCount();
+        long level14 = monitor.histogram(Strength.of(14), "3x3").getCount();
+        
+        Player playerX = new ComputerPlayer(CellState.X, "Computer", Strength.of(5), new HeapTranspositionTable(10),
+            new Random(1));
+        new GameEngine(playerX, new HumanPlayer(CellState.O, "Player 2")).getComputerMove();
+        assertEquals(level5 + 1, monitor.histogram(Strength.of(5), "3x3").getCount());
+        assertEquals(level14, monitor.histogram(Strength.of(14), "3x3").getCount());
+        assertNotSame(monitor.histogram(Strength.of(5), "3x3"), monitor.histogram(Strength.of(14), "3x3"));
+    }
+    
+    @Test
+    public void testSnapshotFollowsMovesAndReset() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new HumanPlayer(CellState.O, "Player 2");
+        GameEngine engine = new GameEngine(playerX, playerO);
+        
+        BoardSnapshot before = engine.getSnapshot();
+        engine.processMove(new Move(0, 2));
+        BoardSnapshot after = engine.getSnapshot();
+        
+        assertEquals(CellState.EMPTY, before.getCell(0, 2)); // earlier snapshots never change
+        assertEquals(CellState.X, after.getCell(0, 2));
+        assertFalse(engine.processMove(new Move(0, 2)));
+        assertSame(after, engine.getSnapshot());
+        
+        engine.reset();
+        assertEquals(before, engine.getSnapshot());
+    }
+    
+    @Test
+    public void testWinLineJoiningTwoRuns() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new HumanPlayer(CellState.O, "Player 2");
+        GameEngine engine = new GameEngine(playerX, playerO, BoardSpec.of(7, 7, 4));
+        
+        // X fills the gap in an anti-diagonal of 2 + 1 + 2, making a run of five
+        int[][] moves = {{0, 6}, {6, 6}, {1, 5}, {6, 5}, {3, 3}, {6, 4}, {4, 2}, {5, 0}, {2, 4}};
+        for (int[] move : moves) {
+            assertTrue(engine.processMove(new Move(move[0], move[1])));
+        }
+        
+        WinLine line = engine.getWinLine();
+        assertEquals(GameState.X_WINS, engine.getState());
+        assertEquals(WinLine.Direction.ANTI_DIAGONAL, line.getDirection());
+        assertEquals(5, line.getLength());
+        assertEquals(new Move(0, 6), line.getStart());
+        assertEquals(new Move(4, 2), line.getEnd());
+        assertTrue(line.contains(2, 4));
+        assertFalse(line.contains(5, 1));
+    }
 }
 
@@ -0,0 +1,133 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for the GameRules SPI - misere through GameEngine and ComputerPlayer, and RulesSearch against the
+// specialised search on the standard game
+public class GameRulesTest {
+    
+    private static GameEngine humans(GameRules rules) {
+        return new GameEngine(new HumanPlayer(CellState.X, "X"), new HumanPlayer(CellState.O, "O"), rules);
+    }
+    
+    @Test
+    public void testMisereLineLoses() {
+        GameEngine engine = humans(MnkRules.misere(BoardSpec.STANDARD));
+        int[][] moves = {{0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 2}};
+        for (int[] move : moves) {
+            assertTrue(engine.processMove(new Move(move[0], move[1])));
+        }
+        // X completed the top row
+        assertEquals(GameState.O_WINS, engine.getState());
+        assertEquals(CellState.X, engine.getWinLine().getMark());
+        assertFalse(engine.processMove(new Move(2, 2)));
+    }
+    
+    @Test
+    public void testStandardRulesThroughEngine() {
+        GameEngine engine = humans(GameRules.parse("3x3"));
+        int[][] moves = {{0, 0}, {1, 0}, {0, 1}, {1, 1}, {0, 2}};
+        for (int[] move : moves) {
+            engine.processMove(new Move(move[0], move[1]));
+        }
+        assertEquals(GameState.X_WINS, engine.getState());
+        engine.reset();
+        assertEquals(GameState.PLAYING, engine.getState());
+        assertEquals(CellState.EMPTY, engine.getBoard().getCell(0, 0));
+    }
+    
+    @Test
+    public void testParse() {
+        assertEquals(MnkRules.misere(BoardSpec.STANDARD), GameRules.parse("misere 3x3"));
+        assertEquals(MnkRules.standard(BoardSpec.of(15, 15, 5)), GameRules.parse(" 15x15k5 "));
+        assertEquals("misere 4x4k3", GameRules.parse("misere 4x4k3").getName());
+    }
+    
+    @Test
+    public void testUndoRestoresPosition() {
+        GamePosition position = MnkRules.misere(BoardSpec.STANDARD).start();
+        long start = position.getKey();
+        for (int cell : new int[] {0, 3, 1, 4}) {
+            position.play(cell);
+        }
+        long before = position.getKey();
+        position.play(2);
+        assertEquals(GameState.O_WINS, position.getOutcome());
+        assertEquals(0, position.legalMoves(new int[9]));
+        position.undo();
+        assertEquals(GameState.PLAYING, position.getOutcome());
+        assertEquals(before, position.getKey());
+        assertNotEquals(MnkRules.standard(BoardSpec.STANDARD).start().getKey(), start);
+    }
+    
+    @Test
+    public void testHardDrawsMisereAgainstItself() {
+        GameEngine engine = new GameEngine(new ComputerPlayer(CellState.X, "X"), new ComputerPlayer(CellState.O, "O"),
+            MnkRules.misere(BoardSpec.STANDARD));
+        while (engine.getState() == GameState.PLAYING) {
+            assertTrue(engine.processMove(engine.getComputerMove()));
+        }
+        assertEquals(GameState.DRAW, engine.getState());
+    }
+    
+    @Test
+    public void testHardNeverLosesMisere() {
+        Random random = new Random(4);
+        for (int game = 0; game < 20; game++) {
+            ComputerPlayer random1 = new ComputerPlayer(game % 2 == 0 ? CellState.O : CellState.X, "Easy",
+                Strength.of(1), new HeapTranspositionTable(10), random);
+            ComputerPlayer hard = new ComputerPlayer(game % 2 == 0 ? CellState.X : CellState.O, "Hard");
+            GameEngine engine = game % 2 == 0
+                ? new GameEngine(hard, random1, MnkRules.misere(BoardSpec.STANDARD))
+                : new GameEngine(random1, hard, MnkRules.misere(BoardSpec.STANDARD));
+            while (engine.getState() == GameState.PLAYING) {
+                assertTrue(engine.processMove(engine.getComputerMove()));
+            }
+            GameState lost = hard.getMark() == CellState.X ? GameState.O_WINS : GameState.X_WINS;
+            assertNotEquals(lost, engine.getState());
+        }
+    }
+    
+    @Test
+    public void testGenericSearchMatchesFastPath() {
+        // Standard 3x3 positions through RulesSearch must score what the specialised search scores
+        Random random = new Random(8);
+        int compared = 0;
+        for (int i = 0; i < 20; i++) {
+            Board board = EndgameSolver.latePosition(BoardSpec.STANDARD, 3 + i % 6, random);
+            GamePosition position = MnkRules.standard(BoardSpec.STANDARD).start();
+            // Replay X's and O's marks alternately so the position's move count matches the board
+            int[] xs = new int[9];
+            int[] os = new int[9];
+            int xCount = 0;
+            int oCount = 0;
+            for (int cell = 0; cell < 9; cell++) {
+                if (board.cellAt(cell) == CellState.X) {
+                    xs[xCount++] = cell;
+                } else if (board.cellAt(cell) == CellState.O) {
+                    os[oCount++] = cell;
+                }
+            }
+            if (xCount != oCount && xCount != oCount + 1) {
+                continue;
+            }
+            for (int ply = 0; ply < xCount + oCount; ply++) {
+                position.play(ply % 2 == 0 ? xs[ply / 2] : os[ply / 2]);
+            }
+            if (position.getOutcome() != GameState.PLAYING) {
+                continue;
+            }
+            CellState toMove = position.getToMove();
+            SearchResult generic = new RulesSearch(position, new HeapTranspositionTable(12), random, 9, Long.MAX_VALUE,
+                null, 0, null).run(position);
+            ComputerPlayer player = new ComputerPlayer(toMove, "Hard");
+            assertEquals(player.search(board).getScore(), generic.getScore());
+            assertEquals(generic.getScore(), player.scoreMove(board, generic.getMove()));
+            compared++;
+        }
+        assertTrue(compared >= 10);
+    }
+}
+
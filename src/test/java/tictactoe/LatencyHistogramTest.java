@@ -0,0 +1,67 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for LatencyHistogram - bucket layout and percentile accuracy
+public class LatencyHistogramTest {
+    
+    @Test
+    public void testEmptyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.snapshot().getValueAtPercentile(99.0));
+    }
+    
+    @Test
+    public void testSmallValuesAreExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 10; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(5, snapshot.getValueAtPercentile(50.0));
+        assertEquals(10, snapshot.getValueAtPercentile(100.0));
+    }
+    
+    @Test
+    public void testBucketsAreContiguous() {
+        for (int bucket = 1; bucket < 1500; bucket++) {
+            long lowest = LatencyHistogram.highestValueIn(bucket - 1) + 1;
+            assertEquals(bucket, LatencyHistogram.bucketOf(lowest));
+            assertEquals(bucket, LatencyHistogram.bucketOf(LatencyHistogram.highestValueIn(bucket)));
+        }
+    }
+    
+    @Test
+    public void testPercentilesWithinRelativeError() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long micros = 1; micros <= 100_000; micros++) {
+            histogram.record(micros * 1000);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(50_000_000, snapshot.getValueAtPercentile(50.0), 50_000_000 * 0.04);
+        assertEquals(99_000_000, snapshot.getValueAtPercentile(99.0), 99_000_000 * 0.04);
+        assertEquals(99_900_000, snapshot.getValueAtPercentile(99.9), 99_900_000 * 0.04);
+        assertEquals(100_000_000, snapshot.getMaxValue());
+    }
+    
+    @Test
+    public void testConcurrentRecording() throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    histogram.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(40_000, histogram.getCount());
+        assertEquals(40_000, histogram.snapshot().getTotalCount());
+    }
+}
@@ -0,0 +1,82 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for LineCounts - the packed path against the scalar one, and against the line masks small boards use
+public class LineCountsTest {
+    
+    @Test
+    public void testEmptyBoard() {
+        // 3x3: eight lines, all empty, so all count for both sides
+        LineCounts counts = LineCounts.of(new Board());
+        assertEquals(8, counts.get(CellState.X, 0));
+        assertEquals(8, counts.get(CellState.O, 0));
+        assertEquals(0, counts.get(CellState.X, 2));
+        assertEquals(0, counts.balance());
+    }
+    
+    @Test
+    public void testCountsOneMarkShort() {
+        // X: (0,0) (0,1), O: (1,1) - X keeps the top row and the left column, O the middle row and the anti-diagonal
+        Board board = new Board();
+        board.makeMove(new Move(0, 0), CellState.X);
+        board.makeMove(new Move(0, 1), CellState.X);
+        board.makeMove(new Move(1, 1), CellState.O);
+        LineCounts counts = LineCounts.of(board);
+        assertEquals(1, counts.get(CellState.X, 2));
+        assertEquals(1, counts.get(CellState.X, 1));
+        assertEquals(0, counts.get(CellState.O, 2));
+        assertEquals(2, counts.get(CellState.O, 1));
+        assertEquals(1, counts.balance());
+    }
+    
+    @Test
+    public void testPackedMatchesScalar() {
+        Random random = new Random(3);
+        BoardSpec[] specs = {BoardSpec.STANDARD, BoardSpec.of(4, 4, 3), BoardSpec.of(7, 7, 4), BoardSpec.of(15, 15, 5),
+            BoardSpec.of(19, 19, 5), BoardSpec.of(6, 20, 4), BoardSpec.of(30, 64, 6), BoardSpec.of(64, 64, 5),
+            BoardSpec.of(5, 5, 1), BoardSpec.of(9, 3, 3), BoardSpec.of(40, 40, 40)};
+        for (BoardSpec spec : specs) {
+            for (double fill = 0; fill <= 1; fill += 0.25) {
+                for (int i = 0; i < 5; i++) {
+                    Board board = LineCounts.randomBoard(spec, fill, random);
+                    assertEquals(spec + " fill " + fill, LineCounts.scalar(board), LineCounts.packed(board));
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testMatchesLineMasks() {
+        // Small boards: every count must agree with a count over BoardSpec's line masks
+        Random random = new Random(9);
+        BoardSpec[] specs = {BoardSpec.STANDARD, BoardSpec.of(4, 4, 4), BoardSpec.of(5, 5, 4), BoardSpec.of(8, 8, 5)};
+        for (BoardSpec spec : specs) {
+            for (int i = 0; i < 20; i++) {
+                Board board = LineCounts.randomBoard(spec, random.nextDouble(), random);
+                LineCounts counts = LineCounts.of(board);
+                for (CellState mark : new CellState[] {CellState.X, CellState.O}) {
+                    long own = board.marks(mark);
+                    long opponent = board.marks(mark == CellState.X ? CellState.O : CellState.X);
+                    int[] expected = new int[spec.getWinLength() + 1];
+                    for (int line = 0; line < spec.lineCount(); line++) {
+                        if ((opponent & spec.lineMask(line)) == 0) {
+                            expected[Long.bitCount(own & spec.lineMask(line))]++;
+                        }
+                    }
+                    for (int marks = 0; marks <= spec.getWinLength(); marks++) {
+                        assertEquals(spec + " " + mark + " " + marks, expected[marks], counts.get(mark, marks));
+                    }
+                }
+            }
+        }
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testMarkCountOutOfRange() {
+        LineCounts.of(new Board()).get(CellState.X, 4);
+    }
+}
+
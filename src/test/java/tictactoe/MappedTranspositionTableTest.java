@@ -0,0 +1,112 @@
+package tictactoe;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+// Unit tests for MappedTranspositionTable - warm restarts, and rejecting mismatched or damaged files
+public class MappedTranspositionTableTest {
+    private static final BoardSpec SPEC = BoardSpec.of(15, 15, 5);
+    private static final int BITS = 13; // two checksummed segments
+    private static final int KEYS = 1000;
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    private File fillTable() throws Exception {
+        File file = folder.newFile("table.tt");
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            assertFalse(table.isWarm());
+            for (long key = 1; key <= KEYS; key++) {
+                table.store(key * 7919, (int) key % 50, 3, TranspositionTable.EXACT);
+            }
+        }
+        return file;
+    }
+    
+    // Stored entries that read back, failing on any that read back wrong
+    private static int hits(MappedTranspositionTable table) {
+        int hits = 0;
+        for (long key = 1; key <= KEYS; key++) {
+            long entry = table.probe(key * 7919);
+            if (entry != TranspositionTable.MISS) {
+                assertEquals((int) key % 50, TranspositionTable.value(entry));
+                hits++;
+            }
+        }
+        return hits;
+    }
+    
+    @Test
+    public void testWarmRestart() throws Exception {
+        File file = fillTable();
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            assertTrue(table.isWarm());
+            assertTrue(hits(table) > KEYS * 8 / 10); // a few keys share slots
+        }
+    }
+    
+    @Test
+    public void testPersistent() throws Exception {
+        File file = fillTable();
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            // EngineProtocol keeps persistent tables across ucinewgame
+            assertTrue(table.isPersistent());
+            assertFalse(new HeapTranspositionTable(BITS).isPersistent());
+        }
+    }
+    
+    @Test
+    public void testMismatchedSpecIsRejected() throws Exception {
+        File file = fillTable();
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), BoardSpec.of(19, 19, 5), BITS)) {
+            assertFalse(table.isWarm());
+            assertEquals(0, hits(table));
+        }
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), BoardSpec.of(19, 19, 5), BITS)) {
+            assertTrue(table.isWarm()); // rewritten for the new spec
+        }
+    }
+    
+    @Test
+    public void testDamagedHeaderIsRejected() throws Exception {
+        File file = fillTable();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(24);
+            raw.write(0x7F); // index bits field, header checksum no longer matches
+        }
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            assertFalse(table.isWarm());
+            assertEquals(0, hits(table));
+        }
+    }
+    
+    @Test
+    public void testDamagedSegmentIsDiscarded() throws Exception {
+        File file = fillTable();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(4096 + 100); // inside the first data segment
+            raw.write(raw.read() ^ 0x55);
+        }
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            assertTrue(table.isWarm());
+            int hits = hits(table);
+            assertTrue(hits > 0 && hits < KEYS / 2 + KEYS / 10); // only the second segment survives
+        }
+    }
+    
+    @Test
+    public void testTruncatedFileIsRejected() throws Exception {
+        File file = fillTable();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.setLength(raw.length() / 2);
+        }
+        try (MappedTranspositionTable table = MappedTranspositionTable.open(file.toPath(), SPEC, BITS)) {
+            assertFalse(table.isWarm());
+        }
+    }
+}
+
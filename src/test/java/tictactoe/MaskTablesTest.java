@@ -0,0 +1,64 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for MaskTables - every entry against the line scan it replaces
+public class MaskTablesTest {
+    
+    @Test
+    public void testWinsMatchScan() {
+        for (BoardSpec spec : new BoardSpec[] {BoardSpec.STANDARD, BoardSpec.of(3, 3, 2), BoardSpec.of(2, 4, 2)}) {
+            MaskTables tables = spec.tables();
+            for (long mask = 0; mask < 1 << spec.getCells(); mask++) {
+                assertEquals(spec + " " + mask, spec.scanWinning(mask), tables.isWin(mask));
+            }
+        }
+    }
+    
+    @Test
+    public void testThreats() {
+        MaskTables tables = BoardSpec.STANDARD.tables();
+        // X on 0 and 1 threatens 2; with 4 as well, also 8 (diagonal) and 7 (middle column)
+        assertEquals(1L << 2, tables.threats(0b000000011, ~0b000000011L & 0x1FF));
+        assertEquals(1L << 2 | 1L << 7 | 1L << 8, tables.threats(0b000010011, ~0b000010011L & 0x1FF));
+        // A blocked cell is no threat
+        assertEquals(0, tables.threats(0b000000011, 0));
+        for (long mask = 0; mask < 512; mask++) {
+            long empty = ~mask & 0x1FF;
+            for (long cells = tables.threats(mask, empty); cells != 0; cells &= cells - 1) {
+                assertTrue(tables.isWin(mask | Long.lowestOneBit(cells)));
+            }
+        }
+    }
+    
+    @Test
+    public void testScoresMatchLines() {
+        BoardSpec spec = BoardSpec.STANDARD;
+        MaskTables tables = spec.tables();
+        PatternWeights weights = PatternWeights.defaults(3);
+        int[] scores = tables.scores(weights);
+        assertSame(scores, tables.scores(PatternWeights.defaults(3)));
+        for (long xs = 0; xs < 512; xs++) {
+            for (long os = 0; os < 512; os++) {
+                if ((xs & os) != 0) {
+                    continue;
+                }
+                int expected = 0;
+                for (int line = 0; line < spec.lineCount(); line++) {
+                    long cells = spec.lineMask(line);
+                    expected += weights.window(Long.bitCount(xs & cells), Long.bitCount(os & cells));
+                }
+                assertEquals(expected, scores[tables.code(xs, os)]);
+            }
+        }
+    }
+    
+    @Test
+    public void testOnlyTinyBoards() {
+        assertNotNull(BoardSpec.of(3, 3, 3).tables());
+        assertNull(BoardSpec.of(4, 4, 3).tables());
+        assertNull(BoardSpec.of(7, 7, 4).tables());
+    }
+}
+
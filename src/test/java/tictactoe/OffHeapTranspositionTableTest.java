@@ -0,0 +1,61 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for OffHeapTranspositionTable - bucket replacement, clearing, and searching through it
+public class OffHeapTranspositionTableTest {
+    
+    @Test
+    public void testStoreAndProbe() {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(16);
+        assertEquals(1 << 16, table.capacity());
+        for (long key = 1; key <= 1000; key++) {
+            table.store(key * 7919, (int) key % 50 - 25, 7, TranspositionTable.LOWER_BOUND);
+        }
+        for (long key = 1; key <= 1000; key++) {
+            long entry = table.probe(key * 7919);
+            assertNotEquals(TranspositionTable.MISS, entry); // four ways per bucket absorb the collisions
+            assertEquals((int) key % 50 - 25, TranspositionTable.value(entry));
+            assertEquals(7, TranspositionTable.draft(entry));
+            assertEquals(TranspositionTable.LOWER_BOUND, TranspositionTable.bound(entry));
+        }
+        assertEquals(TranspositionTable.MISS, table.probe(12345));
+    }
+    
+    @Test
+    public void testDeepEntrySurvivesShallowStores() {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(3); // two buckets
+        table.store(42, 10, 20, TranspositionTable.EXACT);
+        for (long key = 100; key < 200; key++) {
+            table.store(key, 0, 1, TranspositionTable.EXACT);
+        }
+        assertEquals(20, TranspositionTable.draft(table.probe(42)));
+        
+        table.store(42, 11, 2, TranspositionTable.EXACT); // the key's own entry is replaced, not duplicated
+        assertEquals(11, TranspositionTable.value(table.probe(42)));
+    }
+    
+    @Test
+    public void testClear() {
+        OffHeapTranspositionTable table = new OffHeapTranspositionTable(22); // several clear stripes
+        for (long key = 1; key <= 1000; key++) {
+            table.store(key, 1, 1, TranspositionTable.EXACT);
+        }
+        table.clear();
+        for (long key = 1; key <= 1000; key++) {
+            assertEquals(TranspositionTable.MISS, table.probe(key));
+        }
+    }
+    
+    @Test
+    public void testComputerPlayerSearchesThroughIt() {
+        Board board = new Board();
+        board.makeMove(new Move(0, 0), CellState.X);
+        board.makeMove(new Move(1, 1), CellState.O);
+        board.makeMove(new Move(0, 1), CellState.X);
+        ComputerPlayer player = new ComputerPlayer(CellState.O, "O", Difficulty.HARD, new OffHeapTranspositionTable(12));
+        assertEquals(new Move(0, 2), player.getMove(board));
+    }
+}
+
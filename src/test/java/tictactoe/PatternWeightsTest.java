@@ -0,0 +1,88 @@
+package tictactoe;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+// Unit tests for PatternWeights and PatternTuner - the built-in weights, the weights file, and a small tuning run
+public class PatternWeightsTest {
+    
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+    
+    @Test
+    public void testDefaultsScoreWindowsOneShort() {
+        PatternWeights weights = PatternWeights.defaults(5);
+        assertEquals(PatternWeights.DEFAULT_WEIGHT, weights.get(4));
+        assertEquals(0, weights.get(3));
+        assertEquals(PatternWeights.DEFAULT_WEIGHT, weights.window(4, 0));
+        assertEquals(-PatternWeights.DEFAULT_WEIGHT, weights.window(0, 4));
+        assertEquals(0, weights.window(4, 1));
+    }
+    
+    @Test
+    public void testPackagedWeightsLoadFromClasspath() {
+        // The packaged file only covers 15x15k5 - other boards keep the built-in weights
+        assertEquals(new PatternWeights(5, new int[] {0, 0, 0, 2, 2, 0}), PatternWeights.forSpec(BoardSpec.of(15, 15, 5)));
+        assertEquals(PatternWeights.defaults(5), PatternWeights.forSpec(BoardSpec.of(19, 19, 5)));
+        assertEquals(PatternWeights.defaults(3), PatternWeights.forSpec(BoardSpec.STANDARD));
+    }
+    
+    @Test
+    public void testScoreMatchesWindows() {
+        // X: (0,0) (0,1), O: (1,1) on 3x3 - X's top row is one short and nothing else is
+        Board board = new Board();
+        board.makeMove(new Move(0, 0), CellState.X);
+        board.makeMove(new Move(0, 1), CellState.X);
+        board.makeMove(new Move(1, 1), CellState.O);
+        PatternWeights weights = new PatternWeights(3, new int[] {0, 1, 5, 0});
+        // X: one window with 2 and one with 1, O: two with 1
+        assertEquals(5 + 1 - 2, weights.score(LineCounts.of(board)));
+    }
+    
+    @Test
+    public void testFileRoundTrip() throws IOException {
+        Path file = folder.newFile("weights.txt").toPath();
+        Map<BoardSpec, PatternWeights> weights = new LinkedHashMap<>();
+        weights.put(BoardSpec.of(15, 15, 5), new PatternWeights(5, new int[] {0, 0, 1, 4, 9, 0}));
+        weights.put(BoardSpec.STANDARD, PatternWeights.defaults(3));
+        PatternWeights.save(file, weights);
+        assertEquals(weights, PatternWeights.load(file));
+        assertTrue(new String(Files.readAllBytes(file), "UTF-8").contains("15x15k5 0 1 4 9"));
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testLoadRejectsMissingWeights() throws IOException {
+        Path file = folder.newFile("short.txt").toPath();
+        Files.write(file, "15x15k5 1 2 3\n".getBytes("UTF-8"));
+        PatternWeights.load(file);
+    }
+    
+    @Test
+    public void testTuningLowersError() throws IOException {
+        BoardSpec spec = BoardSpec.of(6, 6, 4);
+        StringWriter games = new StringWriter();
+        PatternTuner.generate(spec, 40, Strength.withBlunderRate(6, 0), 2, 3, games);
+        assertEquals(40, games.toString().split("\n").length);
+        
+        PatternTuner tuner = new PatternTuner(spec);
+        long positions = tuner.read(new BufferedReader(new StringReader(games.toString())), 2, 2);
+        assertTrue(positions > 0);
+        assertTrue(tuner.distinct() > 1);
+        double[] start = {0, 0, 0, PatternWeights.DEFAULT_WEIGHT, 0};
+        double scale = tuner.fitScale(start);
+        double[] fitted = tuner.fit(start, scale, 200);
+        assertTrue(tuner.error(fitted, scale) <= tuner.error(start, scale));
+        assertEquals(4, tuner.toWeights(fitted).getWinLength());
+    }
+}
+
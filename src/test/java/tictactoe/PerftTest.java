@@ -0,0 +1,62 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Perft reference counts - a regression test for Board's move generation and win detection in every walk mode
+public class PerftTest {
+    
+    private static void assertFullTree(Perft.Counts counts) {
+        assertEquals(255_168, counts.getGames());
+        assertEquals(131_184, counts.getXWins());
+        assertEquals(77_904, counts.getOWins());
+        assertEquals(46_080, counts.getDraws());
+        assertEquals(0, counts.getUnfinished());
+    }
+    
+    @Test
+    public void testFullTree() {
+        Board board = new Board();
+        assertFullTree(Perft.count(board, CellState.X, 9, false, false));
+        assertFullTree(Perft.count(board, CellState.X, 9, true, false));
+        assertFullTree(Perft.count(board, CellState.X, 9, false, true));
+        assertFullTree(Perft.count(board, CellState.X, 9, true, true));
+    }
+    
+    @Test
+    public void testDepthLimited() {
+        long[] leaves = {1, 9, 72, 504, 3024, 15_120};
+        for (int depth = 0; depth < leaves.length; depth++) {
+            Perft.Counts counts = Perft.count(new Board(), CellState.X, depth, true, false);
+            assertEquals(leaves[depth], counts.getLeaves());
+        }
+        // The first wins come on the fifth ply: three X marks in a line, two O marks anywhere else
+        assertEquals(1440, Perft.count(new Board(), CellState.X, 5, false, false).getXWins());
+    }
+    
+    @Test
+    public void testFromPosition() {
+        Board board = new Board();
+        board.makeMove(new Move(1, 1), CellState.X);
+        Perft.Counts counts = Perft.count(board, CellState.O, 8, false, false);
+        assertEquals(counts.getGames(), Perft.count(board, CellState.O, 8, true, true).getGames());
+        assertEquals(25_872, counts.getGames()); // with 4 x 27,732 from the corners and 4 x 29,592 from the edges
+        assertTrue(counts.getXWins() > counts.getOWins());
+    }
+    
+    @Test
+    public void testModesAgreeOnLargerBoards() {
+        Board board = new Board(BoardSpec.of(4, 4, 3));
+        Perft.Counts serial = Perft.count(board, CellState.X, 6, false, false);
+        Perft.Counts other = Perft.count(board, CellState.X, 6, true, true);
+        assertEquals(serial.getXWins(), other.getXWins());
+        assertEquals(serial.getOWins(), other.getOWins());
+        assertEquals(serial.getUnfinished(), other.getUnfinished());
+        
+        // Past one word per mark there is no bulk mode, but the parallel walk still has to match
+        Board large = new Board(BoardSpec.of(9, 9, 4));
+        assertEquals(Perft.count(large, CellState.X, 3, false, false).getLeaves(), Perft.count(large, CellState.X, 3, true, true).getLeaves());
+        assertEquals(81 * 80 * 79, Perft.count(large, CellState.X, 3, false, true).getLeaves());
+    }
+}
+
@@ -0,0 +1,85 @@
+package tictactoe;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import javax.swing.JPanel;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for the GUI's render caches, headless - mark sprites and decoration layers are rendered once and reused
+// until the size or background they were rendered for changes
+public class RenderCacheTest {
+    static {
+        System.setProperty("java.awt.headless", "true");
+    }
+    
+    @Test
+    public void testSpritesReusedUntilSizeChanges() {
+        assertNull(GameGUI.MarkSprites.forCell(CellState.EMPTY, 60));
+        BufferedImage x = GameGUI.MarkSprites.forCell(CellState.X, 60);
+        BufferedImage o = GameGUI.MarkSprites.forCell(CellState.O, 60);
+        assertNotNull(x);
+        assertNotSame(x, o);
+        assertSame(x, GameGUI.MarkSprites.forCell(CellState.X, 60));
+        assertSame(o, GameGUI.MarkSprites.forCell(CellState.O, 60));
+        // A cell size that rounds to the same font size keeps the sprites
+        assertSame(x, GameGUI.MarkSprites.forCell(CellState.X, 61));
+        
+        BufferedImage larger = GameGUI.MarkSprites.forCell(CellState.X, 90);
+        assertNotSame(x, larger);
+        assertTrue(larger.getHeight() > x.getHeight());
+        assertNotSame(o, GameGUI.MarkSprites.forCell(CellState.O, 90));
+        // Only the current size is kept
+        assertNotSame(x, GameGUI.MarkSprites.forCell(CellState.X, 60));
+    }
+    
+    @Test
+    public void testDecorationLayerRendersOncePerSizeAndBackground() {
+        int[] renders = new int[1];
+        GameGUI.DecorationLayer layer = new GameGUI.DecorationLayer(7, (g2, random, width, height) -> {
+            renders[0]++;
+            g2.setColor(Color.RED);
+            g2.fillRect(0, 0, 2, 2);
+        });
+        JPanel owner = new JPanel();
+        owner.setBackground(Color.BLUE);
+        owner.setSize(100, 80);
+        BufferedImage screen = new BufferedImage(200, 200, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = screen.createGraphics();
+        
+        layer.paint(owner, g);
+        layer.paint(owner, g);
+        assertEquals(1, renders[0]);
+        assertEquals(Color.RED.getRGB(), screen.getRGB(1, 1));
+        assertEquals(Color.BLUE.getRGB(), screen.getRGB(50, 50));
+        
+        // A repaint of part of the panel copies just that part of the cached image
+        screen.setRGB(50, 50, Color.BLACK.getRGB());
+        screen.setRGB(10, 10, Color.BLACK.getRGB());
+        Graphics2D clipped = screen.createGraphics();
+        clipped.setClip(40, 40, 20, 20);
+        layer.paint(owner, clipped);
+        clipped.dispose();
+        assertEquals(1, renders[0]);
+        assertEquals(Color.BLUE.getRGB(), screen.getRGB(50, 50));
+        assertEquals(Color.BLACK.getRGB(), screen.getRGB(10, 10));
+        
+        owner.setSize(120, 80);
+        layer.paint(owner, g);
+        assertEquals(2, renders[0]);
+        owner.setBackground(Color.GREEN);
+        layer.paint(owner, g);
+        assertEquals(3, renders[0]);
+        assertEquals(Color.GREEN.getRGB(), screen.getRGB(50, 50));
+        layer.paint(owner, g);
+        assertEquals(3, renders[0]);
+        
+        // Nothing to render into before the panel is laid out
+        owner.setSize(0, 0);
+        layer.paint(owner, g);
+        assertEquals(3, renders[0]);
+        g.dispose();
+    }
+}
+
@@ -0,0 +1,124 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for SearchLimits - each kind of bound on its own, and depth, node and time limits through ComputerPlayer
+public class SearchLimitsTest {
+    
+    // 15x15 board after one move, where Hard has far more to search than any of the limits allow
+    private static Board openingBoard() {
+        Board board = new Board(BoardSpec.of(15, 15, 5));
+        board.makeMove(new Move(7, 7), CellState.X);
+        return board;
+    }
+    
+    private static SearchResult search(SearchLimits limits) {
+        ComputerPlayer player = new ComputerPlayer(CellState.O, "O", Difficulty.HARD, new HeapTranspositionTable(16));
+        return player.search(openingBoard(), null, limits);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsNegativeLimits() {
+        new SearchLimits(0, -1, 0, false, false);
+    }
+    
+    @Test
+    public void testOpenEnded() {
+        assertFalse(SearchLimits.none().isOpenEnded());
+        assertFalse(new SearchLimits(3, 0, 0, false, false).isOpenEnded());
+        assertTrue(new SearchLimits(0, 1000, 0, false, false).isOpenEnded());
+        assertTrue(new SearchLimits(0, 0, 100, false, false).isOpenEnded());
+        assertTrue(new SearchLimits(0, 0, 0, true, false).isOpenEnded());
+        assertTrue(new SearchLimits(0, 0, 0, false, true).isOpenEnded());
+    }
+    
+    @Test
+    public void testDepthLimit() {
+        SearchResult result = search(new SearchLimits(2, 0, 0, false, false));
+        assertNotNull(result.getMove());
+        assertEquals(2, result.getDepth());
+    }
+    
+    @Test
+    public void testNodeLimit() {
+        SearchResult result = search(new SearchLimits(0, 500, 0, false, false));
+        assertNotNull(result.getMove());
+        // The node that finds the limit reached is counted, but not searched
+        assertTrue(result.getStats().getNodes() + " nodes", result.getStats().getNodes() <= 501);
+    }
+    
+    @Test
+    public void testMoveTime() throws InterruptedException {
+        SearchLimits limits = new SearchLimits(0, 0, 200, false, false);
+        limits.start();
+        assertFalse(limits.isTimeUp());
+        Thread.sleep(250);
+        assertTrue(limits.isTimeUp());
+        
+        long start = System.nanoTime();
+        SearchResult result = search(new SearchLimits(0, 0, 100, false, false));
+        assertNotNull(result.getMove());
+        assertTrue(System.nanoTime() - start < 2_000_000_000L);
+    }
+    
+    @Test
+    public void testWithMoveTime() {
+        SearchLimits base = new SearchLimits(3, 1000, 0, false, false);
+        SearchLimits timed = base.withMoveTime(500);
+        assertEquals(3, timed.getDepth());
+        assertEquals(1000, timed.getNodes());
+        assertEquals(500, timed.getMoveTimeMillis());
+        // The shorter move time wins
+        assertEquals(200, new SearchLimits(0, 0, 200, false, false).withMoveTime(500).getMoveTimeMillis());
+        assertEquals(200, new SearchLimits(0, 0, 500, false, false).withMoveTime(200).getMoveTimeMillis());
+        
+        // Stopping the derived limits leaves the base running; stopping the base stops both
+        timed.stop();
+        assertFalse(base.isStopped());
+        SearchLimits other = base.withMoveTime(500);
+        base.stop();
+        assertTrue(other.isStopped());
+        assertTrue(other.isTimeUp());
+    }
+    
+    @Test
+    public void testStopEndsSearch() throws InterruptedException {
+        SearchLimits limits = new SearchLimits(0, 0, 0, true, false);
+        limits.start();
+        assertFalse(limits.isTimeUp());
+        Thread stopper = new Thread(limits::stop);
+        stopper.start();
+        // An infinite search holds its result until stopped
+        limits.awaitRelease();
+        assertTrue(limits.isStopped());
+        assertTrue(limits.isTimeUp());
+        stopper.join();
+        
+        // Stopped before it starts, a search still returns a move
+        SearchLimits stopped = SearchLimits.none();
+        stopped.stop();
+        assertNotNull(search(stopped).getMove());
+    }
+    
+    @Test
+    public void testPonderHitStartsMoveTime() throws InterruptedException {
+        SearchLimits limits = new SearchLimits(0, 0, 200, false, true);
+        limits.start();
+        Thread.sleep(250);
+        // The move time does not run while pondering
+        assertFalse(limits.isTimeUp());
+        assertTrue(limits.isPondering());
+        
+        Thread hit = new Thread(limits::ponderHit);
+        hit.start();
+        limits.awaitRelease();
+        hit.join();
+        assertFalse(limits.isPondering());
+        assertFalse(limits.isStopped());
+        assertFalse(limits.isTimeUp());
+        Thread.sleep(250);
+        assertTrue(limits.isTimeUp());
+    }
+}
+
@@ -0,0 +1,116 @@
+package tictactoe;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+import javax.management.ObjectName;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for SearchStats and SearchMonitor - the counters of a depth-limited search on a known position, and the
+// monitor's totals, JMX view and log line
+public class SearchStatsTest {
+    
+    // O to answer X's centre stone on 15x15, three plies deep - a plain alpha-beta search, no solver involved
+    private static SearchResult searchOpening(String name, SearchListener listener) {
+        Board board = new Board(BoardSpec.of(15, 15, 5));
+        board.makeMove(new Move(7, 7), CellState.X);
+        ComputerPlayer player = new ComputerPlayer(CellState.O, name, Difficulty.HARD, new HeapTranspositionTable(16));
+        return player.search(board, listener, new SearchLimits(3, 0, 0, false, false));
+    }
+    
+    @Test
+    public void testCountersForKnownPosition() {
+        List<SearchResult> progress = new ArrayList<>();
+        SearchResult result = searchOpening("O", progress::add);
+        SearchStats stats = result.getStats();
+        
+        assertEquals(3, result.getDepth());
+        assertEquals(3, stats.getMaxDepth());
+        assertEquals(3, stats.getIterations());
+        List<Move> pv = stats.getPrincipalVariation();
+        assertEquals(3, pv.size());
+        assertEquals(result.getMove(), pv.get(0));
+        // Every move of the line is on an empty cell and none repeats
+        assertEquals(3, pv.stream().distinct().count());
+        assertFalse(pv.contains(new Move(7, 7)));
+        
+        // One report per depth, each searching more nodes than the last, the final one matching the result
+        assertEquals(3, progress.size());
+        for (int i = 0; i < progress.size(); i++) {
+            SearchStats report = progress.get(i).getStats();
+            assertEquals(i + 1, progress.get(i).getDepth());
+            assertEquals(i + 1, report.getIterations());
+            assertEquals(i + 1, report.getPrincipalVariation().size());
+            assertTrue(i == 0 || report.getNodes() > progress.get(i - 1).getStats().getNodes());
+        }
+        assertEquals(stats.getNodes(), progress.get(2).getStats().getNodes());
+        
+        assertTrue(stats.getBetaCutoffs() > 0);
+        assertTrue(stats.getFirstMoveCutoffs() <= stats.getBetaCutoffs());
+        assertTrue(stats.getTableHits() <= stats.getTableProbes());
+        assertTrue(stats.getBetaCutoffs() < stats.getNodes());
+    }
+    
+    @Test
+    public void testLogLine() {
+        SearchStats stats = searchOpening("O", null).getStats();
+        String line = stats.toLogLine();
+        
+        assertTrue(line, line.startsWith("nodes=" + stats.getNodes() + " nps="));
+        assertTrue(line, line.contains(" depth=3 "));
+        Move first = stats.getPrincipalVariation().get(0);
+        assertTrue(line, line.contains(" pv=" + first.getRow() + ":" + first.getCol() + ","));
+        assertEquals(2, line.replaceAll(".* iterationsUs=(\\S*) .*", "$1").replaceAll("[^,]", "").length());
+    }
+    
+    @Test
+    public void testMonitorReceivesReports() throws Exception {
+        SearchMonitor monitor = SearchMonitor.getInstance();
+        List<String> logged = new ArrayList<>();
+        Handler handler = new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                logged.add(record.getMessage());
+            }
+            
+            @Override
+            public void flush() {
+            }
+            
+            @Override
+            public void close() {
+            }
+        };
+        Logger log = Logger.getLogger("tictactoe.search");
+        Level level = log.getLevel();
+        log.addHandler(handler);
+        log.setLevel(Level.FINE);
+        try {
+            long searches = monitor.getSearches();
+            long nodes = monitor.getTotalNodes();
+            SearchStats stats = searchOpening("Test O", null).getStats();
+            
+            assertEquals(searches + 1, monitor.getSearches());
+            assertEquals(nodes + stats.getNodes(), monitor.getTotalNodes());
+            assertEquals(stats.getNodes(), monitor.getLastNodes());
+            assertEquals(3, monitor.getLastMaxDepth());
+            assertEquals(stats.toLogLine(), monitor.getLastSummary());
+            assertEquals(1, logged.size());
+            assertEquals("search player=Test_O mark=O " + stats.toLogLine(), logged.get(0));
+            
+            // The same totals over JMX
+            Object attribute = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("tictactoe:type=SearchMonitor"), "Searches");
+            assertEquals(monitor.getSearches(), ((Long) attribute).longValue());
+        } finally {
+            log.removeHandler(handler);
+            log.setLevel(level);
+        }
+    }
+}
+
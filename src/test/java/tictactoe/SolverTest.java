@@ -0,0 +1,91 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for Solver - proven results and lines on 3x3 and 15x15, and solving within a small node store
+public class SolverTest {
+    
+    private static Board board(BoardSpec spec, int[][] xs, int[][] os) {
+        Board board = new Board(spec);
+        for (int[] x : xs) {
+            board.makeMove(new Move(x[0], x[1]), CellState.X);
+        }
+        for (int[] o : os) {
+            board.makeMove(new Move(o[0], o[1]), CellState.O);
+        }
+        return board;
+    }
+    
+    @Test
+    public void testEmptyBoardIsDraw() {
+        Solver.Result result = new Solver().solve(new Board(), CellState.X);
+        assertEquals(Solver.Outcome.DRAW, result.getOutcome());
+        assertTrue(result.getLine().isEmpty());
+    }
+    
+    @Test
+    public void testForkWins() {
+        // X: (0,0) (1,1), O: (0,1) (2,2) - X forks with (1,0)
+        Board board = board(BoardSpec.STANDARD, new int[][] {{0, 0}, {1, 1}}, new int[][] {{0, 1}, {2, 2}});
+        Solver.Result result = new Solver().solve(board, CellState.X);
+        
+        assertEquals(Solver.Outcome.WIN, result.getOutcome());
+        assertEquals(new Move(1, 0), result.getLine().get(0));
+        assertEquals(3, result.getLine().size());
+        assertEquals(CellState.X, result.getWinLine().getMark());
+    }
+    
+    @Test
+    public void testLossForTheSideToMove() {
+        Board board = board(BoardSpec.STANDARD, new int[][] {{0, 0}, {1, 1}}, new int[][] {{0, 1}});
+        Solver.Result result = new Solver().solve(board, CellState.O);
+        
+        assertEquals(Solver.Outcome.LOSS, result.getOutcome());
+        assertEquals(new Move(2, 2), result.getLine().get(0)); // the forced block
+        assertEquals(CellState.X, result.getWinLine().getMark());
+    }
+    
+    @Test
+    public void testThreatSequenceOnLargeBoard() {
+        // X fours twice in a row, then has two ways to five
+        Board board = board(BoardSpec.of(15, 15, 5),
+            new int[][] {{7, 7}, {7, 8}, {7, 9}, {8, 10}, {9, 10}, {10, 7}, {10, 8}, {10, 9}},
+            new int[][] {{7, 6}, {11, 10}, {10, 6}, {0, 0}, {14, 14}, {0, 14}, {14, 0}, {1, 1}});
+        Solver.Result result = new Solver(16, 50_000).solve(board, CellState.X);
+        
+        assertEquals(Solver.Outcome.WIN, result.getOutcome());
+        assertEquals(new Move(7, 10), result.getLine().get(0));
+        WinLine win = result.getWinLine();
+        assertNotNull(win);
+        assertEquals(5, win.getLength());
+        Move last = result.getLine().get(result.getLine().size() - 1);
+        assertTrue(win.contains(last.getRow(), last.getCol()));
+    }
+    
+    @Test
+    public void testSmallStoreCollectsAndStillSolves() {
+        Solver.Result result = new Solver(5, 1_000_000).solve(new Board(), CellState.X);
+        assertEquals(Solver.Outcome.DRAW, result.getOutcome());
+        assertTrue(result.getCollections() > 0);
+    }
+    
+    @Test
+    public void testBudgetGivesUnknown() {
+        Solver.Result result = new Solver(16, 100).solve(new Board(BoardSpec.of(15, 15, 5)), CellState.X);
+        assertEquals(Solver.Outcome.UNKNOWN, result.getOutcome());
+        assertTrue(result.getLine().isEmpty());
+    }
+    
+    @Test
+    public void testHardPlaysProvenWin() {
+        Board board = board(BoardSpec.of(15, 15, 5),
+            new int[][] {{7, 7}, {7, 8}, {7, 9}, {8, 10}, {9, 10}, {10, 7}, {10, 8}, {10, 9}},
+            new int[][] {{7, 6}, {11, 10}, {10, 6}, {0, 0}, {14, 14}, {0, 14}, {14, 0}, {1, 1}});
+        SearchResult result = new ComputerPlayer(CellState.X, "X", Difficulty.HARD).search(board);
+        
+        assertEquals(new Move(7, 10), result.getMove());
+        assertEquals(5, ComputerPlayer.forcedPlies(result.getScore()));
+    }
+}
+
@@ -0,0 +1,57 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for StrengthCalibrator - the Elo conversion, a match between the level ends and the shape of a fitted
+// table, on 3x3 with a handful of games so they stay fast
+public class StrengthCalibratorTest {
+    
+    private static StrengthCalibrator calibrator(int games) {
+        return new StrengthCalibrator(BoardSpec.of(3, 3, 3), games, 1);
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsTooFewGames() {
+        calibrator(1);
+    }
+    
+    @Test
+    public void testDefaultsToLargeBoard() {
+        assertEquals(BoardSpec.of(15, 15, 5), StrengthCalibrator.DEFAULT_SPEC);
+    }
+    
+    @Test
+    public void testElo() {
+        StrengthCalibrator calibrator = calibrator(10);
+        assertEquals(0, calibrator.elo(0.5), 1e-9);
+        assertEquals(-calibrator.elo(0.75), calibrator.elo(0.25), 1e-9);
+        // 3 to 1 is about 191 Elo
+        assertEquals(191, calibrator.elo(0.75), 1);
+        // A clean sweep is clamped half a game short, so it stays finite
+        assertEquals(calibrator.elo(0.95), calibrator.elo(1), 1e-9);
+        assertEquals(-calibrator.elo(1), calibrator.elo(0), 1e-9);
+        assertTrue(Double.isFinite(calibrator.elo(1)));
+    }
+    
+    @Test
+    public void testTopLevelOutscoresBottom() {
+        StrengthCalibrator calibrator = calibrator(10);
+        // Level 20 never loses, and random moves cannot hold it to draws every game
+        assertTrue(calibrator.score(Strength.of(20), Strength.of(1)) > 0.5);
+        assertTrue(calibrator.score(Strength.of(1), Strength.of(20)) < 0.5);
+    }
+    
+    @Test
+    public void testFitShape() {
+        double[] rates = calibrator(4).fit(20);
+        assertEquals(Strength.MAX_LEVEL, rates.length);
+        assertEquals(1.0, rates[0], 0.0);
+        assertEquals(0.0, rates[Strength.MAX_LEVEL - 1], 0.0);
+        for (int i = 1; i < rates.length; i++) {
+            assertTrue("level " + (i + 1), rates[i] <= rates[i - 1]);
+        }
+        assertEquals(Strength.MAX_LEVEL - 1, calibrator(2).measure(rates).length);
+    }
+}
+
@@ -0,0 +1,105 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for Strength and how ComputerPlayer plays it - the level ends, node budgets and the Difficulty presets
+public class StrengthTest {
+    
+    private static ComputerPlayer player(Strength strength, long seed) {
+        return new ComputerPlayer(CellState.O, "Computer", strength, new HeapTranspositionTable(12), new Random(seed));
+    }
+    
+    @Test
+    public void testLevelOneNeverSearches() {
+        ComputerPlayer player = player(Strength.of(1), 1);
+        Board board = new Board(BoardSpec.of(15, 15, 5));
+        board.makeMove(new Move(7, 7), CellState.X);
+        for (int i = 0; i < 20; i++) {
+            SearchResult result = player.search(board);
+            assertEquals(0, result.getStats().getNodes());
+            assertTrue(board.isValidMove(result.getMove()));
+        }
+    }
+    
+    @Test
+    public void testNodeUseStaysWithinBudget() {
+        Board board = new Board(BoardSpec.of(15, 15, 5));
+        board.makeMove(new Move(7, 7), CellState.X);
+        for (int level = 2; level < Strength.MAX_LEVEL; level += 4) {
+            Strength strength = Strength.withBlunderRate(level, 0);
+            SearchResult result = player(strength, level).search(board);
+            assertTrue(strength + " used " + result.getStats().getNodes(),
+                result.getStats().getNodes() <= strength.getNodeBudget() + 1);
+        }
+    }
+    
+    @Test
+    public void testBudgetsGrowWithLevel() {
+        for (int level = 2; level < Strength.MAX_LEVEL - 1; level++) {
+            Strength lower = Strength.of(level);
+            Strength upper = Strength.of(level + 1);
+            assertTrue(upper.getNodeBudget() > lower.getNodeBudget());
+            assertTrue(upper.getEvalNoise() < lower.getEvalNoise());
+            for (BoardSpec spec : new BoardSpec[] {BoardSpec.STANDARD, BoardSpec.of(15, 15, 5)}) {
+                assertTrue(upper.getBlunderRate(spec) <= lower.getBlunderRate(spec));
+            }
+        }
+        assertEquals(1.0, Strength.of(1).getBlunderRate(BoardSpec.of(15, 15, 5)), 0.0);
+        assertEquals(0.0, Strength.of(20).getBlunderRate(BoardSpec.STANDARD), 0.0);
+        assertEquals(0, Strength.of(20).getEvalNoise());
+    }
+    
+    @Test
+    public void testLevelTwentyNeverLosesFromCorner() {
+        // Level 20 is Hard: after X takes a corner it must answer in the centre
+        Board board = new Board();
+        board.makeMove(new Move(0, 0), CellState.X);
+        assertEquals(new Move(1, 1), player(Strength.of(20), 1).getMove(board));
+    }
+    
+    @Test
+    public void testDifficultyPresets() {
+        assertEquals(Strength.of(1), Difficulty.EASY.getStrength());
+        assertEquals(Strength.of(20), Difficulty.HARD.getStrength());
+        assertEquals(Difficulty.EASY, Difficulty.of(Strength.of(1)));
+        assertEquals(Difficulty.MEDIUM, Difficulty.of(Strength.of(12)));
+        assertEquals(Difficulty.HARD, Difficulty.of(Strength.of(20)));
+        assertEquals(Difficulty.MEDIUM, player(Difficulty.MEDIUM.getStrength(), 1).getDifficulty());
+    }
+    
+    @Test
+    public void testMediumBlundersOneMoveInFive() {
+        // Medium played a random move 20% of the time before it became a Strength level
+        assertEquals(14, Difficulty.MEDIUM.getStrength().getLevel());
+        assertEquals(0.2, Difficulty.MEDIUM.getStrength().getBlunderRate(BoardSpec.STANDARD), 0.02);
+    }
+    
+    @Test
+    public void testBlunderTableFollowsBoard() {
+        // 3x3 is solved whole by every level that searches; on 4x4 and up the budgets and noise count as well
+        assertTrue(Strength.isSmallBoard(BoardSpec.STANDARD));
+        assertFalse(Strength.isSmallBoard(BoardSpec.of(4, 4, 3)));
+        assertFalse(Strength.isSmallBoard(BoardSpec.of(15, 15, 5)));
+        Strength medium = Difficulty.MEDIUM.getStrength();
+        assertTrue(medium.getBlunderRate(BoardSpec.of(15, 15, 5)) < medium.getBlunderRate(BoardSpec.STANDARD));
+        // A trial rate applies on every board
+        Strength trial = Strength.withBlunderRate(14, 0.5);
+        assertEquals(0.5, trial.getBlunderRate(BoardSpec.STANDARD), 0.0);
+        assertEquals(0.5, trial.getBlunderRate(BoardSpec.of(15, 15, 5)), 0.0);
+    }
+    
+    @Test
+    public void testParse() {
+        assertEquals(7, Strength.parse("7").getLevel());
+        assertEquals(Difficulty.MEDIUM.getStrength(), Strength.parse("medium"));
+        assertEquals(20, Strength.parse(" HARD ").getLevel());
+    }
+    
+    @Test(expected = IllegalArgumentException.class)
+    public void testLevelOutOfRange() {
+        Strength.of(21);
+    }
+}
+
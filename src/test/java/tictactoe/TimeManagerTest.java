@@ -0,0 +1,103 @@
+package tictactoe;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for TimeManager - clocks with increment, per-move budgets, early stops and losing on time
+public class TimeManagerTest {
+    private long now;
+    
+    private void advanceMillis(long millis) {
+        now += millis * 1_000_000;
+    }
+    
+    @Test
+    public void testClockChargesTurnAndAddsIncrement() {
+        TimeManager clock = new TimeManager(1000, 50, () -> now);
+        clock.startTurn(CellState.X);
+        advanceMillis(300);
+        assertEquals(700, clock.getRemainingMillis(CellState.X));
+        
+        assertTrue(clock.endTurn(CellState.X));
+        assertEquals(750, clock.getRemainingMillis(CellState.X));
+        assertEquals(1000, clock.getRemainingMillis(CellState.O));
+        
+        clock.startTurn(CellState.O);
+        advanceMillis(1200);
+        assertTrue(clock.isFlagged(CellState.O));
+        assertFalse(clock.endTurn(CellState.O));
+    }
+    
+    @Test
+    public void testBudgetFollowsClockAndBoard() {
+        TimeManager.MoveBudget opening = TimeManager.MoveBudget.plan(60_000, 0, 225);
+        TimeManager.MoveBudget endgame = TimeManager.MoveBudget.plan(60_000, 0, 6);
+        TimeManager.MoveBudget withIncrement = TimeManager.MoveBudget.plan(60_000, 1000, 225);
+        
+        assertTrue(opening.getSoftMillis() < endgame.getSoftMillis());
+        assertTrue(opening.getSoftMillis() < withIncrement.getSoftMillis());
+        assertTrue(opening.getHardMillis() >= opening.getSoftMillis());
+        assertTrue(endgame.getHardMillis() <= 60_000);
+        assertEquals(endgame.getHardMillis(), endgame.getLimits().getMoveTimeMillis());
+        assertTrue(TimeManager.MoveBudget.plan(5, 0, 9).getHardMillis() >= 1);
+        
+        // A budget on top of the caller's limits keeps their depth and node bounds
+        SearchLimits limits = new SearchLimits(3, 1000, 0, false, false);
+        SearchLimits budgeted = TimeManager.MoveBudget.plan(60_000, 0, 225, limits).getLimits();
+        assertEquals(3, budgeted.getDepth());
+        assertEquals(1000, budgeted.getNodes());
+        assertEquals(opening.getHardMillis(), budgeted.getMoveTimeMillis());
+    }
+    
+    @Test
+    public void testEasyMoveStopsEarly() {
+        TimeManager.MoveBudget budget = TimeManager.MoveBudget.plan(60_000, 0, 60, () -> now);
+        Move same = new Move(3, 3);
+        for (int depth = 1; depth <= 4 && !budget.getLimits().isStopped(); depth++) {
+            advanceMillis(budget.getSoftMillis() / 10);
+            budget.iterationCompleted(new SearchResult(same, 0, depth, null));
+        }
+        assertTrue(budget.isStoppedEarly());
+        assertTrue(budget.getLimits().isStopped());
+    }
+    
+    @Test
+    public void testInstabilityExtendsSearch() {
+        TimeManager.MoveBudget stable = TimeManager.MoveBudget.plan(60_000, 0, 60, () -> now);
+        TimeManager.MoveBudget unstable = TimeManager.MoveBudget.plan(60_000, 0, 60, () -> now);
+        long step = stable.getSoftMillis() * 7 / 20; // past 60% of the plan after two iterations
+        
+        stable.iterationCompleted(new SearchResult(new Move(0, 0), 0, 1, null));
+        unstable.iterationCompleted(new SearchResult(new Move(0, 0), 0, 1, null));
+        advanceMillis(step * 2);
+        stable.iterationCompleted(new SearchResult(new Move(0, 0), 0, 2, null));
+        unstable.iterationCompleted(new SearchResult(new Move(1, 1), 0, 2, null));
+        
+        assertTrue(stable.getLimits().isStopped());
+        assertFalse(unstable.getLimits().isStopped());
+    }
+    
+    @Test
+    public void testLateMoveLosesOnTime() {
+        Player playerX = new HumanPlayer(CellState.X, "Player 1");
+        Player playerO = new HumanPlayer(CellState.O, "Player 2");
+        GameEngine engine = new GameEngine(playerX, playerO);
+        engine.setClock(new TimeManager(1000, 0, () -> now));
+        
+        advanceMillis(400);
+        assertTrue(engine.processMove(new Move(1, 1)));
+        advanceMillis(500);
+        assertFalse(engine.checkClock());
+        advanceMillis(600);
+        assertFalse(engine.processMove(new Move(0, 0)));
+        
+        assertEquals(GameState.X_WINS, engine.getState());
+        assertTrue(engine.isTimeForfeit());
+        assertNull(engine.getWinLine());
+        
+        engine.reset();
+        assertEquals(GameState.PLAYING, engine.getState());
+        assertEquals(1000, engine.getClock().getRemainingMillis(CellState.O));
+    }
+}
+
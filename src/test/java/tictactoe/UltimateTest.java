@@ -0,0 +1,137 @@
+package tictactoe;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+// Unit tests for ultimate tic-tac-toe - the sending rule, the 512-entry tables and random games against a direct
+// reading of the rules off the Board, and UltimateSearch through ComputerPlayer
+public class UltimateTest {
+    
+    // Board cell of (sub-board, cell within it), both row-major 0-8
+    private static int cell(int sub, int inner) {
+        return ((sub / 3) * 3 + inner / 3) * UltimateRules.SIZE + (sub % 3) * 3 + inner % 3;
+    }
+    
+    // Winner of a sub-board read cell by cell, EMPTY if none
+    private static CellState winner(Board board, int sub) {
+        int[][] lines = {{0, 1, 2}, {3, 4, 5}, {6, 7, 8}, {0, 3, 6}, {1, 4, 7}, {2, 5, 8}, {0, 4, 8}, {2, 4, 6}};
+        for (int[] line : lines) {
+            CellState first = board.cellAt(cell(sub, line[0]));
+            if (first != CellState.EMPTY && first == board.cellAt(cell(sub, line[1]))
+                    && first == board.cellAt(cell(sub, line[2]))) {
+                return first;
+            }
+        }
+        return CellState.EMPTY;
+    }
+    
+    private static boolean isOpen(Board board, int sub) {
+        if (winner(board, sub) != CellState.EMPTY) {
+            return false;
+        }
+        for (int inner = 0; inner < 9; inner++) {
+            if (board.isEmptyAt(cell(sub, inner))) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Test
+    public void testTables() {
+        for (int mask = 0; mask <= UltimateRules.FULL; mask++) {
+            Board board = new Board(UltimateRules.SPEC);
+            for (int bit = 0; bit < 9; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    board.place(cell(0, bit), CellState.X);
+                }
+            }
+            assertEquals(winner(board, 0) == CellState.X, UltimateRules.WON[mask]);
+            int n = 0;
+            for (int bit = 0; bit < 9; bit++) {
+                if ((mask & (1 << bit)) != 0) {
+                    assertEquals(bit, UltimateRules.SELECT[mask * 9 + n++]);
+                }
+            }
+        }
+    }
+    
+    @Test
+    public void testMoveSendsOpponent() {
+        GameEngine engine = new GameEngine(new HumanPlayer(CellState.X, "X"), new HumanPlayer(CellState.O, "O"),
+            GameRules.parse("ultimate"));
+        // X plays the top right cell of the top left sub-board: O must play in the top right sub-board
+        assertTrue(engine.processMove(new Move(0, 2)));
+        assertFalse(engine.isLegalMove(new Move(4, 4)));
+        assertFalse(engine.processMove(new Move(4, 4)));
+        assertTrue(engine.isLegalMove(new Move(1, 7)));
+        assertTrue(engine.processMove(new Move(1, 7)));
+        // ...which sends X to the centre sub-board
+        assertTrue(engine.processMove(new Move(4, 4)));
+        assertEquals(CellState.X, engine.getBoard().getCell(4, 4));
+    }
+    
+    @Test
+    public void testRandomGamesFollowRules() {
+        Random random = new Random(7);
+        int[] moves = new int[UltimateRules.SIZE * UltimateRules.SIZE];
+        for (int game = 0; game < 100; game++) {
+            GamePosition position = UltimateRules.INSTANCE.start();
+            Board board = position.getBoard();
+            int last = -1;
+            while (position.getOutcome() == GameState.PLAYING) {
+                // Legal cells straight from the rules
+                int target = last < 0 ? -1 : UltimateRules.toState(last) % 9;
+                boolean anywhere = target < 0 || !isOpen(board, target);
+                for (int cell = 0; cell < board.cellCount(); cell++) {
+                    int sub = UltimateRules.subBoardOf(cell);
+                    boolean legal = board.isEmptyAt(cell) && isOpen(board, sub) && (anywhere || sub == target);
+                    assertEquals(legal, position.isLegal(cell));
+                }
+                int count = position.legalMoves(moves);
+                long key = position.getKey();
+                position.play(moves[0]);
+                position.undo();
+                assertEquals(key, position.getKey());
+                last = moves[random.nextInt(count)];
+                position.play(last);
+            }
+            int x = 0;
+            int o = 0;
+            boolean open = false;
+            for (int sub = 0; sub < 9; sub++) {
+                CellState won = winner(board, sub);
+                x |= won == CellState.X ? 1 << sub : 0;
+                o |= won == CellState.O ? 1 << sub : 0;
+                open |= isOpen(board, sub);
+            }
+            GameState expected = UltimateRules.WON[x] ? GameState.X_WINS : UltimateRules.WON[o] ? GameState.O_WINS
+                : GameState.DRAW;
+            assertEquals(expected, position.getOutcome());
+            assertTrue(expected != GameState.DRAW || !open);
+            if (expected != GameState.DRAW) {
+                assertEquals(position.getToMove() == CellState.X ? CellState.O : CellState.X,
+                    position.getWinLine().getMark());
+            }
+        }
+    }
+    
+    @Test
+    public void testSearchBeatsRandom() {
+        Random random = new Random(2);
+        int wins = 0;
+        for (int game = 0; game < 4; game++) {
+            GameEngine engine = new GameEngine(
+                new ComputerPlayer(CellState.X, "X", Strength.of(15), new HeapTranspositionTable(10), random),
+                new ComputerPlayer(CellState.O, "O", Strength.of(1), new HeapTranspositionTable(10), random),
+                UltimateRules.INSTANCE);
+            while (engine.getState() == GameState.PLAYING) {
+                assertTrue(engine.processMove(engine.getComputerMove()));
+            }
+            wins += engine.getState() == GameState.X_WINS ? 1 : 0;
+        }
+        assertTrue("won " + wins + " of 4", wins >= 3);
+    }
+}
+